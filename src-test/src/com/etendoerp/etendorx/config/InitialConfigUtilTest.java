@@ -43,6 +43,7 @@ public class InitialConfigUtilTest {
    */
   @Before
   public void setUp() {
+    SessionBootstrapCache.clear();
     requestContextMockedStatic = mockStatic(RequestContext.class);
     configParametersMockedStatic = mockStatic(ConfigParameters.class);
     secureWebServicesUtilsMockedStatic = mockStatic(SecureWebServicesUtils.class);
@@ -0,0 +1,193 @@
+package com.etendoerp.etendorx.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedConstruction;
+import org.mockito.MockedStatic;
+import org.openbravo.base.secureApp.LoginUtils;
+import org.openbravo.base.secureApp.LoginUtils.RoleDefaults;
+import org.openbravo.base.secureApp.VariablesSecureApp;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.model.ad.access.Role;
+import org.openbravo.model.ad.access.User;
+import org.openbravo.model.ad.system.Language;
+import org.openbravo.model.common.enterprise.Organization;
+import org.openbravo.service.db.DalConnectionProvider;
+
+/**
+ * Unit tests for the {@link SessionBootstrapCache} class.
+ */
+public class SessionBootstrapCacheTest {
+
+  private static final String CLIENT_ATTRIBUTE = "#AD_CLIENT_ID";
+  private static final String CLIENT_ID = "CLIENT_ID";
+  private static final String FORMAT_PATH = "some/path";
+
+  private MockedStatic<OBContext> obContextMockedStatic;
+  private MockedStatic<LoginUtils> loginUtilsMockedStatic;
+  private MockedConstruction<DalConnectionProvider> connectionMockedConstruction;
+  private RoleDefaults defaults;
+
+  /**
+   * Mocks the context of the current user and the login utilities, which set the client in the
+   * session.
+   */
+  @Before
+  public void setUp() {
+    SessionBootstrapCache.clear();
+    SessionBootstrapCache.configure(10, 60_000L);
+    obContextMockedStatic = mockStatic(OBContext.class);
+    loginUtilsMockedStatic = mockStatic(LoginUtils.class);
+    connectionMockedConstruction = mockConstruction(DalConnectionProvider.class);
+
+    OBContext context = mock(OBContext.class);
+    User user = mock(User.class);
+    Role role = mock(Role.class);
+    Organization organization = mock(Organization.class);
+    Language language = mock(Language.class);
+    when(user.getId()).thenReturn("USER_ID");
+    when(role.getId()).thenReturn("ROLE_ID");
+    when(organization.getId()).thenReturn("ORG_ID");
+    when(language.getLanguage()).thenReturn("en_US");
+    when(context.getUser()).thenReturn(user);
+    when(context.getRole()).thenReturn(role);
+    when(context.getCurrentOrganization()).thenReturn(organization);
+    when(context.getLanguage()).thenReturn(language);
+    obContextMockedStatic.when(OBContext::getOBContext).thenReturn(context);
+
+    defaults = new RoleDefaults();
+    defaults.role = "ROLE_ID";
+    defaults.client = CLIENT_ID;
+    loginUtilsMockedStatic.when(() -> LoginUtils.getLoginDefaults(anyString(), anyString(), any()))
+        .thenReturn(defaults);
+    loginUtilsMockedStatic.when(() -> LoginUtils.fillSessionArguments(any(), any(VariablesSecureApp.class),
+        anyString(), anyString(), anyString(), anyString(), anyString(), anyString(), any())).thenAnswer(inv -> {
+      inv.getArgument(1, VariablesSecureApp.class).setSessionValue(CLIENT_ATTRIBUTE, CLIENT_ID);
+      return true;
+    });
+    loginUtilsMockedStatic.when(() -> LoginUtils.readNumberFormat(any(VariablesSecureApp.class), anyString()))
+        .thenAnswer(inv -> {
+          inv.getArgument(0, VariablesSecureApp.class).setSessionValue("#DECIMALSEPARATOR|EURO", ",");
+          return null;
+        });
+  }
+
+  /**
+   * Closes the static mocks and drops the cached values.
+   */
+  @After
+  public void tearDown() {
+    obContextMockedStatic.close();
+    loginUtilsMockedStatic.close();
+    connectionMockedConstruction.close();
+    SessionBootstrapCache.clear();
+  }
+
+  private static HttpServletRequest requestWith(HttpSession session) {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getSession()).thenReturn(session);
+    when(request.getSession(any(Boolean.class))).thenReturn(session);
+    return request;
+  }
+
+  /**
+   * The second request of the same user and role gets the recorded session values without running
+   * the login queries again.
+   *
+   * @throws Exception
+   *     if the session cannot be filled
+   */
+  @Test
+  public void testSecondRequestReplaysSessionValues() throws Exception {
+    HttpSession firstSession = mock(HttpSession.class);
+    HttpSession secondSession = mock(HttpSession.class);
+
+    RoleDefaults first = SessionBootstrapCache.fillSessionArguments(requestWith(firstSession));
+    RoleDefaults second = SessionBootstrapCache.fillSessionArguments(requestWith(secondSession));
+
+    assertSame(defaults, first);
+    assertSame(defaults, second);
+    verify(firstSession).setAttribute(anyString(), eq(CLIENT_ID));
+    verify(secondSession).setAttribute(anyString(), eq(CLIENT_ID));
+    loginUtilsMockedStatic.verify(() -> LoginUtils.getLoginDefaults(anyString(), anyString(), any()), times(1));
+    assertEquals(1, SessionBootstrapCache.getMisses());
+    assertEquals(1, SessionBootstrapCache.getHits());
+    assertEquals(1, SessionBootstrapCache.size());
+  }
+
+  /**
+   * A session that could not be filled is not cached.
+   *
+   * @throws Exception
+   *     if the session cannot be filled
+   */
+  @Test
+  public void testFailedSetupIsNotCached() throws Exception {
+    loginUtilsMockedStatic.when(() -> LoginUtils.fillSessionArguments(any(), any(VariablesSecureApp.class),
+        anyString(), anyString(), anyString(), anyString(), anyString(), anyString(), any())).thenReturn(false);
+
+    SessionBootstrapCache.fillSessionArguments(requestWith(mock(HttpSession.class)));
+    SessionBootstrapCache.fillSessionArguments(requestWith(mock(HttpSession.class)));
+
+    assertEquals(2, SessionBootstrapCache.getMisses());
+    assertEquals(0, SessionBootstrapCache.size());
+  }
+
+  /**
+   * Invalidated and expired entries run the login queries again.
+   *
+   * @throws Exception
+   *     if the session cannot be filled
+   */
+  @Test
+  public void testInvalidatedAndExpiredEntriesAreReloaded() throws Exception {
+    SessionBootstrapCache.fillSessionArguments(requestWith(mock(HttpSession.class)));
+    SessionBootstrapCache.invalidate();
+    SessionBootstrapCache.fillSessionArguments(requestWith(mock(HttpSession.class)));
+
+    assertEquals(2, SessionBootstrapCache.getMisses());
+
+    SessionBootstrapCache.configure(10, 0L);
+    SessionBootstrapCache.fillSessionArguments(requestWith(mock(HttpSession.class)));
+    Thread.sleep(1);
+    SessionBootstrapCache.fillSessionArguments(requestWith(mock(HttpSession.class)));
+
+    assertEquals(4, SessionBootstrapCache.getMisses());
+    assertEquals(0, SessionBootstrapCache.getHits());
+  }
+
+  /**
+   * The number formats are read once per format file, and are kept when the sessions are
+   * invalidated.
+   */
+  @Test
+  public void testNumberFormatsAreReadOnce() {
+    HttpSession secondSession = mock(HttpSession.class);
+
+    SessionBootstrapCache.readNumberFormat(requestWith(mock(HttpSession.class)), FORMAT_PATH);
+    SessionBootstrapCache.invalidate();
+    SessionBootstrapCache.readNumberFormat(requestWith(secondSession), FORMAT_PATH);
+
+    verify(secondSession).setAttribute(anyString(), eq(","));
+    verify(secondSession, never()).removeAttribute(anyString());
+    loginUtilsMockedStatic.verify(() -> LoginUtils.readNumberFormat(any(VariablesSecureApp.class), eq(FORMAT_PATH)),
+        times(1));
+  }
+}
@@ -0,0 +1,130 @@
+package com.etendoerp.etendorx.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.client.kernel.event.EntityDeleteEvent;
+import org.openbravo.client.kernel.event.EntityNewEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEvent;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+
+import com.etendoerp.etendorx.services.metadata.EndpointMetadataCache;
+import com.etendoerp.etendorx.services.metadata.TabMetadataIndex;
+import com.etendoerp.etendorx.services.metadata.WindowMetadataWarmup;
+import com.etendoerp.etendorx.utils.SelectorDescriptor;
+import com.etendoerp.etendorx.utils.SelectorQueryTemplate;
+
+/**
+ * Test class for the {@link EndpointMetadataEventHandler} class. Verifies that the headless endpoint
+ * metadata is invalidated only on valid persistence events.
+ */
+public class EndpointMetadataEventHandlerTest {
+
+  private MockedStatic<ModelProvider> modelProviderStatic;
+  private MockedStatic<EndpointMetadataCache> cacheStatic;
+  private MockedStatic<TabMetadataIndex> indexStatic;
+  private MockedStatic<SelectorQueryTemplate> templateStatic;
+  private MockedStatic<SelectorDescriptor> descriptorStatic;
+  private MockedStatic<WindowMetadataWarmup> warmupStatic;
+
+  /**
+   * A testable extension of the EndpointMetadataEventHandler class that exposes the isValidEvent method for testing
+   * purposes.
+   */
+  private static class TestableEndpointMetadataEventHandler extends EndpointMetadataEventHandler {
+    @Override
+    public boolean isValidEvent(EntityPersistenceEvent event) {
+      return super.isValidEvent(event);
+    }
+  }
+
+  /**
+   * Mocks the model provider, needed to load the observed entities, and the metadata caches.
+   */
+  @Before
+  public void setUp() {
+    modelProviderStatic = mockStatic(ModelProvider.class);
+    ModelProvider providerInstance = mock(ModelProvider.class);
+    modelProviderStatic.when(ModelProvider::getInstance).thenReturn(providerInstance);
+    when(providerInstance.getEntity(anyString())).thenReturn(mock(Entity.class));
+    cacheStatic = mockStatic(EndpointMetadataCache.class);
+    indexStatic = mockStatic(TabMetadataIndex.class);
+    templateStatic = mockStatic(SelectorQueryTemplate.class);
+    descriptorStatic = mockStatic(SelectorDescriptor.class);
+    warmupStatic = mockStatic(WindowMetadataWarmup.class);
+  }
+
+  /**
+   * Closes the static mocks.
+   */
+  @After
+  public void tearDown() {
+    warmupStatic.close();
+    descriptorStatic.close();
+    templateStatic.close();
+    indexStatic.close();
+    cacheStatic.close();
+    modelProviderStatic.close();
+  }
+
+  /**
+   * Tests that the handler observes the endpoint, endpoint tab, endpoint field, tab, field, column, validation
+   * rule, auxiliary input, selector and selector field entities.
+   */
+  @Test
+  public void testGetObservedEntities() {
+    assertEquals(10, new EndpointMetadataEventHandler().getObservedEntities().length);
+  }
+
+  /**
+   * Tests that valid save, update and delete events invalidate the cache.
+   */
+  @Test
+  public void testValidEventsInvalidateCache() {
+    TestableEndpointMetadataEventHandler handler = spy(new TestableEndpointMetadataEventHandler());
+    doReturn(true).when(handler).isValidEvent(any(EntityPersistenceEvent.class));
+
+    handler.onSave(mock(EntityNewEvent.class));
+    handler.onUpdate(mock(EntityUpdateEvent.class));
+    handler.onDelete(mock(EntityDeleteEvent.class));
+
+    cacheStatic.verify(EndpointMetadataCache::invalidate, times(3));
+    indexStatic.verify(TabMetadataIndex::invalidate, times(3));
+    templateStatic.verify(SelectorQueryTemplate::invalidate, times(3));
+    descriptorStatic.verify(SelectorDescriptor::invalidate, times(3));
+    warmupStatic.verify(WindowMetadataWarmup::invalidate, times(3));
+  }
+
+  /**
+   * Tests that events on other entities do not invalidate the cache.
+   */
+  @Test
+  public void testNotValidEventsAreIgnored() {
+    TestableEndpointMetadataEventHandler handler = spy(new TestableEndpointMetadataEventHandler());
+    doReturn(false).when(handler).isValidEvent(any(EntityPersistenceEvent.class));
+
+    handler.onSave(mock(EntityNewEvent.class));
+    handler.onUpdate(mock(EntityUpdateEvent.class));
+    handler.onDelete(mock(EntityDeleteEvent.class));
+
+    cacheStatic.verify(EndpointMetadataCache::invalidate, never());
+    indexStatic.verify(TabMetadataIndex::invalidate, never());
+    templateStatic.verify(SelectorQueryTemplate::invalidate, never());
+    descriptorStatic.verify(SelectorDescriptor::invalidate, never());
+    warmupStatic.verify(WindowMetadataWarmup::invalidate, never());
+  }
+}
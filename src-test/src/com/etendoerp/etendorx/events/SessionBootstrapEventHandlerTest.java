@@ -0,0 +1,105 @@
+package com.etendoerp.etendorx.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.client.kernel.event.EntityDeleteEvent;
+import org.openbravo.client.kernel.event.EntityNewEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEvent;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+
+import com.etendoerp.etendorx.config.SessionBootstrapCache;
+
+/**
+ * Test class for the {@link SessionBootstrapEventHandler} class. Verifies that the cached session
+ * setup of the headless requests is invalidated only on valid persistence events.
+ */
+public class SessionBootstrapEventHandlerTest {
+
+  private MockedStatic<ModelProvider> modelProviderStatic;
+  private MockedStatic<SessionBootstrapCache> cacheStatic;
+
+  /**
+   * A testable extension of the SessionBootstrapEventHandler class that exposes the isValidEvent method for testing
+   * purposes.
+   */
+  private static class TestableSessionBootstrapEventHandler extends SessionBootstrapEventHandler {
+    @Override
+    public boolean isValidEvent(EntityPersistenceEvent event) {
+      return super.isValidEvent(event);
+    }
+  }
+
+  /**
+   * Mocks the model provider, needed to load the observed entities, and the session cache.
+   */
+  @Before
+  public void setUp() {
+    modelProviderStatic = mockStatic(ModelProvider.class);
+    ModelProvider providerInstance = mock(ModelProvider.class);
+    modelProviderStatic.when(ModelProvider::getInstance).thenReturn(providerInstance);
+    when(providerInstance.getEntity(anyString())).thenReturn(mock(Entity.class));
+    cacheStatic = mockStatic(SessionBootstrapCache.class);
+  }
+
+  /**
+   * Closes the static mocks.
+   */
+  @After
+  public void tearDown() {
+    cacheStatic.close();
+    modelProviderStatic.close();
+  }
+
+  /**
+   * Tests that the handler observes the user, role, user role, role organization and preference entities.
+   */
+  @Test
+  public void testGetObservedEntities() {
+    assertEquals(5, new SessionBootstrapEventHandler().getObservedEntities().length);
+  }
+
+  /**
+   * Tests that valid save, update and delete events invalidate the cache.
+   */
+  @Test
+  public void testValidEventsInvalidateCache() {
+    TestableSessionBootstrapEventHandler handler = spy(new TestableSessionBootstrapEventHandler());
+    doReturn(true).when(handler).isValidEvent(any(EntityPersistenceEvent.class));
+
+    handler.onSave(mock(EntityNewEvent.class));
+    handler.onUpdate(mock(EntityUpdateEvent.class));
+    handler.onDelete(mock(EntityDeleteEvent.class));
+
+    cacheStatic.verify(SessionBootstrapCache::invalidate, times(3));
+  }
+
+  /**
+   * Tests that events on other entities do not invalidate the cache.
+   */
+  @Test
+  public void testNotValidEventsAreIgnored() {
+    TestableSessionBootstrapEventHandler handler = spy(new TestableSessionBootstrapEventHandler());
+    doReturn(false).when(handler).isValidEvent(any(EntityPersistenceEvent.class));
+
+    handler.onSave(mock(EntityNewEvent.class));
+    handler.onUpdate(mock(EntityUpdateEvent.class));
+    handler.onDelete(mock(EntityDeleteEvent.class));
+
+    cacheStatic.verify(SessionBootstrapCache::invalidate, never());
+  }
+}
@@ -258,6 +258,10 @@ public class DynamicDatasourceEndpointTest extends WeldBaseTest {
     assertNotNull(myNewOpenAPI.getPaths());
     assertTrue(myNewOpenAPI.getPaths().containsKey("/sws/com.etendoerp.etendorx.datasource/TestEntity"));
     assertNotNull(myNewOpenAPI.getPaths().get("/sws/com.etendoerp.etendorx.datasource/TestEntity").getGet());
+    assertTrue(myNewOpenAPI.getPaths().get("/sws/com.etendoerp.etendorx.datasource/TestEntity").getGet()
+        .getParameters().stream().anyMatch(p -> StringUtils.equals("cursor", p.getName())));
+    assertTrue(myNewOpenAPI.getPaths().get("/sws/com.etendoerp.etendorx.datasource/TestEntity").getGet()
+        .getParameters().stream().anyMatch(p -> StringUtils.equals("_fields", p.getName())));
   }
 
 
@@ -0,0 +1,216 @@
+package com.etendoerp.etendorx.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.base.model.Property;
+import org.openbravo.model.ad.datamodel.Column;
+
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+import com.etendoerp.etendorx.services.wrapper.RequestField;
+
+/**
+ * Unit tests for CursorPagination.
+ */
+public class CursorPaginationTest {
+
+  private static final String TABLE_ID = "TABLE_ID";
+
+  private static final EndpointDescriptor DESCRIPTOR = new EndpointDescriptor.Builder()
+      .tableId(TABLE_ID)
+      .field(new RequestField("documentNo", mock(Column.class), 10L), "inpdocumentno", "String")
+      .field(new RequestField("businessPartner", mock(Column.class), 20L), "inpcBpartnerId", "String")
+      .build();
+
+  private static Map<String, String[]> params(String... keyValues) {
+    Map<String, String[]> params = new HashMap<>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      params.put(keyValues[i], new String[]{ keyValues[i + 1] });
+    }
+    return params;
+  }
+
+  private static JSONObject page(int size) throws Exception {
+    JSONArray data = new JSONArray();
+    for (int i = 1; i <= size; i++) {
+      data.put(new JSONObject().put("id", "ID" + i).put("documentNo", "DOC" + i));
+    }
+    return new JSONObject().put(DataSourceConstants.RESPONSE, new JSONObject().put(DataSourceConstants.DATA, data));
+  }
+
+  /**
+   * Wires a primitive documentNo property, a reference businessPartner property and a primitive
+   * description property that is not a field of the endpoint.
+   */
+  private static MockedStatic<ModelProvider> mockModel() {
+    MockedStatic<ModelProvider> modelStatic = Mockito.mockStatic(ModelProvider.class);
+    ModelProvider provider = mock(ModelProvider.class);
+    Entity entity = mock(Entity.class);
+    Property documentNo = mock(Property.class);
+    Property businessPartner = mock(Property.class);
+    modelStatic.when(ModelProvider::getInstance).thenReturn(provider);
+    when(provider.getEntityByTableId(TABLE_ID)).thenReturn(entity);
+    when(entity.hasProperty("documentNo")).thenReturn(true);
+    when(entity.getProperty("documentNo")).thenReturn(documentNo);
+    when(documentNo.isPrimitive()).thenReturn(true);
+    when(entity.hasProperty("businessPartner")).thenReturn(true);
+    when(entity.getProperty("businessPartner")).thenReturn(businessPartner);
+    when(businessPartner.isPrimitive()).thenReturn(false);
+    Property description = mock(Property.class);
+    when(entity.hasProperty("description")).thenReturn(true);
+    when(entity.getProperty("description")).thenReturn(description);
+    when(description.isPrimitive()).thenReturn(true);
+    return modelStatic;
+  }
+
+  /**
+   * Without the cursor parameter the offset paging is kept.
+   */
+  @Test
+  public void testNoCursorParameter() {
+    assertNull(CursorPagination.fromRequest(null, params(), DESCRIPTOR));
+  }
+
+  /**
+   * The first page is sorted by id from the first row, without seek criterion.
+   *
+   * @throws Exception
+   *     if the parameters cannot be built
+   */
+  @Test
+  public void testFirstPage() throws Exception {
+    Map<String, String[]> params = params("_startRow", "20", "_endRow", "70");
+    CursorPagination cursor = CursorPagination.fromRequest("", params, DESCRIPTOR);
+    cursor.applyTo(params);
+
+    assertEquals("id", params.get("_sortBy")[0]);
+    assertEquals("0", params.get("_startRow")[0]);
+    assertEquals("50", params.get("_endRow")[0]);
+    assertFalse(params.containsKey("criteria"));
+  }
+
+  /**
+   * A full page returns a token that turns the next request into a seek on the last key.
+   *
+   * @throws Exception
+   *     if the parameters cannot be built
+   */
+  @Test
+  public void testNextPageSeeksAfterLastKey() throws Exception {
+    try (MockedStatic<ModelProvider> ignored = mockModel()) {
+      Map<String, String[]> params = params("_sortBy", "documentNo", "_endRow", "2");
+      CursorPagination first = CursorPagination.fromRequest("", params, DESCRIPTOR);
+      first.applyTo(params);
+      assertEquals("documentNo,id", params.get("_sortBy")[0]);
+
+      JSONObject response = page(2);
+      first.addNextCursor(response);
+      String token = response.getJSONObject(DataSourceConstants.RESPONSE).getString(CursorPagination.NEXT_CURSOR);
+
+      Map<String, String[]> nextParams = params("_sortBy", "documentNo", "_endRow", "2");
+      CursorPagination.fromRequest(token, nextParams, DESCRIPTOR).applyTo(nextParams);
+      String criteria = nextParams.get("criteria")[0];
+
+      assertEquals("AdvancedCriteria", nextParams.get("_constructor")[0]);
+      JSONArray seek = new JSONObject(criteria).getJSONArray("criteria");
+      // documentNo > DOC2 OR (documentNo = DOC2 AND id > ID2) OR documentNo is null
+      assertEquals(3, seek.length());
+      assertEquals("greaterThan", seek.getJSONObject(0).getString("operator"));
+      assertEquals("DOC2", seek.getJSONObject(0).getString("value"));
+      JSONArray sameKey = seek.getJSONObject(1).getJSONArray("criteria");
+      assertEquals("DOC2", sameKey.getJSONObject(0).getString("value"));
+      assertEquals("ID2", sameKey.getJSONObject(1).getString("value"));
+      assertEquals("isNull", seek.getJSONObject(2).getString("operator"));
+    }
+  }
+
+  /**
+   * The seek criterion is combined with the criteria coming from the q parameter.
+   *
+   * @throws Exception
+   *     if the parameters cannot be built
+   */
+  @Test
+  public void testSeekIsCombinedWithExistingCriteria() throws Exception {
+    String token = CursorPagination.encode(new JSONObject().put("sortBy", "id").put("id", "ID9"));
+    Map<String, String[]> params = params("criteria", "{\"fieldName\":\"active\",\"operator\":\"equals\",\"value\":true}");
+    CursorPagination.fromRequest(token, params, DESCRIPTOR).applyTo(params);
+
+    JSONObject criteria = new JSONObject(params.get("criteria")[0]);
+    assertEquals("and", criteria.getString("operator"));
+    JSONArray parts = criteria.getJSONArray("criteria");
+    assertEquals("active", parts.getJSONObject(0).getString("fieldName"));
+    assertEquals("greaterThan", parts.getJSONObject(1).getString("operator"));
+    assertEquals("ID9", parts.getJSONObject(1).getString("value"));
+  }
+
+  /**
+   * A partial page is the last one and does not return a token.
+   *
+   * @throws Exception
+   *     if the response cannot be built
+   */
+  @Test
+  public void testLastPageHasNoNextCursor() throws Exception {
+    CursorPagination cursor = CursorPagination.fromRequest("", params("_endRow", "5"), DESCRIPTOR);
+    JSONObject response = page(3);
+    cursor.addNextCursor(response);
+
+    assertFalse(response.getJSONObject(DataSourceConstants.RESPONSE).has(CursorPagination.NEXT_CURSOR));
+  }
+
+  /**
+   * Malformed tokens are rejected.
+   */
+  @Test(expected = InvalidRequestParameterException.class)
+  public void testInvalidCursor() {
+    CursorPagination.fromRequest("not a cursor", params(), DESCRIPTOR);
+  }
+
+  /**
+   * A token issued for a sort order cannot be used with another one.
+   *
+   * @throws Exception
+   *     if the token cannot be built
+   */
+  @Test(expected = InvalidRequestParameterException.class)
+  public void testCursorForAnotherSortOrder() throws Exception {
+    String token = CursorPagination.encode(new JSONObject().put("sortBy", "id").put("id", "ID9"));
+    try (MockedStatic<ModelProvider> ignored = mockModel()) {
+      CursorPagination.fromRequest(token, params("_sortBy", "-documentNo"), DESCRIPTOR);
+    }
+  }
+
+  /**
+   * Reference properties cannot be used as sort key.
+   */
+  @Test(expected = InvalidRequestParameterException.class)
+  public void testReferenceSortPropertyIsRejected() {
+    try (MockedStatic<ModelProvider> ignored = mockModel()) {
+      CursorPagination.fromRequest("", params("_sortBy", "businessPartner"), DESCRIPTOR);
+    }
+  }
+
+  /**
+   * Properties of the entity that are not fields of the endpoint cannot be used as sort key.
+   */
+  @Test(expected = InvalidRequestParameterException.class)
+  public void testSortPropertyOutsideEndpointIsRejected() {
+    try (MockedStatic<ModelProvider> ignored = mockModel()) {
+      CursorPagination.fromRequest("", params("_sortBy", "description"), DESCRIPTOR);
+    }
+  }
+}
@@ -89,6 +89,9 @@ public class DataSourceServletCalloutTest extends WeldBaseTest {
     selectorHandlerMock.when(() -> SelectorHandlerUtil.handleColumnSelector(
         Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()
     )).thenAnswer(invocation -> null);
+    selectorHandlerMock.when(() -> SelectorHandlerUtil.handleColumnSelector(
+        Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()
+    )).thenAnswer(invocation -> null);
   }
 
   /**
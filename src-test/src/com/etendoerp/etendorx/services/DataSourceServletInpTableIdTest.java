@@ -28,9 +28,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -47,10 +45,12 @@ import org.mockito.Mockito;
 import org.openbravo.base.weld.WeldUtils;
 import org.openbravo.client.kernel.RequestContext;
 import org.openbravo.dal.core.OBContext;
+import org.openbravo.model.ad.datamodel.Column;
 import org.openbravo.model.ad.datamodel.Table;
 import org.openbravo.model.ad.ui.Tab;
 import org.openbravo.model.ad.ui.Window;
 
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
 import com.etendoerp.etendorx.services.wrapper.EtendoResponseWrapper;
 import com.etendoerp.etendorx.services.wrapper.RequestField;
 import com.etendoerp.etendorx.utils.DataSourceUtils;
@@ -83,21 +83,21 @@ public class DataSourceServletInpTableIdTest {
     return tab;
   }
 
+  private EndpointDescriptor createDescriptor() {
+    Column column = mock(Column.class);
+    when(column.getDBColumnName()).thenReturn("C_BPartner_ID");
+    return new EndpointDescriptor.Builder()
+        .name("TestEntity")
+        .tabId(EXPECTED_TAB_ID)
+        .windowId(EXPECTED_WINDOW_ID)
+        .tableId(EXPECTED_TABLE_ID)
+        .field(new RequestField(BUSINESS_PARTNER, column, 10L), INP_C_BPARTNER_ID, "String")
+        .build();
+  }
+
   private void mockDataSourceUtils(MockedStatic<DataSourceUtils> ds, Tab tab) {
-    ds.when(() -> DataSourceUtils.getParentId(any(Tab.class), any(JSONObject.class)))
-        .thenReturn(null);
-    ds.when(() -> DataSourceUtils.getParentProperties(any(Tab.class)))
-        .thenReturn(Collections.emptyList());
     ds.when(() -> DataSourceUtils.getTabByDataSourceName(anyString()))
         .thenReturn(tab);
-    ds.when(() -> DataSourceUtils.loadCaches(any(), any(), any(), any(), any()))
-        .thenAnswer(inv -> {
-          LinkedHashMap<String, String> norm2input = inv.getArgument(1);
-          Map<String, String> input2norm = inv.getArgument(2);
-          norm2input.put(BUSINESS_PARTNER, INP_C_BPARTNER_ID);
-          input2norm.put(INP_C_BPARTNER_ID, BUSINESS_PARTNER);
-          return null;
-        });
     ds.when(() -> DataSourceUtils.keyConvertion(any(JSONObject.class), any(Map.class)))
         .thenAnswer(inv -> inv.getArgument(0));
     ds.when(
@@ -150,7 +150,7 @@ public class DataSourceServletInpTableIdTest {
 
     JSONObject data = new JSONObject().put(BUSINESS_PARTNER, "BP_ID");
     JSONObject body = new JSONObject().put("data", data);
-    List<RequestField> fieldList = new ArrayList<>();
+    EndpointDescriptor descriptor = createDescriptor();
 
     RequestContext mockRequestContext = mock(RequestContext.class);
 
@@ -164,13 +164,14 @@ public class DataSourceServletInpTableIdTest {
           .thenReturn(formInit);
       mockDataSourceUtils(ds, tab);
       sh.when(() -> SelectorHandlerUtil.handleColumnSelector(
-          any(), any(), any(), any(), any(), any())).thenAnswer(inv -> null);
+          any(), any(), any(), any(), any(), any(), any())).thenAnswer(inv -> null);
 
       // When: invoke the private getEtendoPostWrapper method
       Method method = DataSourceServlet.class.getDeclaredMethod("getEtendoPostWrapper",
-          HttpServletRequest.class, Tab.class, JSONObject.class, List.class, String.class);
+          HttpServletRequest.class, Tab.class, JSONObject.class, EndpointDescriptor.class, String.class,
+          PostBatchContext.class);
       method.setAccessible(true);
-      method.invoke(new DataSourceServlet(), request, tab, body, fieldList, "/test");
+      method.invoke(new DataSourceServlet(), request, tab, body, descriptor, "/test", null);
 
       // Then: verify inpTableId in CHANGE content
       assertInpTableIdInChangeContent(formInit);
@@ -216,7 +217,7 @@ public class DataSourceServletInpTableIdTest {
 
     JSONObject updateData = new JSONObject().put(BUSINESS_PARTNER, "NEW_BP");
     JSONObject fullBody = new JSONObject().put("data", updateData);
-    List<RequestField> fieldList = new ArrayList<>();
+    EndpointDescriptor descriptor = createDescriptor();
 
     RequestContext mockRequestContext = mock(RequestContext.class);
 
@@ -242,9 +243,9 @@ public class DataSourceServletInpTableIdTest {
       // When: invoke the private getEtendoPutWrapper method via reflection
       Method method = DataSourceServlet.class.getDeclaredMethod("getEtendoPutWrapper",
           HttpServletRequest.class, HttpServletResponse.class, JSONObject.class,
-          List.class, String.class, String.class);
+          Tab.class, EndpointDescriptor.class, String.class, String.class);
       method.setAccessible(true);
-      method.invoke(new DataSourceServlet(), request, response, fullBody, fieldList,
+      method.invoke(new DataSourceServlet(), request, response, fullBody, tab, descriptor,
           "/test", "/TestEntity/RECORD_123");
 
       // Then: verify inpTableId in CHANGE content
@@ -30,6 +30,8 @@ import org.openbravo.model.ad.ui.Tab;
 import org.openbravo.model.ad.ui.Window;
 import org.openbravo.service.db.DalConnectionProvider;
 
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+import com.etendoerp.etendorx.services.metadata.EndpointMetadataCache;
 import com.etendoerp.etendorx.utils.DataSourceUtils;
 import com.etendoerp.openapi.data.OpenAPIRequest;
 
@@ -147,9 +149,22 @@ public class DataSourceServletTest extends WeldBaseTest {
    *     if an error occurs during the test
    */
   @Test(expected = Exception.class)
-  public void testConvertURI_InvalidParts() throws OpenAPINotFoundThrowable {
+  public void testConvertURI_InvalidParts() {
     String[] parts = { };
-    dataSourceServlet.convertURI(parts);
+    dataSourceServlet.convertURI(parts, new EndpointDescriptor.Builder().tableName("C_Order").build());
+  }
+
+  /**
+   * Tests the convertURI method, which addresses the datasource of the table of the endpoint.
+   */
+  @Test
+  public void testConvertURI_UsesTableNameOfDescriptor() {
+    EndpointDescriptor descriptor = new EndpointDescriptor.Builder().name("Order").tableName("C_Order").build();
+
+    assertEquals("/com.etendoerp.etendorx.datasource/Order/org.openbravo.service.datasource/C_Order",
+        dataSourceServlet.convertURI(new String[]{ "Order" }, descriptor));
+    assertEquals("/com.etendoerp.etendorx.datasource/Order/org.openbravo.service.datasource/C_Order/ID",
+        dataSourceServlet.convertURI(new String[]{ "Order", "ID" }, descriptor));
   }
 
 
@@ -200,7 +215,8 @@ public class DataSourceServletTest extends WeldBaseTest {
   }
 
   @Test
-  public void testGetTab_IgnoresFieldsWithNullColumnAndOrdersBySeqNo() throws Throwable {
+  public void testGetEndpointDescriptor_IgnoresFieldsWithNullColumnAndOrdersBySeqNo() throws Throwable {
+    EndpointMetadataCache.invalidate();
     // Prepare mocks for OBDal and criteria
     var mockOBDal = org.mockito.Mockito.mock(org.openbravo.dal.service.OBDal.class);
     var mockCriteria = org.mockito.Mockito.mock(org.openbravo.dal.service.OBCriteria.class);
@@ -221,8 +237,17 @@ public class DataSourceServletTest extends WeldBaseTest {
     org.mockito.Mockito.when(fieldWithCol1.getColumn()).thenReturn(col1);
     org.mockito.Mockito.when(fieldWithNullCol.getColumn()).thenReturn(null);
     org.mockito.Mockito.when(fieldWithCol2.getColumn()).thenReturn(col2);
+    org.mockito.Mockito.when(col1.getDBColumnName()).thenReturn("Col1");
+    org.mockito.Mockito.when(col2.getDBColumnName()).thenReturn("Col2");
+
+    // Wire tab identifiers
+    org.mockito.Mockito.when(mockTabLocal.getId()).thenReturn("TAB_ID");
+    org.mockito.Mockito.when(mockTabLocal.getWindow()).thenReturn(mockWindow);
+    org.mockito.Mockito.when(mockTabLocal.getTable()).thenReturn(mockTable);
+    org.mockito.Mockito.when(mockWindow.getId()).thenReturn("WINDOW_ID");
+    org.mockito.Mockito.when(mockTable.getId()).thenReturn("TABLE_ID");
 
-    // Prepare OpenAPIRequestField mocks used by getSeqNo
+    // Prepare OpenAPIRequestField mocks used to resolve the sequence numbers
     com.etendoerp.etendorx.data.OpenAPIRequestField apif1 = org.mockito.Mockito.mock(
         com.etendoerp.etendorx.data.OpenAPIRequestField.class);
     com.etendoerp.etendorx.data.OpenAPIRequestField apif2 = org.mockito.Mockito.mock(
@@ -279,29 +304,37 @@ public class DataSourceServletTest extends WeldBaseTest {
         // Mock DataSourceUtils.getHQLColumnName to return stable names
         try (var dsUtilsStatic = org.mockito.Mockito.mockStatic(com.etendoerp.etendorx.utils.DataSourceUtils.class)) {
           dsUtilsStatic.when(() -> com.etendoerp.etendorx.utils.DataSourceUtils.getHQLColumnName(
-              org.mockito.ArgumentMatchers.eq(fieldWithCol1))).thenReturn(new String[]{ "col1" });
+              org.mockito.ArgumentMatchers.eq(fieldWithCol1))).thenReturn(new String[]{ "col1", "String" });
           dsUtilsStatic.when(() -> com.etendoerp.etendorx.utils.DataSourceUtils.getHQLColumnName(
-              org.mockito.ArgumentMatchers.eq(fieldWithCol2))).thenReturn(new String[]{ "col2" });
+              org.mockito.ArgumentMatchers.eq(fieldWithCol2))).thenReturn(new String[]{ "col2", "String" });
+          dsUtilsStatic.when(() -> com.etendoerp.etendorx.utils.DataSourceUtils.getInpName(
+              org.mockito.ArgumentMatchers.anyString())).thenAnswer(inv -> "inp" + inv.getArgument(0));
+          dsUtilsStatic.when(() -> com.etendoerp.etendorx.utils.DataSourceUtils.getParentProperties(
+              org.mockito.ArgumentMatchers.any())).thenReturn(java.util.Collections.emptyList());
           // Also stub extractDataSourceAndID because we are mocking the whole static class
           dsUtilsStatic.when(() -> com.etendoerp.etendorx.utils.DataSourceUtils.extractDataSourceAndID(org.mockito.ArgumentMatchers.eq(DATASOURCE_USERS))).thenReturn(new String[]{ "datasource", "users" });
 
-          // Invoke private static method getTab via MethodHandles lookup (avoids setAccessible)
+          // Invoke private static method getEndpointDescriptor via MethodHandles lookup (avoids setAccessible)
           java.lang.invoke.MethodHandles.Lookup lookup = java.lang.invoke.MethodHandles.privateLookupIn(
               DataSourceServlet.class, java.lang.invoke.MethodHandles.lookup());
-          java.lang.invoke.MethodHandle mh = lookup.findStatic(DataSourceServlet.class, "getTab",
-              java.lang.invoke.MethodType.methodType(org.openbravo.model.ad.ui.Tab.class, String.class,
-                  javax.servlet.http.HttpServletRequest.class, javax.servlet.http.HttpServletResponse.class,
-                  java.util.List.class));
-          java.util.List<com.etendoerp.etendorx.services.wrapper.RequestField> fieldList = new java.util.ArrayList<>();
-          Object tabResult = mh.invoke(DATASOURCE_USERS, mockRequest, mockResponse, fieldList);
+          java.lang.invoke.MethodHandle mh = lookup.findStatic(DataSourceServlet.class, "getEndpointDescriptor",
+              java.lang.invoke.MethodType.methodType(EndpointDescriptor.class, String.class,
+                  javax.servlet.http.HttpServletRequest.class));
+          EndpointDescriptor descriptor = (EndpointDescriptor) mh.invoke(DATASOURCE_USERS, mockRequest);
+          java.util.List<com.etendoerp.etendorx.services.wrapper.RequestField> fieldList = descriptor.getFields();
 
           // Assertions: fieldList should contain only fields with non-null columns (2 entries)
           org.junit.Assert.assertEquals(2, fieldList.size());
           // After ordering by seqNo, first should be the one with seqNo = 1 (col2), then seqNo = 2 (col1)
           org.junit.Assert.assertEquals("col2", fieldList.get(0).getName());
           org.junit.Assert.assertEquals("col1", fieldList.get(1).getName());
-          // Tab result should be the mockTab
-          org.junit.Assert.assertSame(mockTabLocal, tabResult);
+          // Descriptor should point to the related tab
+          org.junit.Assert.assertEquals("TAB_ID", descriptor.getTabId());
+          org.junit.Assert.assertEquals("WINDOW_ID", descriptor.getWindowId());
+          org.junit.Assert.assertEquals("TABLE_ID", descriptor.getTableId());
+          org.junit.Assert.assertEquals("inpCol2", descriptor.getNorm2input().get("col2"));
+        } finally {
+          EndpointMetadataCache.invalidate();
         }
       }
     }
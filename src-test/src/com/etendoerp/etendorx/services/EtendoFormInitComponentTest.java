@@ -28,6 +28,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,9 +45,11 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.MockedStatic;
+import org.openbravo.base.session.OBPropertiesProvider;
 import org.openbravo.base.weld.WeldUtils;
 import org.openbravo.client.application.window.ApplicationDictionaryCachedStructures;
 import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBCriteria;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.model.ad.datamodel.Column;
 import org.openbravo.model.ad.datamodel.Table;
@@ -65,6 +68,9 @@ import org.openbravo.model.ad.ui.Window;
 import org.openbravo.userinterface.selector.Selector;
 import org.openbravo.userinterface.selector.SelectorField;
 
+import com.etendoerp.etendorx.data.OpenAPITab;
+import com.etendoerp.etendorx.services.metadata.WindowMetadataWarmup;
+
 /**
  * Tests for {@link EtendoFormInitComponent}.
  * <p>
@@ -116,6 +122,9 @@ public class EtendoFormInitComponentTest {
 
     hibernateMock = mockStatic(Hibernate.class);
 
+    OBPropertiesProvider.setInstance(new OBPropertiesProvider());
+    WindowMetadataWarmup.invalidate();
+
     superResult = new JSONObject("{\"status\":\"ok\"}");
 
     component = spy(new EtendoFormInitComponent());
@@ -131,14 +140,16 @@ public class EtendoFormInitComponentTest {
    * {@code initializeTabMetadata} reaches {@code getFieldsOfTab(tabId)}.
    *
    * @param tabId the tab id to wire as the (single) tab of its window
+   * @return the cached tab instance
    */
-  private void wireWindow(String tabId) {
+  private Tab wireWindow(String tabId) {
     Tab tab = mock(Tab.class);
     when(tab.getId()).thenReturn(tabId);
     Window window = mock(Window.class);
     when(tab.getWindow()).thenReturn(window);
     doReturn(Collections.singletonList(tab)).when(window).getADTabList();
     when(mockCachedStructures.getTab(tabId)).thenReturn(tab);
+    return tab;
   }
 
   /**
@@ -499,6 +510,34 @@ public class EtendoFormInitComponentTest {
     verify(validation2).getValidationCode();
   }
 
+  /**
+   * Once a window is prepared, every tab of it is recorded as prepared, so a request on another tab
+   * of the window skips the walk.
+   */
+  @Test
+  public void testEveryTabOfPreparedWindowIsSkipped() {
+    when(mockContext.isInAdministratorMode()).thenReturn(true);
+    Tab tab1 = mock(Tab.class);
+    when(tab1.getId()).thenReturn(TEST_TAB_ID);
+    Tab tab2 = mock(Tab.class);
+    when(tab2.getId()).thenReturn("SECOND_TAB_ID");
+    Window window = mock(Window.class);
+    when(tab1.getWindow()).thenReturn(window);
+    when(tab2.getWindow()).thenReturn(window);
+    doReturn(Arrays.asList(tab1, tab2)).when(window).getADTabList();
+    when(mockCachedStructures.getTab(TEST_TAB_ID)).thenReturn(tab1);
+    when(mockCachedStructures.getTab("SECOND_TAB_ID")).thenReturn(tab2);
+    when(mockCachedStructures.getFieldsOfTab(anyString())).thenReturn(
+      Collections.singletonList(fieldWithColumn(null)));
+
+    component.execute(params(TEST_TAB_ID), "{}");
+    component.execute(params("SECOND_TAB_ID"), "{}");
+
+    verify(mockCachedStructures, times(1)).getFieldsOfTab(TEST_TAB_ID);
+    verify(mockCachedStructures, times(1)).getFieldsOfTab("SECOND_TAB_ID");
+    assertEquals(2, WindowMetadataWarmup.size());
+  }
+
   /**
    * Each callout model implementation is initialized including its java class name, which
    * {@code ViewComponent.verifyOldCalloutUse} reads at window render.
@@ -647,4 +686,84 @@ public class EtendoFormInitComponentTest {
     verify(mapping).getMappingName();
     verify(windowProcess).getJavaClassName();
   }
+
+  /**
+   * A window whose columns were all prepared is not walked again while the cached tab instance is
+   * the same.
+   */
+  @Test
+  public void testPreparedWindowIsNotWalkedAgain() {
+    when(mockContext.isInAdministratorMode()).thenReturn(true);
+    when(mockCachedStructures.getFieldsOfTab(TEST_TAB_ID)).thenReturn(
+      Collections.singletonList(fieldWithColumn(null)));
+
+    component.execute(params(TEST_TAB_ID), "{}");
+    component.execute(params(TEST_TAB_ID), "{}");
+
+    verify(mockCachedStructures, times(1)).getFieldsOfTab(TEST_TAB_ID);
+  }
+
+  /**
+   * A new cached tab instance means the dictionary cache was rebuilt, so the window is prepared
+   * again.
+   */
+  @Test
+  public void testRebuiltCachedTabIsPreparedAgain() {
+    when(mockContext.isInAdministratorMode()).thenReturn(true);
+    when(mockCachedStructures.getFieldsOfTab(TEST_TAB_ID)).thenReturn(
+      Collections.singletonList(fieldWithColumn(null)));
+
+    component.execute(params(TEST_TAB_ID), "{}");
+    wireWindow(TEST_TAB_ID);
+    component.execute(params(TEST_TAB_ID), "{}");
+
+    verify(mockCachedStructures, times(2)).getFieldsOfTab(TEST_TAB_ID);
+  }
+
+  /**
+   * A window left with lazy metadata is walked again by the next request.
+   */
+  @Test
+  public void testPartiallyPreparedWindowIsWalkedAgain() {
+    when(mockContext.isInAdministratorMode()).thenReturn(true);
+    Validation validation = mock(Validation.class);
+    when(mockCachedStructures.getFieldsOfTab(TEST_TAB_ID)).thenReturn(
+      Collections.singletonList(fieldWithColumn(columnWithValidation(validation))));
+    hibernateMock.when(() -> Hibernate.isInitialized(validation)).thenReturn(false);
+    Session.LockRequest lockRequest = mock(Session.LockRequest.class);
+    when(mockSession.buildLockRequest(any(LockOptions.class))).thenReturn(lockRequest);
+
+    component.execute(params(TEST_TAB_ID), "{}");
+    component.execute(params(TEST_TAB_ID), "{}");
+
+    verify(mockCachedStructures, times(2)).getFieldsOfTab(TEST_TAB_ID);
+  }
+
+  /**
+   * The first request also prepares the windows exposed by headless endpoints, only once, so their
+   * own requests skip the walk.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testExposedWindowsArePreparedOnFirstUse() {
+    when(mockContext.isInAdministratorMode()).thenReturn(true);
+    String exposedTabId = "EXPOSED_TAB_ID";
+    Tab exposedTab = wireWindow(exposedTabId);
+    OpenAPITab openAPITab = mock(OpenAPITab.class);
+    when(openAPITab.getRelatedTabs()).thenReturn(exposedTab);
+    OBCriteria<OpenAPITab> criteria = mock(OBCriteria.class);
+    when(criteria.list()).thenReturn(Collections.singletonList(openAPITab));
+    when(mockDal.createCriteria(OpenAPITab.class)).thenReturn(criteria);
+    when(mockCachedStructures.getFieldsOfTab(anyString())).thenReturn(
+      Collections.singletonList(fieldWithColumn(null)));
+
+    component.execute(params(TEST_TAB_ID), "{}");
+    component.execute(params(TEST_TAB_ID), "{}");
+    component.execute(params(exposedTabId), "{}");
+
+    verify(criteria, times(1)).list();
+    verify(mockCachedStructures, times(1)).getFieldsOfTab(exposedTabId);
+    verify(mockCachedStructures, times(1)).getFieldsOfTab(TEST_TAB_ID);
+    assertEquals(2, WindowMetadataWarmup.size());
+  }
 }
@@ -0,0 +1,116 @@
+package com.etendoerp.etendorx.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.base.model.Property;
+import org.openbravo.model.ad.datamodel.Column;
+
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+import com.etendoerp.etendorx.services.wrapper.RequestField;
+
+/**
+ * Unit tests for FieldProjection.
+ */
+public class FieldProjectionTest {
+
+  private static final String TABLE_ID = "TABLE_ID";
+
+  /**
+   * Builds an endpoint with documentNo and businessPartner fields.
+   */
+  private static EndpointDescriptor descriptor() {
+    return new EndpointDescriptor.Builder()
+        .tableId(TABLE_ID)
+        .field(new RequestField("documentNo", mock(Column.class), 10L), "inpdocumentno", "String")
+        .field(new RequestField("businessPartner", mock(Column.class), 20L), "inpcBpartnerId", "String")
+        .build();
+  }
+
+  /**
+   * Wires an entity with documentNo and businessPartner properties.
+   */
+  private static MockedStatic<ModelProvider> mockModel() {
+    MockedStatic<ModelProvider> modelStatic = Mockito.mockStatic(ModelProvider.class);
+    ModelProvider provider = mock(ModelProvider.class);
+    Entity entity = mock(Entity.class);
+    modelStatic.when(ModelProvider::getInstance).thenReturn(provider);
+    when(provider.getEntityByTableId(TABLE_ID)).thenReturn(entity);
+    Property documentNo = mock(Property.class);
+    when(entity.hasProperty("documentNo")).thenReturn(true);
+    when(entity.getProperty("documentNo")).thenReturn(documentNo);
+    when(documentNo.isPrimitive()).thenReturn(true);
+    when(entity.hasProperty("businessPartner")).thenReturn(true);
+    when(entity.hasProperty("salesRepresentative")).thenReturn(true);
+    return modelStatic;
+  }
+
+  /**
+   * Without the parameter every field is returned.
+   */
+  @Test
+  public void testNoFieldsParameter() {
+    assertNull(FieldProjection.fromRequest(null, descriptor()));
+    assertNull(FieldProjection.fromRequest(" ", descriptor()));
+  }
+
+  /**
+   * The fields become the selected properties, with the id first and identifiers mapped to their
+   * reference.
+   */
+  @Test
+  public void testSelectedProperties() {
+    Map<String, String[]> params = new HashMap<>();
+    FieldProjection.fromRequest(" documentNo, businessPartner$_identifier,_identifier,id", descriptor())
+        .applyTo(params, null);
+
+    assertEquals("id,documentNo,businessPartner", params.get("_selectedProperties")[0]);
+  }
+
+  /**
+   * The cursor sort property is always selected, as the next cursor is built from it.
+   *
+   * @throws Exception
+   *     if the cursor cannot be built
+   */
+  @Test
+  public void testCursorSortPropertyIsSelected() throws Exception {
+    try (MockedStatic<ModelProvider> ignored = mockModel()) {
+      Map<String, String[]> params = new HashMap<>();
+      params.put("_sortBy", new String[]{ "-documentNo" });
+      CursorPagination cursor = CursorPagination.fromRequest("", params, descriptor());
+      FieldProjection.fromRequest("businessPartner", descriptor()).applyTo(params, cursor);
+
+      assertEquals("id,businessPartner,documentNo", params.get("_selectedProperties")[0]);
+    }
+  }
+
+  /**
+   * Unknown fields are rejected.
+   */
+  @Test(expected = InvalidRequestParameterException.class)
+  public void testUnknownField() {
+    FieldProjection.fromRequest("documentNo,grandTotal", descriptor());
+  }
+
+  /**
+   * Properties of the entity that are not fields of the endpoint tab are rejected too, even when
+   * the entity has them.
+   */
+  @Test(expected = InvalidRequestParameterException.class)
+  public void testPropertyOutsideEndpointIsRejected() {
+    try (MockedStatic<ModelProvider> ignored = mockModel()) {
+      FieldProjection.fromRequest("documentNo,businessPartner,salesRepresentative", descriptor());
+    }
+  }
+}
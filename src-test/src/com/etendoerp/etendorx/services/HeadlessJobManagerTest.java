@@ -0,0 +1,141 @@
+package com.etendoerp.etendorx.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+import com.etendoerp.etendorx.services.ParallelPostProcessor.WorkerContext;
+
+/**
+ * Unit tests for HeadlessJobManager.
+ */
+public class HeadlessJobManagerTest {
+
+  /**
+   * Job manager that does not touch the DAL, recording how each job ended.
+   */
+  private static class TestJobManager extends HeadlessJobManager {
+    private final List<Boolean> endedJobs = Collections.synchronizedList(new ArrayList<>());
+    private final List<HttpServletRequest> requests = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    WorkerContext captureContext() {
+      return new WorkerContext("USER", "ROLE", "CLIENT", "ORG", "en_US");
+    }
+
+    @Override
+    void begin(WorkerContext context, HttpServletRequest request) {
+      requests.add(request);
+    }
+
+    @Override
+    void end(boolean success) {
+      endedJobs.add(success);
+    }
+  }
+
+  /**
+   * A successful job is committed and its response can be polled by its user.
+   *
+   * @throws Exception
+   *     if the job cannot be processed
+   */
+  @Test
+  public void testSuccessfulJob() throws Exception {
+    TestJobManager manager = new TestJobManager();
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    HeadlessJobManager.Job job = manager.submit(request, "POST Order: 2 records", (req, resp) -> {
+      resp.setStatus(200);
+      resp.getWriter().write("{\"response\":{\"status\":0,\"data\":[{\"id\":\"A\"},{\"id\":\"B\"}]}}");
+    });
+    job.getFuture().get(10, TimeUnit.SECONDS);
+
+    assertSame(job, manager.getJob(job.getId(), "CLIENT", "USER"));
+    assertEquals(HeadlessJobManager.State.DONE, job.getState());
+    assertEquals(List.of(true), manager.endedJobs);
+    assertSame(request, manager.requests.get(0));
+
+    JSONObject status = job.toJSON();
+    assertEquals("DONE", status.getString("state"));
+    assertEquals("POST Order: 2 records", status.getString("description"));
+    assertEquals(200, status.getInt("status"));
+    assertEquals(2, status.getJSONObject("result").getJSONObject("response").getJSONArray("data").length());
+    assertNotNull(status.getString("lastUpdate"));
+  }
+
+  /**
+   * Failed jobs are rolled back and report the error.
+   *
+   * @throws Exception
+   *     if the job cannot be awaited
+   */
+  @Test
+  public void testFailedJob() throws Exception {
+    TestJobManager manager = new TestJobManager();
+    HeadlessJobManager.Job failed = manager.submit(mock(HttpServletRequest.class), "POST Order: 1 record",
+        (req, resp) -> {
+          throw new IllegalStateException("Boom");
+        });
+    HeadlessJobManager.Job rejected = manager.submit(mock(HttpServletRequest.class), "POST Order: 1 record",
+        (req, resp) -> resp.setStatus(400));
+    failed.getFuture().get(10, TimeUnit.SECONDS);
+    rejected.getFuture().get(10, TimeUnit.SECONDS);
+
+    assertEquals(HeadlessJobManager.State.ERROR, failed.getState());
+    assertEquals(500, failed.getHttpStatus());
+    assertEquals("Boom", failed.toJSON().getJSONObject("result").getString("message"));
+    assertEquals(HeadlessJobManager.State.ERROR, rejected.getState());
+    assertEquals(400, rejected.getHttpStatus());
+    assertEquals(List.of(false, false), manager.endedJobs);
+  }
+
+  /**
+   * Jobs are only visible to the user that created them, and running jobs do not show a result.
+   *
+   * @throws Exception
+   *     if the job cannot be awaited
+   */
+  @Test
+  public void testJobOfAnotherUser() throws Exception {
+    TestJobManager manager = new TestJobManager();
+    HeadlessJobManager.Job job = manager.submit(mock(HttpServletRequest.class), "PUT Order: 1 record",
+        (req, resp) -> resp.setStatus(200));
+    job.getFuture().get(10, TimeUnit.SECONDS);
+
+    assertNull(manager.getJob(job.getId(), "CLIENT", "OTHER"));
+    assertNull(manager.getJob(job.getId(), "OTHER", "USER"));
+    assertNull(manager.getJob("UNKNOWN", "CLIENT", "USER"));
+    assertFalse(new HeadlessJobManager.Job("CLIENT", "USER", "Pending").toJSON().has("result"));
+  }
+
+  /**
+   * The async parameter and the job status path are recognized.
+   */
+  @Test
+  public void testRequestDetection() {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getParameter(HeadlessJobManager.ASYNC)).thenReturn("true");
+
+    assertTrue(HeadlessJobManager.isAsyncRequest(request));
+    assertFalse(HeadlessJobManager.isAsyncRequest(mock(HttpServletRequest.class)));
+    assertEquals("ABC", HeadlessJobManager.getJobId("/_jobs/ABC"));
+    assertEquals("ABC", HeadlessJobManager.getJobId("/_jobs/ABC/"));
+    assertNull(HeadlessJobManager.getJobId("/_jobs/"));
+    assertNull(HeadlessJobManager.getJobId("/Order/ABC"));
+  }
+}
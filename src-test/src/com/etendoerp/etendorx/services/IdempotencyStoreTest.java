@@ -0,0 +1,124 @@
+package com.etendoerp.etendorx.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.openbravo.dal.service.OBDal;
+
+/**
+ * Unit tests for IdempotencyStore.
+ */
+public class IdempotencyStoreTest {
+
+  private MockedStatic<OBDal> obDalStatic;
+  private NativeQuery<?> query;
+
+  /**
+   * Wires a DAL session whose native queries return themselves on every setter.
+   */
+  @Before
+  public void setUp() {
+    obDalStatic = Mockito.mockStatic(OBDal.class);
+    OBDal obDal = mock(OBDal.class);
+    Session session = mock(Session.class);
+    query = mock(NativeQuery.class, RETURNS_SELF);
+    obDalStatic.when(OBDal::getInstance).thenReturn(obDal);
+    when(obDal.getSession()).thenReturn(session);
+    when(session.createSQLQuery(anyString())).thenReturn(query);
+  }
+
+  /**
+   * Closes the static mocks.
+   */
+  @After
+  public void tearDown() {
+    obDalStatic.close();
+  }
+
+  /**
+   * The hash depends on the method, the path and the body.
+   */
+  @Test
+  public void testHash() {
+    String hash = IdempotencyStore.hash("POST", "/Order", "{\"a\":1}");
+
+    assertEquals(64, hash.length());
+    assertEquals(hash, IdempotencyStore.hash("POST", "/Order", "{\"a\":1}"));
+    assertNotEquals(hash, IdempotencyStore.hash("PUT", "/Order", "{\"a\":1}"));
+    assertNotEquals(hash, IdempotencyStore.hash("POST", "/Order/1", "{\"a\":1}"));
+    assertNotEquals(hash, IdempotencyStore.hash("POST", "/Order", "{\"a\":2}"));
+  }
+
+  /**
+   * Successful and client error responses are stored; transient failures are processed again.
+   */
+  @Test
+  public void testIsReplayable() {
+    assertTrue(IdempotencyStore.isReplayable(200));
+    assertTrue(IdempotencyStore.isReplayable(201));
+    assertTrue(IdempotencyStore.isReplayable(400));
+    assertTrue(IdempotencyStore.isReplayable(404));
+    assertFalse(IdempotencyStore.isReplayable(409));
+    assertFalse(IdempotencyStore.isReplayable(429));
+    assertFalse(IdempotencyStore.isReplayable(500));
+    assertFalse(IdempotencyStore.isReplayable(503));
+  }
+
+  /**
+   * A stored row is returned with its hash, status and body.
+   */
+  @Test
+  public void testFindStoredResponse() {
+    List<Object[]> rows = Collections.singletonList(new Object[]{ "HASH", 200, "{\"response\":{}}" });
+    Mockito.<List<?>> when(query.list()).thenReturn(rows);
+
+    IdempotencyStore.StoredResponse stored = IdempotencyStore.find("CLIENT", "USER", "KEY");
+
+    assertEquals("HASH", stored.getRequestHash());
+    assertEquals(200, stored.getHttpStatus());
+    assertEquals("{\"response\":{}}", stored.getBody());
+    verify(query).setParameter("key", "KEY");
+  }
+
+  /**
+   * Unknown and expired keys are not found.
+   */
+  @Test
+  public void testFindMissingKey() {
+    Mockito.<List<?>> when(query.list()).thenReturn(Collections.emptyList());
+
+    assertNull(IdempotencyStore.find("CLIENT", "USER", "KEY"));
+  }
+
+  /**
+   * Saving replaces any previous entry of the key and inserts the response.
+   */
+  @Test
+  public void testSave() {
+    IdempotencyStore.save("CLIENT", "ORG", "USER", "KEY", "POST", "/Order", "HASH", 201, "{}");
+
+    verify(query).setParameter("status", 201);
+    verify(query).setParameter("hash", "HASH");
+    verify(query).setParameter(eq("body"), eq("{}"));
+    verify(query, Mockito.atLeast(2)).executeUpdate();
+  }
+}
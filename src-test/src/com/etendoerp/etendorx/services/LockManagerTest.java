@@ -2,14 +2,25 @@ package com.etendoerp.etendorx.services;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 /**
@@ -17,6 +28,39 @@ import org.junit.Test;
  */
 public class LockManagerTest {
 
+  /**
+   * Uses the default configuration: a fair lock per id.
+   */
+  @Before
+  public void setUp() {
+    LockManager.configure(false, 0, true, 60000L, 0);
+  }
+
+  /**
+   * Drops the test configuration.
+   */
+  @After
+  public void tearDown() {
+    LockManager.resetConfiguration();
+  }
+
+  /**
+   * Holds the lock of the given id in another thread until the returned latch is released.
+   */
+  private static CountDownLatch holdInOtherThread(ExecutorService ex, String lockId) throws InterruptedException {
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ex.submit(() -> {
+      try (LockManager.LockLease lease = LockManager.lock(lockId)) {
+        held.countDown();
+        release.await();
+      }
+      return null;
+    });
+    assertTrue(held.await(10, TimeUnit.SECONDS));
+    return release;
+  }
+
   /**
    * Verifies that acquiring a lease for a single id increases the active
    * lock wrapper count while held and that releasing the lease returns the
@@ -109,4 +153,406 @@ public class LockManagerTest {
     // all acquired and released; map should be cleaned up
     assertEquals(0, LockManager.getActiveLockCount());
   }
+
+  /**
+   * A lock held for longer than the timeout is reported as unavailable, and the wait is recorded
+   * in the metrics of the key.
+   *
+   * @throws Exception
+   *     if the executor is interrupted
+   */
+  @Test
+  public void testTryLockTimeout() throws Exception {
+    ExecutorService ex = Executors.newSingleThreadExecutor();
+    CountDownLatch release = holdInOtherThread(ex, "busy-id");
+    try (LockManager.LockLease lease = LockManager.tryLock("busy-id", 50, TimeUnit.MILLISECONDS)) {
+      fail("The lock should not be acquired");
+    } catch (LockUnavailableException e) {
+      assertFalse(e.isOverloaded());
+      assertEquals("busy-id", e.getLockId());
+    } finally {
+      release.countDown();
+      ex.shutdown();
+      assertTrue(ex.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    LockMetrics metrics = LockManager.getMetrics();
+    assertEquals(1, metrics.getTimeouts());
+    assertEquals(1, metrics.getContended());
+    LockMetrics.KeyStats stats = metrics.getKeyStats("busy-id");
+    assertNotNull(stats);
+    assertEquals(0, stats.getWaiting());
+    assertEquals(1, stats.getMaxWaiting());
+    assertEquals(1, stats.getTimeouts());
+    assertTrue(stats.getTotalWaitMillis() >= 40);
+    assertEquals(0, LockManager.getActiveLockCount());
+  }
+
+  /**
+   * Requests above the waiter limit are rejected immediately.
+   *
+   * @throws Exception
+   *     if the executor is interrupted
+   */
+  @Test
+  public void testTooManyWaiters() throws Exception {
+    LockManager.configure(false, 0, false, 10000L, 1);
+    ExecutorService ex = Executors.newFixedThreadPool(2);
+    CountDownLatch release = holdInOtherThread(ex, "hot-id");
+    Future<?> waiter = ex.submit(() -> {
+      try (LockManager.LockLease lease = LockManager.tryLock("hot-id")) {
+        // acquired once the holder releases it
+      }
+    });
+    long deadline = System.currentTimeMillis() + 10000;
+    while (LockManager.getMetrics().getContended() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    try (LockManager.LockLease lease = LockManager.tryLock("hot-id")) {
+      fail("The request should be rejected");
+    } catch (LockUnavailableException e) {
+      assertTrue(e.isOverloaded());
+    } finally {
+      release.countDown();
+    }
+    waiter.get(10, TimeUnit.SECONDS);
+    ex.shutdown();
+    assertTrue(ex.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(1, LockManager.getMetrics().getRejections());
+    assertEquals(0, LockManager.getActiveLockCount());
+  }
+
+  /**
+   * In striped mode ids are still mutually exclusive and no lock is registered per id.
+   *
+   * @throws InterruptedException
+   *     if the executor is interrupted while awaiting termination
+   */
+  @Test
+  public void testStripedExclusiveAccess() throws InterruptedException {
+    LockManager.configure(true, 16, false, 10000L, 0);
+    ExecutorService ex = Executors.newFixedThreadPool(8);
+    AtomicInteger active = new AtomicInteger(0);
+    AtomicBoolean violation = new AtomicBoolean(false);
+    AtomicInteger counter = new AtomicInteger(0);
+    for (int i = 0; i < 40; i++) {
+      ex.submit(() -> {
+        try (LockManager.LockLease lease = LockManager.tryLock("striped-id")) {
+          if (!active.compareAndSet(0, 1)) {
+            violation.set(true);
+          }
+          assertEquals(0, LockManager.getActiveLockCount());
+          counter.incrementAndGet();
+          active.set(0);
+        }
+      });
+    }
+    ex.shutdown();
+    assertTrue(ex.awaitTermination(30, TimeUnit.SECONDS));
+    assertFalse(violation.get());
+    assertEquals(40, counter.get());
+    assertEquals(40, LockManager.getMetrics().getAcquisitions());
+  }
+
+  /**
+   * Leases are taken from the configured backend, with the configured timeout and waiter limit.
+   */
+  @Test
+  public void testLeaseFromBackend() {
+    List<String> calls = new ArrayList<>();
+    LockManager.configure((lockId, timeoutNanos, maxWaiters) -> {
+      calls.add(lockId + ":" + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + ":" + maxWaiters);
+      return () -> calls.add("release " + lockId);
+    }, 250L, 3);
+
+    try (LockManager.LockLease lease = LockManager.tryLock("remote-id")) {
+      calls.add("locked");
+    }
+
+    assertEquals(List.of("remote-id:250:3", "locked", "release remote-id"), calls);
+    assertEquals(0, LockManager.getActiveLockCount());
+  }
+
+  /**
+   * A backend without shared locks takes the exclusive lock for a shared lease.
+   */
+  @Test
+  public void testSharedLeaseFallsBackToExclusive() {
+    List<String> calls = new ArrayList<>();
+    LockManager.configure((lockId, timeoutNanos, maxWaiters) -> {
+      calls.add(lockId);
+      return () -> calls.add("release " + lockId);
+    }, 250L, 0);
+
+    try (LockManager.LockLease lease = LockManager.tryLockShared("remote-id")) {
+      calls.add("locked");
+    }
+
+    assertEquals(List.of("remote-id", "locked", "release remote-id"), calls);
+  }
+
+  /**
+   * Children of the same parent are locked at the same time, while the exclusive lease of the
+   * parent and the lease of the same child wait for them.
+   *
+   * @throws Exception
+   *     if the executor is interrupted
+   */
+  @Test
+  public void testChildrenShareParentLock() throws Exception {
+    LockManager.configure(false, 0, true, 100L, 0);
+    ExecutorService ex = Executors.newSingleThreadExecutor();
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ex.submit(() -> {
+      try (LockManager.LockLease lease = LockManager.tryLockChild("parent-id", "line-1")) {
+        held.countDown();
+        release.await();
+      }
+      return null;
+    });
+    assertTrue(held.await(10, TimeUnit.SECONDS));
+    try {
+      try (LockManager.LockLease lease = LockManager.tryLockChild("parent-id", "line-2")) {
+        assertEquals(3, LockManager.getActiveLockCount());
+      }
+      try (LockManager.LockLease lease = LockManager.tryLockChild("parent-id", null)) {
+        assertEquals(2, LockManager.getActiveLockCount());
+      }
+      assertUnavailable("parent-id", "parent-id");
+      assertUnavailable("parent-id", "line-1");
+    } finally {
+      release.countDown();
+      ex.shutdown();
+      assertTrue(ex.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    try (LockManager.LockLease lease = LockManager.tryLock("parent-id", 50, TimeUnit.MILLISECONDS)) {
+      assertEquals(1, LockManager.getActiveLockCount());
+    }
+    assertEquals(0, LockManager.getActiveLockCount());
+  }
+
+  /**
+   * With shared parent locks disabled, children of the same parent are serialized.
+   *
+   * @throws Exception
+   *     if the executor is interrupted
+   */
+  @Test
+  public void testChildrenSerializedWithoutSharedParent() throws Exception {
+    LockManager.configure(false, 0, true, 100L, 0);
+    LockManager.disableSharedParent();
+    ExecutorService ex = Executors.newSingleThreadExecutor();
+    CountDownLatch held = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ex.submit(() -> {
+      try (LockManager.LockLease lease = LockManager.tryLockChild("parent-id", "line-1")) {
+        held.countDown();
+        release.await();
+      }
+      return null;
+    });
+    assertTrue(held.await(10, TimeUnit.SECONDS));
+    try {
+      assertUnavailable("parent-id", "line-2");
+    } finally {
+      release.countDown();
+      ex.shutdown();
+      assertTrue(ex.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    assertEquals(0, LockManager.getActiveLockCount());
+  }
+
+  /**
+   * In striped mode children of many parents are locked in parallel without waiting for each
+   * other, and each child is still written by one request at a time.
+   *
+   * @throws InterruptedException
+   *     if the executor is interrupted while awaiting termination
+   */
+  @Test
+  public void testStripedChildLeases() throws InterruptedException {
+    LockManager.configure(true, 4, true, 10000L, 0);
+    ExecutorService ex = Executors.newFixedThreadPool(8);
+    AtomicInteger[] active = new AtomicInteger[4];
+    for (int i = 0; i < active.length; i++) {
+      active[i] = new AtomicInteger();
+    }
+    AtomicBoolean violation = new AtomicBoolean(false);
+    AtomicInteger counter = new AtomicInteger(0);
+    for (int i = 0; i < 200; i++) {
+      int child = i % active.length;
+      String parentId = "parent-" + (i % 3);
+      ex.submit(() -> {
+        try (LockManager.LockLease lease = LockManager.tryLockChild(parentId, "line-" + child)) {
+          if (active[child].incrementAndGet() != 1) {
+            violation.set(true);
+          }
+          counter.incrementAndGet();
+          active[child].decrementAndGet();
+        } catch (LockUnavailableException e) {
+          violation.set(true);
+        }
+      });
+    }
+    ex.shutdown();
+    assertTrue(ex.awaitTermination(30, TimeUnit.SECONDS));
+    assertFalse(violation.get());
+    assertEquals(200, counter.get());
+  }
+
+  /**
+   * A request key held by a thread never blocks the record locks of its request, even when they
+   * fall in the same stripe: neither the leases taken by the same thread nor those of its workers.
+   *
+   * @throws Exception
+   *     if the worker cannot be run
+   */
+  @Test
+  public void testKeyLockDoesNotShareStripeWithRecords() throws Exception {
+    LockManager.configure(true, 2, true, 200L, 0);
+    ExecutorService ex = Executors.newSingleThreadExecutor();
+    try (LockManager.LockLease key = LockManager.tryLockKey("idempotency:CLIENT:USER:KEY")) {
+      // With two stripes some of these parents share the stripe of the key
+      for (int i = 0; i < 8; i++) {
+        String parentId = "parent-" + i;
+        try (LockManager.LockLease lease = LockManager.tryLockChild(parentId, "line-" + i)) {
+          assertNotNull(lease);
+        }
+        Future<Boolean> worker = ex.submit(() -> {
+          try (LockManager.LockLease lease = LockManager.tryLockChild(parentId, null)) {
+            return true;
+          }
+        });
+        assertTrue(worker.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      ex.shutdownNow();
+    }
+  }
+
+  /**
+   * Request keys are exclusive among themselves, apart from the record ids.
+   *
+   * @throws Exception
+   *     if the worker cannot be run
+   */
+  @Test
+  public void testKeyLockIsExclusive() throws Exception {
+    LockManager.configure(false, 0, true, 50L, 0);
+    ExecutorService ex = Executors.newSingleThreadExecutor();
+    try (LockManager.LockLease key = LockManager.tryLockKey("KEY")) {
+      Future<Boolean> record = ex.submit(() -> {
+        try (LockManager.LockLease lease = LockManager.tryLock("KEY")) {
+          return true;
+        }
+      });
+      assertTrue(record.get(10, TimeUnit.SECONDS));
+      Future<Boolean> sameKey = ex.submit(() -> {
+        try (LockManager.LockLease lease = LockManager.tryLockKey("KEY")) {
+          return true;
+        } catch (LockUnavailableException e) {
+          return false;
+        }
+      });
+      assertFalse(sameKey.get(10, TimeUnit.SECONDS));
+    } finally {
+      ex.shutdownNow();
+    }
+    try (LockManager.LockLease key = LockManager.tryLockKey("KEY")) {
+      assertEquals(0, LockManager.getActiveLockCount());
+    }
+  }
+
+  /**
+   * When locks are held until the transaction ends, the records are locked in id order, whatever
+   * the order of the request, and the parent of a child takes the shared lease.
+   */
+  @Test
+  public void testTransactionHeldLocksAreTakenInIdOrder() {
+    List<String> calls = new ArrayList<>();
+    LockManager.configure(new TransactionHeldBackend(calls), 250L, 0);
+    assertTrue(LockManager.isHeldUntilTransactionEnd());
+
+    Map<String, Boolean> exclusiveById = new LinkedHashMap<>();
+    exclusiveById.put("parent-b", false);
+    exclusiveById.put("child-c", true);
+    exclusiveById.put("parent-a", true);
+    try (LockManager.LockLease lease = LockManager.tryLockInOrder(exclusiveById)) {
+      assertEquals(List.of("child-c", "parent-a", "shared parent-b"), calls);
+    }
+    assertEquals(List.of("child-c", "parent-a", "shared parent-b", "release shared parent-b",
+        "release parent-a", "release child-c"), calls);
+
+    calls.clear();
+    try (LockManager.LockLease lease = LockManager.tryLockChild("parent-b", "child-a")) {
+      assertEquals(List.of("child-a", "shared parent-b"), calls);
+    }
+  }
+
+  /**
+   * A failure locking one record releases the locks taken before it.
+   */
+  @Test
+  public void testFailedLockInOrderReleasesPreviousLocks() {
+    List<String> calls = new ArrayList<>();
+    LockManager.configure(new TransactionHeldBackend(calls) {
+      @Override
+      public Handle acquire(String lockId, long timeoutNanos, int maxWaiters) {
+        if ("record-b".equals(lockId)) {
+          throw new LockUnavailableException(lockId, false);
+        }
+        return super.acquire(lockId, timeoutNanos, maxWaiters);
+      }
+    }, 250L, 0);
+
+    Map<String, Boolean> exclusiveById = new HashMap<>();
+    exclusiveById.put("record-b", true);
+    exclusiveById.put("record-a", true);
+    try (LockManager.LockLease lease = LockManager.tryLockInOrder(exclusiveById)) {
+      fail("The lock of record-b should not be acquired");
+    } catch (LockUnavailableException e) {
+      assertEquals(List.of("record-a", "release record-a"), calls);
+    }
+  }
+
+  /**
+   * Backend recording its calls, whose locks are held until the transaction ends.
+   */
+  private static class TransactionHeldBackend implements LockBackend {
+    private final List<String> calls;
+
+    TransactionHeldBackend(List<String> calls) {
+      this.calls = calls;
+    }
+
+    @Override
+    public Handle acquire(String lockId, long timeoutNanos, int maxWaiters) {
+      calls.add(lockId);
+      return () -> calls.add("release " + lockId);
+    }
+
+    @Override
+    public Handle acquireShared(String lockId, long timeoutNanos, int maxWaiters) {
+      return acquire("shared " + lockId, timeoutNanos, maxWaiters);
+    }
+
+    @Override
+    public boolean isHeldUntilTransactionEnd() {
+      return true;
+    }
+  }
+
+  /**
+   * Asserts the lease of the child (or of the parent itself) cannot be taken before the timeout.
+   */
+  private static void assertUnavailable(String parentId, String childId) {
+    try (LockManager.LockLease lease = parentId.equals(childId)
+        ? LockManager.tryLock(parentId, 50, TimeUnit.MILLISECONDS)
+        : LockManager.tryLockChild(parentId, childId)) {
+      fail("The lock of " + childId + " should not be acquired");
+    } catch (LockUnavailableException e) {
+      assertFalse(e.isOverloaded());
+    }
+  }
 }
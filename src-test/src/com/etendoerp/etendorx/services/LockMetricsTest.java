@@ -0,0 +1,72 @@
+package com.etendoerp.etendorx.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for LockMetrics.
+ */
+public class LockMetricsTest {
+
+  /**
+   * Waits are added to the bucket of their duration, globally and for their key.
+   */
+  @Test
+  public void testWaitHistogram() {
+    LockMetrics metrics = new LockMetrics();
+    LockMetrics.KeyStats stats = metrics.startWait("ORDER");
+    metrics.endWait(stats, TimeUnit.MILLISECONDS.toNanos(3), true);
+    metrics.endWait(metrics.startWait("ORDER"), TimeUnit.SECONDS.toNanos(30), false);
+
+    long[] expected = new long[LockMetrics.BUCKET_BOUNDS_MS.length + 1];
+    expected[1] = 1;
+    expected[expected.length - 1] = 1;
+    assertArrayEquals(expected, metrics.getWaitHistogram());
+    assertArrayEquals(expected, stats.getWaitHistogram());
+    assertEquals(2, stats.getWaits());
+    assertEquals(1, stats.getTimeouts());
+    assertEquals(1, metrics.getAcquisitions());
+    assertEquals(1, metrics.getTimeouts());
+  }
+
+  /**
+   * Hot keys are sorted by requests waiting and then by waits.
+   */
+  @Test
+  public void testHotKeys() {
+    LockMetrics metrics = new LockMetrics();
+    metrics.endWait(metrics.startWait("A"), 0, true);
+    metrics.endWait(metrics.startWait("A"), 0, true);
+    metrics.endWait(metrics.startWait("B"), 0, true);
+    metrics.startWait("C");
+    metrics.startWait("C");
+
+    List<LockMetrics.KeyStats> hotKeys = metrics.getHotKeys(2);
+    assertEquals(2, hotKeys.size());
+    assertEquals("C", hotKeys.get(0).getKey());
+    assertEquals(2, hotKeys.get(0).getWaiting());
+    assertEquals("A", hotKeys.get(1).getKey());
+  }
+
+  /**
+   * When the tracked keys are full, an idle key is evicted to make room.
+   */
+  @Test
+  public void testIdleKeysAreEvicted() {
+    LockMetrics metrics = new LockMetrics();
+    for (int i = 0; i < LockMetrics.MAX_TRACKED_KEYS; i++) {
+      metrics.startWait("BUSY" + i);
+    }
+    assertNull(metrics.startWait("NEW"));
+
+    metrics.endWait(metrics.getKeyStats("BUSY0"), 0, true);
+    assertEquals("NEW", metrics.startWait("NEW").getKey());
+    assertNull(metrics.getKeyStats("BUSY0"));
+  }
+}
@@ -0,0 +1,296 @@
+package com.etendoerp.etendorx.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+
+/**
+ * Unit tests for ParallelPostProcessor.
+ */
+public class ParallelPostProcessorTest {
+
+  private static final String SALES_ORDER = "salesOrder";
+
+  /**
+   * Processor that does not touch the DAL, recording how each partition ended.
+   */
+  private static class TestProcessor extends ParallelPostProcessor {
+    private final List<Boolean> endedPartitions = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    WorkerContext captureContext() {
+      return new WorkerContext("USER", "ROLE", "CLIENT", "ORG", "en_US");
+    }
+
+    @Override
+    void beginPartition(WorkerContext context, HttpServletRequest request) {
+      // no DAL nor request context in unit tests
+    }
+
+    @Override
+    void endPartition(boolean success) {
+      endedPartitions.add(success);
+    }
+  }
+
+  private static EndpointDescriptor descriptor() {
+    return new EndpointDescriptor.Builder()
+        .name("SalesOrderLine")
+        .lockKeyProperties(List.of(SALES_ORDER))
+        .build();
+  }
+
+  private static JSONArray payloads(String... orders) throws Exception {
+    JSONArray payloads = new JSONArray();
+    for (int i = 0; i < orders.length; i++) {
+      JSONObject payload = new JSONObject().put("line", i);
+      if (orders[i] != null) {
+        payload.put(SALES_ORDER, orders[i]);
+      }
+      payloads.put(payload);
+    }
+    return payloads;
+  }
+
+  /**
+   * Results come back in request order, records of the same parent share the batch state and are
+   * processed in order, and every partition is committed.
+   *
+   * @throws Exception
+   *     if the records cannot be processed
+   */
+  @Test
+  public void testResultsKeepRequestOrder() throws Exception {
+    TestProcessor processor = new TestProcessor();
+    Map<Integer, PostBatchContext> batches = new ConcurrentHashMap<>();
+    List<Integer> orderOneLines = Collections.synchronizedList(new ArrayList<>());
+
+    List<ParallelPostProcessor.RecordResult> results = processor.process(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class), payloads("O1", "O2", "O1", null, "O2"), descriptor(), true,
+        (payload, data, batch, request, response) -> {
+          int line = payload.getInt("line");
+          batches.put(line, batch);
+          if ("O1".equals(payload.optString(SALES_ORDER))) {
+            orderOneLines.add(line);
+          }
+          data.put(new JSONObject().put("id", "ID" + line));
+          return line == 3 ? ParallelPostProcessor.NO_STATUS : 0;
+        });
+
+    assertEquals(5, results.size());
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals("ID" + i, results.get(i).getData().getJSONObject(0).getString("id"));
+      assertNull(results.get(i).getFailure());
+    }
+    assertEquals(ParallelPostProcessor.NO_STATUS, results.get(3).getStatus());
+    assertEquals(List.of(0, 2), orderOneLines);
+    assertSame(batches.get(0), batches.get(2));
+    assertSame(batches.get(1), batches.get(4));
+    assertNotSame(batches.get(0), batches.get(1));
+    assertEquals(4, processor.endedPartitions.size());
+    assertFalse(processor.endedPartitions.contains(false));
+    for (ParallelPostProcessor.RecordResult result : results) {
+      assertEquals(ParallelPostProcessor.Outcome.COMMITTED, result.getOutcome());
+    }
+  }
+
+  /**
+   * A failure stops its partition, which is rolled back, without affecting the other ones.
+   *
+   * @throws Exception
+   *     if the records cannot be processed
+   */
+  @Test
+  public void testFailureStopsItsPartition() throws Exception {
+    TestProcessor processor = new TestProcessor();
+    IllegalStateException failure = new IllegalStateException("Callout failed");
+
+    List<ParallelPostProcessor.RecordResult> results = processor.process(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class), payloads("O1", "O1", "O2"), descriptor(), false,
+        (payload, data, batch, request, response) -> {
+          assertNull(batch);
+          if (payload.getInt("line") == 0) {
+            throw failure;
+          }
+          data.put(new JSONObject().put("id", "ID" + payload.getInt("line")));
+          return 0;
+        });
+
+    assertSame(failure, results.get(0).getFailure());
+    assertEquals(ParallelPostProcessor.Outcome.FAILED, results.get(0).getOutcome());
+    assertEquals(0, results.get(1).getData().length());
+    assertEquals(ParallelPostProcessor.NO_STATUS, results.get(1).getStatus());
+    assertEquals(ParallelPostProcessor.Outcome.ROLLED_BACK, results.get(1).getOutcome());
+    assertEquals(1, results.get(2).getData().length());
+    assertEquals(ParallelPostProcessor.Outcome.COMMITTED, results.get(2).getOutcome());
+    JSONObject failed = results.get(0).toJSON(0);
+    assertEquals("FAILED", failed.getString("outcome"));
+    assertEquals("Callout failed", failed.getString("message"));
+    assertFalse(results.get(2).toJSON(2).has("message"));
+    assertTrue(processor.endedPartitions.contains(false));
+    assertTrue(processor.endedPartitions.contains(true));
+  }
+
+  /**
+   * When the commit of a partition fails, none of its records is reported as committed.
+   *
+   * @throws Exception
+   *     if the records cannot be processed
+   */
+  @Test
+  public void testFailedCommitRollsBackItsPartition() throws Exception {
+    TestProcessor processor = new TestProcessor() {
+      @Override
+      void endPartition(boolean success) {
+        throw new IllegalStateException("Commit failed");
+      }
+    };
+
+    List<ParallelPostProcessor.RecordResult> results = processor.process(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class), payloads("O1", "O1"), descriptor(), false,
+        (payload, data, batch, request, response) -> 0);
+
+    assertEquals(ParallelPostProcessor.Outcome.FAILED, results.get(0).getOutcome());
+    assertEquals("Commit failed", results.get(0).getFailure().getMessage());
+    assertEquals(ParallelPostProcessor.Outcome.ROLLED_BACK, results.get(1).getOutcome());
+  }
+
+  /**
+   * When the pool is full the remaining partitions are not processed.
+   *
+   * @throws Exception
+   *     if the records cannot be processed
+   */
+  @Test
+  public void testFullPoolSkipsRemainingPartitions() throws Exception {
+    AtomicInteger submitted = new AtomicInteger();
+    TestProcessor processor = new TestProcessor() {
+      @Override
+      Future<?> submit(Runnable task) {
+        if (submitted.incrementAndGet() > 1) {
+          throw new RejectedExecutionException("full");
+        }
+        // Run before the rejection, as a partition still queued would be skipped
+        task.run();
+        return CompletableFuture.completedFuture(null);
+      }
+    };
+
+    List<ParallelPostProcessor.RecordResult> results = processor.process(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class), payloads("O1", "O2", "O3"), descriptor(), false,
+        (payload, data, batch, request, response) -> 0);
+
+    assertEquals(ParallelPostProcessor.Outcome.COMMITTED, results.get(0).getOutcome());
+    assertEquals(ParallelPostProcessor.Outcome.NOT_PROCESSED, results.get(1).getOutcome());
+    assertTrue(results.get(2).getFailure() instanceof RejectedExecutionException);
+  }
+
+  /**
+   * A request whose partitions could not be queued is rejected when nothing was committed.
+   *
+   * @throws Exception
+   *     if the records cannot be processed
+   */
+  @Test(expected = RejectedExecutionException.class)
+  public void testFullPoolRejectsRequestWithoutCommits() throws Exception {
+    TestProcessor processor = new TestProcessor() {
+      @Override
+      Future<?> submit(Runnable task) {
+        throw new RejectedExecutionException("full");
+      }
+    };
+
+    processor.process(mock(HttpServletRequest.class), mock(HttpServletResponse.class), payloads("O1", "O2"),
+        descriptor(), false, (payload, data, batch, request, response) -> 0);
+  }
+
+  /**
+   * A stopped pool is started again by the next request.
+   *
+   * @throws Exception
+   *     if the records cannot be processed
+   */
+  @Test
+  public void testShutdownPoolIsRestarted() throws Exception {
+    new HeadlessExecutorShutdown().onShutdown(new Object());
+
+    List<ParallelPostProcessor.RecordResult> results = new TestProcessor().process(mock(HttpServletRequest.class),
+        mock(HttpServletResponse.class), payloads("O1", "O2"), descriptor(), false,
+        (payload, data, batch, request, response) -> 0);
+
+    assertEquals(ParallelPostProcessor.Outcome.COMMITTED, results.get(1).getOutcome());
+    ParallelPostProcessor.shutdown();
+  }
+
+  /**
+   * Each partition gets its own copy of the request: attributes set by one of them are not seen by
+   * the others nor by the original request, which is not read while the records are processed.
+   *
+   * @throws Exception
+   *     if the records cannot be processed
+   */
+  @Test
+  public void testPartitionsGetDetachedRequests() throws Exception {
+    HttpServletRequest original = mock(HttpServletRequest.class);
+    ServletContext servletContext = mock(ServletContext.class);
+    when(original.getServletContext()).thenReturn(servletContext);
+    when(original.getHeaderNames()).thenReturn(Collections.enumeration(List.of("Authorization")),
+        Collections.enumeration(List.of("Authorization")));
+    when(original.getHeaders("Authorization")).thenReturn(Collections.enumeration(List.of("Bearer TOKEN")),
+        Collections.enumeration(List.of("Bearer TOKEN")));
+    Map<Integer, HttpServletRequest> requests = new ConcurrentHashMap<>();
+    Map<Integer, Object> seenAttributes = new ConcurrentHashMap<>();
+
+    new TestProcessor().process(original, mock(HttpServletResponse.class), payloads("O1", "O2"), descriptor(),
+        false, (payload, data, batch, request, response) -> {
+          int line = payload.getInt("line");
+          requests.put(line, request);
+          request.setAttribute("LINE", line);
+          assertEquals("Bearer TOKEN", request.getHeader("Authorization"));
+          assertSame(servletContext, request.getServletContext());
+          seenAttributes.put(line, request.getAttribute("LINE"));
+          return 0;
+        });
+
+    assertNotSame(requests.get(0), requests.get(1));
+    assertEquals(0, seenAttributes.get(0));
+    assertEquals(1, seenAttributes.get(1));
+    verify(original, never()).setAttribute("LINE", 0);
+    verify(original, never()).setAttribute("LINE", 1);
+  }
+
+  /**
+   * Single record requests are never processed in parallel.
+   */
+  @Test
+  public void testSingleRecordIsNotParallel() {
+    assertFalse(ParallelPostProcessor.isEnabled(1));
+  }
+}
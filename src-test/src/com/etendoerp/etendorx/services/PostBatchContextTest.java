@@ -0,0 +1,260 @@
+package com.etendoerp.etendorx.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.openbravo.base.weld.WeldUtils;
+import org.openbravo.client.kernel.RequestContext;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openbravo.model.ad.ui.Tab;
+
+import com.etendoerp.etendorx.services.metadata.CalloutDependencyGraph;
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+import com.etendoerp.etendorx.services.wrapper.RequestField;
+import com.etendoerp.etendorx.utils.DataSourceUtils;
+import com.etendoerp.etendorx.utils.SelectorHandlerUtil;
+
+/**
+ * Unit tests for PostBatchContext and the batch mode of the headless POST.
+ */
+public class PostBatchContextTest {
+
+  private static final String TAB_ID = "TAB_ID";
+  private static final String SALES_ORDER = "salesOrder";
+  private static final String PRODUCT = "product";
+  private static final String DESCRIPTION = "description";
+  private static final String LINE_NO = "lineNo";
+
+  private MockedStatic<WeldUtils> weldStatic;
+  private MockedStatic<DataSourceUtils> dataSourceUtilsStatic;
+  private MockedStatic<SelectorHandlerUtil> selectorStatic;
+  private MockedStatic<RequestContext> requestContextStatic;
+  private EtendoFormInitComponent formInit;
+  private HttpServletRequest request;
+
+  /**
+   * Replaces the form initialization by a mock returning empty column values.
+   *
+   * @throws Exception
+   *     if the mock cannot be stubbed
+   */
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    weldStatic = Mockito.mockStatic(WeldUtils.class);
+    dataSourceUtilsStatic = Mockito.mockStatic(DataSourceUtils.class);
+    selectorStatic = Mockito.mockStatic(SelectorHandlerUtil.class);
+    requestContextStatic = Mockito.mockStatic(RequestContext.class);
+
+    formInit = mock(EtendoFormInitComponent.class);
+    when(formInit.execute(anyMap(), anyString())).thenAnswer(
+        inv -> new JSONObject().put("columnValues", new JSONObject()));
+    weldStatic.when(() -> WeldUtils.getInstanceFromStaticBeanManager(EtendoFormInitComponent.class))
+        .thenReturn(formInit);
+    requestContextStatic.when(RequestContext::get).thenReturn(mock(RequestContext.class));
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.keyConvertion(any(JSONObject.class), any(Map.class)))
+        .thenAnswer(inv -> new JSONObject(inv.getArgument(0).toString()));
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.valueConvertToInputFormat(any(), any()))
+        .thenAnswer(inv -> String.valueOf((Object) inv.getArgument(0)));
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.valuesConvertion(any(JSONObject.class), any(Map.class)))
+        .thenAnswer(inv -> inv.getArgument(0));
+
+    request = mock(HttpServletRequest.class);
+    when(request.getSession(false)).thenReturn(mock(HttpSession.class));
+  }
+
+  /**
+   * Closes the static mocks.
+   */
+  @After
+  public void tearDown() {
+    requestContextStatic.close();
+    selectorStatic.close();
+    dataSourceUtilsStatic.close();
+    weldStatic.close();
+  }
+
+  private static EndpointDescriptor createDescriptor() {
+    return new EndpointDescriptor.Builder()
+        .name("SalesOrderLine")
+        .tabId(TAB_ID)
+        .windowId("WINDOW_ID")
+        .tableId("TABLE_ID")
+        .field(field(PRODUCT, "M_Product_ID"), "inpmProductId", "String")
+        .field(field(DESCRIPTION, "Description"), "inpdescription", "String")
+        .field(field(LINE_NO, "Line"), "inpline", "Long")
+        .parentProperties(List.of(SALES_ORDER))
+        .lockKeyProperties(List.of(SALES_ORDER))
+        .dependencyGraph(new CalloutDependencyGraph.Builder().changeEvent(PRODUCT).build())
+        .sqlDefaultProperties(List.of(LINE_NO))
+        .newDefaultsReusable(true)
+        .build();
+  }
+
+  private static RequestField field(String name, String dbColumnName) {
+    Column column = mock(Column.class);
+    when(column.getDBColumnName()).thenReturn(dbColumnName);
+    return new RequestField(name, column, 10L);
+  }
+
+  private void post(EndpointDescriptor descriptor, PostBatchContext batch, JSONObject data) throws Exception {
+    Method method = DataSourceServlet.class.getDeclaredMethod("getEtendoPostWrapper",
+        HttpServletRequest.class, Tab.class, JSONObject.class, EndpointDescriptor.class, String.class,
+        PostBatchContext.class);
+    method.setAccessible(true);
+    method.invoke(new DataSourceServlet(), request, mock(Tab.class), new JSONObject().put("data", data),
+        descriptor, "/test", batch);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<String> executedModes() throws Exception {
+    ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+    verify(formInit, Mockito.atLeastOnce()).execute(captor.capture(), anyString());
+    List<String> modes = new ArrayList<>();
+    for (Map<String, Object> parameters : captor.getAllValues()) {
+      modes.add((String) parameters.get("MODE"));
+    }
+    return modes;
+  }
+
+  private static JSONObject line(String order, Long lineNo) throws Exception {
+    JSONObject data = new JSONObject()
+        .put(SALES_ORDER, order)
+        .put(PRODUCT, "PRODUCT_ID")
+        .put(DESCRIPTION, "Some text");
+    if (lineNo != null) {
+      data.put(LINE_NO, lineNo);
+    }
+    return data;
+  }
+
+  /**
+   * Lines of the same order share the NEW defaults.
+   *
+   * @throws Exception
+   *     if the wrapper cannot be built
+   */
+  @Test
+  public void testRecordsOfSameParentShareNewDefaults() throws Exception {
+    EndpointDescriptor descriptor = createDescriptor();
+    PostBatchContext batch = new PostBatchContext();
+
+    post(descriptor, batch, line("ORDER_1", 10L));
+    post(descriptor, batch, line("ORDER_1", 20L));
+    post(descriptor, batch, line("ORDER_2", 10L));
+
+    assertEquals(List.of("NEW", "CHANGE", "CHANGE", "NEW", "CHANGE"), executedModes());
+    assertEquals(2, batch.getNewFormInits());
+    assertEquals(1, batch.getReusedNewFormInits());
+    assertEquals(6, batch.getSkippedChangeEvents());
+  }
+
+  /**
+   * Defaults computed by a query are not shared when the record does not set the property.
+   *
+   * @throws Exception
+   *     if the wrapper cannot be built
+   */
+  @Test
+  public void testSqlDefaultsAreNotShared() throws Exception {
+    EndpointDescriptor descriptor = createDescriptor();
+    PostBatchContext batch = new PostBatchContext();
+
+    post(descriptor, batch, line("ORDER_1", null));
+    post(descriptor, batch, line("ORDER_1", null));
+
+    assertEquals(List.of("NEW", "CHANGE", "NEW", "CHANGE"), executedModes());
+    assertEquals(0, batch.getNewFormInits());
+  }
+
+  /**
+   * Outside batch mode every record runs its own NEW form initialization.
+   *
+   * @throws Exception
+   *     if the wrapper cannot be built
+   */
+  @Test
+  public void testWithoutBatchEveryRecordRunsNew() throws Exception {
+    EndpointDescriptor descriptor = createDescriptor();
+    post(descriptor, null, line("ORDER_1", 10L));
+    post(descriptor, null, line("ORDER_1", 20L));
+
+    assertEquals(List.of("NEW", "CHANGE", "NEW", "CHANGE"), executedModes());
+  }
+
+  /**
+   * Defaults are kept per tab and parent.
+   *
+   * @throws Exception
+   *     if the response cannot be built
+   */
+  @Test
+  public void testDefaultsAreKeptPerTabAndParent() throws Exception {
+    PostBatchContext batch = new PostBatchContext();
+    JSONObject defaults = new JSONObject().put("columnValues", new JSONObject());
+    batch.putNewRecordDefaults(TAB_ID, "ORDER_1", defaults);
+
+    assertSame(defaults, batch.getNewRecordDefaults(TAB_ID, "ORDER_1"));
+    assertNull(batch.getNewRecordDefaults(TAB_ID, "ORDER_2"));
+    assertNull(batch.getNewRecordDefaults("OTHER_TAB", "ORDER_1"));
+    assertEquals(1, batch.getReusedNewFormInits());
+  }
+
+  /**
+   * Selector rows are reused only for the same lookup.
+   *
+   * @throws Exception
+   *     if the row cannot be built
+   */
+  @Test
+  public void testSelectorRecordsAreKeptPerLookup() throws Exception {
+    PostBatchContext batch = new PostBatchContext();
+    JSONObject selectorRecord = new JSONObject().put("id", "PRODUCT_ID");
+    batch.putSelectorRecord("SELECTOR|query|{}|PRODUCT_ID", selectorRecord);
+
+    assertSame(selectorRecord, batch.getSelectorRecord("SELECTOR|query|{}|PRODUCT_ID"));
+    assertNull(batch.getSelectorRecord("SELECTOR|query|{etrxParam0=ORG_ID}|PRODUCT_ID"));
+    assertEquals(1, batch.getSelectorLookups());
+    assertEquals(1, batch.getReusedSelectorLookups());
+  }
+
+  /**
+   * The selector lookups of a bulk request receive the batch.
+   *
+   * @throws Exception
+   *     if the wrapper cannot be built
+   */
+  @Test
+  public void testSelectorLookupsReceiveBatch() throws Exception {
+    PostBatchContext batch = new PostBatchContext();
+
+    post(createDescriptor(), batch, line("ORDER_1", 10L));
+
+    selectorStatic.verify(() -> SelectorHandlerUtil.handleColumnSelector(any(), any(), any(), eq(PRODUCT), any(),
+        any(), same(batch)));
+  }
+}
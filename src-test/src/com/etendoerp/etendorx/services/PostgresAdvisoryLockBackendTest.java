@@ -0,0 +1,194 @@
+package com.etendoerp.etendorx.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Unit tests for PostgresAdvisoryLockBackend, run against an embedded PostgreSQL server. Each
+ * backend stands for a node, with its own transaction.
+ */
+public class PostgresAdvisoryLockBackendTest {
+
+  private static final long TIMEOUT = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private static EmbeddedPostgres postgres;
+
+  private Connection firstConnection;
+  private Connection secondConnection;
+  private PostgresAdvisoryLockBackend firstNode;
+  private PostgresAdvisoryLockBackend secondNode;
+  private LockMetrics metrics;
+
+  /**
+   * Starts the embedded server.
+   *
+   * @throws IOException
+   *     if the server cannot be started
+   */
+  @BeforeClass
+  public static void startPostgres() throws IOException {
+    postgres = EmbeddedPostgres.start();
+  }
+
+  /**
+   * Stops the embedded server.
+   *
+   * @throws IOException
+   *     if the server cannot be stopped
+   */
+  @AfterClass
+  public static void stopPostgres() throws IOException {
+    postgres.close();
+  }
+
+  /**
+   * Opens a transaction per node.
+   *
+   * @throws SQLException
+   *     if the connections cannot be opened
+   */
+  @Before
+  public void setUp() throws SQLException {
+    firstConnection = postgres.getPostgresDatabase().getConnection();
+    firstConnection.setAutoCommit(false);
+    secondConnection = postgres.getPostgresDatabase().getConnection();
+    secondConnection.setAutoCommit(false);
+    metrics = new LockMetrics();
+    firstNode = new PostgresAdvisoryLockBackend(metrics, () -> firstConnection);
+    secondNode = new PostgresAdvisoryLockBackend(metrics, () -> secondConnection);
+  }
+
+  /**
+   * Closes the transactions, releasing their locks.
+   *
+   * @throws SQLException
+   *     if the connections cannot be closed
+   */
+  @After
+  public void tearDown() throws SQLException {
+    firstConnection.rollback();
+    firstConnection.close();
+    secondConnection.rollback();
+    secondConnection.close();
+  }
+
+  /**
+   * A lock held by a transaction makes the other node time out until it is committed, even after
+   * the lease is released; other ids are not affected.
+   *
+   * @throws SQLException
+   *     if the transaction cannot be committed
+   */
+  @Test
+  public void testLockIsHeldUntilCommit() throws SQLException {
+    firstNode.acquire("order-1", TIMEOUT, 0).release();
+
+    try {
+      secondNode.acquire("order-1", TIMEOUT, 0);
+      fail("The lock should be held by the first transaction");
+    } catch (LockUnavailableException e) {
+      assertFalse(e.isOverloaded());
+    }
+    secondNode.acquire("order-2", TIMEOUT, 0).release();
+
+    firstConnection.commit();
+    secondNode.acquire("order-1", TIMEOUT, 0).release();
+
+    assertEquals(1, metrics.getTimeouts());
+    assertEquals(3, metrics.getAcquisitions());
+  }
+
+  /**
+   * The same transaction can take a lock again.
+   */
+  @Test
+  public void testLockIsReentrant() {
+    firstNode.acquire("order-1", TIMEOUT, 0).release();
+    firstNode.acquire("order-1", TIMEOUT, 0).release();
+
+    assertEquals(0, metrics.getContended());
+  }
+
+  /**
+   * A wait without timeout ends when the holder rolls back.
+   *
+   * @throws Exception
+   *     if the waiting thread fails
+   */
+  @Test
+  public void testWaitWithoutTimeout() throws Exception {
+    firstNode.acquire("order-1", -1L, 0);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> waiter = executor.submit(() -> secondNode.acquire("order-1", -1L, 0).release());
+      long deadline = System.currentTimeMillis() + 10000;
+      while (metrics.getContended() == 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(5);
+      }
+      assertFalse(waiter.isDone());
+
+      firstConnection.rollback();
+      waiter.get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(metrics.getKeyStats("order-1").getWaits() > 0);
+  }
+
+  /**
+   * Shared locks of an id are held by both nodes at once, and exclude the exclusive lock until
+   * both transactions end.
+   *
+   * @throws SQLException
+   *     if the transactions cannot be committed
+   */
+  @Test
+  public void testSharedLocks() throws SQLException {
+    firstNode.acquireShared("order-1", TIMEOUT, 0).release();
+    secondNode.acquireShared("order-1", TIMEOUT, 0).release();
+
+    try {
+      secondNode.acquire("order-1", TIMEOUT, 0);
+      fail("The exclusive lock should wait for the shared lock of the first transaction");
+    } catch (LockUnavailableException e) {
+      assertFalse(e.isOverloaded());
+    }
+
+    firstConnection.commit();
+    secondNode.acquire("order-1", TIMEOUT, 0).release();
+    try {
+      firstNode.acquireShared("order-1", TIMEOUT, 0);
+      fail("The shared lock should wait for the exclusive lock of the second transaction");
+    } catch (LockUnavailableException e) {
+      assertEquals(2, metrics.getTimeouts());
+    }
+  }
+
+  /**
+   * Keys are stable and differ between ids.
+   */
+  @Test
+  public void testKeys() {
+    assertEquals(PostgresAdvisoryLockBackend.toKey("order-1"), PostgresAdvisoryLockBackend.toKey("order-1"));
+    assertNotEquals(PostgresAdvisoryLockBackend.toKey("order-1"), PostgresAdvisoryLockBackend.toKey("order-2"));
+  }
+}
@@ -0,0 +1,158 @@
+package com.etendoerp.etendorx.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+
+import java.util.List;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import com.smf.securewebservices.rsql.OBRestUtils;
+
+/**
+ * Unit tests for RsqlCriteriaCache.
+ */
+public class RsqlCriteriaCacheTest {
+
+  private MockedStatic<OBRestUtils> restUtilsStatic;
+
+  /**
+   * Replaces the RSQL parser by a minimal one supporting {@code ==} and {@code =sw=} comparisons,
+   * the latter adding a wildcard to the value.
+   */
+  @Before
+  public void setUp() {
+    RsqlCriteriaCache.clear();
+    RsqlCriteriaCache.setMaxSize(500);
+    restUtilsStatic = Mockito.mockStatic(OBRestUtils.class);
+    restUtilsStatic.when(() -> OBRestUtils.criteriaFromRSQL(anyString())).thenAnswer(inv -> {
+      String rsql = inv.getArgument(0);
+      boolean startsWith = rsql.contains("=sw=");
+      String[] parts = rsql.split(startsWith ? "=sw=" : "==");
+      return new JSONObject()
+          .put("fieldName", parts[0])
+          .put("operator", startsWith ? "startsWith" : "equals")
+          .put("value", startsWith ? parts[1] + "%" : parts[1]);
+    });
+  }
+
+  /**
+   * Closes the static mocks.
+   */
+  @After
+  public void tearDown() {
+    restUtilsStatic.close();
+    RsqlCriteriaCache.clear();
+  }
+
+  /**
+   * Expressions differing only in an identifier share one template.
+   *
+   * @throws Exception
+   *     if the criteria cannot be read
+   */
+  @Test
+  public void testIdentifiersShareTemplate() throws Exception {
+    String first = RsqlCriteriaCache.getCriteria("businessPartner==A6750F0D15334FB890C254369AC750A8");
+    String second = RsqlCriteriaCache.getCriteria(" businessPartner==B6750F0D15334FB890C254369AC750A9 ");
+
+    assertEquals("A6750F0D15334FB890C254369AC750A8", new JSONObject(first).getString("value"));
+    JSONObject secondCriteria = new JSONObject(second);
+    assertEquals("B6750F0D15334FB890C254369AC750A9", secondCriteria.getString("value"));
+    assertEquals("businessPartner", secondCriteria.getString("fieldName"));
+    assertEquals("AdvancedCriteria", secondCriteria.getString("_constructor"));
+    assertEquals(1, RsqlCriteriaCache.getMisses());
+    assertEquals(1, RsqlCriteriaCache.getHits());
+    assertEquals(1, RsqlCriteriaCache.size());
+    restUtilsStatic.verify(() -> OBRestUtils.criteriaFromRSQL(anyString()), Mockito.times(2));
+  }
+
+  /**
+   * Numbers are not parameterized, as they may change the criteria type.
+   *
+   * @throws Exception
+   *     if the criteria cannot be read
+   */
+  @Test
+  public void testNumbersAreNotParameterized() throws Exception {
+    RsqlCriteriaCache.getCriteria("lineNo==10");
+    RsqlCriteriaCache.getCriteria("lineNo==20");
+    RsqlCriteriaCache.getCriteria("lineNo==10");
+
+    assertEquals(2, RsqlCriteriaCache.getMisses());
+    assertEquals(1, RsqlCriteriaCache.getHits());
+  }
+
+  /**
+   * Words that may be read as numbers are not parameterized, so they never fill a template checked
+   * with a plain word.
+   */
+  @Test
+  public void testNumberLikeWordsAreNotParameterized() {
+    assertEquals("amount==ETRXPARAM0Z", RsqlCriteriaCache.ParameterizedRsql.parse("amount==abc").template);
+    for (String literal : List.of("1E10", "1e5", "0x1F", "10L", "NaN", "-Infinity")) {
+      RsqlCriteriaCache.ParameterizedRsql parsed = RsqlCriteriaCache.ParameterizedRsql.parse("amount==" + literal);
+      assertEquals("amount==" + literal, parsed.template);
+      assertEquals(List.of(), parsed.values);
+    }
+  }
+
+  /**
+   * When the parser transforms the value, the criteria are only cached for the exact expression.
+   *
+   * @throws Exception
+   *     if the criteria cannot be read
+   */
+  @Test
+  public void testTransformedValuesFallBackToExactExpression() throws Exception {
+    String first = RsqlCriteriaCache.getCriteria("name=sw=John");
+    RsqlCriteriaCache.getCriteria("name=sw=John");
+    String other = RsqlCriteriaCache.getCriteria("name=sw=Jane");
+
+    assertEquals("John%", new JSONObject(first).getString("value"));
+    assertEquals("Jane%", new JSONObject(other).getString("value"));
+    assertEquals(2, RsqlCriteriaCache.getMisses());
+    assertEquals(1, RsqlCriteriaCache.getHits());
+  }
+
+  /**
+   * The least recently used entry is evicted when the cache is full.
+   *
+   * @throws Exception
+   *     if the criteria cannot be read
+   */
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() throws Exception {
+    RsqlCriteriaCache.setMaxSize(2);
+    RsqlCriteriaCache.getCriteria("lineNo==1");
+    RsqlCriteriaCache.getCriteria("lineNo==2");
+    RsqlCriteriaCache.getCriteria("lineNo==1");
+    RsqlCriteriaCache.getCriteria("lineNo==3");
+    RsqlCriteriaCache.getCriteria("lineNo==1");
+    RsqlCriteriaCache.getCriteria("lineNo==2");
+
+    assertEquals(2, RsqlCriteriaCache.size());
+    assertEquals(2, RsqlCriteriaCache.getHits());
+    assertEquals(4, RsqlCriteriaCache.getMisses());
+  }
+
+  /**
+   * Safe literals are replaced in single values, quoted values and groups.
+   */
+  @Test
+  public void testParameterizedExpression() {
+    RsqlCriteriaCache.ParameterizedRsql parsed = RsqlCriteriaCache.ParameterizedRsql.parse(
+        "product=ins=(ABC1,42);name=='Foo';qty>5,description=c='two words'");
+
+    assertEquals("product=ins=(ETRXPARAM0Z,42);name==ETRXPARAM1Z;qty>5,description=c='two words'",
+        parsed.template);
+    assertEquals(List.of("ABC1", "Foo"), parsed.values);
+    assertNull(RsqlCriteriaCache.ParameterizedRsql.parse("name=='unclosed"));
+  }
+}
@@ -0,0 +1,126 @@
+package com.etendoerp.etendorx.services.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openbravo.model.ad.domain.Callout;
+import org.openbravo.model.ad.domain.Validation;
+import org.openbravo.model.ad.ui.AuxiliaryInput;
+import org.openbravo.model.ad.ui.Field;
+import org.openbravo.model.ad.ui.Tab;
+
+/**
+ * Unit tests for {@link CalloutDependencyGraph}.
+ */
+public class CalloutDependencyGraphTest {
+
+  private static final String BUSINESS_PARTNER = "businessPartner";
+  private static final String PARTNER_ADDRESS = "partnerAddress";
+  private static final String WAREHOUSE = "warehouse";
+  private static final String DESCRIPTION = "description";
+
+  private static Field field(String dbColumnName) {
+    Field field = mock(Field.class);
+    Column column = mock(Column.class);
+    when(field.getColumn()).thenReturn(column);
+    when(column.getDBColumnName()).thenReturn(dbColumnName);
+    return field;
+  }
+
+  /**
+   * Builds an order header tab where the address is filtered by the business partner, the
+   * business partner has a callout and an auxiliary input reads the warehouse.
+   */
+  private static CalloutDependencyGraph orderGraph() {
+    Field partnerAddress = field("C_BPartner_Location_ID");
+    Validation validation = mock(Validation.class);
+    when(partnerAddress.getColumn().getValidation()).thenReturn(validation);
+    when(validation.getValidationCode()).thenReturn("C_BPartner_Location.C_BPartner_ID = @C_BPartner_ID@");
+    Field businessPartner = field("C_BPartner_ID");
+    when(businessPartner.getColumn().getCallout()).thenReturn(mock(Callout.class));
+    when(businessPartner.getDisplayLogic()).thenReturn("@#AD_Client_ID@!'0' & @C_BPartner_ID@!''");
+    Field warehouse = field("M_Warehouse_ID");
+    Field description = field("Description");
+    when(description.getColumn().getReadOnlyLogic()).thenReturn("@Processed@='Y'");
+    AuxiliaryInput auxiliaryInput = mock(AuxiliaryInput.class);
+    when(auxiliaryInput.getValidationCode()).thenReturn(
+        "@SQL=SELECT AD_Org_ID FROM M_Warehouse WHERE M_Warehouse_ID = @M_Warehouse_ID@");
+
+    Tab tab = mock(Tab.class);
+    when(tab.getADFieldList()).thenReturn(List.of(partnerAddress, businessPartner, warehouse, description));
+    when(tab.getADAuxiliaryInputList()).thenReturn(List.of(auxiliaryInput));
+    return CalloutDependencyGraph.fromTab(tab, Map.of(
+        "c_bpartner_location_id", PARTNER_ADDRESS,
+        "c_bpartner_id", BUSINESS_PARTNER,
+        "m_warehouse_id", WAREHOUSE,
+        "description", DESCRIPTION));
+  }
+
+  /**
+   * Only columns with callouts or referenced by other columns or auxiliary inputs need the CHANGE
+   * event.
+   */
+  @Test
+  public void testChangeEventsFromTab() {
+    CalloutDependencyGraph graph = orderGraph();
+
+    assertTrue(graph.requiresChangeEvent(BUSINESS_PARTNER));
+    assertTrue(graph.requiresChangeEvent(WAREHOUSE));
+    assertFalse(graph.requiresChangeEvent(PARTNER_ADDRESS));
+    assertFalse(graph.requiresChangeEvent(DESCRIPTION));
+    assertEquals(Set.of(BUSINESS_PARTNER), graph.getDependencies(PARTNER_ADDRESS));
+    assertTrue(graph.getDependencies(BUSINESS_PARTNER).isEmpty());
+  }
+
+  /**
+   * A value is set after the properties it depends on, keeping the field order otherwise.
+   */
+  @Test
+  public void testSortFollowsDependencies() {
+    CalloutDependencyGraph graph = orderGraph();
+
+    assertEquals(List.of(BUSINESS_PARTNER, PARTNER_ADDRESS, DESCRIPTION),
+        graph.sort(List.of(PARTNER_ADDRESS, BUSINESS_PARTNER, DESCRIPTION)));
+    assertEquals(List.of(DESCRIPTION, WAREHOUSE), graph.sort(List.of(DESCRIPTION, WAREHOUSE)));
+  }
+
+  /**
+   * Dependencies are followed through properties not present in the request, and cycles keep the
+   * given order.
+   */
+  @Test
+  public void testTransitiveDependenciesAndCycles() {
+    CalloutDependencyGraph graph = new CalloutDependencyGraph.Builder()
+        .dependency("c", "b")
+        .dependency("b", "a")
+        .dependency("x", "y")
+        .dependency("y", "x")
+        .build();
+
+    assertEquals(Set.of("a", "b"), graph.getDependencies("c"));
+    assertEquals(List.of("a", "c"), graph.sort(List.of("c", "a")));
+    assertEquals(List.of("y", "x"), graph.sort(List.of("y", "x")));
+  }
+
+  /**
+   * Session and preference references are left out.
+   */
+  @Test
+  public void testAddReferences() {
+    Set<String> references = new HashSet<>();
+    CalloutDependencyGraph.addReferences("@IsSOTrx@='Y' & @#AD_Client_ID@!'0' | @$Element_BP@='Y'", references);
+    CalloutDependencyGraph.addReferences(null, references);
+
+    assertEquals(Set.of("issotrx"), references);
+  }
+}
@@ -0,0 +1,246 @@
+package com.etendoerp.etendorx.services.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.openbravo.base.exception.OBException;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBCriteria;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.erpCommon.utility.OBMessageUtils;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openbravo.model.ad.datamodel.Table;
+import org.openbravo.model.ad.domain.Callout;
+import org.openbravo.model.ad.ui.Field;
+import org.openbravo.model.ad.ui.Tab;
+import org.openbravo.model.ad.ui.Window;
+
+import com.etendoerp.etendorx.data.OpenAPIRequestField;
+import com.etendoerp.etendorx.data.OpenAPITab;
+import com.etendoerp.etendorx.utils.DataSourceUtils;
+import com.etendoerp.openapi.data.OpenAPIRequest;
+
+/**
+ * Unit tests for {@link EndpointMetadataCache} and {@link EndpointDescriptor}.
+ */
+public class EndpointMetadataCacheTest {
+
+  private static final String ENDPOINT = "SalesOrderLine";
+
+  private MockedStatic<OBDal> obDalStatic;
+  private MockedStatic<OBContext> obContextStatic;
+  private MockedStatic<DataSourceUtils> dataSourceUtilsStatic;
+  private OBCriteria<OpenAPIRequest> criteria;
+  private OpenAPIRequest request;
+  private Column productColumn;
+  private Field orderField;
+  private Table table;
+
+  /**
+   * Wires an endpoint exposing a tab with a regular field and a link-to-parent field.
+   */
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    EndpointMetadataCache.invalidate();
+    obDalStatic = Mockito.mockStatic(OBDal.class);
+    obContextStatic = Mockito.mockStatic(OBContext.class);
+    dataSourceUtilsStatic = Mockito.mockStatic(DataSourceUtils.class);
+
+    OBDal obDal = mock(OBDal.class);
+    criteria = mock(OBCriteria.class);
+    obDalStatic.when(OBDal::getInstance).thenReturn(obDal);
+    when(obDal.createCriteria(OpenAPIRequest.class)).thenReturn(criteria);
+    when(criteria.add(any())).thenReturn(criteria);
+    when(criteria.setMaxResults(1)).thenReturn(criteria);
+
+    productColumn = mock(Column.class);
+    when(productColumn.getDBColumnName()).thenReturn("M_Product_ID");
+    Column orderColumn = mock(Column.class);
+    when(orderColumn.getDBColumnName()).thenReturn("C_Order_ID");
+    when(orderColumn.isLinkToParentColumn()).thenReturn(true);
+    Field productField = mock(Field.class);
+    when(productField.getColumn()).thenReturn(productColumn);
+    orderField = mock(Field.class);
+    when(orderField.getColumn()).thenReturn(orderColumn);
+
+    Tab tab = mock(Tab.class);
+    Window window = mock(Window.class);
+    table = mock(Table.class);
+    when(tab.getId()).thenReturn("TAB_ID");
+    when(tab.getWindow()).thenReturn(window);
+    when(tab.getTable()).thenReturn(table);
+    when(window.getId()).thenReturn("WINDOW_ID");
+    when(table.getId()).thenReturn("TABLE_ID");
+    when(table.getName()).thenReturn("C_OrderLine");
+    when(tab.getADFieldList()).thenReturn(List.of(productField, orderField));
+
+    // Only the product field is configured in the endpoint, so the order field is sorted last
+    OpenAPIRequestField productRequestField = mock(OpenAPIRequestField.class);
+    when(productRequestField.getField()).thenReturn(productField);
+    when(productRequestField.getSeqno()).thenReturn(10L);
+    OpenAPITab openAPITab = mock(OpenAPITab.class);
+    when(openAPITab.getRelatedTabs()).thenReturn(tab);
+    when(openAPITab.getEtrxOpenapiFieldList()).thenReturn(List.of(productRequestField));
+    request = mock(OpenAPIRequest.class);
+    when(request.getETRXOpenAPITabList()).thenReturn(List.of(openAPITab));
+    when(criteria.uniqueResult()).thenReturn(request);
+
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.getHQLColumnName(productField))
+        .thenReturn(new String[]{ "product", "String" });
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.getHQLColumnName(orderField))
+        .thenReturn(new String[]{ "salesOrder", "String" });
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.getInpName(anyString()))
+        .thenAnswer(inv -> "inp" + inv.getArgument(0));
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.getParentProperties(tab))
+        .thenReturn(List.of("salesOrder"));
+  }
+
+  /**
+   * Closes the static mocks and leaves the cache empty for other tests.
+   */
+  @After
+  public void tearDown() {
+    EndpointMetadataCache.invalidate();
+    dataSourceUtilsStatic.close();
+    obContextStatic.close();
+    obDalStatic.close();
+  }
+
+  /**
+   * The descriptor holds the fields ordered by sequence number and the precompiled name maps.
+   */
+  @Test
+  public void testDescriptorIsCompiledFromEndpointDefinition() {
+    EndpointDescriptor descriptor = EndpointMetadataCache.getDescriptor(ENDPOINT);
+
+    assertEquals("TAB_ID", descriptor.getTabId());
+    assertEquals("WINDOW_ID", descriptor.getWindowId());
+    assertEquals("TABLE_ID", descriptor.getTableId());
+    assertEquals("C_OrderLine", descriptor.getTableName());
+    assertEquals(2, descriptor.getFields().size());
+    assertEquals("product", descriptor.getFields().get(0).getName());
+    assertEquals("salesOrder", descriptor.getFields().get(1).getName());
+    assertEquals(List.of("product", "salesOrder"), List.copyOf(descriptor.getNorm2input().keySet()));
+    assertEquals("product", descriptor.getInput2norm().get("inpM_Product_ID"));
+    assertEquals("inpC_Order_ID", descriptor.getDbname2input().get("C_Order_ID"));
+    assertEquals("String", descriptor.getColumnTypes().get("product"));
+    assertEquals(List.of("salesOrder"), descriptor.getParentProperties());
+    assertEquals(List.of("salesOrder"), descriptor.getLockKeyProperties());
+  }
+
+  /**
+   * Subsequent lookups are served from the cache until it is invalidated.
+   */
+  @Test
+  public void testDescriptorIsCachedUntilInvalidated() {
+    EndpointDescriptor first = EndpointMetadataCache.getDescriptor(ENDPOINT);
+    EndpointDescriptor second = EndpointMetadataCache.getDescriptor(" " + ENDPOINT + " ");
+
+    assertSame(first, second);
+    assertEquals(1, EndpointMetadataCache.size());
+    verify(criteria, times(1)).uniqueResult();
+
+    EndpointMetadataCache.invalidate();
+    assertEquals(0, EndpointMetadataCache.size());
+    EndpointDescriptor third = EndpointMetadataCache.getDescriptor(ENDPOINT);
+
+    assertNotSame(first, third);
+    verify(criteria, times(2)).uniqueResult();
+  }
+
+  /**
+   * Endpoints without tabs have no descriptor and are not cached.
+   */
+  @Test
+  public void testEndpointWithoutTabs() {
+    when(request.getETRXOpenAPITabList()).thenReturn(Collections.emptyList());
+
+    assertNull(EndpointMetadataCache.getDescriptor(ENDPOINT));
+    assertEquals(0, EndpointMetadataCache.size());
+  }
+
+  /**
+   * Unknown endpoints raise an exception.
+   */
+  @Test(expected = OBException.class)
+  public void testUnknownEndpoint() {
+    when(criteria.uniqueResult()).thenReturn(null);
+    try (MockedStatic<OBMessageUtils> messages = Mockito.mockStatic(OBMessageUtils.class)) {
+      messages.when(() -> OBMessageUtils.messageBD("ETRX_HeadlessEndpNF")).thenReturn("Endpoint %s not found");
+      EndpointMetadataCache.getDescriptor("Unknown");
+    }
+  }
+
+  /**
+   * The parent id is read from the link-to-parent properties present in the data.
+   *
+   * @throws Exception
+   *     if the JSON data cannot be built
+   */
+  @Test
+  public void testGetParentId() throws Exception {
+    EndpointDescriptor descriptor = EndpointMetadataCache.getDescriptor(ENDPOINT);
+
+    assertEquals("ORDER_ID", descriptor.getParentId(new JSONObject().put("salesOrder", "ORDER_ID")));
+    assertNull(descriptor.getParentId(new JSONObject().put("product", "PRODUCT_ID")));
+  }
+
+  /**
+   * Only the columns with a callout or referenced by another column need the CHANGE event.
+   *
+   * @throws Exception
+   *     if the JSON data cannot be built
+   */
+  @Test
+  public void testChangeEventsAndSqlDefaults() throws Exception {
+    when(orderField.getDisplayLogic()).thenReturn("@M_Product_ID@!''");
+    when(productColumn.getDefaultValue()).thenReturn("@SQL=SELECT MAX(M_Product_ID) FROM M_Product");
+    when(table.getADColumnList()).thenReturn(List.of(productColumn));
+    EndpointDescriptor descriptor = EndpointMetadataCache.getDescriptor(ENDPOINT);
+
+    assertTrue(descriptor.requiresChangeEvent("product"));
+    assertFalse(descriptor.requiresChangeEvent("salesOrder"));
+    assertEquals(List.of("product"), descriptor.getSqlDefaultProperties());
+    assertFalse(descriptor.canReuseNewDefaults(new JSONObject().put("salesOrder", "ORDER_ID")));
+    assertTrue(descriptor.canReuseNewDefaults(new JSONObject().put("product", "PRODUCT_ID")));
+    assertFalse(descriptor.canShareParentLock(new JSONObject().put("salesOrder", "ORDER_ID")));
+    assertTrue(descriptor.canShareParentLock(new JSONObject().put("product", "PRODUCT_ID")));
+  }
+
+  /**
+   * A column with a callout needs the CHANGE event, and a query default in a column not exposed by
+   * the tab prevents reusing the NEW defaults.
+   */
+  @Test
+  public void testCalloutAndHiddenSqlDefault() {
+    when(productColumn.getCallout()).thenReturn(mock(Callout.class));
+    Column lineColumn = mock(Column.class);
+    when(lineColumn.getDefaultValue()).thenReturn("@SQL=SELECT COALESCE(MAX(Line), 0) + 10 FROM C_OrderLine");
+    when(table.getADColumnList()).thenReturn(List.of(productColumn, lineColumn));
+    EndpointDescriptor descriptor = EndpointMetadataCache.getDescriptor(ENDPOINT);
+
+    assertTrue(descriptor.requiresChangeEvent("product"));
+    assertFalse(descriptor.canReuseNewDefaults(new JSONObject()));
+    assertFalse(descriptor.canShareParentLock(new JSONObject()));
+  }
+}
@@ -0,0 +1,114 @@
+package com.etendoerp.etendorx.services.metadata;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.etendoerp.etendorx.services.wrapper.RequestField;
+import com.etendoerp.etendorx.utils.DataSourceUtils;
+
+/**
+ * Compares the write path of the headless POST over a 40 column payload: the Jettison copies and
+ * key and value conversions used before {@link HeadlessRecord}, against the record. The form
+ * initialization is left out, its column values are already in the payload.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main HeadlessRecordBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadlessRecordBenchmark {
+
+  private static final int COLUMNS = 40;
+  private static final String[] TYPES = { "String", "Long", "BigDecimal", "Boolean" };
+
+  private EndpointDescriptor descriptor;
+  private JSONObject body;
+
+  /**
+   * Builds the descriptor and the request body, with a value of every type for each column.
+   *
+   * @throws Exception
+   *     if the body cannot be built
+   */
+  @Setup
+  public void setUp() throws Exception {
+    EndpointDescriptor.Builder builder = new EndpointDescriptor.Builder().name("Benchmark").tabId("TAB_ID");
+    JSONObject data = new JSONObject();
+    for (int i = 0; i < COLUMNS; i++) {
+      String type = TYPES[i % TYPES.length];
+      Column column = mock(Column.class);
+      when(column.getDBColumnName()).thenReturn("Column" + i);
+      builder.field(new RequestField("property" + i, column, (long) i * 10), "inpcolumn" + i, type);
+      data.put("property" + i, sampleValue(type, i));
+    }
+    descriptor = builder.build();
+    body = new JSONObject()
+        .put("dataSource", "Benchmark")
+        .put("operationType", "add")
+        .put("componentId", "isc_OBViewForm_0")
+        .put("data", data);
+  }
+
+  private static Object sampleValue(String type, int i) {
+    switch (type) {
+      case "Long":
+        return String.valueOf(i * 10);
+      case "BigDecimal":
+        return "1.234,5" + i;
+      case "Boolean":
+        return i % 3 == 0 ? "Y" : "N";
+      default:
+        return "A6750F0D15334FB890C254369AC750" + (10 + i);
+    }
+  }
+
+  /**
+   * The tree conversions done before the record model.
+   */
+  @Benchmark
+  public String jettisonCopies() throws Exception {
+    JSONObject newJsonBody = new JSONObject(body.toString());
+    JSONObject dataFromOriginalRequest = newJsonBody.getJSONObject("data");
+    JSONObject propsToChange = new JSONObject(dataFromOriginalRequest.toString());
+    descriptor.getPropertiesToSet(propsToChange);
+    JSONObject dataFromNewRecord = new JSONObject(dataFromOriginalRequest.toString());
+    dataFromNewRecord = DataSourceUtils.keyConvertion(dataFromNewRecord, descriptor.getNorm2input());
+    JSONObject dataInpFormat = DataSourceUtils.keyConvertion(dataFromNewRecord, descriptor.getNorm2input());
+    dataInpFormat.put("keyProperty", "id");
+    JSONObject jsonBodyToSave = DataSourceUtils.keyConvertion(dataInpFormat, descriptor.getInput2norm());
+    jsonBodyToSave = DataSourceUtils.valuesConvertion(jsonBodyToSave, descriptor.getColumnTypes());
+    newJsonBody.put("data", jsonBodyToSave);
+    return newJsonBody.toString();
+  }
+
+  /**
+   * The same conversions done through the record.
+   */
+  @Benchmark
+  public String headlessRecord() throws Exception {
+    JSONObject newJsonBody = new JSONObject(body.toString());
+    JSONObject dataFromOriginalRequest = newJsonBody.getJSONObject("data");
+    descriptor.getPropertiesToSet(dataFromOriginalRequest, descriptor.getParentProperties());
+    HeadlessRecord headlessRecord = HeadlessRecord.fromNormalized(descriptor, dataFromOriginalRequest);
+    headlessRecord.put("keyProperty", "id");
+    return headlessRecord.toRequestBody(newJsonBody, null);
+  }
+}
@@ -0,0 +1,173 @@
+package com.etendoerp.etendorx.services.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+import org.openbravo.model.ad.datamodel.Column;
+
+import com.etendoerp.etendorx.services.wrapper.RequestField;
+import com.etendoerp.etendorx.utils.DataSourceUtils;
+import com.etendoerp.etendorx.utils.FieldConverter;
+
+/**
+ * Unit tests for {@link HeadlessRecord}.
+ */
+public class HeadlessRecordTest {
+
+  private static final String PRODUCT = "product";
+  private static final String QUANTITY = "orderedQuantity";
+  private static final String LINE_NO = "lineNo";
+  private static final String DELIVERED = "delivered";
+  private static final String INP_PRODUCT = "inpmProductId";
+  private static final String INP_QUANTITY = "inpqtyordered";
+  private static final String INP_LINE_NO = "inpline";
+  private static final String INP_DELIVERED = "inpisdelivered";
+
+  private static EndpointDescriptor createDescriptor() {
+    return new EndpointDescriptor.Builder()
+        .name("SalesOrderLine")
+        .tabId("TAB_ID")
+        .field(field(PRODUCT, "M_Product_ID"), INP_PRODUCT, "String")
+        .field(field(QUANTITY, "QtyOrdered"), INP_QUANTITY, "BigDecimal")
+        .field(field(LINE_NO, "Line"), INP_LINE_NO, "Long")
+        .field(field(DELIVERED, "IsDelivered"), INP_DELIVERED, "Boolean")
+        .parentProperties(List.of("salesOrder"))
+        .build();
+  }
+
+  private static RequestField field(String name, String dbColumnName) {
+    Column column = mock(Column.class);
+    when(column.getDBColumnName()).thenReturn(dbColumnName);
+    return new RequestField(name, column, 10L);
+  }
+
+  /**
+   * The descriptor indexes the properties in field order.
+   */
+  @Test
+  public void testFieldIndex() {
+    EndpointDescriptor descriptor = createDescriptor();
+
+    assertEquals(4, descriptor.getPropertyCount());
+    assertEquals(2, descriptor.indexOfProperty(LINE_NO));
+    assertEquals(2, descriptor.indexOfInput(INP_LINE_NO));
+    assertEquals(INP_LINE_NO, descriptor.getInputName(2));
+    assertEquals(LINE_NO, descriptor.getPropertyName(2));
+    assertEquals("Long", descriptor.getType(2));
+    assertSame(FieldConverter.LONG, descriptor.getConverter(2));
+    assertSame(FieldConverter.BIG_DECIMAL, descriptor.getConverter(QUANTITY));
+    assertSame(FieldConverter.STRING, descriptor.getConverter("salesOrder"));
+    assertEquals(-1, descriptor.indexOfProperty("salesOrder"));
+    assertEquals(-1, descriptor.indexOfInput(LINE_NO));
+  }
+
+  /**
+   * The properties of the endpoint are stored under their input name, other keys are kept.
+   *
+   * @throws Exception
+   *     if the record cannot be built
+   */
+  @Test
+  public void testFromNormalizedConvertsKeys() throws Exception {
+    JSONObject data = new JSONObject()
+        .put("salesOrder", "ORDER_ID")
+        .put(PRODUCT, "PRODUCT_ID")
+        .put(LINE_NO, 10);
+
+    JSONObject values = HeadlessRecord.fromNormalized(createDescriptor(), data).getInputData();
+
+    assertEquals("ORDER_ID", values.getString("salesOrder"));
+    assertEquals("PRODUCT_ID", values.getString(INP_PRODUCT));
+    assertEquals(10, values.getInt(INP_LINE_NO));
+    assertFalse(values.has(PRODUCT));
+    assertEquals(3, data.length());
+  }
+
+  /**
+   * The values are converted to their HQL format, keyed by normalized name.
+   *
+   * @throws Exception
+   *     if the values cannot be converted
+   */
+  @Test
+  public void testNormalizedValues() throws Exception {
+    HeadlessRecord headlessRecord = HeadlessRecord.empty(createDescriptor())
+        .put(INP_PRODUCT, "PRODUCT_ID")
+        .put(INP_QUANTITY, "1.234,50")
+        .put(INP_LINE_NO, "20")
+        .put(INP_DELIVERED, "Y")
+        .put("keyProperty", "id");
+
+    Map<String, Object> values = headlessRecord.toNormalizedValues();
+
+    assertEquals("PRODUCT_ID", values.get(PRODUCT));
+    assertEquals(new BigDecimal("1234.50"), values.get(QUANTITY));
+    assertEquals(20L, values.get(LINE_NO));
+    assertEquals(Boolean.TRUE, values.get(DELIVERED));
+    assertEquals("id", values.get("keyProperty"));
+  }
+
+  /**
+   * The streamed body is the one built by converting the keys and the values of the tree.
+   *
+   * @throws Exception
+   *     if the body cannot be built
+   */
+  @Test
+  public void testRequestBodyMatchesTreeConversion() throws Exception {
+    EndpointDescriptor descriptor = createDescriptor();
+    HeadlessRecord headlessRecord = HeadlessRecord.empty(descriptor)
+        .put(INP_PRODUCT, "PRODUCT \"quoted\"")
+        .put(INP_QUANTITY, "10.50")
+        .put(INP_LINE_NO, "30")
+        .put(INP_DELIVERED, "N")
+        .put("inpTableId", "TABLE_ID");
+    JSONObject envelope = new JSONObject()
+        .put("dataSource", "SalesOrderLine")
+        .put("operationType", "add")
+        .put("data", new JSONObject().put(PRODUCT, "ignored"));
+
+    String body = headlessRecord.toRequestBody(envelope, null);
+
+    JSONObject expectedData = DataSourceUtils.valuesConvertion(
+        DataSourceUtils.keyConvertion(headlessRecord.getInputData(), descriptor.getInput2norm()),
+        descriptor.getColumnTypes());
+    JSONObject expected = new JSONObject(envelope.toString()).put("data", expectedData);
+    assertEquals(expected.toString(), new JSONObject(body).toString());
+  }
+
+  /**
+   * When updating, the values of the record are applied over the existing ones.
+   *
+   * @throws Exception
+   *     if the body cannot be built
+   */
+  @Test
+  public void testRequestBodyAppliesChangesOverBase() throws Exception {
+    HeadlessRecord headlessRecord = HeadlessRecord.empty(createDescriptor())
+        .put(INP_LINE_NO, "40");
+    JSONObject base = new JSONObject()
+        .put("id", "LINE_ID")
+        .put(LINE_NO, 10)
+        .put(PRODUCT, "PRODUCT_ID");
+
+    JSONObject body = new JSONObject(headlessRecord.toRequestBody(new JSONObject(), base));
+    JSONObject data = body.getJSONObject("data");
+
+    assertEquals("LINE_ID", data.getString("id"));
+    assertEquals(40L, data.getLong(LINE_NO));
+    assertEquals("PRODUCT_ID", data.getString(PRODUCT));
+    assertEquals(3, data.length());
+    assertTrue(body.has("data"));
+  }
+}
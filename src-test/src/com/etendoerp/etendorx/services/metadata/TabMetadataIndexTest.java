@@ -0,0 +1,210 @@
+package com.etendoerp.etendorx.services.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.base.model.Property;
+import org.openbravo.client.application.ApplicationConstants;
+import org.openbravo.client.kernel.KernelUtils;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openbravo.model.ad.datamodel.Table;
+import org.openbravo.model.ad.ui.Field;
+import org.openbravo.model.ad.ui.Tab;
+
+import com.etendoerp.etendorx.utils.DataSourceUtils;
+
+/**
+ * Unit tests for {@link TabMetadataIndex}.
+ */
+public class TabMetadataIndexTest {
+
+  private static final String ORDER_ID = "ORDER_ID";
+
+  private MockedStatic<OBContext> obContextStatic;
+  private MockedStatic<OBDal> obDalStatic;
+  private MockedStatic<ModelProvider> modelProviderStatic;
+  private MockedStatic<KernelUtils> kernelUtilsStatic;
+  private MockedStatic<DataSourceUtils> dataSourceUtilsStatic;
+  private OBDal obDal;
+  private KernelUtils kernelUtils;
+  private Entity orderEntity;
+  private Tab tab;
+  private Column productColumn;
+  private Field orderField;
+  private Field warehouseField;
+
+  /**
+   * Wires an order line tab with a product field with headless filter clause, a link-to-parent
+   * field referencing the order header and a link-to-parent field referencing a warehouse.
+   */
+  @Before
+  public void setUp() {
+    TabMetadataIndex.invalidate();
+    obContextStatic = Mockito.mockStatic(OBContext.class);
+    obDalStatic = Mockito.mockStatic(OBDal.class);
+    modelProviderStatic = Mockito.mockStatic(ModelProvider.class);
+    kernelUtilsStatic = Mockito.mockStatic(KernelUtils.class);
+    dataSourceUtilsStatic = Mockito.mockStatic(DataSourceUtils.class);
+
+    obDal = mock(OBDal.class);
+    obDalStatic.when(OBDal::getInstance).thenReturn(obDal);
+    ModelProvider modelProvider = mock(ModelProvider.class);
+    modelProviderStatic.when(ModelProvider::getInstance).thenReturn(modelProvider);
+    kernelUtils = mock(KernelUtils.class);
+    kernelUtilsStatic.when(KernelUtils::getInstance).thenReturn(kernelUtils);
+
+    Table lineTable = mock(Table.class);
+    when(lineTable.getDBTableName()).thenReturn("C_OrderLine");
+    Table orderTable = mock(Table.class);
+    when(orderTable.getDBTableName()).thenReturn("C_Order");
+    when(orderTable.getDataOriginType()).thenReturn(ApplicationConstants.TABLEBASEDTABLE);
+    Tab parentTab = mock(Tab.class);
+    when(parentTab.getTable()).thenReturn(orderTable);
+    tab = mock(Tab.class);
+    when(tab.getId()).thenReturn("TAB_ID");
+    when(tab.getTable()).thenReturn(lineTable);
+    when(kernelUtils.getParentTab(tab)).thenReturn(parentTab);
+
+    productColumn = mock(Column.class);
+    when(productColumn.getId()).thenReturn("PRODUCT_COLUMN_ID");
+    when(productColumn.getDBColumnName()).thenReturn("M_Product_ID");
+    Column orderColumn = mock(Column.class);
+    when(orderColumn.getId()).thenReturn("ORDER_COLUMN_ID");
+    when(orderColumn.getDBColumnName()).thenReturn("C_Order_ID");
+    when(orderColumn.isLinkToParentColumn()).thenReturn(true);
+    Column warehouseColumn = mock(Column.class);
+    when(warehouseColumn.getId()).thenReturn("WAREHOUSE_COLUMN_ID");
+    when(warehouseColumn.getDBColumnName()).thenReturn("M_Warehouse_ID");
+    when(warehouseColumn.isLinkToParentColumn()).thenReturn(true);
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.getAdColumnList(tab))
+        .thenReturn(List.of(productColumn, orderColumn, warehouseColumn));
+
+    Field productField = mock(Field.class);
+    when(productField.getColumn()).thenReturn(productColumn);
+    when(productField.getEtrxFilterClause()).thenReturn("e.active = true");
+    orderField = mock(Field.class);
+    when(orderField.getColumn()).thenReturn(orderColumn);
+    warehouseField = mock(Field.class);
+    when(warehouseField.getColumn()).thenReturn(warehouseColumn);
+    when(tab.getADFieldList()).thenReturn(List.of(productField, warehouseField, orderField));
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.getHQLColumnName(orderField))
+        .thenReturn(new String[]{ "salesOrder", "String" });
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.getHQLColumnName(warehouseField))
+        .thenReturn(new String[]{ "warehouse", "String" });
+
+    Entity lineEntity = mock(Entity.class);
+    orderEntity = mock(Entity.class);
+    Entity warehouseEntity = mock(Entity.class);
+    when(modelProvider.getEntityByTableName("C_OrderLine")).thenReturn(lineEntity);
+    when(modelProvider.getEntityByTableName("C_Order")).thenReturn(orderEntity);
+    mockProperty(lineEntity, productColumn, "product", null);
+    mockProperty(lineEntity, orderColumn, "salesOrder", orderEntity);
+    mockProperty(lineEntity, warehouseColumn, "warehouse", warehouseEntity);
+    Property orderProperty = lineEntity.getPropertyByColumnName("C_Order_ID", false);
+    Property warehouseProperty = lineEntity.getPropertyByColumnName("M_Warehouse_ID", false);
+    kernelUtilsStatic.when(() -> KernelUtils.getProperty(orderField)).thenReturn(orderProperty);
+    kernelUtilsStatic.when(() -> KernelUtils.getProperty(warehouseField)).thenReturn(warehouseProperty);
+  }
+
+  private static void mockProperty(Entity entity, Column column, String name, Entity referencedEntity) {
+    Property property = mock(Property.class);
+    when(property.getName()).thenReturn(name);
+    if (referencedEntity != null) {
+      Property referencedProperty = mock(Property.class);
+      when(referencedProperty.getEntity()).thenReturn(referencedEntity);
+      when(property.getReferencedProperty()).thenReturn(referencedProperty);
+    }
+    when(entity.getPropertyByColumnName(column.getDBColumnName(), false)).thenReturn(property);
+  }
+
+  /**
+   * Closes the static mocks and leaves the cache empty for other tests.
+   */
+  @After
+  public void tearDown() {
+    TabMetadataIndex.invalidate();
+    dataSourceUtilsStatic.close();
+    kernelUtilsStatic.close();
+    modelProviderStatic.close();
+    obDalStatic.close();
+    obContextStatic.close();
+  }
+
+  /**
+   * The index resolves the columns, filter clauses and parent properties of the tab.
+   *
+   * @throws Exception
+   *     if the data cannot be built
+   */
+  @Test
+  public void testIndexResolvesTabLookups() throws Exception {
+    when(obDal.get(Column.class, "PRODUCT_COLUMN_ID")).thenReturn(productColumn);
+
+    TabMetadataIndex index = TabMetadataIndex.getIndex(tab);
+
+    assertSame(productColumn, index.getColumn("product"));
+    assertNull(index.getColumn("unknown"));
+    assertEquals("e.active = true", index.getFilterClause("PRODUCT_COLUMN_ID"));
+    assertNull(index.getFilterClause("ORDER_COLUMN_ID"));
+    assertEquals(List.of("warehouse", "salesOrder"), index.getParentLinkProperties());
+    assertEquals(List.of("salesOrder"), index.getParentProperties());
+    assertSame(orderEntity, index.getParentEntity());
+    assertEquals(ORDER_ID, index.getParentId(new JSONObject().put("salesOrder", ORDER_ID)));
+    assertNull(index.getParentId(new JSONObject().put("product", "PRODUCT_ID")));
+  }
+
+  /**
+   * The field and column lists are read once per tab, until the index is invalidated.
+   */
+  @Test
+  public void testIndexIsBuiltOncePerTab() {
+    TabMetadataIndex first = TabMetadataIndex.getIndex(tab);
+    TabMetadataIndex second = TabMetadataIndex.getIndex(tab);
+
+    assertSame(first, second);
+    assertEquals(1, TabMetadataIndex.size());
+    verify(tab, times(1)).getADFieldList();
+    verify(kernelUtils, times(1)).getParentTab(tab);
+
+    TabMetadataIndex.invalidate();
+
+    assertEquals(0, TabMetadataIndex.size());
+    assertNotSame(first, TabMetadataIndex.getIndex(tab));
+    verify(tab, times(2)).getADFieldList();
+  }
+
+  /**
+   * The parent helpers of DataSourceUtils are served from the index.
+   *
+   * @throws Exception
+   *     if the data cannot be built
+   */
+  @Test
+  public void testDataSourceUtilsUsesIndex() throws Exception {
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.getParentProperties(tab)).thenCallRealMethod();
+    dataSourceUtilsStatic.when(() -> DataSourceUtils.getParentId(Mockito.eq(tab), Mockito.any()))
+        .thenCallRealMethod();
+
+    assertEquals(List.of("salesOrder"), DataSourceUtils.getParentProperties(tab));
+    assertEquals(ORDER_ID, DataSourceUtils.getParentId(tab, new JSONObject().put("warehouse", ORDER_ID)));
+    verify(tab, times(1)).getADFieldList();
+  }
+}
@@ -0,0 +1,154 @@
+package com.etendoerp.etendorx.services.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.openbravo.base.session.OBPropertiesProvider;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBCriteria;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.ui.Tab;
+
+import com.etendoerp.etendorx.data.OpenAPITab;
+
+/**
+ * Unit tests for {@link WindowMetadataWarmup}.
+ */
+public class WindowMetadataWarmupTest {
+
+  private static final String TAB_ID = "TAB_ID";
+
+  private MockedStatic<OBContext> obContextStatic;
+  private MockedStatic<OBDal> obDalStatic;
+  private OBCriteria<OpenAPITab> criteria;
+
+  /**
+   * Wires two endpoints exposing the same tab and one exposing another tab.
+   */
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    WindowMetadataWarmup.invalidate();
+    OBPropertiesProvider.setInstance(new OBPropertiesProvider());
+    obContextStatic = Mockito.mockStatic(OBContext.class);
+    obDalStatic = Mockito.mockStatic(OBDal.class);
+    OBDal obDal = mock(OBDal.class);
+    obDalStatic.when(OBDal::getInstance).thenReturn(obDal);
+    criteria = mock(OBCriteria.class);
+    when(obDal.createCriteria(OpenAPITab.class)).thenReturn(criteria);
+    when(criteria.list()).thenReturn(Arrays.asList(endpointTab(TAB_ID), endpointTab(TAB_ID),
+        endpointTab("OTHER_TAB_ID")));
+  }
+
+  /**
+   * Closes the static mocks.
+   */
+  @After
+  public void tearDown() {
+    obDalStatic.close();
+    obContextStatic.close();
+    WindowMetadataWarmup.invalidate();
+  }
+
+  private static OpenAPITab endpointTab(String tabId) {
+    Tab tab = mock(Tab.class);
+    when(tab.getId()).thenReturn(tabId);
+    OpenAPITab openAPITab = mock(OpenAPITab.class);
+    when(openAPITab.getRelatedTabs()).thenReturn(tab);
+    return openAPITab;
+  }
+
+  /**
+   * A tab is only prepared for the cached instance it was prepared from.
+   */
+  @Test
+  public void testPreparedTabIsKeptByInstance() {
+    Tab cachedTab = mock(Tab.class);
+    WindowMetadataWarmup.markPrepared(TAB_ID, cachedTab, WindowMetadataWarmup.getGeneration());
+
+    assertTrue(WindowMetadataWarmup.isPrepared(TAB_ID, cachedTab));
+    assertFalse(WindowMetadataWarmup.isPrepared(TAB_ID, mock(Tab.class)));
+    assertFalse(WindowMetadataWarmup.isPrepared(TAB_ID, null));
+    assertEquals(1, WindowMetadataWarmup.size());
+  }
+
+  /**
+   * A tab prepared before an invalidation is not recorded.
+   */
+  @Test
+  public void testInvalidatedPreparationIsNotRecorded() {
+    Tab cachedTab = mock(Tab.class);
+    long generation = WindowMetadataWarmup.getGeneration();
+    WindowMetadataWarmup.invalidate();
+    WindowMetadataWarmup.markPrepared(TAB_ID, cachedTab, generation);
+
+    assertFalse(WindowMetadataWarmup.isPrepared(TAB_ID, cachedTab));
+    assertEquals(0, WindowMetadataWarmup.size());
+  }
+
+  /**
+   * The exposed tabs are prepared once per generation, each of them once.
+   */
+  @Test
+  public void testWarmUpRunsOncePerGeneration() {
+    List<String> prepared = new ArrayList<>();
+
+    WindowMetadataWarmup.warmUp(prepared::add);
+    WindowMetadataWarmup.warmUp(prepared::add);
+    assertEquals(Arrays.asList(TAB_ID, "OTHER_TAB_ID"), prepared);
+
+    WindowMetadataWarmup.invalidate();
+    WindowMetadataWarmup.warmUp(prepared::add);
+    assertEquals(4, prepared.size());
+  }
+
+  /**
+   * A warm-up started while another one is running returns at once, without preparing anything.
+   */
+  @Test
+  public void testRunningWarmUpIsNotRepeated() {
+    List<String> prepared = new ArrayList<>();
+    List<String> concurrent = new ArrayList<>();
+
+    WindowMetadataWarmup.warmUp(tabId -> {
+      WindowMetadataWarmup.warmUp(concurrent::add);
+      prepared.add(tabId);
+    });
+
+    assertTrue(concurrent.isEmpty());
+    assertEquals(Arrays.asList(TAB_ID, "OTHER_TAB_ID"), prepared);
+  }
+
+  /**
+   * A failure preparing one window does not stop the others, and a failure reading the endpoints
+   * does not reach the caller.
+   */
+  @Test
+  public void testWarmUpFailuresAreIsolated() {
+    List<String> prepared = new ArrayList<>();
+    WindowMetadataWarmup.warmUp(tabId -> {
+      if (TAB_ID.equals(tabId)) {
+        throw new IllegalStateException("boom");
+      }
+      prepared.add(tabId);
+    });
+    assertEquals(Arrays.asList("OTHER_TAB_ID"), prepared);
+
+    WindowMetadataWarmup.invalidate();
+    when(criteria.list()).thenThrow(new IllegalStateException("boom"));
+    WindowMetadataWarmup.warmUp(prepared::add);
+    assertEquals(1, prepared.size());
+  }
+}
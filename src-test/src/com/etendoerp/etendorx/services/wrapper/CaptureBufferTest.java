@@ -0,0 +1,55 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class CaptureBufferTest {
+
+  @Test
+  void testCharactersAreEncodedInUtf8() {
+    CaptureBuffer buffer = CaptureBuffer.acquire();
+    String text = "a ñ € 😀 \uDE00";
+
+    // the surrogate pair is split between two writes
+    buffer.write(text, 0, 7);
+    buffer.write(text.toCharArray(), 7, text.length() - 7);
+
+    byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(expected, Arrays.copyOf(buffer.array(), buffer.size()));
+    assertEquals(new String(expected, StandardCharsets.UTF_8), buffer.toString());
+    buffer.release();
+  }
+
+  @Test
+  void testBufferIsReusedByTheSameThread() {
+    CaptureBuffer first = CaptureBuffer.acquire();
+    first.write(new byte[]{ 1, 2, 3 }, 0, 3);
+    first.release();
+
+    CaptureBuffer second = CaptureBuffer.acquire();
+    assertSame(first, second);
+    assertEquals(0, second.size());
+    second.release();
+  }
+
+  @Test
+  void testGrownBufferIsNotPooled() {
+    CaptureBuffer buffer = CaptureBuffer.acquire();
+    byte[] content = new byte[CaptureBuffer.MAX_POOLED_CAPACITY + 1];
+    buffer.write(content, 0, content.length);
+    buffer.release();
+
+    CaptureBuffer next = CaptureBuffer.acquire();
+    assertNotSame(buffer, next);
+    assertTrue(next.capacity() <= CaptureBuffer.MAX_POOLED_CAPACITY);
+    next.release();
+  }
+}
@@ -0,0 +1,186 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link DetachedRequestWrapper}, {@link SessionSnapshot} and {@link CapturedResponse}.
+ */
+class DetachedRequestWrapperTest {
+
+  /**
+   * The request values are copied, so they stay available after the original request is recycled.
+   *
+   * @throws Exception
+   *     if the wrapper cannot be created
+   */
+  @Test
+  void testRequestIsCopied() throws Exception {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getRequestURI()).thenReturn("/etendo/sws/com.etendoerp.etendorx.datasource/Order");
+    when(request.getParameterMap()).thenReturn(Map.of("async", new String[]{ "true" }));
+    when(request.getMethod()).thenReturn("POST");
+    when(request.getHeaderNames()).thenReturn(Collections.enumeration(List.of("Idempotency-Key")));
+    when(request.getHeaders("Idempotency-Key")).thenReturn(Collections.enumeration(List.of("KEY")));
+    when(request.getAttributeNames()).thenReturn(Collections.enumeration(List.of("ATTR")));
+    when(request.getAttribute("ATTR")).thenReturn("VALUE");
+
+    DetachedRequestWrapper wrapper = new DetachedRequestWrapper(request, "{\"documentNo\":\"1\"}");
+    wrapper.setAttribute("ATTR", "CHANGED");
+
+    assertEquals("POST", wrapper.getMethod());
+    assertEquals("KEY", wrapper.getHeader("idempotency-key"));
+    assertNull(wrapper.getHeader("Authorization"));
+    assertEquals("true", wrapper.getParameter("async"));
+    assertEquals("CHANGED", wrapper.getAttribute("ATTR"));
+    assertEquals("{\"documentNo\":\"1\"}", wrapper.getReader().readLine());
+    wrapper.getSession().setAttribute("KEY", "VALUE");
+    assertEquals("VALUE", wrapper.getSession(false).getAttribute("KEY"));
+    verify(request, never()).setAttribute("ATTR", "CHANGED");
+  }
+
+  /**
+   * The parameters are served from the copy once the original request has been recycled, including
+   * through a new wrapper built from them, as the job does.
+   *
+   * @throws Exception
+   *     if the wrapper cannot be created
+   */
+  @Test
+  void testParametersSurviveRecycledRequest() throws Exception {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getRequestURI()).thenReturn("/etendo/sws/com.etendoerp.etendorx.datasource/Order");
+    when(request.getParameterMap()).thenReturn(Map.of("async", new String[]{ "true" },
+        "_where", new String[]{ "a", "b" }));
+    when(request.getHeaderNames()).thenReturn(Collections.emptyEnumeration());
+    when(request.getAttributeNames()).thenReturn(Collections.emptyEnumeration());
+
+    DetachedRequestWrapper wrapper = new DetachedRequestWrapper(request, "{}");
+    reset(request);
+    IllegalStateException recycled = new IllegalStateException("The request object has been recycled");
+    when(request.getParameterMap()).thenThrow(recycled);
+    when(request.getParameter(anyString())).thenThrow(recycled);
+    when(request.getParameterValues(anyString())).thenThrow(recycled);
+    when(request.getParameterNames()).thenThrow(recycled);
+
+    assertEquals("true", wrapper.getParameter("async"));
+    assertNull(wrapper.getParameter("missing"));
+    assertArrayEquals(new String[]{ "a", "b" }, wrapper.getParameterValues("_where"));
+    assertEquals(Set.of("async", "_where"), new HashSet<>(Collections.list(wrapper.getParameterNames())));
+    EtendoRequestWrapper jobWrapper = new EtendoRequestWrapper(wrapper, "/Order", "{}",
+        wrapper.getParameterMap());
+    assertEquals(2, jobWrapper.getParameterMap().size());
+    assertEquals("b", jobWrapper.getParameterValues("_where")[1]);
+  }
+
+  /**
+   * The servlet context is kept once the original request has been recycled.
+   *
+   * @throws Exception
+   *     if the wrapper cannot be created
+   */
+  @Test
+  void testServletContextSurvivesRecycledRequest() throws Exception {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    ServletContext servletContext = mock(ServletContext.class);
+    when(request.getServletContext()).thenReturn(servletContext);
+
+    DetachedRequestWrapper wrapper = new DetachedRequestWrapper(request, "");
+    reset(request);
+    when(request.getServletContext()).thenThrow(new IllegalStateException("The request object has been recycled"));
+
+    assertSame(servletContext, wrapper.getServletContext());
+  }
+
+  /**
+   * The wrapper sees the attributes of the original session, but its changes stay private.
+   *
+   * @throws Exception
+   *     if the wrapper cannot be created
+   */
+  @Test
+  void testSnapshotIsIsolatedFromOriginalSession() throws Exception {
+    HttpSession session = mock(HttpSession.class);
+    when(session.getAttributeNames()).thenReturn(Collections.enumeration(List.of("#AD_CLIENT_ID", "EMPTY")));
+    when(session.getAttribute("#AD_CLIENT_ID")).thenReturn("CLIENT");
+    when(session.getMaxInactiveInterval()).thenReturn(1800);
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getSession(false)).thenReturn(session);
+
+    DetachedRequestWrapper first = new DetachedRequestWrapper(request, "");
+    DetachedRequestWrapper second = new DetachedRequestWrapper(request, "");
+    first.getSession().setAttribute("INPMPRODUCTID", "PRODUCT");
+
+    assertSame(first.getSession(), first.getSession(false));
+    assertEquals("CLIENT", second.getSession().getAttribute("#AD_CLIENT_ID"));
+    assertEquals("PRODUCT", first.getSession().getAttribute("INPMPRODUCTID"));
+    assertNull(second.getSession().getAttribute("INPMPRODUCTID"));
+    assertNull(first.getSession().getAttribute("EMPTY"));
+    assertEquals(1800, first.getSession().getMaxInactiveInterval());
+    verify(session, never()).setAttribute("INPMPRODUCTID", "PRODUCT");
+  }
+
+  /**
+   * Requests without session get an empty one.
+   *
+   * @throws Exception
+   *     if the wrapper cannot be created
+   */
+  @Test
+  void testRequestWithoutSession() throws Exception {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    DetachedRequestWrapper wrapper = new DetachedRequestWrapper(request, "");
+
+    assertNotNull(wrapper.getSession(false));
+    wrapper.getSession().setAttribute("KEY", "VALUE");
+    wrapper.getSession().setAttribute("KEY", null);
+    assertNull(wrapper.getSession().getAttribute("KEY"));
+  }
+
+  /**
+   * The captured response keeps status, headers and the content written by writer or stream.
+   *
+   * @throws Exception
+   *     if the content cannot be written
+   */
+  @Test
+  void testCapturedResponse() throws Exception {
+    CapturedResponse response = new CapturedResponse();
+    response.setStatus(HttpServletResponse.SC_CREATED);
+    response.setHeader("Location", "/Order/1");
+    response.getWriter().write("{\"id\":");
+    response.getWriter().flush();
+    response.getOutputStream().write("\"1\"}".getBytes("UTF-8"));
+
+    assertEquals(HttpServletResponse.SC_CREATED, response.getStatus());
+    assertEquals("/Order/1", response.getHeader("location"));
+    assertEquals("{\"id\":\"1\"}", response.getContentAsString());
+
+    response.reset();
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertEquals("", response.getContentAsString());
+    assertNull(response.getHeader("Location"));
+  }
+}
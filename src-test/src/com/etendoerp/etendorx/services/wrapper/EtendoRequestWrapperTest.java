@@ -2,11 +2,15 @@ package com.etendoerp.etendorx.services.wrapper;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -53,4 +57,43 @@ class EtendoRequestWrapperTest {
     Enumeration<String> names = wrapper.getParameterNames();
     assertTrue(Collections.list(names).contains(PARAM_1));
   }
+
+  @Test
+  void testBulkReadOfMultiByteBody() throws Exception {
+    HttpServletRequest originalRequest = mock(HttpServletRequest.class);
+    String body = "{\"description\":\"Pedido año €\"}";
+    byte[] expected = body.getBytes(StandardCharsets.UTF_8);
+
+    EtendoRequestWrapper wrapper = new EtendoRequestWrapper(originalRequest, "/uri", body, new HashMap<>());
+
+    assertEquals(expected.length, wrapper.getContentLength());
+    ServletInputStream inputStream = wrapper.getInputStream();
+    byte[] buffer = new byte[expected.length + 10];
+    assertEquals(5, inputStream.read(buffer, 0, 5));
+    assertEquals(expected.length - 5, inputStream.read(buffer, 5, buffer.length - 5));
+    assertEquals(-1, inputStream.read(buffer, 0, buffer.length));
+    assertTrue(inputStream.isFinished());
+    assertEquals(body, new String(buffer, 0, expected.length, StandardCharsets.UTF_8));
+    assertEquals(body, wrapper.getReader().readLine());
+  }
+
+  @Test
+  void testParameterMapIsMergedOnce() throws Exception {
+    HttpServletRequest originalRequest = mock(HttpServletRequest.class);
+    Map<String, String[]> originalParams = new HashMap<>();
+    originalParams.put(PARAM_1, new String[]{ "original" });
+    originalParams.put("param2", new String[]{ "value2" });
+    when(originalRequest.getParameterMap()).thenReturn(originalParams);
+    Map<String, String[]> newParams = new HashMap<>();
+    newParams.put(PARAM_1, new String[]{ VALUE_1 });
+
+    EtendoRequestWrapper wrapper = new EtendoRequestWrapper(originalRequest, "/uri", new byte[0], newParams);
+    Map<String, String[]> parameterMap = wrapper.getParameterMap();
+
+    assertArrayEquals(new String[]{ VALUE_1 }, parameterMap.get(PARAM_1));
+    assertArrayEquals(new String[]{ "value2" }, parameterMap.get("param2"));
+    assertSame(parameterMap, wrapper.getParameterMap());
+    assertEquals(2, Collections.list(wrapper.getParameterNames()).size());
+    verify(originalRequest, times(1)).getParameterMap();
+  }
 }
@@ -17,14 +17,25 @@ package com.etendoerp.etendorx.services.wrapper;
  *************************************************************************
  */
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 
 import org.codehaus.jettison.json.JSONObject;
@@ -43,15 +54,44 @@ class EtendoResponseWrapperTest {
   }
 
   @Test
-  void testGetOutputStreamThrowsUnsupportedOperationException() {
+  void testGetOutputStreamCapturesBytes() throws Exception {
     HttpServletResponse response = mock(HttpServletResponse.class);
     EtendoResponseWrapper wrapper = new EtendoResponseWrapper(response);
 
-    UnsupportedOperationException exception = assertThrows(
-        UnsupportedOperationException.class,
-        wrapper::getOutputStream
-    );
-    assertEquals("This wrapper only supports getWriter().", exception.getMessage());
+    ServletOutputStream outputStream = wrapper.getOutputStream();
+    outputStream.write("{\"key\":\"año €\",\"number\":".getBytes(StandardCharsets.UTF_8));
+    outputStream.write('7');
+    outputStream.write('}');
+
+    assertSame(outputStream, wrapper.getOutputStream());
+    JSONObject result = wrapper.getCapturedContent();
+    assertEquals("año €", result.getString("key"));
+    assertEquals(7, result.getInt("number"));
+  }
+
+  @Test
+  void testWriterEncodesUtf8() {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    EtendoResponseWrapper wrapper = new EtendoResponseWrapper(response);
+    String content = "{\"name\":\"Señor \uD83D\uDE00\"}";
+
+    // the emoji surrogate pair is split between two writes
+    wrapper.getWriter().write(content.substring(0, 16));
+    wrapper.getWriter().write(content.substring(16));
+
+    assertEquals(content, wrapper.getCapturedText());
+  }
+
+  @Test
+  void testReleasedBufferCannotBeRead() {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    EtendoResponseWrapper wrapper = new EtendoResponseWrapper(response);
+    wrapper.getWriter().write("{}");
+
+    wrapper.release();
+    wrapper.release();
+
+    assertThrows(IllegalStateException.class, wrapper::getCapturedText);
   }
 
   @Test
@@ -101,4 +141,67 @@ class EtendoResponseWrapperTest {
     PrintWriter writer2 = wrapper.getWriter();
     assertEquals(writer1, writer2);
   }
+
+  @Test
+  void testStreamingForwardsSuccessfulFetch() throws Exception {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    StringWriter client = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(client));
+    EtendoResponseWrapper wrapper = new EtendoResponseWrapper(response, true);
+
+    String content = "{\"response\":{\"status\":0,\"data\":[{\"id\":\"1\"},{\"id\":\"2\"}]}}";
+    wrapper.getWriter().write(content.substring(0, 20));
+    wrapper.getWriter().write(content.substring(20));
+    wrapper.getWriter().flush();
+
+    assertTrue(wrapper.isStreamed());
+    assertEquals(content, client.toString());
+    verify(response).setContentType("application/json");
+    assertThrows(IllegalStateException.class, wrapper::getCapturedContent);
+  }
+
+  @Test
+  void testStreamingForwardsOutputStream() throws Exception {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    ByteArrayOutputStream client = new ByteArrayOutputStream();
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public void write(int b) {
+        client.write(b);
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+        // No-op
+      }
+    });
+    EtendoResponseWrapper wrapper = new EtendoResponseWrapper(response, true);
+
+    byte[] content = "{\"response\":{\"status\":0,\"data\":[{\"name\":\"Niño\"}]}}".getBytes(StandardCharsets.UTF_8);
+    wrapper.getOutputStream().write(content, 0, 30);
+    wrapper.getOutputStream().write(content, 30, content.length - 30);
+
+    assertTrue(wrapper.isStreamed());
+    assertArrayEquals(content, client.toByteArray());
+    verify(response, never()).getWriter();
+  }
+
+  @Test
+  void testStreamingCapturesErrors() throws Exception {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    EtendoResponseWrapper wrapper = new EtendoResponseWrapper(response, true);
+
+    wrapper.getWriter().write("{\"response\":{\"status\":-1,\"error\":{\"message\":\"Failure\"}}}");
+    wrapper.getWriter().flush();
+
+    assertFalse(wrapper.isStreamed());
+    verify(response, never()).getWriter();
+    assertEquals("Failure",
+        wrapper.getCapturedContent().getJSONObject("response").getJSONObject("error").getString("message"));
+  }
 }
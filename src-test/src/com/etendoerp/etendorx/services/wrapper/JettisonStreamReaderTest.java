@@ -0,0 +1,45 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class JettisonStreamReaderTest {
+
+  private static JSONObject read(String json) throws Exception {
+    byte[] bytes = ("  " + json + "  ").getBytes(StandardCharsets.UTF_8);
+    return JettisonStreamReader.readObject(bytes, 2, bytes.length - 4);
+  }
+
+  @Test
+  void testValuesHaveJettisonTypes() throws Exception {
+    String json = "{\"text\":\"año \\\"quoted\\\"\",\"int\":42,\"long\":12345678901,\"decimal\":10.50,"
+        + "\"flag\":true,\"empty\":null,\"list\":[1,\"two\",{\"three\":3}],\"object\":{}}";
+
+    JSONObject streamed = read(json);
+    JSONObject parsed = new JSONObject(json);
+
+    Iterator<?> keys = parsed.keys();
+    while (keys.hasNext()) {
+      String key = (String) keys.next();
+      assertEquals(parsed.get(key).getClass(), streamed.get(key).getClass(), key);
+    }
+    assertEquals(parsed.toString(), streamed.toString());
+  }
+
+  @Test
+  void testOnlyObjectsAreAccepted() {
+    assertThrows(JSONException.class, () -> read("[1,2]"));
+  }
+
+  @Test
+  void testMalformedJsonIsRejected() {
+    assertThrows(Exception.class, () -> read("{\"key\":"));
+  }
+}
@@ -0,0 +1,62 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance
+ * with the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright (C) 2021-2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ResponseEnvelopeSnifferTest {
+
+  private static ResponseEnvelopeSniffer.Outcome sniff(String... chunks) {
+    ResponseEnvelopeSniffer sniffer = new ResponseEnvelopeSniffer();
+    for (String chunk : chunks) {
+      char[] chars = chunk.toCharArray();
+      sniffer.feed(chars, 0, chars.length);
+    }
+    return sniffer.getOutcome();
+  }
+
+  @Test
+  void testDataDetectedBeforeTheRestOfTheDocument() {
+    assertEquals(ResponseEnvelopeSniffer.Outcome.DATA,
+        sniff("{\"response\":{\"status\":0,\"startRow\":0,\"da", "ta\":["));
+  }
+
+  @Test
+  void testErrorDetected() {
+    assertEquals(ResponseEnvelopeSniffer.Outcome.ERROR,
+        sniff("{\"response\":{\"status\":-1,\"error\":{\"message\":\"data\"}}}"));
+  }
+
+  @Test
+  void testDocumentWithoutDataIsAnError() {
+    assertEquals(ResponseEnvelopeSniffer.Outcome.ERROR, sniff("{\"response\":{\"status\":0}}"));
+  }
+
+  @Test
+  void testNestedAndQuotedKeysAreIgnored() {
+    assertEquals(ResponseEnvelopeSniffer.Outcome.UNDECIDED,
+        sniff("{\"other\":{\"data\":1},\"response\":{\"status\":\"\\\"data\\\":\",\"x\":{\"data\":["));
+  }
+
+  @Test
+  void testUndecidedWhileEnvelopeIsIncomplete() {
+    assertEquals(ResponseEnvelopeSniffer.Outcome.UNDECIDED, sniff("{\"response\":{\"status\":0,"));
+  }
+}
@@ -0,0 +1,72 @@
+package com.etendoerp.etendorx.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link FieldConverter}.
+ */
+class FieldConverterTest {
+
+  @BeforeEach
+  void setUp() {
+    ValueFormats.useInputFormats("dd-MM-yyyy", "dd-MM-yyyy HH:mm:ss");
+  }
+
+  @AfterEach
+  void tearDown() {
+    ValueFormats.reset();
+  }
+
+  @Test
+  void testConverterIsResolvedFromTypeName() {
+    assertSame(FieldConverter.BIG_DECIMAL, FieldConverter.forType("BigDecimal"));
+    assertSame(FieldConverter.LONG, FieldConverter.forType("Long"));
+    assertSame(FieldConverter.BOOLEAN, FieldConverter.forType("Boolean"));
+    assertSame(FieldConverter.DATE, FieldConverter.forType("Date"));
+    assertSame(FieldConverter.DATETIME, FieldConverter.forType("Datetime"));
+    assertSame(FieldConverter.STRING, FieldConverter.forType("String"));
+    assertSame(FieldConverter.STRING, FieldConverter.forType(null));
+  }
+
+  @Test
+  void testNumbersAreConvertedWithoutText() throws ParseException {
+    assertEquals(10L, FieldConverter.LONG.toHql(10));
+    assertEquals(10L, FieldConverter.LONG.toHql("10"));
+    assertEquals(new BigDecimal("12"), FieldConverter.BIG_DECIMAL.toHql(12L));
+    assertEquals(new BigDecimal("1234.50"), FieldConverter.BIG_DECIMAL.toHql("1.234,50"));
+    assertEquals(new BigDecimal("0.5"), FieldConverter.BIG_DECIMAL.toHql(0.5));
+    assertEquals(Boolean.TRUE, FieldConverter.BOOLEAN.toHql(true));
+    assertEquals(Boolean.TRUE, FieldConverter.BOOLEAN.toHql("Y"));
+    assertEquals(Boolean.FALSE, FieldConverter.BOOLEAN.toHql("N"));
+    assertThrows(NumberFormatException.class, () -> FieldConverter.LONG.toHql("ten"));
+  }
+
+  @Test
+  void testValuesToInputFormat() throws ParseException {
+    assertEquals("42", FieldConverter.LONG.toInput(42));
+    assertEquals("42", FieldConverter.LONG.toInput(42L));
+    assertEquals("12.50", FieldConverter.BIG_DECIMAL.toInput(new BigDecimal("12.50")));
+    assertEquals("Y", FieldConverter.BOOLEAN.toInput(true));
+    assertEquals("22-12-2025", FieldConverter.DATE.toInput("2025-12-22"));
+    assertEquals("2025-12-22", FieldConverter.DATE.toHql("22-12-2025"));
+    assertEquals("22-12-2025 10:05:07", FieldConverter.DATETIME.toInput("2025-12-22T10:05:07.250Z"));
+  }
+
+  @Test
+  void testAdaptersKeepTheirContract() throws ParseException {
+    assertEquals("text", DataSourceUtils.convertValueFromInputToHQL(null, "text"));
+    assertNull(DataSourceUtils.convertValueFromInputToHQL("String", null));
+    assertEquals(7L, DataSourceUtils.convertValueFromInputToHQL("Long", "7"));
+    assertEquals("N", DataSourceUtils.valueConvertToInputFormat(false, "Boolean"));
+  }
+}
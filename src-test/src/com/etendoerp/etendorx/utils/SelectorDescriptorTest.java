@@ -0,0 +1,132 @@
+package com.etendoerp.etendorx.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openbravo.model.ad.domain.Reference;
+import org.openbravo.userinterface.selector.Selector;
+import org.openbravo.userinterface.selector.SelectorField;
+
+/**
+ * Unit tests for {@link SelectorDescriptor}.
+ */
+class SelectorDescriptorTest {
+
+  private static final String HQL = "SELECT e.id AS id FROM BusinessPartner e WHERE 1=1 and @additional_filters@";
+
+  @BeforeEach
+  void setUp() {
+    SelectorDescriptor.invalidate();
+  }
+
+  @AfterEach
+  void tearDown() {
+    SelectorDescriptor.invalidate();
+  }
+
+  private static SelectorField field(String property, String alias, String suffix, boolean outfield, long sortNo) {
+    SelectorField selectorField = mock(SelectorField.class);
+    when(selectorField.getProperty()).thenReturn(property);
+    when(selectorField.getDisplayColumnAlias()).thenReturn(alias);
+    when(selectorField.getSuffix()).thenReturn(suffix);
+    when(selectorField.isOutfield()).thenReturn(outfield);
+    when(selectorField.getSortno()).thenReturn(sortNo);
+    return selectorField;
+  }
+
+  private static Selector selector(String id) {
+    SelectorField valueField = field("id", "id", null, false, 10L);
+    when(valueField.getClauseLeftPart()).thenReturn("e.id");
+    SelectorField name = field("name", "bp_name", "_DES", true, 20L);
+    SelectorField taxId = field("taxID", "bp_tax", "_TAX", true, 30L);
+    Selector selector = mock(Selector.class);
+    when(selector.getId()).thenReturn(id);
+    when(selector.isCustomQuery()).thenReturn(true);
+    when(selector.getHQL()).thenReturn(HQL);
+    when(selector.getValuefield()).thenReturn(valueField);
+    when(selector.getOBUISELSelectorFieldList()).thenReturn(List.of(valueField, name, taxId));
+    return selector;
+  }
+
+  @Test
+  void describesValueAndOutFields() {
+    SelectorDescriptor descriptor = SelectorDescriptor.getDescriptor(selector("SELECTOR_ID"));
+
+    assertTrue(descriptor.isCustomQuery());
+    assertTrue(descriptor.hasFields());
+    assertEquals("id", descriptor.getValueAlias());
+    assertEquals(" AND e.id = :etrxSelectorValue", descriptor.getValueFilter());
+    assertEquals("id,name,taxID", descriptor.getExtraProperties());
+    assertEquals(2, descriptor.getOutFieldCount());
+    assertEquals("name", descriptor.getOutFieldName(0, false));
+    assertEquals("bp_tax", descriptor.getOutFieldName(1, true));
+    assertEquals("inpcBpartnerId_DES", descriptor.getTargetKey(0, "inpcBpartnerId"));
+  }
+
+  @Test
+  void onlyStringAndIdValuesAreFilteredByValue() {
+    Selector selector = selector("SELECTOR_ID");
+    SelectorField valueField = selector.getValuefield();
+    Reference integer = reference("11", null);
+    when(valueField.getReference()).thenReturn(integer);
+    assertEquals("", SelectorDescriptor.build(selector).getValueFilter());
+
+    Reference tableDirChild = reference("CUSTOM_REFERENCE_ID", reference("19", null));
+    when(valueField.getReference()).thenReturn(tableDirChild);
+    assertEquals(" AND e.id = :etrxSelectorValue", SelectorDescriptor.build(selector).getValueFilter());
+
+    when(valueField.getReference()).thenReturn(null);
+    when(valueField.getClauseLeftPart()).thenReturn("e.lineNo");
+    assertEquals("", SelectorDescriptor.build(selector).getValueFilter());
+  }
+
+  private static Reference reference(String id, Reference parent) {
+    Reference reference = mock(Reference.class);
+    when(reference.getId()).thenReturn(id);
+    when(reference.getParentReference()).thenReturn(parent);
+    return reference;
+  }
+
+  @Test
+  void descriptorsAreBuiltOncePerSelector() {
+    Selector selector = selector("SELECTOR_ID");
+
+    SelectorDescriptor first = SelectorDescriptor.getDescriptor(selector);
+    clearInvocations(selector);
+    SelectorDescriptor second = SelectorDescriptor.getDescriptor(selector);
+
+    assertSame(first, second);
+    assertEquals(1, SelectorDescriptor.size());
+    verify(selector, never()).getOBUISELSelectorFieldList();
+    SelectorDescriptor.invalidate();
+    assertNotSame(first, SelectorDescriptor.getDescriptor(selector));
+  }
+
+  @Test
+  void selectorsWithoutIdAreNotCached() {
+    Selector selector = selector(null);
+    when(selector.getValuefield()).thenReturn(null);
+    when(selector.getOBUISELSelectorFieldList()).thenReturn(List.of());
+
+    SelectorDescriptor descriptor = SelectorDescriptor.getDescriptor(selector);
+
+    assertFalse(descriptor.hasFields());
+    assertNull(descriptor.getValueAlias());
+    assertEquals("", descriptor.getValueFilter());
+    assertEquals(0, SelectorDescriptor.size());
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance
+ * with the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright (C) 2021-2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+package com.etendoerp.etendorx.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.domain.Reference;
+import org.openbravo.userinterface.selector.Selector;
+
+import com.etendoerp.etendorx.services.PostBatchContext;
+
+/**
+ * Unit tests for the value filter of custom query selectors, which resolves the selected record with a
+ * single keyed query instead of the paginated scan of {@code executeHQLAndFindRecord}.
+ */
+public class SelectorHandlerUtilValueFilterTest extends SelectorHandlerUtilBaseTest {
+
+    private static final String HQL = "SELECT e.id AS id FROM Product e WHERE 1=1 and @additional_filters@";
+    private static final String VALUE_FILTER = " AND e.id = :etrxSelectorValue";
+    private static final String RECORD_ID = "4028E6C72959682B01295ADC195D021E";
+
+    private String callGetValueFilter(Selector selector) throws ReflectiveOperationException {
+        Method method = SelectorHandlerUtil.class.getDeclaredMethod("getValueFilter", Selector.class);
+        method.setAccessible(true);
+        return (String) method.invoke(null, selector);
+    }
+
+    private JSONObject callExecuteHQLAndFindRecordByValue(String hqlQuery, String recordID, Selector selector)
+            throws ReflectiveOperationException {
+        Method method = SelectorHandlerUtil.class.getDeclaredMethod("executeHQLAndFindRecordByValue",
+                String.class, Map.class, String.class, Selector.class);
+        method.setAccessible(true);
+        return (JSONObject) method.invoke(null, hqlQuery, new HashMap<>(), recordID, selector);
+    }
+
+    private void mockValueField(String clauseLeftPart) {
+        when(mockSelector.getHQL()).thenReturn(HQL);
+        when(mockSelector.getValuefield()).thenReturn(mockSelectorField);
+        when(mockSelectorField.getClauseLeftPart()).thenReturn(clauseLeftPart);
+        when(mockSelectorField.getDisplayColumnAlias()).thenReturn("id");
+    }
+
+    @Test
+    public void testValueFilterUsesClauseLeftPart() throws ReflectiveOperationException {
+        mockValueField("e.id");
+        assertEquals(VALUE_FILTER, callGetValueFilter(mockSelector));
+    }
+
+    @Test
+    public void testNoValueFilterWithoutClauseLeftPart() throws ReflectiveOperationException {
+        mockValueField(null);
+        assertEquals("", callGetValueFilter(mockSelector));
+    }
+
+    @Test
+    public void testNoValueFilterWithoutPlaceholder() throws ReflectiveOperationException {
+        mockValueField("e.id");
+        when(mockSelector.getHQL()).thenReturn("SELECT e.id AS id FROM Product e");
+        assertEquals("", callGetValueFilter(mockSelector));
+    }
+
+    @Test
+    public void testValueFilterIsAppendedToAdditionalFilters() throws Exception {
+        mockValueField("e.id");
+        when(mockSelector.getFilterExpression()).thenReturn(null);
+        when(mockTab.getADFieldList()).thenReturn(Collections.emptyList());
+
+        Method method = SelectorHandlerUtil.class.getDeclaredMethod("buildHQLQuery", Selector.class,
+                org.openbravo.model.ad.ui.Tab.class, org.openbravo.model.ad.datamodel.Column.class, String.class,
+                JSONObject.class, Map.class, javax.servlet.http.HttpServletRequest.class, String.class);
+        method.setAccessible(true);
+        String result = (String) method.invoke(null, mockSelector, mockTab, mockColumn, INP_M_PRODUCT_ID,
+                new JSONObject(), new HashMap<>(), mockRequest, VALUE_FILTER);
+
+        assertEquals("SELECT e.id AS id FROM Product e WHERE 1=1 " + VALUE_FILTER, result);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRecordIsFetchedWithSingleKeyedQuery() throws Exception {
+        mockValueField("e.id");
+        OBDal obDal = mock(OBDal.class);
+        Session session = mock(Session.class);
+        Query<Object> query = mock(Query.class);
+        when(obDal.getSession()).thenReturn(session);
+        when(session.createQuery(anyString())).thenReturn(query);
+        when(query.list()).thenReturn(List.of(Map.of("id", RECORD_ID)));
+
+        try (MockedStatic<OBDal> obDalStatic = mockStatic(OBDal.class)) {
+            obDalStatic.when(OBDal::getInstance).thenReturn(obDal);
+            JSONObject result = callExecuteHQLAndFindRecordByValue(HQL + VALUE_FILTER, RECORD_ID, mockSelector);
+
+            assertEquals(RECORD_ID, result.getString("id"));
+            verify(query).setParameter("etrxSelectorValue", RECORD_ID);
+            verify(query).setMaxResults(1);
+        }
+    }
+
+    @Test
+    public void testInvalidKeyedQueryFallsBack() throws Exception {
+        mockValueField("e.product");
+        OBDal obDal = mock(OBDal.class);
+        Session session = mock(Session.class);
+        when(obDal.getSession()).thenReturn(session);
+        when(session.createQuery(anyString())).thenThrow(new IllegalArgumentException("type mismatch"));
+
+        try (MockedStatic<OBDal> obDalStatic = mockStatic(OBDal.class)) {
+            obDalStatic.when(OBDal::getInstance).thenReturn(obDal);
+            assertNull(callExecuteHQLAndFindRecordByValue(HQL, RECORD_ID, mockSelector));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchReusesRecordOfSameLookup() throws Exception {
+        SelectorDescriptor.invalidate();
+        mockValueField("e.id");
+        when(mockSelector.getId()).thenReturn("SELECTOR_ID");
+        OBDal obDal = mock(OBDal.class);
+        Session session = mock(Session.class);
+        Query<Object> query = mock(Query.class);
+        when(obDal.getSession()).thenReturn(session);
+        when(session.createQuery(anyString())).thenReturn(query);
+        when(query.list()).thenReturn(List.of(Map.of("id", RECORD_ID)));
+        PostBatchContext batch = new PostBatchContext();
+
+        Method method = SelectorHandlerUtil.class.getDeclaredMethod("findRecord", String.class, Map.class,
+                String.class, String.class, Selector.class, PostBatchContext.class);
+        method.setAccessible(true);
+        try (MockedStatic<OBDal> obDalStatic = mockStatic(OBDal.class)) {
+            obDalStatic.when(OBDal::getInstance).thenReturn(obDal);
+            String hql = HQL + VALUE_FILTER;
+            JSONObject first = (JSONObject) method.invoke(null, hql, new HashMap<>(Map.of("p", "A")), VALUE_FILTER,
+                    RECORD_ID, mockSelector, batch);
+            JSONObject second = (JSONObject) method.invoke(null, hql, new HashMap<>(Map.of("p", "A")), VALUE_FILTER,
+                    RECORD_ID, mockSelector, batch);
+            method.invoke(null, hql, new HashMap<>(Map.of("p", "B")), VALUE_FILTER, RECORD_ID, mockSelector, batch);
+
+            assertSame(first, second);
+            verify(session, times(2)).createQuery(anyString());
+            assertEquals(2, batch.getSelectorLookups());
+            assertEquals(1, batch.getReusedSelectorLookups());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNonStringValueFieldUsesPagedScan() throws Exception {
+        SelectorDescriptor.invalidate();
+        mockValueField("e.lineNo");
+        when(mockSelector.getId()).thenReturn("SELECTOR_ID");
+        Reference integer = mock(Reference.class);
+        when(integer.getId()).thenReturn("11");
+        when(mockSelectorField.getReference()).thenReturn(integer);
+        OBDal obDal = mock(OBDal.class);
+        Session session = mock(Session.class);
+        Query<Object> query = mock(Query.class);
+        when(obDal.getSession()).thenReturn(session);
+        when(session.createQuery(anyString())).thenReturn(query);
+        when(query.list()).thenReturn(List.of(Map.of("id", "10")));
+
+        Method method = SelectorHandlerUtil.class.getDeclaredMethod("findRecord", String.class, Map.class,
+                String.class, String.class, Selector.class, PostBatchContext.class);
+        method.setAccessible(true);
+        try (MockedStatic<OBDal> obDalStatic = mockStatic(OBDal.class)) {
+            obDalStatic.when(OBDal::getInstance).thenReturn(obDal);
+            String valueFilter = SelectorDescriptor.getDescriptor(mockSelector).getValueFilter();
+            JSONObject result = (JSONObject) method.invoke(null, HQL, new HashMap<>(), valueFilter, "10",
+                    mockSelector, null);
+
+            assertEquals("", valueFilter);
+            assertEquals("10", result.getString("id"));
+            verify(query).setFirstResult(0);
+            verify(query).setMaxResults(100);
+            verify(query, never()).setParameter(eq("etrxSelectorValue"), any());
+        } finally {
+            SelectorDescriptor.invalidate();
+        }
+    }
+}
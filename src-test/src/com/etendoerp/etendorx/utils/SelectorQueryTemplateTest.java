@@ -0,0 +1,151 @@
+package com.etendoerp.etendorx.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link SelectorQueryTemplate}.
+ */
+class SelectorQueryTemplateTest {
+
+  private static final Map<String, String> DB2INPUT = Map.of(
+      "AD_Org_ID", "inpadOrgId",
+      "M_PriceList_ID", "inpmPricelistId");
+  private static final Function<String, FieldConverter> STRINGS = column -> FieldConverter.STRING;
+
+  @BeforeEach
+  void setUp() {
+    SelectorQueryTemplate.clear();
+    SelectorQueryTemplate.setMaxSize(500);
+  }
+
+  @AfterEach
+  void tearDown() {
+    SelectorQueryTemplate.clear();
+  }
+
+  @Test
+  void referencesAreReplacedByParameters() throws Exception {
+    SelectorQueryTemplate template = SelectorQueryTemplate.compile(
+        "SELECT e.id AS id FROM Product e WHERE e.organization.id = @AD_ORG_ID@"
+            + " AND e.priceList.id = @m_pricelist_id@ AND e.parent.id = @ad_org_id@ AND e.user.id = @#AD_User_ID@",
+        DB2INPUT, STRINGS);
+
+    assertEquals("SELECT e.id AS id FROM Product e WHERE e.organization.id = :etrxParam0"
+        + " AND e.priceList.id = :etrxParam1 AND e.parent.id = :etrxParam0 AND e.user.id = @#AD_User_ID@",
+        template.getHql());
+    Map<String, Object> parameters = template.bind(new JSONObject()
+        .put("inpadOrgId", "ORG_ID")
+        .put("inpmPricelistId", "PRICELIST_ID"));
+    assertEquals(Map.of("etrxParam0", "ORG_ID", "etrxParam1", "PRICELIST_ID"), parameters);
+  }
+
+  @Test
+  void referencesInLiteralsAreNotCompiled() {
+    String hql = "SELECT e.id AS id FROM Product e WHERE e.name LIKE '%@ad_org_id@%'";
+    SelectorQueryTemplate template = SelectorQueryTemplate.getTemplate("key", () -> hql, DB2INPUT, STRINGS);
+
+    assertNull(template);
+    assertNull(SelectorQueryTemplate.getTemplate("key", () -> hql, DB2INPUT, STRINGS));
+    assertEquals(1, SelectorQueryTemplate.getHits());
+  }
+
+  @Test
+  void missingValuesAreNotBound() throws Exception {
+    SelectorQueryTemplate template = SelectorQueryTemplate.compile(
+        "SELECT e.id AS id FROM Product e WHERE e.organization.id = @ad_org_id@", DB2INPUT, STRINGS);
+
+    assertNull(template.bind(new JSONObject()));
+    JSONObject data = new JSONObject().put("inpadOrgId", "ORG_ID");
+    assertEquals(Map.of("etrxParam0", "ORG_ID"), template.bind(data));
+    template.disableBinding();
+    assertNull(template.bind(data));
+  }
+
+  @Test
+  void valuesAreBoundWithTheTypeOfTheirColumn() throws Exception {
+    Map<String, String> db2Input = Map.of(
+        "AD_Org_ID", "inpadOrgId",
+        "Qty", "inpqty",
+        "Line", "inpline",
+        "IsActive", "inpisactive");
+    Map<String, FieldConverter> converters = Map.of(
+        "Qty", FieldConverter.BIG_DECIMAL,
+        "Line", FieldConverter.LONG,
+        "IsActive", FieldConverter.BOOLEAN);
+    SelectorQueryTemplate template = SelectorQueryTemplate.compile(
+        "SELECT e.id AS id FROM Product e WHERE e.organization.id = @ad_org_id@ AND e.qty = @qty@"
+            + " AND e.line = @line@ AND e.active = @isactive@",
+        db2Input, column -> converters.getOrDefault(column, FieldConverter.STRING));
+
+    Map<String, Object> parameters = template.bind(new JSONObject()
+        .put("inpadOrgId", "ORG_ID")
+        .put("inpqty", "1.5")
+        .put("inpline", "10")
+        .put("inpisactive", "Y"));
+    assertEquals(Map.of("etrxParam0", "ORG_ID", "etrxParam1", new BigDecimal("1.5"), "etrxParam2", 10L,
+        "etrxParam3", true), parameters);
+    assertNull(template.bind(new JSONObject()
+        .put("inpadOrgId", "ORG_ID")
+        .put("inpqty", "1.5")
+        .put("inpline", "ten")
+        .put("inpisactive", "Y")));
+  }
+
+  @Test
+  void referencesToDateColumnsAreNotCompiled() {
+    String hql = "SELECT e.id AS id FROM Product e WHERE e.organization.id = @ad_org_id@"
+        + " AND e.validFrom <= @m_pricelist_id@";
+
+    assertNull(SelectorQueryTemplate.getTemplate("key", () -> hql, DB2INPUT,
+        column -> "M_PriceList_ID".equals(column) ? FieldConverter.DATE : FieldConverter.STRING));
+  }
+
+  @Test
+  void templatesAreCompiledOnce() {
+    AtomicInteger builds = new AtomicInteger();
+    String hql = "SELECT e.id AS id FROM Product e WHERE e.organization.id = @ad_org_id@";
+
+    SelectorQueryTemplate first = SelectorQueryTemplate.getTemplate("key", () -> {
+      builds.incrementAndGet();
+      return hql;
+    }, DB2INPUT, STRINGS);
+    SelectorQueryTemplate second = SelectorQueryTemplate.getTemplate("key", () -> {
+      builds.incrementAndGet();
+      return hql;
+    }, DB2INPUT, STRINGS);
+
+    assertSame(first, second);
+    assertEquals(1, builds.get());
+    assertEquals(1, SelectorQueryTemplate.getMisses());
+    assertEquals(1, SelectorQueryTemplate.getHits());
+    SelectorQueryTemplate.invalidate();
+    assertEquals(0, SelectorQueryTemplate.size());
+  }
+
+  @Test
+  void leastRecentlyUsedIsEvicted() {
+    SelectorQueryTemplate.setMaxSize(2);
+    SelectorQueryTemplate.getTemplate("a", () -> "a", DB2INPUT, STRINGS);
+    SelectorQueryTemplate.getTemplate("b", () -> "b", DB2INPUT, STRINGS);
+    SelectorQueryTemplate.getTemplate("a", () -> "a", DB2INPUT, STRINGS);
+    SelectorQueryTemplate.getTemplate("c", () -> "c", DB2INPUT, STRINGS);
+    SelectorQueryTemplate.getTemplate("a", () -> "a", DB2INPUT, STRINGS);
+    SelectorQueryTemplate.getTemplate("b", () -> "b", DB2INPUT, STRINGS);
+
+    assertEquals(2, SelectorQueryTemplate.size());
+    assertEquals(2, SelectorQueryTemplate.getHits());
+    assertEquals(4, SelectorQueryTemplate.getMisses());
+  }
+}
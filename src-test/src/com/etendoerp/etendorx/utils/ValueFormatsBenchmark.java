@@ -0,0 +1,113 @@
+package com.etendoerp.etendorx.utils;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the conversion of a record with 20 date, 10 datetime and 30 amount columns: a new
+ * {@link SimpleDateFormat} pair per value and the chained replaces used before
+ * {@link ValueFormats}, against the cached formatters and the single pass amount parser.
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main ValueFormatsBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueFormatsBenchmark {
+
+  private static final String DATE_FORMAT = "dd-MM-yyyy";
+  private static final String DATETIME_FORMAT = "dd-MM-yyyy HH:mm:ss";
+
+  private final String[] dates = new String[20];
+  private final String[] dateTimes = new String[10];
+  private final String[] amounts = new String[30];
+
+  /**
+   * Builds the values and configures the input formats.
+   */
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < dates.length; i++) {
+      dates[i] = String.format("%02d-%02d-2025", 1 + i, 1 + i % 12);
+    }
+    for (int i = 0; i < dateTimes.length; i++) {
+      dateTimes[i] = String.format("%02d-06-2025 %02d:%02d:00", 1 + i, i, 2 * i);
+    }
+    for (int i = 0; i < amounts.length; i++) {
+      amounts[i] = i % 2 == 0 ? "1.234," + i : "9,876." + i;
+    }
+    ValueFormats.useInputFormats(DATE_FORMAT, DATETIME_FORMAT);
+  }
+
+  /**
+   * Drops the configured input formats.
+   */
+  @TearDown
+  public void tearDown() {
+    ValueFormats.reset();
+  }
+
+  /**
+   * The conversions done before the cached formatters.
+   */
+  @Benchmark
+  public void simpleDateFormats(Blackhole blackhole) throws ParseException {
+    for (String date : dates) {
+      SimpleDateFormat sdfInp = new SimpleDateFormat(DATE_FORMAT);
+      SimpleDateFormat sdfHql = new SimpleDateFormat("yyyy-MM-dd");
+      blackhole.consume(sdfHql.format(sdfInp.parse(date)));
+    }
+    for (String dateTime : dateTimes) {
+      SimpleDateFormat sdfInp = new SimpleDateFormat(DATETIME_FORMAT);
+      SimpleDateFormat sdfHql = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.S'Z'");
+      blackhole.consume(sdfHql.format(sdfInp.parse(dateTime)));
+    }
+    for (String amount : amounts) {
+      String normalized;
+      int lastComma = amount.lastIndexOf(',');
+      int lastDot = amount.lastIndexOf('.');
+      if (lastComma > lastDot) {
+        normalized = amount.replace(".", "").replace(",", ".");
+      } else if (lastDot > lastComma) {
+        normalized = amount.replace(",", "");
+      } else {
+        normalized = amount.replace(",", ".");
+      }
+      blackhole.consume(new BigDecimal(normalized));
+    }
+  }
+
+  /**
+   * The same conversions with {@link ValueFormats}.
+   */
+  @Benchmark
+  public void valueFormats(Blackhole blackhole) throws ParseException {
+    for (String date : dates) {
+      blackhole.consume(ValueFormats.toHqlDate(date));
+    }
+    for (String dateTime : dateTimes) {
+      blackhole.consume(ValueFormats.toHqlDatetime(dateTime));
+    }
+    for (String amount : amounts) {
+      blackhole.consume(ValueFormats.parseAmount(amount));
+    }
+  }
+}
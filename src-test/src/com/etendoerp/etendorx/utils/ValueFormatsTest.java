@@ -0,0 +1,75 @@
+package com.etendoerp.etendorx.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link ValueFormats}.
+ */
+class ValueFormatsTest {
+
+  private static final String DD_MM_YYYY = "dd-MM-yyyy";
+
+  @BeforeEach
+  void setUp() {
+    ValueFormats.useInputFormats(DD_MM_YYYY, "dd-MM-yyyy HH:mm:ss");
+  }
+
+  @AfterEach
+  void tearDown() {
+    ValueFormats.reset();
+  }
+
+  @Test
+  void testDatesBetweenInputAndHqlFormats() throws ParseException {
+    assertEquals("2025-12-22", ValueFormats.toHqlDate("22-12-2025"));
+    assertEquals("22-12-2025", ValueFormats.toInputDate("2025-12-22"));
+    assertEquals("2025-12-22T10:05:07.0Z", ValueFormats.toHqlDatetime("22-12-2025 10:05:07"));
+    assertEquals("22-12-2025 10:05:07", ValueFormats.toInputDatetime("2025-12-22T10:05:07.250Z"));
+  }
+
+  @Test
+  void testDatesAreParsedLikeSimpleDateFormat() throws ParseException {
+    // single digits, days out of range and trailing text are accepted
+    assertEquals("2024-01-05", ValueFormats.toHqlDate("5-1-2024"));
+    assertEquals("2024-03-02", ValueFormats.toHqlDate("31-02-2024"));
+    assertEquals("2024-01-05", ValueFormats.toHqlDate("05-01-2024 00:00:00"));
+    assertThrows(ParseException.class, () -> ValueFormats.toHqlDate("2024/01/05"));
+  }
+
+  @Test
+  void testPatternsWithoutExactFormatter() throws ParseException {
+    assertNull(ValueFormats.ofLegacyPattern("dd-MMM-yy"));
+    assertNull(ValueFormats.ofLegacyPattern("yyyyMMdd"));
+    assertNotNull(ValueFormats.ofLegacyPattern("yyyy-MM-dd'T'HH:mm:ss.S'Z'"));
+
+    ValueFormats.useInputFormats("yyyyMMdd", "dd/MM/yy HH:mm");
+    assertEquals("2024-03-05", ValueFormats.toHqlDate("20240305"));
+    assertEquals("05/03/24 10:20", ValueFormats.toInputDatetime("2024-03-05T10:20:30.0Z"));
+  }
+
+  @Test
+  void testReformat() throws ParseException {
+    assertEquals("2025-12-22 10:00:00:005", ValueFormats.reformat("22-12-2025 10:00:00:5",
+        ValueFormats.ofLegacyPattern("dd-MM-yyyy HH:mm:ss:SSS"), ValueFormats.ofLegacyPattern("yyyy-MM-dd HH:mm:ss:SSS")));
+  }
+
+  @Test
+  void testParseAmount() {
+    assertEquals(new BigDecimal("1234.50"), ValueFormats.parseAmount("1.234,50"));
+    assertEquals(new BigDecimal("1234.50"), ValueFormats.parseAmount("1,234.50"));
+    assertEquals(new BigDecimal("1000000.25"), ValueFormats.parseAmount("1,000,000.25"));
+    assertEquals(new BigDecimal("-3.5"), ValueFormats.parseAmount("-3,5"));
+    assertEquals(new BigDecimal("1234"), ValueFormats.parseAmount("1234"));
+    assertThrows(NumberFormatException.class, () -> ValueFormats.parseAmount("1,2,3"));
+  }
+}
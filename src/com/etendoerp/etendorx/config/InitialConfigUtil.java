@@ -3,7 +3,6 @@ package com.etendoerp.etendorx.config;
 import com.smf.securewebservices.utils.SecureWebServicesUtils;
 import org.openbravo.base.ConfigParameters;
 import org.openbravo.base.exception.OBException;
-import org.openbravo.base.secureApp.LoginUtils;
 import org.openbravo.base.secureApp.VariablesSecureApp;
 import org.openbravo.client.kernel.RequestContext;
 
@@ -36,7 +35,7 @@ public class InitialConfigUtil {
     try {
       SecureWebServicesUtils.fillSessionVariables(request);
       VariablesSecureApp vars = new VariablesSecureApp(request);
-      LoginUtils.readNumberFormat(vars, servletConfiguration.getFormatPath());
+      SessionBootstrapCache.readNumberFormat(request, servletConfiguration.getFormatPath());
       RequestContext.get().setVariableSecureApp(vars);
       return vars;
     } catch (ServletException e) {
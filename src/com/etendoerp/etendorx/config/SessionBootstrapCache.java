@@ -0,0 +1,280 @@
+package com.etendoerp.etendorx.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpSession;
+
+import org.openbravo.base.secureApp.LoginUtils;
+import org.openbravo.base.secureApp.LoginUtils.RoleDefaults;
+import org.openbravo.base.secureApp.VariablesSecureApp;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.service.db.DalConnectionProvider;
+
+import com.etendoerp.etendorx.utils.HeadlessProperties;
+
+/**
+ * Caches the session setup of the headless requests, which are stateless and would otherwise
+ * repeat it on every call.
+ * <p>
+ * The login defaults and the session values set by {@link LoginUtils#fillSessionArguments} are
+ * kept by user, role, organization and language, and the values set by
+ * {@link LoginUtils#readNumberFormat} by format file. The values are recorded while the setup runs
+ * for the first time and copied to the session of the next requests, instead of running the
+ * queries or reading the file again. Entries expire after a configurable time and at the end of the
+ * day, as the session holds the current date, and are dropped when users or roles change.
+ */
+public final class SessionBootstrapCache {
+
+  private static final int DEFAULT_CACHE_SIZE = 200;
+  private static final int DEFAULT_TTL_SECONDS = 300;
+  private static final String KEY_SEPARATOR = "|";
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static final Map<String, Entry> sessions = new LinkedHashMap<>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > maxSize;
+    }
+  };
+  private static final Map<String, List<Map.Entry<String, Object>>> numberFormats = new LinkedHashMap<>();
+  private static int maxSize = HeadlessProperties.getInt(HeadlessProperties.SESSION_CACHE_SIZE,
+      DEFAULT_CACHE_SIZE);
+  private static long ttlNanos = TimeUnit.SECONDS.toNanos(
+      HeadlessProperties.getInt(HeadlessProperties.SESSION_CACHE_TTL_SECONDS, DEFAULT_TTL_SECONDS));
+
+  private SessionBootstrapCache() {
+    // utility class
+  }
+
+  /**
+   * Fills the session of the request with the values of the user, role, organization and language
+   * of the current context, as a login would.
+   *
+   * @param request
+   *     the request whose session is filled
+   * @return the login defaults of the user and role
+   * @throws ServletException
+   *     if the session values cannot be read
+   */
+  public static RoleDefaults fillSessionArguments(HttpServletRequest request) throws ServletException {
+    OBContext context = OBContext.getOBContext();
+    String userId = context.getUser().getId();
+    String roleId = context.getRole().getId();
+    String orgId = context.getCurrentOrganization().getId();
+    String language = context.getLanguage().getLanguage();
+    String isRTL = context.isRTL() ? "Y" : "N";
+    String key = String.join(KEY_SEPARATOR, userId, roleId, orgId, language, isRTL);
+
+    Entry entry = getEntry(key);
+    if (entry != null) {
+      hits.incrementAndGet();
+      replay(entry.writes, request);
+      return entry.defaults;
+    }
+    misses.incrementAndGet();
+
+    DalConnectionProvider conn = new DalConnectionProvider();
+    RoleDefaults defaults = LoginUtils.getLoginDefaults(userId, roleId, conn);
+    SessionRecorder recorder = new SessionRecorder(request);
+    boolean filled = LoginUtils.fillSessionArguments(conn, new VariablesSecureApp(recorder), userId, language, isRTL,
+        defaults.role, defaults.client, orgId, defaults.warehouse);
+    if (filled) {
+      synchronized (sessions) {
+        sessions.put(key, new Entry(defaults, recorder.getWrites(), System.nanoTime() + ttlNanos));
+      }
+    }
+    return defaults;
+  }
+
+  /**
+   * Sets in the session of the request the number formats of the given format file.
+   *
+   * @param request
+   *     the request whose session is filled
+   * @param formatPath
+   *     the path of the format file
+   */
+  public static void readNumberFormat(HttpServletRequest request, String formatPath) {
+    List<Map.Entry<String, Object>> writes;
+    synchronized (numberFormats) {
+      writes = numberFormats.get(formatPath);
+    }
+    if (writes != null) {
+      replay(writes, request);
+      return;
+    }
+    SessionRecorder recorder = new SessionRecorder(request);
+    LoginUtils.readNumberFormat(new VariablesSecureApp(recorder), formatPath);
+    synchronized (numberFormats) {
+      numberFormats.put(formatPath, recorder.getWrites());
+    }
+  }
+
+  /**
+   * @return number of session setups served from the cache
+   */
+  public static long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of session setups that had to run the queries
+   */
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of cached session setups
+   */
+  public static int size() {
+    synchronized (sessions) {
+      return sessions.size();
+    }
+  }
+
+  /**
+   * Drops the cached session setups, to be called when users or roles change.
+   */
+  public static void invalidate() {
+    synchronized (sessions) {
+      sessions.clear();
+    }
+  }
+
+  /**
+   * Drops every cached value, including the number formats, and resets the counters.
+   */
+  static void clear() {
+    invalidate();
+    synchronized (numberFormats) {
+      numberFormats.clear();
+    }
+    hits.set(0);
+    misses.set(0);
+  }
+
+  /**
+   * Changes the maximum number of cached session setups and the time they are reused.
+   *
+   * @param size
+   *     the new maximum size
+   * @param ttlMillis
+   *     the new time to live, in milliseconds
+   */
+  static void configure(int size, long ttlMillis) {
+    synchronized (sessions) {
+      maxSize = size;
+      ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+  }
+
+  private static Entry getEntry(String key) {
+    synchronized (sessions) {
+      Entry entry = sessions.get(key);
+      if (entry != null && entry.isExpired()) {
+        sessions.remove(key);
+        return null;
+      }
+      return entry;
+    }
+  }
+
+  private static void replay(List<Map.Entry<String, Object>> writes, HttpServletRequest request) {
+    HttpSession session = request.getSession(true);
+    for (Map.Entry<String, Object> write : writes) {
+      if (write.getValue() == null) {
+        session.removeAttribute(write.getKey());
+      } else {
+        session.setAttribute(write.getKey(), write.getValue());
+      }
+    }
+  }
+
+  /**
+   * A cached session setup.
+   */
+  private static final class Entry {
+    private final RoleDefaults defaults;
+    private final List<Map.Entry<String, Object>> writes;
+    private final long expiresAt;
+    private final LocalDate day;
+
+    private Entry(RoleDefaults defaults, List<Map.Entry<String, Object>> writes, long expiresAt) {
+      this.defaults = defaults;
+      this.writes = writes;
+      this.expiresAt = expiresAt;
+      this.day = LocalDate.now();
+    }
+
+    private boolean isExpired() {
+      return System.nanoTime() - expiresAt > 0 || !day.equals(LocalDate.now());
+    }
+  }
+
+  /**
+   * A request whose session records the attributes set and removed, in order, while it is used.
+   */
+  static final class SessionRecorder extends HttpServletRequestWrapper {
+    private final List<Map.Entry<String, Object>> writes = new ArrayList<>();
+
+    SessionRecorder(HttpServletRequest request) {
+      super(request);
+    }
+
+    @Override
+    public HttpSession getSession() {
+      return getSession(true);
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+      HttpSession session = super.getSession(create);
+      if (session == null) {
+        return null;
+      }
+      return (HttpSession) Proxy.newProxyInstance(HttpSession.class.getClassLoader(),
+          new Class<?>[]{ HttpSession.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "setAttribute":
+              case "putValue":
+                record((String) args[0], args[1]);
+                break;
+              case "removeAttribute":
+              case "removeValue":
+                record((String) args[0], null);
+                break;
+              default:
+                break;
+            }
+            try {
+              return method.invoke(session, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+    }
+
+    private synchronized void record(String name, Object value) {
+      writes.add(new AbstractMap.SimpleImmutableEntry<>(name, value));
+    }
+
+    synchronized List<Map.Entry<String, Object>> getWrites() {
+      return Collections.unmodifiableList(new ArrayList<>(writes));
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.etendoerp.etendorx.events;
+
+import javax.enterprise.event.Observes;
+
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.client.kernel.event.EntityDeleteEvent;
+import org.openbravo.client.kernel.event.EntityNewEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openbravo.model.ad.domain.Validation;
+import org.openbravo.model.ad.ui.AuxiliaryInput;
+import org.openbravo.model.ad.ui.Field;
+import org.openbravo.model.ad.ui.Tab;
+import org.openbravo.userinterface.selector.Selector;
+import org.openbravo.userinterface.selector.SelectorField;
+
+import com.etendoerp.etendorx.data.OpenAPIRequestField;
+import com.etendoerp.etendorx.data.OpenAPITab;
+import com.etendoerp.etendorx.services.metadata.EndpointMetadataCache;
+import com.etendoerp.etendorx.services.metadata.TabMetadataIndex;
+import com.etendoerp.etendorx.services.metadata.WindowMetadataWarmup;
+import com.etendoerp.etendorx.utils.SelectorDescriptor;
+import com.etendoerp.etendorx.utils.SelectorQueryTemplate;
+import com.etendoerp.openapi.data.OpenAPIRequest;
+
+/**
+ * Invalidates the precompiled headless endpoint metadata when any definition it is built from
+ * changes: endpoints, endpoint tabs and fields, and the underlying application dictionary tabs,
+ * fields, columns, validation rules and auxiliary inputs, and the selectors whose definitions and
+ * compiled queries are cached. The windows prepared for the form initialization are prepared
+ * again on next use.
+ */
+public class EndpointMetadataEventHandler extends EntityPersistenceEventObserver {
+  private static final Entity[] entities = {
+      ModelProvider.getInstance().getEntity(OpenAPIRequest.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(OpenAPITab.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(OpenAPIRequestField.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Tab.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Field.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Column.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Validation.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(AuxiliaryInput.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Selector.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(SelectorField.ENTITY_NAME) };
+
+  @Override
+  protected Entity[] getObservedEntities() {
+    return entities;
+  }
+
+  /**
+   * Invalidates the cached metadata when an observed record is updated.
+   *
+   * @param event an EntityUpdateEvent instance
+   */
+  public void onUpdate(@Observes EntityUpdateEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidate();
+  }
+
+  /**
+   * Invalidates the cached metadata when an observed record is created.
+   *
+   * @param event an EntityNewEvent instance
+   */
+  public void onSave(@Observes EntityNewEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidate();
+  }
+
+  /**
+   * Invalidates the cached metadata when an observed record is deleted.
+   *
+   * @param event an EntityDeleteEvent instance
+   */
+  public void onDelete(@Observes EntityDeleteEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidate();
+  }
+
+  /**
+   * Drops the headless metadata caches.
+   */
+  void invalidate() {
+    EndpointMetadataCache.invalidate();
+    TabMetadataIndex.invalidate();
+    SelectorQueryTemplate.invalidate();
+    SelectorDescriptor.invalidate();
+    WindowMetadataWarmup.invalidate();
+  }
+}
@@ -0,0 +1,78 @@
+package com.etendoerp.etendorx.events;
+
+import javax.enterprise.event.Observes;
+
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.client.kernel.event.EntityDeleteEvent;
+import org.openbravo.client.kernel.event.EntityNewEvent;
+import org.openbravo.client.kernel.event.EntityPersistenceEventObserver;
+import org.openbravo.client.kernel.event.EntityUpdateEvent;
+import org.openbravo.model.ad.access.Role;
+import org.openbravo.model.ad.access.RoleOrganization;
+import org.openbravo.model.ad.access.User;
+import org.openbravo.model.ad.access.UserRoles;
+import org.openbravo.model.ad.domain.Preference;
+
+import com.etendoerp.etendorx.config.SessionBootstrapCache;
+
+/**
+ * Drops the cached session setup of the headless requests when the data it is computed from
+ * changes: users, roles, their organizations and assignments, and preferences.
+ */
+public class SessionBootstrapEventHandler extends EntityPersistenceEventObserver {
+  private static final Entity[] entities = {
+      ModelProvider.getInstance().getEntity(User.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Role.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(UserRoles.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(RoleOrganization.ENTITY_NAME),
+      ModelProvider.getInstance().getEntity(Preference.ENTITY_NAME) };
+
+  @Override
+  protected Entity[] getObservedEntities() {
+    return entities;
+  }
+
+  /**
+   * Invalidates the cached session setup when an observed record is updated.
+   *
+   * @param event an EntityUpdateEvent instance
+   */
+  public void onUpdate(@Observes EntityUpdateEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidate();
+  }
+
+  /**
+   * Invalidates the cached session setup when an observed record is created.
+   *
+   * @param event an EntityNewEvent instance
+   */
+  public void onSave(@Observes EntityNewEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidate();
+  }
+
+  /**
+   * Invalidates the cached session setup when an observed record is deleted.
+   *
+   * @param event an EntityDeleteEvent instance
+   */
+  public void onDelete(@Observes EntityDeleteEvent event) {
+    if (!isValidEvent(event)) {
+      return;
+    }
+    invalidate();
+  }
+
+  /**
+   * Drops the cached session setup.
+   */
+  void invalidate() {
+    SessionBootstrapCache.invalidate();
+  }
+}
@@ -419,6 +419,16 @@ public class DynamicDatasourceEndpoint implements OpenAPIEndpoint {
         "Search parameter to retrieve filtered data with a criteria"));
     getParams.add(createParameter("_startRow", true, OpenAPIConstants.STRING, "0", "Starting row to fetch."));
     getParams.add(createParameter("_endRow", true, OpenAPIConstants.STRING, "10", "End row to fetch."));
+    getParams.add(createParameter("_sortBy", false, OpenAPIConstants.STRING, "documentNo",
+        "Property to sort by. Prefix it with '-' to sort in descending order."));
+    getParams.add(createParameter("cursor", false, OpenAPIConstants.STRING, "",
+        "Enables keyset pagination, recommended to read large tables: send it empty to get the first page and then "
+            + "send the 'response.nextCursor' value of each page to get the next one, until no 'nextCursor' is "
+            + "returned. The page size is _endRow - _startRow and _startRow is ignored. Only a single non reference "
+            + "property can be used as _sortBy; records are also sorted by id."));
+    getParams.add(createParameter("_fields", false, OpenAPIConstants.STRING, "documentNo,businessPartner",
+        "Comma separated list of the properties to return. The rest of the properties, and the identifiers of the "
+            + "references not listed, are neither read nor returned. The id is always returned."));
 
     String customDescription = StringUtils.isNotEmpty(description) ? description : "";
     String finalDescription = String.format(GET_DESCRIPTION_TEMPLATE, entityName, customDescription);
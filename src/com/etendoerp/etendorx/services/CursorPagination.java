@@ -0,0 +1,292 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.base.model.Property;
+
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+
+/**
+ * Keyset (cursor) pagination of the headless GET endpoint.
+ * <p>
+ * Instead of an offset, each page is requested with the opaque token returned as
+ * {@code response.nextCursor} by the previous one. The token holds the sort key and the id of the
+ * last returned record, and the next page is fetched with a seek predicate on them:
+ * {@code sortKey > last OR (sortKey = last AND id > lastId)}. Records are always sorted by the
+ * requested property and then by id, so the order is total and the cost of a page does not depend
+ * on how deep in the table it is.
+ * <p>
+ * The cursor mode is enabled by the {@code cursor} parameter: an empty value (or {@code true})
+ * requests the first page. Only a single primitive field of the endpoint, optionally prefixed by
+ * {@code -} for descending order, can be used as {@code _sortBy}. Nulls are sorted as PostgreSQL does: last in
+ * ascending order and first in descending order.
+ */
+public final class CursorPagination {
+
+  /** Request parameter enabling the cursor mode and carrying the continuation token. */
+  public static final String CURSOR = "cursor";
+  /** Response property holding the token of the next page. */
+  public static final String NEXT_CURSOR = "nextCursor";
+
+  private static final String START = "true";
+  private static final String SORT_BY = "_sortBy";
+  private static final String START_ROW = "_startRow";
+  private static final String END_ROW = "_endRow";
+  private static final String ID = "id";
+  private static final String DESC_PREFIX = "-";
+  private static final int DEFAULT_PAGE_SIZE = 100;
+
+  private static final String TOKEN_SORT_BY = "sortBy";
+  private static final String TOKEN_VALUE = "value";
+  private static final String TOKEN_ID = "id";
+
+  private static final String CONSTRUCTOR = "_constructor";
+  private static final String ADVANCED_CRITERIA = "AdvancedCriteria";
+  private static final String OPERATOR = "operator";
+  private static final String CRITERIA = "criteria";
+  private static final String FIELD_NAME = "fieldName";
+  private static final String VALUE = "value";
+
+  private final String sortBy;
+  private final String sortProperty;
+  private final boolean descending;
+  private final int pageSize;
+  private final JSONObject lastKey;
+
+  private CursorPagination(String sortBy, int pageSize, JSONObject lastKey) {
+    this.sortBy = sortBy;
+    this.descending = StringUtils.startsWith(sortBy, DESC_PREFIX);
+    this.sortProperty = descending ? sortBy.substring(1) : sortBy;
+    this.pageSize = pageSize;
+    this.lastKey = lastKey;
+  }
+
+  /**
+   * Reads the cursor mode from the request parameters.
+   *
+   * @param cursor
+   *     the value of the {@code cursor} parameter, null when cursor mode is not requested
+   * @param params
+   *     the parameters that will be sent to the datasource
+   * @param descriptor
+   *     the endpoint descriptor, whose fields are the ones that can be used as sort property
+   * @return the cursor pagination, or null when the request does not use cursor mode
+   * @throws InvalidRequestParameterException
+   *     if the cursor or the sort property are not valid
+   */
+  public static CursorPagination fromRequest(String cursor, Map<String, String[]> params,
+      EndpointDescriptor descriptor) {
+    if (cursor == null) {
+      return null;
+    }
+    String sortBy = StringUtils.defaultIfBlank(getParam(params, SORT_BY), ID).trim();
+    validateSortProperty(sortBy, descriptor);
+    int pageSize = getPageSize(params);
+
+    JSONObject lastKey = null;
+    if (StringUtils.isNotBlank(cursor) && !StringUtils.equalsIgnoreCase(cursor.trim(), START)) {
+      lastKey = decode(cursor.trim());
+      if (!StringUtils.equals(sortBy, lastKey.optString(TOKEN_SORT_BY)) || !lastKey.has(TOKEN_ID)) {
+        throw new InvalidRequestParameterException(
+            "The cursor was issued for a different sort order than " + sortBy + ".");
+      }
+    }
+    return new CursorPagination(sortBy, pageSize, lastKey);
+  }
+
+  /**
+   * Replaces the offset paging parameters by the keyset ones: fixed sort with the id as tie
+   * breaker, first row and, when continuing a previous page, the seek criterion combined with any
+   * criteria already present.
+   *
+   * @param params
+   *     the parameters that will be sent to the datasource
+   * @throws JSONException
+   *     if the criteria cannot be built
+   */
+  public void applyTo(Map<String, String[]> params) throws JSONException {
+    params.put(SORT_BY, new String[]{ StringUtils.equals(sortProperty, ID) ? sortBy : sortBy + "," + ID });
+    params.put(START_ROW, new String[]{ "0" });
+    params.put(END_ROW, new String[]{ String.valueOf(pageSize) });
+    if (lastKey == null) {
+      return;
+    }
+    JSONObject seek = buildSeekCriterion();
+    String existing = getParam(params, CRITERIA);
+    JSONObject criteria;
+    if (StringUtils.isBlank(existing)) {
+      criteria = seek;
+    } else {
+      criteria = new JSONObject();
+      criteria.put(CONSTRUCTOR, ADVANCED_CRITERIA);
+      criteria.put(OPERATOR, "and");
+      criteria.put(CRITERIA, new JSONArray().put(new JSONObject(existing)).put(seek));
+    }
+    params.put(CRITERIA, new String[]{ criteria.toString() });
+    params.put(OPERATOR, new String[]{ "and" });
+    params.put(CONSTRUCTOR, new String[]{ ADVANCED_CRITERIA });
+  }
+
+  /**
+   * Adds the token of the next page to a successful datasource response. No token is added when
+   * the page is not full, as there are no more records.
+   *
+   * @param capturedResponse
+   *     the datasource response, with the records in {@code response.data}
+   * @throws JSONException
+   *     if the response cannot be read
+   */
+  public void addNextCursor(JSONObject capturedResponse) throws JSONException {
+    JSONObject responseObject = capturedResponse.getJSONObject(DataSourceConstants.RESPONSE);
+    JSONArray data = responseObject.getJSONArray(DataSourceConstants.DATA);
+    if (data.length() == 0 || data.length() < pageSize) {
+      return;
+    }
+    JSONObject last = data.getJSONObject(data.length() - 1);
+    JSONObject token = new JSONObject();
+    token.put(TOKEN_SORT_BY, sortBy);
+    token.put(TOKEN_ID, last.getString(ID));
+    if (!StringUtils.equals(sortProperty, ID)) {
+      token.put(TOKEN_VALUE, last.opt(sortProperty) == null ? JSONObject.NULL : last.get(sortProperty));
+    }
+    responseObject.put(NEXT_CURSOR, encode(token));
+  }
+
+  /**
+   * @return the property records are sorted by, before the id
+   */
+  public String getSortProperty() {
+    return sortProperty;
+  }
+
+  /**
+   * Builds the predicate selecting the records after the last key, following the sort order.
+   */
+  JSONObject buildSeekCriterion() throws JSONException {
+    JSONObject idAfter = criterion(ID, "greaterThan", lastKey.getString(TOKEN_ID));
+    if (StringUtils.equals(sortProperty, ID)) {
+      return descending ? criterion(ID, "lessThan", lastKey.getString(TOKEN_ID)) : idAfter;
+    }
+    Object value = lastKey.opt(TOKEN_VALUE);
+    if (value == null || value == JSONObject.NULL) {
+      JSONObject sameNullKey = and(criterion(sortProperty, "isNull", null), idAfter);
+      // Nulls go last in ascending order: only null keys remain. In descending order they go
+      // first, so every non null key is still pending.
+      return descending ? or(sameNullKey, criterion(sortProperty, "notNull", null)) : sameNullKey;
+    }
+    JSONObject keyAfter = criterion(sortProperty, descending ? "lessThan" : "greaterThan", value);
+    JSONObject sameKey = and(criterion(sortProperty, "equals", value), idAfter);
+    if (descending) {
+      return or(keyAfter, sameKey);
+    }
+    return or(keyAfter, sameKey, criterion(sortProperty, "isNull", null));
+  }
+
+  private static JSONObject criterion(String fieldName, String operator, Object value) throws JSONException {
+    JSONObject criterion = new JSONObject();
+    criterion.put(FIELD_NAME, fieldName);
+    criterion.put(OPERATOR, operator);
+    if (value != null) {
+      criterion.put(VALUE, value);
+    }
+    return criterion;
+  }
+
+  private static JSONObject and(JSONObject... criteria) throws JSONException {
+    return group("and", criteria);
+  }
+
+  private static JSONObject or(JSONObject... criteria) throws JSONException {
+    return group("or", criteria);
+  }
+
+  private static JSONObject group(String operator, JSONObject... criteria) throws JSONException {
+    JSONArray list = new JSONArray();
+    for (JSONObject criterion : criteria) {
+      list.put(criterion);
+    }
+    JSONObject group = new JSONObject();
+    group.put(CONSTRUCTOR, ADVANCED_CRITERIA);
+    group.put(OPERATOR, operator);
+    group.put(CRITERIA, list);
+    return group;
+  }
+
+  private static void validateSortProperty(String sortBy, EndpointDescriptor descriptor) {
+    String propertyName = StringUtils.removeStart(sortBy, DESC_PREFIX);
+    if (StringUtils.isBlank(propertyName) || StringUtils.containsAny(propertyName, ",.")) {
+      throw new InvalidRequestParameterException(
+          "Cursor pagination supports sorting by a single property of the endpoint, found: " + sortBy);
+    }
+    if (StringUtils.equals(propertyName, ID)) {
+      return;
+    }
+    if (descriptor.indexOfProperty(propertyName) < 0) {
+      throw new InvalidRequestParameterException(
+          "Cursor pagination can only sort by a field of the endpoint, found: " + sortBy);
+    }
+    Entity entity = ModelProvider.getInstance().getEntityByTableId(descriptor.getTableId());
+    Property property = entity != null && entity.hasProperty(propertyName) ? entity.getProperty(propertyName) : null;
+    if (property == null || !property.isPrimitive()) {
+      throw new InvalidRequestParameterException(
+          "Cursor pagination can only sort by a non reference property, found: " + sortBy);
+    }
+  }
+
+  private static int getPageSize(Map<String, String[]> params) {
+    try {
+      String startRow = getParam(params, START_ROW);
+      String endRow = getParam(params, END_ROW);
+      int start = StringUtils.isBlank(startRow) ? 0 : Integer.parseInt(startRow.trim());
+      int end = StringUtils.isBlank(endRow) ? DEFAULT_PAGE_SIZE : Integer.parseInt(endRow.trim());
+      if (end - start <= 0) {
+        throw new InvalidRequestParameterException("_endRow must be greater than _startRow.");
+      }
+      return end - start;
+    } catch (NumberFormatException e) {
+      throw new InvalidRequestParameterException("_startRow and _endRow must be numbers.");
+    }
+  }
+
+  private static String getParam(Map<String, String[]> params, String name) {
+    String[] values = params.get(name);
+    return values == null || values.length == 0 ? null : values[0];
+  }
+
+  static String encode(JSONObject token) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(
+        token.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  static JSONObject decode(String cursor) {
+    try {
+      return new JSONObject(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException | JSONException e) {
+      throw new InvalidRequestParameterException("The cursor is not valid.");
+    }
+  }
+}
@@ -7,15 +7,12 @@ import java.sql.BatchUpdateException;
 import java.text.MessageFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.script.ScriptException;
 import javax.servlet.ServletException;
@@ -23,6 +20,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.etendoerp.etendorx.config.InitialConfigUtil;
+import com.etendoerp.etendorx.config.SessionBootstrapCache;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.logging.log4j.LogManager;
@@ -30,35 +28,28 @@ import org.apache.logging.log4j.Logger;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
-import org.hibernate.criterion.Restrictions;
 import org.openbravo.base.exception.OBException;
 import org.openbravo.base.secureApp.DefaultValidationException;
-import org.openbravo.base.secureApp.LoginUtils;
-import org.openbravo.base.secureApp.LoginUtils.RoleDefaults;
 import org.openbravo.base.secureApp.VariablesSecureApp;
 import org.openbravo.base.weld.WeldUtils;
 import org.openbravo.client.application.OBBindingsConstants;
 import org.openbravo.client.kernel.RequestContext;
 import org.openbravo.dal.core.OBContext;
-import org.openbravo.dal.service.OBCriteria;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.erpCommon.utility.OBMessageUtils;
-import org.openbravo.model.ad.datamodel.Column;
-import org.openbravo.model.ad.ui.Field;
 import org.openbravo.model.ad.ui.Tab;
-import org.openbravo.service.db.DalConnectionProvider;
 import org.openbravo.service.web.WebService;
 
-import com.etendoerp.etendorx.data.OpenAPIRequestField;
-import com.etendoerp.etendorx.data.OpenAPITab;
 import com.etendoerp.etendorx.openapi.OpenAPIConstants;
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+import com.etendoerp.etendorx.services.metadata.EndpointMetadataCache;
+import com.etendoerp.etendorx.services.metadata.HeadlessRecord;
+import com.etendoerp.etendorx.services.wrapper.DetachedRequestWrapper;
 import com.etendoerp.etendorx.services.wrapper.EtendoRequestWrapper;
 import com.etendoerp.etendorx.services.wrapper.EtendoResponseWrapper;
-import com.etendoerp.etendorx.services.wrapper.RequestField;
 import com.etendoerp.etendorx.utils.DataSourceUtils;
+import com.etendoerp.etendorx.utils.HeadlessProperties;
 import com.etendoerp.etendorx.utils.SelectorHandlerUtil;
-import com.etendoerp.openapi.data.OpenAPIRequest;
-import com.smf.securewebservices.rsql.OBRestUtils;
 import com.smf.securewebservices.utils.SecureWebServicesUtils;
 
 
@@ -91,6 +82,8 @@ public class DataSourceServlet implements WebService {
   public static final String RESPONSE = "response";
   public static final String ERROR = "error";
   public static final String STATUS = "status";
+  /** Response property with the outcome of each record of a partially saved parallel bulk POST. */
+  public static final String PARALLEL_RECORDS = "records";
   /**
    * Charset name used for request/response character encoding.
    */
@@ -118,19 +111,21 @@ public class DataSourceServlet implements WebService {
    */
   @Override
   public void doGet(String path, HttpServletRequest request, HttpServletResponse response) throws Exception {
+    String jobId = HeadlessJobManager.getJobId(path);
+    if (jobId != null) {
+      handleJobStatus(jobId, response);
+      return;
+    }
     try {
       OBContext.setAdminMode();
       fillSessionVariableInRequest(request);
-      DalConnectionProvider conn = new DalConnectionProvider();
-      RoleDefaults defaults = LoginUtils.getLoginDefaults(OBContext.getOBContext().getUser().getId(),
-          OBContext.getOBContext().getRole().getId(), conn);
-
-      LoginUtils.fillSessionArguments(conn, new VariablesSecureApp(request), OBContext.getOBContext().getUser().getId(),
-          OBContext.getOBContext().getLanguage().getLanguage(), OBContext.getOBContext().isRTL() ? "Y" : "N",
-          defaults.role, defaults.client, OBContext.getOBContext().getCurrentOrganization().getId(),
-          defaults.warehouse);
+      SessionBootstrapCache.fillSessionArguments(request);
       String[] extractedParts = DataSourceUtils.extractDataSourceAndID(path);
-      String dataSourceName = convertURI(extractedParts);
+      EndpointDescriptor descriptor = EndpointMetadataCache.getDescriptor(extractedParts[0]);
+      if (descriptor == null) {
+        throw new OpenAPINotFoundThrowable("OpenAPI request does not have any related tabs: " + extractedParts[0]);
+      }
+      String dataSourceName = convertURI(extractedParts, descriptor);
 
       String rsql = request.getParameter("q");
       Map<String, String[]> params = new HashMap<>();
@@ -155,18 +150,36 @@ public class DataSourceServlet implements WebService {
       if (!params.containsKey(_END_ROW)) {
         params.put(_END_ROW, new String[]{ "100" });
       }
-      String dtsn = extractedParts[0];
-      Tab tabByDataSourceName = DataSourceUtils.getTabByDataSourceName(dtsn);
-      params.put("tabId", new String[]{ tabByDataSourceName.getId() });
-      params.put("windowId", new String[]{ tabByDataSourceName.getWindow().getId() });
+      params.put("tabId", new String[]{ descriptor.getTabId() });
+      params.put("windowId", new String[]{ descriptor.getWindowId() });
+      params.remove(CursorPagination.CURSOR);
+      CursorPagination cursor = CursorPagination.fromRequest(request.getParameter(CursorPagination.CURSOR), params,
+          descriptor);
+      if (cursor != null) {
+        cursor.applyTo(params);
+      }
+      params.remove(FieldProjection.FIELDS);
+      FieldProjection projection = FieldProjection.fromRequest(request.getParameter(FieldProjection.FIELDS),
+          descriptor);
+      if (projection != null) {
+        projection.applyTo(params, cursor);
+      }
       String csrf = "123";
       request.getSession(false).setAttribute("#CSRF_TOKEN", csrf);
       params.put("csrfToken", new String[]{ csrf });
 
       var newRequest = new EtendoRequestWrapper(request, dataSourceName, "", params);
-      var newResponse = new EtendoResponseWrapper(response);
+      // The cursor mode needs the whole page to add the token of the next one
+      var newResponse = new EtendoResponseWrapper(response,
+          cursor == null && HeadlessProperties.getBoolean(HeadlessProperties.GET_STREAMING, true));
       getDataSourceServlet().doPost(newRequest, newResponse);
+      if (newResponse.isStreamed()) {
+        // The fetch succeeded and its data has already been written to the client
+        newResponse.getWriter().flush();
+        return;
+      }
       JSONObject capturedResponse = newResponse.getCapturedContent();
+      newResponse.release();
       if (!capturedResponse.has(DataSourceConstants.RESPONSE) || !capturedResponse.getJSONObject(
           DataSourceConstants.RESPONSE).has(DataSourceConstants.DATA)) {
         // Standard error
@@ -179,11 +192,16 @@ public class DataSourceServlet implements WebService {
         }
         throw new OBException(message);
       }
+      if (cursor != null) {
+        cursor.addNextCursor(capturedResponse);
+      }
       response.setContentType(ContentType.APPLICATION_JSON.getMimeType());
       response.setCharacterEncoding(CHARSET_UTF8);
       response.getWriter().write(capturedResponse.toString());
     } catch (OpenAPINotFoundThrowable e) {
       handleNotFoundException(response);
+    } catch (InvalidRequestParameterException e) {
+      sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Bad Request", e.getMessage());
     } catch (OBException | IOException e) {
       log.error(DataSourceConstants.ERROR_IN_DATA_SOURCE_SERVLET, e);
       throw new OBException(e);
@@ -240,16 +258,15 @@ public class DataSourceServlet implements WebService {
   }
 
   /**
-   * Converts the criterion to a list of parameters.
+   * Converts the criterion to a list of parameters. The parsed criteria are cached, see
+   * {@link RsqlCriteriaCache}.
    *
    * @param params
    * @param rsql
    */
   private void convertCriterion(Map<String, String[]> params, String rsql) {
     try {
-      var criteria = OBRestUtils.criteriaFromRSQL(rsql);
-      criteria.put("_constructor", "AdvancedCriteria");
-      params.put("criteria", new String[]{ criteria.toString() });
+      params.put("criteria", new String[]{ RsqlCriteriaCache.getCriteria(rsql) });
     } catch (JSONException e) {
       throw new OBException("Cannot convert RSQL to criteria " + rsql, e);
     }
@@ -269,15 +286,10 @@ public class DataSourceServlet implements WebService {
   }
 
   String getBodyFromRequest(HttpServletRequest request) throws IOException {
-    StringBuilder sb = new StringBuilder();
+    // decoded at once, as a multi-byte character may be split between two reads
     try (InputStream inputStream = request.getInputStream()) {
-      byte[] buffer = new byte[1024];
-      int bytesRead;
-      while ((bytesRead = inputStream.read(buffer)) != -1) {
-        sb.append(new String(buffer, 0, bytesRead, StandardCharsets.UTF_8));
-      }
+      return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
     }
-    return sb.toString();
   }
 
 
@@ -349,6 +361,249 @@ public class DataSourceServlet implements WebService {
    * @param response
    */
   private void upsertEntity(String method, String path, HttpServletRequest request, HttpServletResponse response) {
+    if (HeadlessJobManager.isAsyncRequest(request)) {
+      submitUpsertJob(method, path, request, response);
+    } else {
+      dispatchUpsert(method, path, request, response);
+    }
+  }
+
+  /**
+   * Validates the request and queues it as a background job, answering with a 202 status and the
+   * job id. The job status can be polled at {@code /_jobs/{id}}.
+   *
+   * @param method
+   *     the HTTP method being handled
+   * @param path
+   *     the request path
+   * @param request
+   *     the original HttpServletRequest
+   * @param response
+   *     the original HttpServletResponse
+   */
+  private void submitUpsertJob(String method, String path, HttpServletRequest request,
+      HttpServletResponse response) {
+    try {
+      EndpointDescriptor descriptor = getEndpointDescriptor(path, request);
+      if (descriptor == null) {
+        handleNotFoundException(response);
+        return;
+      }
+      String body = getBodyFromRequest(request);
+      int records = validateJobBody(body);
+      var jobRequest = new DetachedRequestWrapper(request, body);
+      String description = method + " " + descriptor.getName() + ": " + records
+          + (records == 1 ? " record" : " records");
+      HeadlessJobManager.Job job = HeadlessJobManager.getInstance().submit(jobRequest, description,
+          (jobReq, jobResp) -> dispatchUpsert(method, path, jobReq, jobResp));
+      if (job == null) {
+        sendJsonError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service Unavailable",
+            "Too many background jobs are waiting, try again later.");
+        return;
+      }
+      String statusUrl = request.getContextPath() + request.getServletPath() + HeadlessJobManager.JOBS_PATH
+          + job.getId();
+      JSONObject accepted = job.toJSON();
+      accepted.put("jobId", job.getId());
+      accepted.put("statusUrl", statusUrl);
+      response.setHeader("Location", statusUrl);
+      writeResponse(response, HttpServletResponse.SC_ACCEPTED, accepted.toString());
+    } catch (JSONException e) {
+      sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Bad Request",
+          "The request body is not valid JSON: " + e.getMessage());
+    } catch (Exception e) {
+      log.error(DataSourceConstants.ERROR_IN_DATA_SOURCE_SERVLET, e);
+      handleInternalServerError(response, e);
+    }
+  }
+
+  /**
+   * Checks that the body of a background job is a JSON object or array.
+   *
+   * @return the number of records of the body
+   */
+  private static int validateJobBody(String body) throws JSONException {
+    String trimmed = StringUtils.trimToEmpty(body);
+    if (trimmed.startsWith("[")) {
+      return new JSONArray(trimmed).length();
+    }
+    new JSONObject(trimmed);
+    return 1;
+  }
+
+  /**
+   * Writes the status of a background job of the current user.
+   *
+   * @param jobId
+   *     the job id
+   * @param response
+   *     the HttpServletResponse
+   */
+  private void handleJobStatus(String jobId, HttpServletResponse response) throws IOException, JSONException {
+    OBContext context = OBContext.getOBContext();
+    HeadlessJobManager.Job job = HeadlessJobManager.getInstance().getJob(jobId, context.getCurrentClient().getId(),
+        context.getUser().getId());
+    if (job == null) {
+      handleNotFoundException(response);
+      return;
+    }
+    writeResponse(response, HttpServletResponse.SC_OK, job.toJSON().toString());
+  }
+
+  /**
+   * Upserts the entity, replaying the stored response when the request has an idempotency key.
+   *
+   * @param method
+   *     the HTTP method being handled
+   * @param path
+   *     the request path
+   * @param request
+   *     the HttpServletRequest
+   * @param response
+   *     the HttpServletResponse
+   */
+  private void dispatchUpsert(String method, String path, HttpServletRequest request, HttpServletResponse response) {
+    String idempotencyKey = request.getHeader(IdempotencyStore.HEADER);
+    if (StringUtils.isBlank(idempotencyKey)) {
+      handleUpsert(method, path, request, response);
+    } else {
+      upsertIdempotent(method, path, idempotencyKey.trim(), request, response);
+    }
+  }
+
+  /**
+   * Upserts the entity of a request sent with an {@code Idempotency-Key} header. Requests sharing
+   * a key are serialized; the first one is processed and its response stored, and the next ones
+   * get the stored response without processing the payload again. A key reused with a different
+   * request is rejected with a 422 status. Responses reporting a database error are not stored, so
+   * the retry is processed again.
+   *
+   * @param method
+   *     the HTTP method being handled
+   * @param path
+   *     the request path
+   * @param idempotencyKey
+   *     the value of the {@code Idempotency-Key} header
+   * @param request
+   *     the original HttpServletRequest
+   * @param response
+   *     the original HttpServletResponse
+   */
+  private void upsertIdempotent(String method, String path, String idempotencyKey, HttpServletRequest request,
+      HttpServletResponse response) {
+    if (idempotencyKey.length() > IdempotencyStore.MAX_KEY_LENGTH) {
+      sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Bad Request",
+          "The " + IdempotencyStore.HEADER + " header cannot be longer than " + IdempotencyStore.MAX_KEY_LENGTH
+              + " characters.");
+      return;
+    }
+    OBContext context = OBContext.getOBContext();
+    String clientId = context.getCurrentClient().getId();
+    String orgId = context.getCurrentOrganization().getId();
+    String userId = context.getUser().getId();
+    String lockKey = IdempotencyStore.lockKey(clientId, userId, idempotencyKey);
+    try (LockManager.LockLease lease = LockManager.tryLockKey(lockKey)) {
+      String body = getBodyFromRequest(request);
+      String requestHash = IdempotencyStore.hash(method, path, body);
+      IdempotencyStore.StoredResponse stored = IdempotencyStore.find(clientId, userId, idempotencyKey);
+      if (stored != null) {
+        if (!StringUtils.equals(stored.getRequestHash(), requestHash)) {
+          sendJsonError(response, IdempotencyStore.SC_UNPROCESSABLE_ENTITY, "Idempotency Key Reused",
+              "The " + IdempotencyStore.HEADER + " was already used for a different request.");
+          return;
+        }
+        log.debug("Replaying stored response of idempotency key {}", idempotencyKey);
+        response.setHeader(IdempotencyStore.REPLAYED_HEADER, "true");
+        writeResponse(response, stored.getHttpStatus(), stored.getBody());
+        return;
+      }
+
+      var requestWrapper = new EtendoRequestWrapper(request, request.getRequestURI(), body,
+          request.getParameterMap());
+      var responseWrapper = new EtendoResponseWrapper(response);
+      boolean databaseError = !handleUpsert(method, path, requestWrapper, responseWrapper);
+      String responseBody = responseWrapper.getCapturedText();
+      responseWrapper.release();
+      int status = response.getStatus();
+      // A database error may be transient, and the failed statement aborted the transaction
+      if (!databaseError && IdempotencyStore.isReplayable(status)) {
+        saveResponse(clientId, orgId, userId, idempotencyKey, method, path, requestHash, status, responseBody);
+      }
+      writeResponse(response, status, responseBody);
+    } catch (LockUnavailableException e) {
+      handleLockUnavailable(response, e);
+    } catch (Exception e) {
+      log.error(DataSourceConstants.ERROR_IN_DATA_SOURCE_SERVLET, e);
+      handleInternalServerError(response, e);
+    }
+  }
+
+  /**
+   * Stores the response of an idempotent request and commits it together with the work of the
+   * request. When a rejected request cannot be stored, it is rolled back and its response is still
+   * returned, unstored, so the retry is processed again; a successful one fails, as its work is lost.
+   */
+  private static void saveResponse(String clientId, String orgId, String userId, String idempotencyKey,
+      String method, String path, String requestHash, int status, String responseBody) {
+    try {
+      IdempotencyStore.save(clientId, orgId, userId, idempotencyKey, method, path, requestHash, status,
+          responseBody);
+      OBDal.getInstance().commitAndClose();
+    } catch (RuntimeException e) {
+      if (status < HttpServletResponse.SC_BAD_REQUEST) {
+        throw e;
+      }
+      log.warn("Could not store the response of idempotency key {}", idempotencyKey, e);
+      OBDal.getInstance().rollbackAndClose();
+    }
+  }
+
+  /**
+   * Answers a request whose record lock could not be acquired: 503 (Service Unavailable) with a
+   * Retry-After header when too many requests are waiting for the record, and 409 (Conflict) when
+   * the wait timed out.
+   *
+   * @param response
+   *     the HttpServletResponse
+   * @param e
+   *     the exception thrown by {@link LockManager#tryLock(String)}
+   */
+  private void handleLockUnavailable(HttpServletResponse response, LockUnavailableException e) {
+    if (e.isOverloaded()) {
+      response.setHeader("Retry-After", "1");
+      sendJsonError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service Unavailable", e.getMessage());
+    } else {
+      sendJsonError(response, HttpServletResponse.SC_CONFLICT, "Conflict", e.getMessage());
+    }
+  }
+
+  /**
+   * Writes a JSON body with the given status to the response.
+   */
+  private static void writeResponse(HttpServletResponse response, int status, String body) throws IOException {
+    response.setStatus(status);
+    response.setContentType(ContentType.APPLICATION_JSON.getMimeType());
+    response.setCharacterEncoding(CHARSET_UTF8);
+    response.getWriter().write(StringUtils.defaultString(body));
+    response.getWriter().flush();
+  }
+
+  /**
+   * Runs the upsert, translating the exceptions into error responses.
+   *
+   * @param method
+   *     the HTTP method being handled
+   * @param path
+   *     the request path
+   * @param request
+   *     the HttpServletRequest
+   * @param response
+   *     the HttpServletResponse
+   * @return false when the response reports a database error, which may be transient and leaves the
+   *     transaction aborted
+   */
+  private boolean handleUpsert(String method, String path, HttpServletRequest request,
+      HttpServletResponse response) {
     try {
       executeUpsert(method, path, request, response);
     } catch (CalloutExecutionException e) {
@@ -359,12 +614,19 @@ public class DataSourceServlet implements WebService {
           e.getMessage() != null ? e.getMessage() : "An unexpected error occurred during form initialization.");
     } catch (PayloadPostException e) {
       handlePayloadPostException(response, e);
+    } catch (LockUnavailableException e) {
+      handleLockUnavailable(response, e);
+    } catch (RejectedExecutionException e) {
+      response.setHeader("Retry-After", "1");
+      sendJsonError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Service Unavailable",
+          "Too many bulk records are waiting to be processed, try again later.");
     } catch (BatchUpdateException e) {
       String message = OBMessageUtils.messageBD("ETRX_BatchUpdateException");
       if (e.getMessage() != null) {
         message += ": " + e.getMessage();
       }
       sendJsonError(response, HttpServletResponse.SC_BAD_REQUEST, "Database Error", message);
+      return false;
     } catch (Exception e) {
       // preserve logging + internal error handling
       e.printStackTrace();
@@ -373,6 +635,7 @@ public class DataSourceServlet implements WebService {
     } catch (OpenAPINotFoundThrowable e) {
       handleOpenApiNotFound(response);
     }
+    return true;
   }
 
   /**
@@ -440,19 +703,19 @@ public class DataSourceServlet implements WebService {
    */
   private void executeUpsert(String method, String path, HttpServletRequest request, HttpServletResponse response)
       throws Exception, OpenAPINotFoundThrowable {
-    List<RequestField> fieldList = new ArrayList<>();
-    Tab tab = getTab(path, request, response, fieldList);
-    if (tab == null) {
+    EndpointDescriptor descriptor = getEndpointDescriptor(path, request);
+    if (descriptor == null) {
       handleNotFoundException(response);
       return;
     }
-    String newUri = convertURI(DataSourceUtils.extractDataSourceAndID(path));
+    Tab tab = OBDal.getInstance().get(Tab.class, descriptor.getTabId());
+    String newUri = convertURI(DataSourceUtils.extractDataSourceAndID(path), descriptor);
     var servlet = getDataSourceServlet();
 
     if (StringUtils.equals(OpenAPIConstants.POST, method)) {
-      processPostRequest(request, response, tab, fieldList, newUri, servlet);
+      processPostRequest(request, response, tab, descriptor, newUri, servlet);
     } else if (StringUtils.equals(OpenAPIConstants.PUT, method)) {
-      processPutRequest(request, response, fieldList, newUri, path, servlet);
+      processPutRequest(request, response, tab, descriptor, newUri, path, servlet);
     } else {
       throw new UnsupportedOperationException("Method not supported: " + method);
     }
@@ -482,13 +745,13 @@ public class DataSourceServlet implements WebService {
    * @param request
    * @param response
    * @param tab
-   * @param fieldList
+   * @param descriptor
    * @param newUri
    * @param servlet
    * @throws Exception
    */
   private void processPostRequest(HttpServletRequest request, HttpServletResponse response,
-      Tab tab, List<RequestField> fieldList, String newUri,
+      Tab tab, EndpointDescriptor descriptor, String newUri,
       org.openbravo.service.datasource.DataSourceServlet servlet)
       throws Exception {
     String jsonBody = getBodyFromRequest(request);
@@ -498,23 +761,108 @@ public class DataSourceServlet implements WebService {
     JSONArray jsonData = new JSONArray();
     jsonResponse.getJSONObject(DataSourceConstants.RESPONSE).put(DataSourceConstants.DATA, jsonData);
     int status = 0;
-    for (int i = 0; i < payloads.length(); i++) {
-      JSONObject payload = payloads.getJSONObject(i);
-      try {
-        int currentStatus = processPayload(request, response, tab, fieldList, newUri, servlet,
-            payload, jsonData, status);
-        if (status != -1) {
-          status = currentStatus;
+    boolean batchMode = payloads.length() > 1 && HeadlessProperties.getBoolean(HeadlessProperties.POST_BATCH, true);
+    if (ParallelPostProcessor.isEnabled(payloads.length())) {
+      status = processPayloadsInParallel(request, response, descriptor, newUri, servlet, payloads, jsonResponse,
+          jsonData, batchMode);
+      sendResponse(response, jsonResponse, status);
+      return;
+    }
+    PostBatchContext batch = batchMode ? new PostBatchContext() : null;
+    try (LockManager.LockLease lease = lockPayloadsInOrder(descriptor, payloads)) {
+      for (int i = 0; i < payloads.length(); i++) {
+        JSONObject payload = payloads.getJSONObject(i);
+        try {
+          int currentStatus = processPayload(request, response, tab, descriptor, newUri, servlet,
+              payload, jsonData, status, batch);
+          if (status != -1) {
+            status = currentStatus;
+          }
+        } catch (JSONException | OpenAPINotFoundThrowable e) {
+          status = -1;
+          jsonData.put(new JSONObject(e.getMessage()));
         }
-      } catch (JSONException | OpenAPINotFoundThrowable e) {
-        status = -1;
-        jsonData.put(new JSONObject(e.getMessage()));
       }
     }
+    if (batch != null) {
+      log.debug("Bulk POST of {} records on {}: {}", payloads.length(), descriptor.getName(), batch);
+    }
 
     sendResponse(response, jsonResponse, status);
   }
 
+  /**
+   * Processes the payloads of a bulk POST request concurrently, partitioned by parent record, and
+   * merges the results in request order with the same status aggregation as the sequential mode.
+   * Each record is processed in a worker thread, so the tab is loaded again in the worker session.
+   * <p>
+   * When a partition fails after others were committed, the response only holds the data of the
+   * committed records, its status is -1, and {@code response.records} reports the
+   * {@link ParallelPostProcessor.Outcome} of every record of the request.
+   *
+   * @param request
+   * @param response
+   * @param descriptor
+   * @param newUri
+   * @param servlet
+   * @param payloads
+   * @param jsonResponse
+   * @param jsonData
+   * @param batchMode
+   * @return the aggregated status
+   * @throws Exception
+   *     the first failure, in request order, when no partition was committed
+   */
+  private int processPayloadsInParallel(HttpServletRequest request, HttpServletResponse response,
+      EndpointDescriptor descriptor, String newUri, org.openbravo.service.datasource.DataSourceServlet servlet,
+      JSONArray payloads, JSONObject jsonResponse, JSONArray jsonData, boolean batchMode) throws Exception {
+    List<ParallelPostProcessor.RecordResult> results = new ParallelPostProcessor().process(request, response,
+        payloads, descriptor, batchMode,
+        (payload, recordData, batch, workerRequest, workerResponse) -> {
+          try {
+            Tab workerTab = OBDal.getInstance().get(Tab.class, descriptor.getTabId());
+            return processPayload(workerRequest, workerResponse, workerTab, descriptor, newUri, servlet, payload,
+                recordData, ParallelPostProcessor.NO_STATUS, batch);
+          } catch (JSONException | OpenAPINotFoundThrowable e) {
+            recordData.put(new JSONObject(e.getMessage()));
+            return -1;
+          }
+        });
+    boolean committed = false;
+    ParallelPostProcessor.RecordResult firstFailure = null;
+    for (ParallelPostProcessor.RecordResult result : results) {
+      committed |= result.getOutcome() == ParallelPostProcessor.Outcome.COMMITTED;
+      if (firstFailure == null && result.getFailure() != null) {
+        firstFailure = result;
+      }
+    }
+    if (firstFailure != null && !committed) {
+      // Nothing was saved, as when the sequential mode fails
+      throw firstFailure.getFailure();
+    }
+    int status = 0;
+    JSONArray records = new JSONArray();
+    for (int index = 0; index < results.size(); index++) {
+      ParallelPostProcessor.RecordResult result = results.get(index);
+      records.put(result.toJSON(index));
+      if (result.getOutcome() != ParallelPostProcessor.Outcome.COMMITTED) {
+        continue;
+      }
+      for (int i = 0; i < result.getData().length(); i++) {
+        jsonData.put(result.getData().get(i));
+      }
+      if (status != -1 && result.getStatus() != ParallelPostProcessor.NO_STATUS) {
+        status = result.getStatus();
+      }
+    }
+    if (firstFailure != null) {
+      // Partially saved: only the committed records are returned, and each record reports its outcome
+      jsonResponse.getJSONObject(DataSourceConstants.RESPONSE).put(PARALLEL_RECORDS, records);
+      status = -1;
+    }
+    return status;
+  }
+
   /**
    * Prepares the payloads for the POST request.
    *
@@ -538,19 +886,22 @@ public class DataSourceServlet implements WebService {
    * @param request
    * @param response
    * @param tab
-   * @param fieldList
+   * @param descriptor
    * @param newUri
    * @param servlet
    * @param payload
    * @param jsonData
    * @param status
+   * @param batch
+   *     the state shared by the records of a bulk request, null when it is not processed in batch
+   *     mode
    * @throws Exception
    * @throws OpenAPINotFoundThrowable
    */
   private int processPayload(HttpServletRequest request, HttpServletResponse response,
-      Tab tab, List<RequestField> fieldList, String newUri,
+      Tab tab, EndpointDescriptor descriptor, String newUri,
       org.openbravo.service.datasource.DataSourceServlet servlet,
-      JSONObject payload, JSONArray jsonData, int status)
+      JSONObject payload, JSONArray jsonData, int status, PostBatchContext batch)
       throws Exception, OpenAPINotFoundThrowable {
     // Clear session variables to prevent cross-record contamination
     clearSessionVariables(null);
@@ -560,15 +911,15 @@ public class DataSourceServlet implements WebService {
 
     JSONObject payLoad = createPayLoad(request, payload);
     JSONObject dataFromOriginalRequest = payLoad.getJSONObject(DataSourceConstants.DATA);
-    String idToLock = DataSourceUtils.getParentId(tab, dataFromOriginalRequest);
+    String idToLock = descriptor.getParentId(dataFromOriginalRequest);
 
     if (idToLock != null) {
-      try (LockManager.LockLease lease = LockManager.lock(idToLock)) {
+      try (LockManager.LockLease lease = lockParentForPost(descriptor, dataFromOriginalRequest, idToLock)) {
         log.debug(
             MessageFormat.format("Acquired lock for session ID: {0}. at {1}", idToLock, System.currentTimeMillis()));
         try {
           newRequest = getEtendoPostWrapper(request, tab,
-              payLoad, fieldList, newUri);
+              payLoad, descriptor, newUri, batch);
           wrappedResponse = new EtendoResponseWrapper(response);
           log.debug(MessageFormat.format("Processing payload with lock for session ID: {0}", idToLock));
           servlet.doPost(newRequest, wrappedResponse);
@@ -583,7 +934,7 @@ public class DataSourceServlet implements WebService {
       try {
         log.debug("Processing payload without lock (lockId is null)");
         newRequest = getEtendoPostWrapper(request, tab,
-            payLoad, fieldList, newUri);
+            payLoad, descriptor, newUri, batch);
         wrappedResponse = new EtendoResponseWrapper(response);
         servlet.doPost(newRequest, wrappedResponse);
       } catch (Exception e) {
@@ -592,8 +943,13 @@ public class DataSourceServlet implements WebService {
       }
     }
 
-    String content = ((EtendoResponseWrapper) wrappedResponse).getCapturedContent().toString();
-    JSONObject jsonContent = new JSONObject(content);
+    EtendoResponseWrapper capturedResponse = (EtendoResponseWrapper) wrappedResponse;
+    JSONObject jsonContent;
+    try {
+      jsonContent = capturedResponse.getCapturedContent();
+    } finally {
+      capturedResponse.release();
+    }
     status = saveResponse(jsonData, status, jsonContent);
 
     return status;
@@ -681,7 +1037,8 @@ public class DataSourceServlet implements WebService {
    *
    * @param request
    * @param response
-   * @param fieldList
+   * @param tab
+   * @param descriptor
    * @param newUri
    * @param path
    * @param servlet
@@ -689,7 +1046,7 @@ public class DataSourceServlet implements WebService {
    * @throws OpenAPINotFoundThrowable
    */
   private void processPutRequest(HttpServletRequest request, HttpServletResponse response,
-      List<RequestField> fieldList, String newUri, String path,
+      Tab tab, EndpointDescriptor descriptor, String newUri, String path,
       org.openbravo.service.datasource.DataSourceServlet servlet)
       throws Exception, OpenAPINotFoundThrowable {
     JSONObject jsonBody = new JSONObject(getBodyFromRequest(request));
@@ -699,13 +1056,15 @@ public class DataSourceServlet implements WebService {
     String idToLock = getIdToLockForPut(path, payLoad);
 
     if (idToLock != null) {
-      try (LockManager.LockLease lease = LockManager.lock(idToLock)) {
+      String parentId = descriptor.getParentId(payLoad.getJSONObject(DataSourceConstants.DATA));
+      try (LockManager.LockLease lease = parentId != null
+          ? LockManager.tryLockChild(parentId, idToLock) : LockManager.tryLock(idToLock)) {
         try {
           log.debug(
               MessageFormat.format("Acquired lock for session ID: {0}. at {1}", idToLock, System.currentTimeMillis()));
           log.debug(MessageFormat.format("Processing PUT request with lock for session ID: {0}", idToLock));
           newRequest = getEtendoPutWrapper(request, response,
-              payLoad, fieldList, newUri, path);
+              payLoad, tab, descriptor, newUri, path);
           servlet.doPut(newRequest, response);
           log.debug(
               MessageFormat.format("Released lock for session ID: {0}. at {1}", idToLock, System.currentTimeMillis()));
@@ -718,7 +1077,7 @@ public class DataSourceServlet implements WebService {
       try {
         log.debug("Processing PUT request without lock (lockId is null)");
         newRequest = getEtendoPutWrapper(request, response,
-            payLoad, fieldList, newUri, path);
+            payLoad, tab, descriptor, newUri, path);
         servlet.doPut(newRequest, response);
       } catch (Exception e) {
         log.error("Error processing PUT request", e);
@@ -727,6 +1086,71 @@ public class DataSourceServlet implements WebService {
     }
   }
 
+  /**
+   * Takes the lock of the parent of a new record. When the record does not compute values from its
+   * siblings a shared lease of the parent is enough, plus the exclusive lease of the record id if
+   * the payload sets it, so the lines of a document are inserted in parallel while the document
+   * itself can't be modified. Otherwise the exclusive lease of the parent is taken, as the record
+   * may depend on the lines inserted before it.
+   *
+   * @param descriptor
+   *     the descriptor of the endpoint
+   * @param data
+   *     the record data in normalized format
+   * @param parentId
+   *     the parent id found in the data
+   * @return the lease holding the locks
+   * @throws LockUnavailableException
+   *     if the locks cannot be acquired
+   */
+  private static LockManager.LockLease lockParentForPost(EndpointDescriptor descriptor, JSONObject data,
+      String parentId) {
+    if (descriptor.canShareParentLock(data)) {
+      return LockManager.tryLockChild(parentId, data.optString("id", null));
+    }
+    return LockManager.tryLock(parentId);
+  }
+
+  /**
+   * Locks, in id order, the records of a bulk POST before processing them, when the locks are held
+   * until the transaction ends. Otherwise each record would keep the locks of the previous ones
+   * while waiting for its own, and two requests writing under the same parents in opposite order
+   * would wait for each other until they time out. The lease of each record is then taken again
+   * on the locks the request already holds.
+   *
+   * @param descriptor
+   *     the descriptor of the endpoint
+   * @param payloads
+   *     the records of the request in normalized format
+   * @return the lease holding the locks, or null when the records do not need to be locked first
+   * @throws LockUnavailableException
+   *     if the locks cannot be acquired
+   */
+  private static LockManager.LockLease lockPayloadsInOrder(EndpointDescriptor descriptor, JSONArray payloads)
+      throws JSONException {
+    if (payloads.length() < 2 || !LockManager.isHeldUntilTransactionEnd()) {
+      return null;
+    }
+    Map<String, Boolean> exclusiveById = new HashMap<>();
+    for (int i = 0; i < payloads.length(); i++) {
+      JSONObject data = payloads.getJSONObject(i);
+      String parentId = descriptor.getParentId(data);
+      if (parentId == null) {
+        continue;
+      }
+      String childId = data.optString("id", null);
+      if (descriptor.canShareParentLock(data)) {
+        exclusiveById.merge(parentId, false, Boolean::logicalOr);
+        if (StringUtils.isNotBlank(childId) && !childId.equals(parentId)) {
+          exclusiveById.put(childId, true);
+        }
+      } else {
+        exclusiveById.put(parentId, true);
+      }
+    }
+    return exclusiveById.isEmpty() ? null : LockManager.tryLockInOrder(exclusiveById);
+  }
+
   /**
    * Determines the identifier to use for locking operations for PUT requests.
    * <p>
@@ -840,83 +1264,26 @@ public class DataSourceServlet implements WebService {
   }
 
   /**
-   * Gets the tab for the given path.
+   * Gets the precompiled descriptor of the endpoint addressed by the given path, loading the
+   * session arguments required by the form initialization.
    *
    * @param path
    * @param request
-   * @param response
-   * @param fieldList
+   * @return the endpoint descriptor, or null when the endpoint does not expose any tab
    * @throws ServletException
    * @throws DefaultValidationException
-   * @throws IOException
    */
-  private static Tab getTab(String path, HttpServletRequest request, HttpServletResponse response,
-      List<RequestField> fieldList) throws ServletException, DefaultValidationException, IOException {
-    Tab tab;
+  private static EndpointDescriptor getEndpointDescriptor(String path, HttpServletRequest request)
+      throws ServletException, DefaultValidationException {
     try {
       var dataSource = DataSourceUtils.extractDataSourceAndID(path);
       OBContext.setAdminMode();
-      DalConnectionProvider conn = new DalConnectionProvider();
-      RoleDefaults defaults = LoginUtils.getLoginDefaults(OBContext.getOBContext().getUser().getId(),
-          OBContext.getOBContext().getRole().getId(), conn);
-
-      LoginUtils.fillSessionArguments(conn, new VariablesSecureApp(request), OBContext.getOBContext().getUser().getId(),
-          OBContext.getOBContext().getLanguage().getLanguage(), OBContext.getOBContext().isRTL() ? "Y" : "N",
-          defaults.role, defaults.client, OBContext.getOBContext().getCurrentOrganization().getId(),
-          defaults.warehouse);
-
-      OBCriteria<OpenAPIRequest> crit = OBDal.getInstance().createCriteria(OpenAPIRequest.class);
-      String reqName = dataSource[0].trim();
-      crit.add(Restrictions.eq(OpenAPIRequest.PROPERTY_NAME, reqName));
-      OpenAPIRequest req = (OpenAPIRequest) crit.setMaxResults(1).uniqueResult();
-      if (req == null) {
-        throw new OBException(String.format(OBMessageUtils.messageBD("ETRX_HeadlessEndpNF"), reqName));
-      }
-      OBDal.getInstance().refresh(req);
-      if (req == null || req.getETRXOpenAPITabList().isEmpty()) {
-        handleNotFoundException(response);
-        return null;
-      }
-      tab = req.getETRXOpenAPITabList().get(0).getRelatedTabs();
-      for (Field field : tab.getADFieldList()) {
-        Column column = field.getColumn();
-        if (column == null) {
-          continue;
-        }
-        String name = DataSourceUtils.getHQLColumnName(field)[0];
-        fieldList.add(
-            new RequestField(name, column, getSeqNo(req.getETRXOpenAPITabList().get(0), column)));
-      }
-      fieldList.sort(Comparator.comparing(RequestField::getSeqNo));
+      SessionBootstrapCache.fillSessionArguments(request);
+
+      return EndpointMetadataCache.getDescriptor(dataSource[0]);
     } finally {
       OBContext.restorePreviousMode();
     }
-    return tab;
-  }
-
-  /**
-   * Retrieves the sequence number (seqno) associated with a specific field column
-   * in the given OpenAPITab. If the field column is not found or the sequence number
-   * is null, it returns {@link Long#MAX_VALUE}.
-   *
-   * @param openAPITab
-   *     The OpenAPITab object containing the list of OpenAPIRequestField objects.
-   * @param fieldColumn
-   *     The Column object representing the field column to search for.
-   * @return The sequence number (seqno) of the matching field, or {@link Long#MAX_VALUE}
-   *     if the field is not found or its sequence number is null.
-   */
-  private static Long getSeqNo(OpenAPITab openAPITab, Column fieldColumn) {
-    Optional<OpenAPIRequestField> optField = openAPITab.getEtrxOpenapiFieldList().stream().filter(
-        fi -> fi.getField().getColumn().equals(fieldColumn)).findFirst();
-    if (optField.isEmpty()) {
-      return Long.MAX_VALUE;
-    }
-    OpenAPIRequestField field = optField.get();
-    if (field.getSeqno() == null) {
-      return Long.MAX_VALUE;
-    }
-    return field.getSeqno();
   }
 
   /**
@@ -925,79 +1292,86 @@ public class DataSourceServlet implements WebService {
    * @param request
    * @param tab
    * @param newJsonBody
-   * @param fieldList
+   * @param descriptor
    * @param newUri
+   * @param batch
+   *     the state shared by the records of a bulk request, null when it is not processed in batch
+   *     mode
    * @throws JSONException
    * @throws IOException
    * @throws OpenAPINotFoundThrowable
    */
   private EtendoRequestWrapper getEtendoPostWrapper(HttpServletRequest request, Tab tab, JSONObject newJsonBody,
-      List<RequestField> fieldList,
-      String newUri) throws JSONException, IOException, OpenAPINotFoundThrowable, ScriptException, ParseException {
+      EndpointDescriptor descriptor, String newUri,
+      PostBatchContext batch) throws JSONException, IOException, OpenAPINotFoundThrowable, ScriptException, ParseException {
     JSONObject dataFromOriginalRequest = newJsonBody.getJSONObject(DataSourceConstants.DATA);
     String recordId = dataFromOriginalRequest.optString("id");
 
-    String parentId = DataSourceUtils.getParentId(tab, dataFromOriginalRequest);
+    String parentId = descriptor.getParentId(dataFromOriginalRequest);
 
 
-    Map<String, Object> parameters = createParameters(request, tab.getId(), parentId, recordId, null, "NEW");
+    Map<String, Object> parameters = createParameters(request, descriptor.getTabId(), parentId, recordId, null,
+        "NEW");
     String content = "{}";
 
 
-    /* the columns uses 3 name format: database column name, hql(or normalized) and input Format. So, to switch between them, we need to generate 3 maps */
-    LinkedHashMap<String, String> norm2input = new LinkedHashMap<>(); // to keep the order
-    Map<String, String> input2norm = new HashMap<>();
-    Map<String, String> dbname2input = new HashMap<>();
-    Map<String, String> columnTypes = new HashMap<>();
-    DataSourceUtils.loadCaches(fieldList, norm2input, input2norm, dbname2input, columnTypes);
-
+    /* the columns uses 3 name format: database column name, hql(or normalized) and input Format. The endpoint
+     descriptor keeps the precompiled maps to switch between them */
+    Map<String, String> norm2input = descriptor.getNorm2input(); // keeps the field order
+    Map<String, String> dbname2input = descriptor.getDbname2input();
 
-    //remove the parent properties and ID, to detect properties that has been "changed" to emulate the change event
-    // for every property that has been changed, we need to call the formInit with the new value
-    JSONObject propsToChange = new JSONObject(dataFromOriginalRequest.toString());
-    List<String> parentProperties = DataSourceUtils.getParentProperties(tab);
-    for (String parentProperty : parentProperties) {
-      propsToChange.remove(parentProperty);
-    }
-
-    //this variable will store accumulated data from the "New" Initialization, but first we need to convert the keys to input format
-    JSONObject dataFromNewRecord = new JSONObject(dataFromOriginalRequest.toString());
-    dataFromNewRecord = DataSourceUtils.keyConvertion(dataFromNewRecord, norm2input);
+    //the record accumulates the data from the "New" Initialization and the change events in input format, starting
+    // from the request data with its keys converted to input format
+    HeadlessRecord headlessRecord = HeadlessRecord.fromNormalized(descriptor, dataFromOriginalRequest);
 
 
     // Clear session variables to avoid conflicts between records
     clearSessionVariables(null);
 
     //Initialization of new record, saving the data in input format
+    //in batch mode, the records of the same parent share the defaults when none of them is computed by a query
     var formInit = WeldUtils.getInstanceFromStaticBeanManager(EtendoFormInitComponent.class);
-    JSONObject formInitResponse;
-    try {
-      formInitResponse = formInit.execute(parameters, content);
-    } catch (Exception e) {
-      log.error("Error during form initialization", e);
-      throw new FormInitializationException(e);
+    boolean reuseDefaults = batch != null && descriptor.canReuseNewDefaults(dataFromOriginalRequest);
+    JSONObject formInitResponse = reuseDefaults ? batch.getNewRecordDefaults(descriptor.getTabId(), parentId) : null;
+    if (formInitResponse == null) {
+      try {
+        formInitResponse = formInit.execute(parameters, content);
+      } catch (Exception e) {
+        log.error("Error during form initialization", e);
+        throw new FormInitializationException(e);
+      }
+      if (reuseDefaults && formInitResponse.has("columnValues")) {
+        batch.putNewRecordDefaults(descriptor.getTabId(), parentId, formInitResponse);
+      }
     }
-    DataSourceUtils.applyColumnValues(formInitResponse, dbname2input, dataFromNewRecord);
+    headlessRecord.applyColumnValues(formInitResponse);
 
-    //to proceed with Change events, we need convert the keys to normalized format to input format
-    JSONObject dataInpFormat = DataSourceUtils.keyConvertion(dataFromNewRecord, norm2input);
+    //the Change events work on the values of the record in input format
+    JSONObject dataInpFormat = headlessRecord.getInputData();
     dataInpFormat.put("keyProperty", "id");//    "keyProperty":"id",
-    dataInpFormat.put(OBBindingsConstants.WINDOW_ID_PARAM, tab.getWindow().getId());
-    dataInpFormat.put("inpTableId", tab.getTable().getId());
+    dataInpFormat.put(OBBindingsConstants.WINDOW_ID_PARAM, descriptor.getWindowId());
+    dataInpFormat.put("inpTableId", descriptor.getTableId());
 
 
-    //the props in the request are in normalized format, so to maintain the order in that list, we can iterate over the keys of the normalized map,
-    // but filtering the props that are not in the request
-    List<String> orderedPropsToChange = norm2input.keySet().stream().filter(propsToChange::has).collect(
-        Collectors.toList());
+    //the props in the request are in normalized format. The descriptor sorts them following the dependencies between
+    // columns, so every value is set after the change events of the columns it depends on, and in field order otherwise.
+    // The parent properties are left out, only the "changed" properties emulate the change event
+    List<String> orderedPropsToChange = descriptor.getPropertiesToSet(dataFromOriginalRequest,
+        descriptor.getParentProperties());
     for (String changedColumnN : orderedPropsToChange) {
       logChangeEvent(changedColumnN);
       String changedColumnInp = norm2input.get(changedColumnN);
-      var type = columnTypes.get(changedColumnN);
       dataInpFormat.put(changedColumnInp,
-          DataSourceUtils.valueConvertToInputFormat(propsToChange.get(changedColumnN), type));
+          descriptor.getConverter(changedColumnN).toInput(dataFromOriginalRequest.get(changedColumnN)));
       SelectorHandlerUtil.handleColumnSelector(request, tab, dataInpFormat, changedColumnN, changedColumnInp,
-          dbname2input);
+          dbname2input, batch);
+      if (!descriptor.requiresChangeEvent(changedColumnN)) {
+        //no callout nor dependent column, the CHANGE event would not modify any other value
+        if (batch != null) {
+          batch.changeEventSkipped();
+        }
+        continue;
+      }
 
       // suppose to change in productID
       Map<String, Object> parameters2 = createParameters(request, tab.getId(), parentId, recordId, changedColumnInp,
@@ -1020,16 +1394,13 @@ public class DataSourceServlet implements WebService {
             formInitChangeResponse.getJSONObject(RESPONSE).getJSONObject(ERROR).getString(
                 "message"));
       }
-      DataSourceUtils.applyColumnValues(formInitChangeResponse, dbname2input, dataInpFormat);
+      headlessRecord.applyColumnValues(formInitChangeResponse);
     }
 
 
-    // to finally save the dataFromOriginalRequest, we need to convert the keys to normalized format
-    JSONObject jsonBodyToSave = DataSourceUtils.keyConvertion(dataInpFormat, input2norm);
-    jsonBodyToSave = DataSourceUtils.valuesConvertion(jsonBodyToSave, columnTypes);
-    newJsonBody.put(DataSourceConstants.DATA, jsonBodyToSave);
-
-    return new EtendoRequestWrapper(request, newUri, newJsonBody.toString(), request.getParameterMap());
+    // to finally save the record, its keys and values are converted to normalized format while serializing the body
+    return new EtendoRequestWrapper(request, newUri, headlessRecord.toRequestBody(newJsonBody, null),
+        request.getParameterMap());
   }
 
   /**
@@ -1071,7 +1442,8 @@ public class DataSourceServlet implements WebService {
    * @param request
    * @param response
    * @param fullDataBody
-   * @param fieldList
+   * @param tab
+   * @param descriptor
    * @param newUri
    * @param path
    * @throws JSONException
@@ -1080,10 +1452,10 @@ public class DataSourceServlet implements WebService {
    * @throws OpenAPINotFoundThrowable
    */
   private EtendoRequestWrapper getEtendoPutWrapper(HttpServletRequest request, HttpServletResponse response,
-      JSONObject fullDataBody, List<RequestField> fieldList, String newUri,
+      JSONObject fullDataBody, Tab tab, EndpointDescriptor descriptor, String newUri,
       String path) throws JSONException, IOException, ServletException, OpenAPINotFoundThrowable, ScriptException, ParseException {
     String[] extractedParts = DataSourceUtils.extractDataSourceAndID(path);
-    String getURI = convertURI(extractedParts);
+    String getURI = convertURI(extractedParts, descriptor);
     JSONObject newData = fullDataBody.optJSONObject("data");
     if (extractedParts.length < 2 || StringUtils.isEmpty(extractedParts[1])) {
       throw new OBException(OBMessageUtils.messageBD("ETRX_RecordIdNotFound"));
@@ -1095,22 +1467,18 @@ public class DataSourceServlet implements WebService {
     var newResponse = new EtendoResponseWrapper(response);
     getDataSourceServlet().doGet(newRequest, newResponse);
     JSONObject capturedResponse = newResponse.getCapturedContent();
+    newResponse.release();
     JSONObject preexistentData = capturedResponse.getJSONObject(DataSourceConstants.RESPONSE).getJSONArray(
         DataSourceConstants.DATA).getJSONObject(0);
 
 
-    //define the maps
-    LinkedHashMap<String, String> norm2input = new LinkedHashMap<>();
-    Map<String, String> input2norm = new HashMap<>();
-    Map<String, String> dbname2input = new HashMap<>();
-    Map<String, String> columnTypes = new HashMap<>();
-
-    DataSourceUtils.loadCaches(fieldList, norm2input, input2norm, dbname2input, columnTypes);
+    //the maps are precompiled in the endpoint descriptor
+    Map<String, String> norm2input = descriptor.getNorm2input();
+    Map<String, String> dbname2input = descriptor.getDbname2input();
 
     //invoinv the formInit to get the data in input format, beign the base of the new data and the change events
     //we need to execute the forminit in mode EDIT
-    Map<String, Object> parameters = createParameters(request,
-        DataSourceUtils.getTabByDataSourceName(extractedParts[0]).getId(), null, recordId, null, "EDIT");
+    Map<String, Object> parameters = createParameters(request, descriptor.getTabId(), null, recordId, null, "EDIT");
 
     // Clear session variables to avoid conflicts between records
     clearSessionVariables(null);
@@ -1120,21 +1488,20 @@ public class DataSourceServlet implements WebService {
         content);
     checkForError(formInitResponse);
 
-    //apply the values from the formInitResponse to the dataInpFormat
+    //apply the values from the formInitResponse to the record, kept in input format
 
-    JSONObject dataInpFormat = new JSONObject();
-
-    DataSourceUtils.applyColumnValues(formInitResponse, dbname2input, dataInpFormat);
+    HeadlessRecord headlessRecord = HeadlessRecord.empty(descriptor);
+    headlessRecord.applyColumnValues(formInitResponse);
+    JSONObject dataInpFormat = headlessRecord.getInputData();
 
     dataInpFormat.put("keyProperty", "id");
-    Tab tab = DataSourceUtils.getTabByDataSourceName(extractedParts[0]);
-    dataInpFormat.put(OBBindingsConstants.WINDOW_ID_PARAM, tab.getWindow().getId());
-    dataInpFormat.put("inpTableId", tab.getTable().getId());
+    dataInpFormat.put(OBBindingsConstants.WINDOW_ID_PARAM, descriptor.getWindowId());
+    dataInpFormat.put("inpTableId", descriptor.getTableId());
 
     //to proceed with Change events, we need to iterate over the keys of newData, setting the values in dataInpFormat and calling the formInit.
     // we need to convert the keys to normalized format to input format.
-    //we will mantain the order in norm2input, so we can iterate over the keys of norm2input, filtering the props that are not in the request
-    List<String> orderedPropsToChange = norm2input.keySet().stream().filter(newData::has).collect(Collectors.toList());
+    //the descriptor sorts the props in the request following the dependencies between columns, and in field order otherwise
+    List<String> orderedPropsToChange = descriptor.getPropertiesToSet(newData);
 
     for (String changedColumnN : orderedPropsToChange) {
       if (StringUtils.equalsIgnoreCase(changedColumnN, "id")) {
@@ -1143,16 +1510,17 @@ public class DataSourceServlet implements WebService {
       }
       logChangeEvent(changedColumnN);
       String changedColumnInp = norm2input.get(changedColumnN);
-      String type = columnTypes.get(changedColumnN);
-      String valueInpFormat = DataSourceUtils.valueConvertToInputFormat(newData.get(changedColumnN), type);
+      String valueInpFormat = descriptor.getConverter(changedColumnN).toInput(newData.get(changedColumnN));
       dataInpFormat.put(changedColumnInp, valueInpFormat);
-      SelectorHandlerUtil.handleColumnSelector(request, DataSourceUtils.getTabByDataSourceName(extractedParts[0]),
-          dataInpFormat,
+      SelectorHandlerUtil.handleColumnSelector(request, tab, dataInpFormat,
           changedColumnN, changedColumnInp, dbname2input);
+      if (!descriptor.requiresChangeEvent(changedColumnN)) {
+        //no callout nor dependent column, the CHANGE event would not modify any other value
+        continue;
+      }
       // suppose to change in productID
-      Map<String, Object> parameters2 = createParameters(request,
-          DataSourceUtils.getTabByDataSourceName(extractedParts[0]).getId(), null, recordId, changedColumnInp,
-          "CHANGE");
+      Map<String, Object> parameters2 = createParameters(request, descriptor.getTabId(), null, recordId,
+          changedColumnInp, "CHANGE");
 
       // Clear session variables before CHANGE events (always clear for all field types)
       clearSessionVariables(dataInpFormat);
@@ -1160,16 +1528,13 @@ public class DataSourceServlet implements WebService {
       String contentForChange = dataInpFormat.toString();
       var formInitChangeResponse = WeldUtils.getInstanceFromStaticBeanManager(EtendoFormInitComponent.class).execute(
           parameters2, contentForChange);
-      DataSourceUtils.applyColumnValues(formInitChangeResponse, dbname2input, dataInpFormat);
+      headlessRecord.applyColumnValues(formInitChangeResponse);
     }
 
-    // to finally save the dataFromOriginalRequest, we need to convert the keys to normalized format
-    JSONObject jsonBodyToApply = DataSourceUtils.keyConvertion(dataInpFormat, input2norm);
-    jsonBodyToApply = DataSourceUtils.valuesConvertion(jsonBodyToApply, columnTypes);
-    //finally, we need to apply the changes to the original data
-    JSONObject jsonBodyToSave = DataSourceUtils.applyChanges(preexistentData, jsonBodyToApply);
-    fullDataBody.put(DataSourceConstants.DATA, jsonBodyToSave);
-    return new EtendoRequestWrapper(request, newUri, fullDataBody.toString(), request.getParameterMap());
+    // to finally save the record, its keys and values are converted to normalized format and applied over the
+    // original data while serializing the body
+    return new EtendoRequestWrapper(request, newUri, headlessRecord.toRequestBody(fullDataBody, preexistentData),
+        request.getParameterMap());
   }
 
   /**
@@ -1205,30 +1570,20 @@ public class DataSourceServlet implements WebService {
    * @param extractedParts
    *     the extracted parts from the request URI, the first part is the data source name and
    *     the second part is the ID
-   * @throws OpenAPINotFoundThrowable
+   * @param descriptor
+   *     the descriptor of the endpoint, holding the table name of its tab
    */
-  String convertURI(String[] extractedParts) throws OpenAPINotFoundThrowable {
-    try {
-      OBContext.setAdminMode();
-      String dataSourceName = extractedParts[0];
-      Tab tab = DataSourceUtils.getTabByDataSourceName(dataSourceName);
-      String requestName = tab.getTable().getName();
-
-      StringBuilder newUri = new StringBuilder();
-      newUri.append("/com.etendoerp.etendorx.datasource/").append(dataSourceName).append(
-          DataSourceConstants.DATASOURCE_SERVLET_PATH).append(requestName);
-
-      if (extractedParts.length > 1) {
-        newUri.append("/").append(extractedParts[1]);
-      }
+  String convertURI(String[] extractedParts, EndpointDescriptor descriptor) {
+    String dataSourceName = extractedParts[0];
+    StringBuilder newUri = new StringBuilder();
+    newUri.append("/com.etendoerp.etendorx.datasource/").append(dataSourceName).append(
+        DataSourceConstants.DATASOURCE_SERVLET_PATH).append(descriptor.getTableName());
 
-      return newUri.toString();
-    } catch (OBException e) {
-      log.error(DataSourceConstants.ERROR_IN_DATA_SOURCE_SERVLET, e);
-      throw new OBException(e);
-    } finally {
-      OBContext.restorePreviousMode();
+    if (extractedParts.length > 1) {
+      newUri.append("/").append(extractedParts[1]);
     }
+
+    return newUri.toString();
   }
 
   /**
@@ -42,6 +42,8 @@ import org.openbravo.model.ad.ui.Window;
 import org.openbravo.userinterface.selector.Selector;
 import org.openbravo.userinterface.selector.SelectorField;
 
+import com.etendoerp.etendorx.services.metadata.WindowMetadataWarmup;
+
 import java.util.Map;
 
 /**
@@ -122,23 +124,9 @@ public class EtendoFormInitComponent extends org.openbravo.client.application.wi
     try {
       ApplicationDictionaryCachedStructures cachedStructures = WeldUtils.getInstanceFromStaticBeanManager(
           ApplicationDictionaryCachedStructures.class);
-      // IMPORTANT: iterate the SAME instances FormInitializationComponent reads
-      // (cachedStructures.getFieldsOfTab). Preparing a fresh OBDal.get(Tab) copy has no effect,
-      // because FIC dereferences these shared application-scoped singletons, not our copy.
-      //
-      // We prepare EVERY tab of the window, not just this request's tab. Window render
-      // (StandardWindowComponent / OBViewTab / ViewComponent.verifyOldCalloutUse) reads metadata
-      // across ALL tabs of the window; preparing only the request tab leaves the others' columns
-      // detached-lazy and the render then throws LazyInitializationException. getTab() triggers
-      // core's full window deep-init, after which we top up anything still lazy. ESD-1841.
-      Tab requestTab = cachedStructures.getTab(tabId);
-      Window window = requestTab.getWindow();
-      for (Tab windowTab : window.getADTabList()) {
-        for (Field field : cachedStructures.getFieldsOfTab(windowTab.getId())) {
-          prepareFieldMetadata(field);
-        }
-      }
+      prepareWindowMetadata(cachedStructures, tabId);
       log.debug("Metadata initialization complete for window of tab {}", tabId);
+      WindowMetadataWarmup.warmUp(windowTabId -> prepareWindowMetadata(cachedStructures, windowTabId));
     } catch (Exception e) {
       // Log but don't fail - the original LazyInitializationException will still surface from
       // FIC and provide better error context.
@@ -146,21 +134,62 @@ public class EtendoFormInitComponent extends org.openbravo.client.application.wi
     }
   }
 
+  /**
+   * Prepares the metadata of every tab of the window of a tab, unless it was already prepared from
+   * the same cached tab instance. Once the whole window is prepared, all its tabs are recorded as
+   * prepared.
+   *
+   * @param cachedStructures the dictionary cache holding the shared instances
+   * @param tabId id of a tab of the window
+   */
+  private void prepareWindowMetadata(ApplicationDictionaryCachedStructures cachedStructures, String tabId) {
+    // IMPORTANT: iterate the SAME instances FormInitializationComponent reads
+    // (cachedStructures.getFieldsOfTab). Preparing a fresh OBDal.get(Tab) copy has no effect,
+    // because FIC dereferences these shared application-scoped singletons, not our copy.
+    //
+    // We prepare EVERY tab of the window, not just this request's tab. Window render
+    // (StandardWindowComponent / OBViewTab / ViewComponent.verifyOldCalloutUse) reads metadata
+    // across ALL tabs of the window; preparing only the request tab leaves the others' columns
+    // detached-lazy and the render then throws LazyInitializationException. getTab() triggers
+    // core's full window deep-init, after which we top up anything still lazy. ESD-1841.
+    Tab requestTab = cachedStructures.getTab(tabId);
+    if (WindowMetadataWarmup.isPrepared(tabId, requestTab)) {
+      return;
+    }
+    long generation = WindowMetadataWarmup.getGeneration();
+    boolean prepared = true;
+    Window window = requestTab.getWindow();
+    for (Tab windowTab : window.getADTabList()) {
+      for (Field field : cachedStructures.getFieldsOfTab(windowTab.getId())) {
+        prepared &= prepareFieldMetadata(field);
+      }
+    }
+    // A window with partially prepared columns is walked again by the next request
+    if (prepared) {
+      for (Tab windowTab : window.getADTabList()) {
+        Tab cachedTab = StringUtils.equals(windowTab.getId(), tabId) ? requestTab
+            : cachedStructures.getTab(windowTab.getId());
+        WindowMetadataWarmup.markPrepared(windowTab.getId(), cachedTab, generation);
+      }
+    }
+  }
+
   /**
     * Prepares one field's column metadata so later access does not hit detached lazy proxies.
    *
     * @param field field whose column metadata must be ready
+    * @return true when no metadata of the column is left lazy
    */
-  private void prepareFieldMetadata(Field field) {
+  private boolean prepareFieldMetadata(Field field) {
     Column column = field.getColumn();
     if (column == null || !metadataNeedsInitialization(column)) {
-      return;
+      return true;
     }
     // Mutating a shared cached singleton: serialize on the column, mirroring the
     // synchronized(obj) pattern ApplicationDictionaryCachedStructures itself uses.
     synchronized (column) {
       if (!metadataNeedsInitialization(column)) {
-        return;
+        return true;
       }
       try {
         reattachToSession(column);
@@ -182,6 +211,7 @@ public class EtendoFormInitComponent extends org.openbravo.client.application.wi
         // Evict whatever was initialized (even on partial failure) so it survives FIC's clear().
         detachInitializedMetadata(column);
       }
+      return !metadataNeedsInitialization(column);
     }
   }
 
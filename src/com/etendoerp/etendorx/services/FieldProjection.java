@@ -0,0 +1,114 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+
+/**
+ * Sparse field projection of the headless GET endpoint.
+ * <p>
+ * The {@code _fields} parameter holds a comma separated list of properties, and is translated into
+ * the {@code _selectedProperties} parameter of the datasource, so only those properties are read
+ * and serialized and the identifiers of the references not requested are not computed. A
+ * reference identifier can be requested as {@code property$_identifier}, which selects its
+ * property. Only the fields of the endpoint tab can be requested. The id, and the sort property of
+ * the cursor pagination, are always returned.
+ */
+public final class FieldProjection {
+
+  /** Request parameter holding the requested fields. */
+  public static final String FIELDS = "_fields";
+
+  private static final String SELECTED_PROPERTIES = "_selectedProperties";
+  private static final String IDENTIFIER = "_identifier";
+  private static final String IDENTIFIER_SUFFIX = "$" + IDENTIFIER;
+  private static final String ID = "id";
+
+  private final Set<String> properties;
+
+  private FieldProjection(Set<String> properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Reads the projection from the request parameters.
+   *
+   * @param fields
+   *     the value of the {@code _fields} parameter, null when all the fields are requested
+   * @param descriptor
+   *     the endpoint descriptor, whose fields are the ones that can be requested
+   * @return the projection, or null when every field is requested
+   * @throws InvalidRequestParameterException
+   *     if a field is not a property of the endpoint
+   */
+  public static FieldProjection fromRequest(String fields, EndpointDescriptor descriptor) {
+    if (StringUtils.isBlank(fields)) {
+      return null;
+    }
+    Set<String> properties = new LinkedHashSet<>();
+    properties.add(ID);
+    List<String> unknown = new ArrayList<>();
+    for (String field : StringUtils.split(fields, ',')) {
+      String name = StringUtils.removeEnd(field.trim(), IDENTIFIER_SUFFIX);
+      if (StringUtils.isEmpty(name) || StringUtils.equals(name, IDENTIFIER)) {
+        continue;
+      }
+      if (!StringUtils.equals(name, ID) && descriptor.indexOfProperty(name) < 0) {
+        unknown.add(field.trim());
+      } else {
+        properties.add(name);
+      }
+    }
+    if (!unknown.isEmpty()) {
+      throw new InvalidRequestParameterException(
+          "Unknown fields in " + FIELDS + ": " + String.join(", ", unknown));
+    }
+    return new FieldProjection(properties);
+  }
+
+  /**
+   * Sets the selected properties of the datasource request.
+   *
+   * @param params
+   *     the parameters that will be sent to the datasource
+   * @param cursor
+   *     the cursor pagination of the request, whose sort property is needed to build the next
+   *     cursor, or null
+   */
+  public void applyTo(Map<String, String[]> params, CursorPagination cursor) {
+    Set<String> selected = new LinkedHashSet<>(properties);
+    if (cursor != null) {
+      selected.add(cursor.getSortProperty());
+    }
+    params.put(SELECTED_PROPERTIES, new String[]{ String.join(",", selected) });
+  }
+
+  /**
+   * @return the properties returned, id included
+   */
+  public Set<String> getProperties() {
+    return properties;
+  }
+}
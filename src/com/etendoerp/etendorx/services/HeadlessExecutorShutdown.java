@@ -0,0 +1,39 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.BeforeDestroyed;
+import javax.enterprise.event.Observes;
+
+/**
+ * Stops the thread pools of the headless API when the application is undeployed, so their threads
+ * do not outlive the web application.
+ */
+@ApplicationScoped
+public class HeadlessExecutorShutdown {
+
+  /**
+   * Stops the pool processing bulk POST records in parallel.
+   *
+   * @param event
+   *     the destruction of the application context
+   */
+  public void onShutdown(@Observes @BeforeDestroyed(ApplicationScoped.class) Object event) {
+    ParallelPostProcessor.shutdown();
+  }
+}
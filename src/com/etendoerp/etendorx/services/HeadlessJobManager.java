@@ -0,0 +1,376 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import com.etendoerp.etendorx.services.ParallelPostProcessor.WorkerContext;
+import com.etendoerp.etendorx.services.wrapper.CapturedResponse;
+import com.etendoerp.etendorx.utils.HeadlessProperties;
+
+/**
+ * Runs headless write requests as background jobs.
+ * <p>
+ * A request sent with {@code async=true} is validated and queued, and the client immediately gets
+ * the id of its job. The job is processed by a bounded pool shared by all requests, with the
+ * identity of the request that created it and its own DAL transaction, committed when the
+ * response status is not an error. Its state, and once finished the response it produced (with the
+ * per-record results), can be polled at {@code /_jobs/{id}} by the same user. The state follows
+ * the shape of the async-process service: {@code id}, {@code state}, {@code lastUpdate} and
+ * {@code description}.
+ * <p>
+ * Jobs live in memory: they are lost on restart and are kept for
+ * {@link HeadlessProperties#ASYNC_JOB_TTL_MINUTES} minutes after finishing.
+ */
+public class HeadlessJobManager {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /** Request parameter enabling the async mode. */
+  public static final String ASYNC = "async";
+  /** Path prefix of the job status endpoint. */
+  public static final String JOBS_PATH = "/_jobs/";
+
+  private static final String DATE_FORMAT = "dd-MM-yyyy HH:mm:ss:SSS";
+  private static final int DEFAULT_THREADS = 2;
+  private static final int DEFAULT_QUEUE_SIZE = 100;
+  private static final int DEFAULT_TTL_MINUTES = 60;
+
+  private static final HeadlessJobManager instance = new HeadlessJobManager();
+  private static final AtomicInteger threadCount = new AtomicInteger();
+  private static ThreadPoolExecutor executor;
+
+  private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+  /**
+   * State of a job.
+   */
+  public enum State {
+    ACCEPTED, STARTED, DONE, ERROR
+  }
+
+  /**
+   * The processing of the request of a job.
+   */
+  @FunctionalInterface
+  public interface JobTask {
+    /**
+     * Processes the request, writing the result to the given response.
+     *
+     * @param request
+     *     the detached request of the job
+     * @param response
+     *     the response capturing the result
+     * @throws Exception
+     *     if the request cannot be processed
+     */
+    void run(HttpServletRequest request, CapturedResponse response) throws Exception;
+  }
+
+  /**
+   * A background job.
+   */
+  public static class Job {
+    private final String id = UUID.randomUUID().toString().replace("-", "").toUpperCase();
+    private final String clientId;
+    private final String userId;
+    private final String description;
+    private volatile State state = State.ACCEPTED;
+    private volatile long lastUpdate = System.currentTimeMillis();
+    private volatile int httpStatus;
+    private volatile String result;
+    private Future<?> future;
+
+    Job(String clientId, String userId, String description) {
+      this.clientId = clientId;
+      this.userId = userId;
+      this.description = description;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public State getState() {
+      return state;
+    }
+
+    public int getHttpStatus() {
+      return httpStatus;
+    }
+
+    public String getResult() {
+      return result;
+    }
+
+    Future<?> getFuture() {
+      return future;
+    }
+
+    private void update(State newState) {
+      state = newState;
+      lastUpdate = System.currentTimeMillis();
+    }
+
+    private void finish(int status, String body) {
+      httpStatus = status;
+      result = body;
+      update(status < 400 ? State.DONE : State.ERROR);
+    }
+
+    private boolean isFinished() {
+      return state == State.DONE || state == State.ERROR;
+    }
+
+    /**
+     * Returns the status of the job. The result is included once the job is finished.
+     *
+     * @return the job status
+     * @throws JSONException
+     *     if the status cannot be built
+     */
+    public JSONObject toJSON() throws JSONException {
+      JSONObject json = new JSONObject();
+      json.put("id", id);
+      json.put("state", state.name());
+      json.put("lastUpdate", new SimpleDateFormat(DATE_FORMAT).format(new Date(lastUpdate)));
+      json.put("description", description);
+      if (isFinished()) {
+        json.put("status", httpStatus);
+        json.put("result", parseResult(result));
+      }
+      return json;
+    }
+
+    private static Object parseResult(String body) {
+      String trimmed = StringUtils.trimToEmpty(body);
+      try {
+        if (trimmed.startsWith("{")) {
+          return new JSONObject(trimmed);
+        }
+        if (trimmed.startsWith("[")) {
+          return new JSONArray(trimmed);
+        }
+      } catch (JSONException e) {
+        log.debug("Job result is not JSON", e);
+      }
+      return trimmed;
+    }
+  }
+
+  HeadlessJobManager() {
+    // use getInstance
+  }
+
+  /**
+   * @return the job manager
+   */
+  public static HeadlessJobManager getInstance() {
+    return instance;
+  }
+
+  /**
+   * Tells whether the request asks to be processed as a background job.
+   *
+   * @param request
+   *     the request
+   * @return true if the {@code async} parameter is true
+   */
+  public static boolean isAsyncRequest(HttpServletRequest request) {
+    return Boolean.parseBoolean(StringUtils.trim(request.getParameter(ASYNC)));
+  }
+
+  /**
+   * Returns the id of the job requested by a job status path, or null if the path is not one.
+   *
+   * @param path
+   *     the request path
+   * @return the job id, or null
+   */
+  public static String getJobId(String path) {
+    if (!StringUtils.startsWith(path, JOBS_PATH)) {
+      return null;
+    }
+    return StringUtils.trimToNull(StringUtils.removeEnd(path.substring(JOBS_PATH.length()), "/"));
+  }
+
+  private static synchronized ThreadPoolExecutor getExecutor() {
+    if (executor == null) {
+      int threads = Math.max(1, HeadlessProperties.getInt(HeadlessProperties.ASYNC_THREADS, DEFAULT_THREADS));
+      int queueSize = Math.max(1, HeadlessProperties.getInt(HeadlessProperties.ASYNC_QUEUE_SIZE,
+          DEFAULT_QUEUE_SIZE));
+      executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(queueSize), runnable -> {
+        Thread thread = new Thread(runnable, "etendorx-headless-job-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      log.info("Started headless job pool with {} threads and a queue of {} jobs", threads, queueSize);
+    }
+    return executor;
+  }
+
+  /**
+   * Queues a job processing the given request on behalf of the current user.
+   *
+   * @param request
+   *     the request to process, detached from the HTTP request that created the job
+   * @param description
+   *     the description of the job
+   * @param task
+   *     the processing of the request
+   * @return the queued job, or null when the queue is full
+   */
+  public Job submit(HttpServletRequest request, String description, JobTask task) {
+    purgeExpired();
+    WorkerContext context = captureContext();
+    Job job = new Job(context.getClientId(), context.getUserId(), description);
+    jobs.put(job.id, job);
+    try {
+      job.future = getExecutor().submit(() -> run(job, context, request, task));
+    } catch (RejectedExecutionException e) {
+      jobs.remove(job.id);
+      log.warn("Headless job queue is full, rejecting {}", description);
+      return null;
+    }
+    log.debug("Queued job {}: {}", job.id, description);
+    return job;
+  }
+
+  /**
+   * Returns a job of the current user.
+   *
+   * @param jobId
+   *     the job id
+   * @param clientId
+   *     the client of the current user
+   * @param userId
+   *     the current user
+   * @return the job, or null when it does not exist, has expired or belongs to another user
+   */
+  public Job getJob(String jobId, String clientId, String userId) {
+    purgeExpired();
+    Job job = jobId == null ? null : jobs.get(jobId);
+    if (job == null || !StringUtils.equals(job.clientId, clientId) || !StringUtils.equals(job.userId, userId)) {
+      return null;
+    }
+    return job;
+  }
+
+  /**
+   * Processes the request of a job on a worker thread.
+   */
+  void run(Job job, WorkerContext context, HttpServletRequest request, JobTask task) {
+    job.update(State.STARTED);
+    CapturedResponse response = new CapturedResponse();
+    boolean success = false;
+    try {
+      begin(context, request);
+      task.run(request, response);
+      success = response.getStatus() < 400;
+    } catch (Exception e) {
+      log.error("Error processing job {}", job.id, e);
+      response.setStatus(500);
+      response.resetBuffer();
+      response.getWriter().write(errorBody(e));
+    } finally {
+      try {
+        end(success);
+      } catch (RuntimeException e) {
+        log.error("Error ending job {}", job.id, e);
+        success = false;
+        response.setStatus(500);
+        response.resetBuffer();
+        response.getWriter().write(errorBody(e));
+      }
+    }
+    job.finish(response.getStatus(), response.getContentAsString());
+    log.debug("Job {} finished with status {}", job.id, job.httpStatus);
+  }
+
+  private static String errorBody(Exception e) {
+    try {
+      JSONObject error = new JSONObject();
+      error.put(DataSourceConstants.ERROR, "Internal Server Error");
+      error.put(DataSourceConstants.MESSAGE,
+          e.getMessage() != null ? e.getMessage() : "An unexpected error occurred.");
+      return error.toString();
+    } catch (JSONException ex) {
+      return "";
+    }
+  }
+
+  /**
+   * Drops the finished jobs older than the configured time to live.
+   */
+  void purgeExpired() {
+    long ttl = TimeUnit.MINUTES.toMillis(HeadlessProperties.getInt(HeadlessProperties.ASYNC_JOB_TTL_MINUTES,
+        DEFAULT_TTL_MINUTES));
+    long limit = System.currentTimeMillis() - ttl;
+    jobs.values().removeIf(job -> job.isFinished() && job.lastUpdate < limit);
+  }
+
+  /**
+   * Reads the identity of the request creating a job.
+   *
+   * @return the worker context
+   */
+  WorkerContext captureContext() {
+    return WorkerContext.capture();
+  }
+
+  /**
+   * Prepares the worker thread to process a job.
+   *
+   * @param context
+   *     the identity of the request that created the job
+   * @param request
+   *     the request of the job
+   */
+  void begin(WorkerContext context, HttpServletRequest request) {
+    context.attach(request);
+  }
+
+  /**
+   * Commits or rolls back the job transaction and clears the worker thread.
+   *
+   * @param success
+   *     whether the job succeeded
+   */
+  void end(boolean success) {
+    WorkerContext.detach(success);
+  }
+}
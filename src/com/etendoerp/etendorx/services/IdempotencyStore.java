@@ -0,0 +1,282 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.exception.OBException;
+import org.openbravo.dal.service.OBDal;
+
+import com.etendoerp.etendorx.utils.HeadlessProperties;
+
+/**
+ * Stores the responses of headless POST and PUT requests sent with an {@code Idempotency-Key}
+ * header, so a retried request gets the stored response instead of being processed again.
+ * <p>
+ * Responses are kept in {@code ETRX_IDEMPOTENCY_KEY}, scoped by client and user, together with a
+ * hash of the request (method, path and body): reusing a key for a different request is rejected.
+ * Entries expire after {@link HeadlessProperties#IDEMPOTENCY_TTL_HOURS} hours and the expired ones
+ * are deleted from time to time while saving new ones. The table is an internal cache and is
+ * accessed with plain SQL in the current DAL transaction.
+ */
+public final class IdempotencyStore {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /** Request header holding the idempotency key. */
+  public static final String HEADER = "Idempotency-Key";
+  /** Response header set when a stored response is returned. */
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+  /** Maximum length of an idempotency key. */
+  public static final int MAX_KEY_LENGTH = 255;
+  /** HTTP status returned when a key is reused for a different request. */
+  public static final int SC_UNPROCESSABLE_ENTITY = 422;
+
+  private static final int DEFAULT_TTL_HOURS = 24;
+  private static final long CLEANUP_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+  private static final AtomicLong lastCleanup = new AtomicLong();
+
+  private IdempotencyStore() {
+    // utility class
+  }
+
+  /**
+   * A stored response.
+   */
+  public static class StoredResponse {
+    private final String requestHash;
+    private final int httpStatus;
+    private final String body;
+
+    StoredResponse(String requestHash, int httpStatus, String body) {
+      this.requestHash = requestHash;
+      this.httpStatus = httpStatus;
+      this.body = body;
+    }
+
+    public String getRequestHash() {
+      return requestHash;
+    }
+
+    public int getHttpStatus() {
+      return httpStatus;
+    }
+
+    public String getBody() {
+      return body;
+    }
+  }
+
+  /**
+   * Returns the key used to serialize, inside this JVM, the requests sharing an idempotency key.
+   *
+   * @param clientId
+   *     the client of the request
+   * @param userId
+   *     the user of the request
+   * @param key
+   *     the idempotency key
+   * @return the lock key
+   */
+  public static String lockKey(String clientId, String userId, String key) {
+    return "idempotency:" + clientId + ":" + userId + ":" + key;
+  }
+
+  /**
+   * Computes the hash identifying a request.
+   *
+   * @param method
+   *     the HTTP method
+   * @param path
+   *     the request path
+   * @param body
+   *     the request body
+   * @return the hexadecimal SHA-256 of the request
+   */
+  public static String hash(String method, String path, String body) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update((method + "\n" + path + "\n").getBytes(StandardCharsets.UTF_8));
+      byte[] hash = digest.digest((body == null ? "" : body).getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new OBException(e);
+    }
+  }
+
+  /**
+   * Tells whether a response with the given status can be stored for replay. Server errors and
+   * statuses meaning that the request may succeed later (conflicts, rate limits) are not stored,
+   * so the retry is processed again.
+   *
+   * @param httpStatus
+   *     the HTTP status of the response
+   * @return true if the response must be stored
+   */
+  public static boolean isReplayable(int httpStatus) {
+    return httpStatus >= 200 && httpStatus < 500 && httpStatus != 408 && httpStatus != 409
+        && httpStatus != 423 && httpStatus != 429;
+  }
+
+  /**
+   * Returns the stored response of the given key, ignoring expired entries.
+   *
+   * @param clientId
+   *     the client of the request
+   * @param userId
+   *     the user of the request
+   * @param key
+   *     the idempotency key
+   * @return the stored response, or null when there is none
+   */
+  public static StoredResponse find(String clientId, String userId, String key) {
+    //@formatter:off
+    final String sql =
+        "select request_hash, http_status, response_body" +
+        "  from etrx_idempotency_key" +
+        " where ad_client_id = :clientId" +
+        "   and ad_user_id = :userId" +
+        "   and idempotency_key = :key" +
+        "   and expires > :now";
+    //@formatter:on
+    @SuppressWarnings("unchecked")
+    List<Object[]> rows = OBDal.getInstance()
+        .getSession()
+        .createSQLQuery(sql)
+        .setParameter("clientId", clientId)
+        .setParameter("userId", userId)
+        .setParameter("key", key)
+        .setParameter("now", new Timestamp(System.currentTimeMillis()))
+        .setMaxResults(1)
+        .list();
+    if (rows.isEmpty()) {
+      return null;
+    }
+    Object[] row = rows.get(0);
+    return new StoredResponse((String) row[0], ((Number) row[1]).intValue(), readText(row[2]));
+  }
+
+  /**
+   * Stores a response. An expired entry with the same key is replaced.
+   *
+   * @param clientId
+   *     the client of the request
+   * @param orgId
+   *     the organization of the request
+   * @param userId
+   *     the user of the request
+   * @param key
+   *     the idempotency key
+   * @param method
+   *     the HTTP method
+   * @param path
+   *     the request path
+   * @param requestHash
+   *     the hash of the request, see {@link #hash}
+   * @param httpStatus
+   *     the HTTP status of the response
+   * @param body
+   *     the response body
+   */
+  public static void save(String clientId, String orgId, String userId, String key, String method, String path,
+      String requestHash, int httpStatus, String body) {
+    long now = System.currentTimeMillis();
+    long ttl = TimeUnit.HOURS.toMillis(HeadlessProperties.getInt(HeadlessProperties.IDEMPOTENCY_TTL_HOURS,
+        DEFAULT_TTL_HOURS));
+    //@formatter:off
+    final String delete =
+        "delete from etrx_idempotency_key" +
+        " where ad_client_id = :clientId" +
+        "   and ad_user_id = :userId" +
+        "   and idempotency_key = :key";
+    final String insert =
+        "insert into etrx_idempotency_key" +
+        "  (etrx_idempotency_key_id, ad_client_id, ad_org_id, isactive, created, createdby, updated, updatedby," +
+        "   ad_user_id, idempotency_key, http_method, request_path, request_hash, http_status, response_body," +
+        "   expires)" +
+        " values (get_uuid(), :clientId, :orgId, 'Y', :now, :userId, :now, :userId," +
+        "   :userId, :key, :method, :path, :hash, :status, :body, :expires)";
+    //@formatter:on
+    OBDal.getInstance()
+        .getSession()
+        .createSQLQuery(delete)
+        .setParameter("clientId", clientId)
+        .setParameter("userId", userId)
+        .setParameter("key", key)
+        .executeUpdate();
+    OBDal.getInstance()
+        .getSession()
+        .createSQLQuery(insert)
+        .setParameter("clientId", clientId)
+        .setParameter("orgId", orgId)
+        .setParameter("userId", userId)
+        .setParameter("key", key)
+        .setParameter("method", method)
+        .setParameter("path", path)
+        .setParameter("hash", requestHash)
+        .setParameter("status", httpStatus)
+        .setParameter("body", body)
+        .setParameter("now", new Timestamp(now))
+        .setParameter("expires", new Timestamp(now + ttl))
+        .executeUpdate();
+    long previousCleanup = lastCleanup.get();
+    if (now - previousCleanup > CLEANUP_INTERVAL_MS && lastCleanup.compareAndSet(previousCleanup, now)) {
+      deleteExpired();
+    }
+  }
+
+  /**
+   * Deletes the expired entries of every client.
+   *
+   * @return number of deleted entries
+   */
+  static int deleteExpired() {
+    int deleted = OBDal.getInstance()
+        .getSession()
+        .createSQLQuery("delete from etrx_idempotency_key where expires <= :now")
+        .setParameter("now", new Timestamp(System.currentTimeMillis()))
+        .executeUpdate();
+    log.debug("Deleted {} expired idempotency keys", deleted);
+    return deleted;
+  }
+
+  private static String readText(Object value) {
+    if (value instanceof Clob) {
+      try {
+        Clob clob = (Clob) value;
+        return clob.getSubString(1, (int) clob.length());
+      } catch (SQLException e) {
+        throw new OBException(e);
+      }
+    }
+    return value == null ? null : value.toString();
+  }
+}
@@ -0,0 +1,19 @@
+package com.etendoerp.etendorx.services;
+
+import org.openbravo.base.exception.OBException;
+
+/**
+ * Exception raised when a headless request carries an invalid parameter, such as a malformed
+ * pagination cursor. It is answered with a 400 (Bad Request) status.
+ */
+public class InvalidRequestParameterException extends OBException {
+
+  /**
+   * Creates a new InvalidRequestParameterException with the given detail message.
+   *
+   * @param message a descriptive message explaining which parameter is invalid and why
+   */
+  public InvalidRequestParameterException(String message) {
+    super(message);
+  }
+}
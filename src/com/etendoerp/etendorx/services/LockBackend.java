@@ -0,0 +1,98 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+/**
+ * Storage of the record locks of {@link LockManager}.
+ */
+public interface LockBackend {
+
+  /**
+   * A held lock.
+   */
+  @FunctionalInterface
+  interface Handle {
+    /**
+     * Releases the lock.
+     */
+    void release();
+  }
+
+  /**
+   * Acquires the lock of the given id.
+   *
+   * @param lockId
+   *     the identifier of the resource to lock
+   * @param timeoutNanos
+   *     the maximum time to wait, negative to wait forever
+   * @param maxWaiters
+   *     the maximum number of requests waiting for the lock, 0 for no limit
+   * @return the handle releasing the lock
+   * @throws LockUnavailableException
+   *     if the wait times out or too many requests are waiting
+   */
+  Handle acquire(String lockId, long timeoutNanos, int maxWaiters);
+
+  /**
+   * Acquires the lock of the given id in shared mode: it is held at the same time as other shared
+   * locks of the id, but not with an exclusive one. Backends without shared locks take the
+   * exclusive lock, which is always safe.
+   *
+   * @param lockId
+   *     the identifier of the resource to lock
+   * @param timeoutNanos
+   *     the maximum time to wait, negative to wait forever
+   * @param maxWaiters
+   *     the maximum number of requests waiting for the lock, 0 for no limit
+   * @return the handle releasing the lock
+   * @throws LockUnavailableException
+   *     if the wait times out or too many requests are waiting
+   */
+  default Handle acquireShared(String lockId, long timeoutNanos, int maxWaiters) {
+    return acquire(lockId, timeoutNanos, maxWaiters);
+  }
+
+  /**
+   * Tells whether the locks are held until the current transaction ends, whatever the lease does.
+   * A request must then take all its locks in a consistent order, as it keeps every lock it took.
+   *
+   * @return true when closing a lease does not release its lock
+   */
+  default boolean isHeldUntilTransactionEnd() {
+    return false;
+  }
+
+  /**
+   * Acquires the exclusive lock of a request key, such as an idempotency key. Request keys have
+   * their own namespace: their lock is never shared with the lock of a record id, so a request
+   * holding its key does not block the record locks taken while it is processed. Backends keeping a
+   * distinct lock per id take the lock of the key.
+   *
+   * @param key
+   *     the request key
+   * @param timeoutNanos
+   *     the maximum time to wait, negative to wait forever
+   * @param maxWaiters
+   *     the maximum number of requests waiting for the lock, 0 for no limit
+   * @return the handle releasing the lock
+   * @throws LockUnavailableException
+   *     if the wait times out or too many requests are waiting
+   */
+  default Handle acquireKey(String key, long timeoutNanos, int maxWaiters) {
+    return acquire(key, timeoutNanos, maxWaiters);
+  }
+}
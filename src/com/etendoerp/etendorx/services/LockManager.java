@@ -1,14 +1,22 @@
 package com.etendoerp.etendorx.services;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.etendoerp.etendorx.utils.HeadlessProperties;
+
 /**
  * LockManager standalone implementation that uses a ConcurrentHashMap to
  * keep per-id locks with reference counting to allow automatic cleanup.
@@ -30,23 +38,183 @@ import org.apache.logging.log4j.Logger;
  * // critical section
  * }
  * </pre>
+ * <p>Requests should rather use {@link #tryLock(String)}, which waits at most
+ * {@link HeadlessProperties#LOCK_TIMEOUT_MS} milliseconds and rejects the
+ * request when more than {@link HeadlessProperties#LOCK_MAX_WAITERS} requests
+ * are waiting, throwing a {@link LockUnavailableException}.</p>
+ *
+ * <p>With {@link HeadlessProperties#LOCK_STRIPED} the locks are taken from a
+ * fixed array indexed by the hash of the id, so no lock is allocated per
+ * request; different ids may then share a lock. Locks are fair unless
+ * {@link HeadlessProperties#LOCK_FAIR} is false. Wait times and queue depths
+ * are recorded in {@link #getMetrics()}.</p>
+ *
+ * <p>Locks can also be taken in shared mode with {@link #tryLockShared(String)}:
+ * any number of shared leases of an id are held at once, while an exclusive
+ * lease waits for all of them. {@link #tryLockChild(String, String)} uses it
+ * so records of the same parent are written in parallel, each one under its
+ * own exclusive lease, and only operations on the parent itself exclude
+ * them.</p>
+ *
+ * <p>Request keys, such as idempotency keys, are locked with
+ * {@link #tryLockKey(String)}. They have their own namespace and are never
+ * striped, so a request holding its key never waits for itself on a record
+ * lock that falls in the same stripe.</p>
+ *
+ * <p>The locks above are JVM-local. When several nodes serve the headless API,
+ * {@link HeadlessProperties#LOCK_BACKEND} set to {@code postgresql} takes the
+ * locks from {@link PostgresAdvisoryLockBackend} instead, so they are shared by
+ * every node using the database.</p>
  */
 public final class LockManager {
 
   private static final Logger log = LogManager.getLogger();
 
+  private static final int DEFAULT_STRIPES = 1024;
+  private static final String POSTGRESQL_BACKEND = "postgresql";
+  private static final LockBackend IN_MEMORY_BACKEND = new InMemoryLockBackend();
+  private static final long DEFAULT_TIMEOUT_MS = 60000L;
+
   private static final ConcurrentMap<String, LockWrapper> locks = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, LockWrapper> keyLocks = new ConcurrentHashMap<>();
+  private static final LockMetrics metrics = new LockMetrics();
+  private static volatile Settings settings;
 
   private LockManager() {
     // utility class
   }
 
+  /**
+   * Lock configuration, read from Openbravo.properties on first use.
+   */
+  private static final class Settings {
+    private final LockBackend backend;
+    private final boolean sharedParent;
+    private final boolean fair;
+    private final long timeoutMs;
+    private final int maxWaiters;
+    private final LockWrapper[] stripes;
+
+    private Settings(LockBackend backend, boolean sharedParent, boolean striped, int stripeCount, boolean fair,
+        long timeoutMs, int maxWaiters) {
+      this.backend = backend;
+      this.sharedParent = sharedParent;
+      this.fair = fair;
+      this.timeoutMs = timeoutMs;
+      this.maxWaiters = maxWaiters;
+      if (striped) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new LockWrapper[size];
+        for (int i = 0; i < size; i++) {
+          stripes[i] = new LockWrapper(fair);
+        }
+      } else {
+        stripes = null;
+      }
+    }
+
+    private LockWrapper stripeFor(String lockId) {
+      return stripes[stripeIndex(lockId)];
+    }
+
+    private int stripeIndex(String lockId) {
+      int hash = lockId.hashCode();
+      hash ^= hash >>> 16;
+      return hash & (stripes.length - 1);
+    }
+  }
+
+  private static Settings getSettings() {
+    Settings current = settings;
+    if (current == null) {
+      synchronized (LockManager.class) {
+        current = settings;
+        if (current == null) {
+          boolean postgresql = StringUtils.equalsIgnoreCase(POSTGRESQL_BACKEND,
+              HeadlessProperties.getString(HeadlessProperties.LOCK_BACKEND));
+          current = new Settings(postgresql ? new PostgresAdvisoryLockBackend(metrics) : IN_MEMORY_BACKEND,
+              HeadlessProperties.getBoolean(HeadlessProperties.LOCK_SHARED_PARENT, true),
+              HeadlessProperties.getBoolean(HeadlessProperties.LOCK_STRIPED, false),
+              HeadlessProperties.getInt(HeadlessProperties.LOCK_STRIPES, DEFAULT_STRIPES),
+              HeadlessProperties.getBoolean(HeadlessProperties.LOCK_FAIR, true),
+              HeadlessProperties.getInt(HeadlessProperties.LOCK_TIMEOUT_MS, (int) DEFAULT_TIMEOUT_MS),
+              HeadlessProperties.getInt(HeadlessProperties.LOCK_MAX_WAITERS, 0));
+          settings = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Replaces the configuration read from Openbravo.properties. Meant for tests: it must not be
+   * called while locks are held.
+   *
+   * @param striped whether locks are taken from a fixed array
+   * @param stripeCount number of locks of the striped mode
+   * @param fair whether locks are granted in arrival order
+   * @param timeoutMs milliseconds {@link #tryLock(String)} waits, 0 to wait forever
+   * @param maxWaiters maximum number of requests waiting for a lock, 0 for no limit
+   */
+  static synchronized void configure(boolean striped, int stripeCount, boolean fair, long timeoutMs,
+      int maxWaiters) {
+    settings = new Settings(IN_MEMORY_BACKEND, true, striped, stripeCount, fair, timeoutMs, maxWaiters);
+    metrics.reset();
+  }
+
+  /**
+   * Replaces the configuration read from Openbravo.properties by the given backend. Meant for
+   * tests: it must not be called while locks are held.
+   *
+   * @param backend the lock backend
+   * @param timeoutMs milliseconds {@link #tryLock(String)} waits, 0 to wait forever
+   * @param maxWaiters maximum number of requests waiting for a lock, 0 for no limit
+   */
+  static synchronized void configure(LockBackend backend, long timeoutMs, int maxWaiters) {
+    settings = new Settings(backend, true, false, 0, true, timeoutMs, maxWaiters);
+    metrics.reset();
+  }
+
+  /**
+   * Drops the configuration, so it is read again from Openbravo.properties on next use.
+   */
+  static synchronized void resetConfiguration() {
+    settings = null;
+    metrics.reset();
+  }
+
+  /**
+   * Disables {@link #tryLockChild(String, String)} shared leases, so it takes the exclusive lease
+   * of the parent. Meant for tests, after {@link #configure}.
+   */
+  static synchronized void disableSharedParent() {
+    Settings current = settings;
+    settings = new Settings(current.backend, false, current.stripes != null,
+        current.stripes == null ? 0 : current.stripes.length, current.fair, current.timeoutMs, current.maxWaiters);
+  }
+
   private static class LockWrapper {
-    private final Lock lock = new ReentrantLock(true);
+    private final ReentrantReadWriteLock lock;
     private final AtomicInteger referenceCount = new AtomicInteger(0);
+    private final AtomicInteger waiting = new AtomicInteger(0);
 
-    Lock getLock() {
-      return lock;
+    LockWrapper(boolean fair) {
+      this.lock = new ReentrantReadWriteLock(fair);
+    }
+
+    ReentrantReadWriteLock.WriteLock getLock() {
+      return lock.writeLock();
+    }
+
+    Lock getLock(boolean shared) {
+      return shared ? lock.readLock() : lock.writeLock();
+    }
+
+    /**
+     * Tells whether the current thread holds the lock in the given mode.
+     */
+    boolean isHeldByCurrentThread(boolean shared) {
+      return shared ? lock.getReadHoldCount() > 0 : lock.isWriteLockedByCurrentThread();
     }
 
     void increment() {
@@ -65,22 +233,52 @@ public final class LockManager {
    * {@code lockId} and increment its internal reference counter. Callers must
    * pair this call with {@link #releaseLock(String, Lock)} (or use
    * {@link #lock(String)} / {@link LockLease}) to ensure the wrapper is
-   * eventually removed from the internal registry.</p>
+   * eventually removed from the internal registry. In striped mode the lock of
+   * the stripe of the id is returned and nothing is registered.</p>
    *
    * @param lockId the identifier for the resource to lock (non-null, non-empty)
    * @return the {@link Lock} instance associated with the given id
    * @throws IllegalArgumentException when {@code lockId} is null or empty
    */
   public static Lock acquireLock(String lockId) {
+    return register(lockId).getLock();
+  }
+
+  private static LockWrapper register(String lockId) {
     if (lockId == null || lockId.trim().isEmpty()) {
       throw new IllegalArgumentException("lockId cannot be null or empty");
     }
-    LockWrapper wrapper = locks.computeIfAbsent(lockId, k -> {
-      log.trace("Creating LockWrapper for id={}", k);
-      return new LockWrapper();
+    Settings current = getSettings();
+    if (current.stripes != null) {
+      return current.stripeFor(lockId);
+    }
+    return register(locks, lockId, current.fair);
+  }
+
+  private static LockWrapper register(ConcurrentMap<String, LockWrapper> registry, String lockId, boolean fair) {
+    return registry.compute(lockId, (k, existing) -> {
+      LockWrapper w = existing;
+      if (w == null) {
+        log.trace("Creating LockWrapper for id={}", k);
+        w = new LockWrapper(fair);
+      }
+      w.increment();
+      return w;
+    });
+  }
+
+  private static void unregister(String lockId, LockWrapper wrapper) {
+    unregister(locks, lockId, wrapper);
+  }
+
+  private static void unregister(ConcurrentMap<String, LockWrapper> registry, String lockId, LockWrapper wrapper) {
+    registry.computeIfPresent(lockId, (k, existing) -> {
+      if (existing == wrapper && existing.decrementAndGet() == 0) {
+        log.trace("Removed LockWrapper for id={}", k);
+        return null;
+      }
+      return existing;
     });
-    wrapper.increment();
-    return wrapper.getLock();
   }
 
   /**
@@ -101,33 +299,47 @@ public final class LockManager {
       return;
     }
     // Sonar rule S2235: do not catch IllegalMonitorStateException. The
-    // LockManager always supplies ReentrantLock instances from the internal
-    // LockWrapper; therefore prefer checking ownership via
-    // ReentrantLock.isHeldByCurrentThread() before unlocking. If an external
-    ///non-ReentrantLock is passed, log and return (do not attempt to catch
+    // LockManager always supplies the write lock of a ReentrantReadWriteLock
+    // from the internal LockWrapper; therefore prefer checking ownership via
+    // WriteLock.isHeldByCurrentThread() before unlocking. If another Lock
+    // implementation is passed, log and return (do not attempt to catch
     // IllegalMonitorStateException).
-    if (!(lock instanceof ReentrantLock)) {
+    if (!(lock instanceof ReentrantReadWriteLock.WriteLock)) {
       log.error("Unsupported Lock implementation for id={}: {}", lockId, lock.getClass().getName());
       return;
     }
 
-    ReentrantLock rl = (ReentrantLock) lock;
-    if (!rl.isHeldByCurrentThread()) {
-      log.error("Attempted to unlock a ReentrantLock not held by current thread for id={}", lockId);
+    ReentrantReadWriteLock.WriteLock wl = (ReentrantReadWriteLock.WriteLock) lock;
+    if (!wl.isHeldByCurrentThread()) {
+      log.error("Attempted to unlock a lock not held by current thread for id={}", lockId);
       return;
     }
 
-    rl.unlock();
+    wl.unlock();
     LockWrapper wrapper = locks.get(lockId);
-    if (wrapper != null && wrapper.decrementAndGet() == 0) {
-      locks.remove(lockId, wrapper);
-      log.trace("Removed LockWrapper for id={}", lockId);
+    if (wrapper != null && wrapper.getLock() == wl) {
+      unregister(lockId, wrapper);
+    }
+  }
+
+  /**
+   * Releases a lock taken by the in-memory backend in the given mode.
+   */
+  private static void release(ConcurrentMap<String, LockWrapper> registry, String lockId, LockWrapper wrapper,
+      boolean shared) {
+    if (!wrapper.isHeldByCurrentThread(shared)) {
+      log.error("Attempted to unlock a lock not held by current thread for id={}", lockId);
+      return;
+    }
+    wrapper.getLock(shared).unlock();
+    if (registry.get(lockId) == wrapper) {
+      unregister(registry, lockId, wrapper);
     }
   }
 
   /**
    * Returns the number of active lock wrappers currently tracked by this
-   * LockManager. Useful for monitoring and tests.
+   * LockManager. Useful for monitoring and tests. Always 0 in striped mode.
    *
    * @return number of lock wrappers present in the internal registry (>= 0)
    */
@@ -135,25 +347,34 @@ public final class LockManager {
     return locks.size();
   }
 
+  /**
+   * Returns the wait time and queue depth metrics of the locks.
+   *
+   * @return the lock metrics
+   */
+  public static LockMetrics getMetrics() {
+    return metrics;
+  }
+
   /**
    * A lease that holds the lock and releases it when closed.
    * Use with try-with-resources to guarantee release.
    */
   public static final class LockLease implements AutoCloseable {
     private final String id;
-    private final Lock lock;
+    private final LockBackend.Handle handle;
     private boolean closed = false;
 
-    private LockLease(String id, Lock lock) {
+    private LockLease(String id, LockBackend.Handle handle) {
       this.id = id;
-      this.lock = lock;
+      this.handle = handle;
     }
 
     @Override
     public void close() {
       if (!closed) {
         try {
-          releaseLock(id, lock);
+          handle.release();
         } finally {
           closed = true;
           log.trace("LockLease closed for id={}", id);
@@ -204,8 +425,276 @@ public final class LockManager {
     // tools (Sonar) to avoid false-positive resource/lock warnings (for
     // example squid:S2095 and squid:S2222) because unlocking happens in
     // LockLease.close() rather than in this method.
-    Lock l = acquireLock(lockId);
-    l.lock(); // NOSONAR - lock ownership is intentionally returned to caller via LockLease
-    return new LockLease(lockId, l);
+    return new LockLease(lockId, getSettings().backend.acquire(lockId, -1L, 0));
+  }
+
+  /**
+   * Acquires the lock of the specified id waiting at most the configured
+   * {@link HeadlessProperties#LOCK_TIMEOUT_MS}, and returns a {@link LockLease}
+   * to be used with try-with-resources, as {@link #lock(String)}.
+   *
+   * @param lockId the identifier for the resource to lock
+   * @return a {@link LockLease} that holds the lock and will release it when closed
+   * @throws LockUnavailableException if the wait times out or too many requests
+   *     are waiting for the lock
+   */
+  public static LockLease tryLock(String lockId) {
+    Settings current = getSettings();
+    return tryLock(lockId, current.timeoutMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Acquires the lock of the specified id waiting at most the given time, and
+   * returns a {@link LockLease} to be used with try-with-resources.
+   *
+   * @param lockId the identifier for the resource to lock
+   * @param timeout the maximum time to wait, 0 or less to wait forever
+   * @param unit the unit of the timeout
+   * @return a {@link LockLease} that holds the lock and will release it when closed
+   * @throws LockUnavailableException if the wait times out or too many requests
+   *     are waiting for the lock
+   */
+  @SuppressWarnings({"squid:S2095", "squid:S2222"})
+  public static LockLease tryLock(String lockId, long timeout, TimeUnit unit) {
+    Settings current = getSettings();
+    return new LockLease(lockId,
+        current.backend.acquire(lockId, timeout > 0 ? unit.toNanos(timeout) : -1L, current.maxWaiters));
+  }
+
+  /**
+   * Acquires the lock of the specified id in shared mode, waiting at most the
+   * configured {@link HeadlessProperties#LOCK_TIMEOUT_MS}. Shared leases of an
+   * id do not exclude each other, only the exclusive ones.
+   *
+   * @param lockId the identifier for the resource to lock
+   * @return a {@link LockLease} that holds the lock and will release it when closed
+   * @throws LockUnavailableException if the wait times out or too many requests
+   *     are waiting for the lock
+   */
+  @SuppressWarnings({"squid:S2095", "squid:S2222"})
+  public static LockLease tryLockShared(String lockId) {
+    Settings current = getSettings();
+    long timeoutNanos = current.timeoutMs > 0 ? TimeUnit.MILLISECONDS.toNanos(current.timeoutMs) : -1L;
+    return new LockLease(lockId, current.backend.acquireShared(lockId, timeoutNanos, current.maxWaiters));
+  }
+
+  /**
+   * Acquires the locks to write a child record of the given parent: a shared
+   * lease on the parent and an exclusive lease on the child, so children of the
+   * same parent are written in parallel while the parent itself is not
+   * modified. With {@link HeadlessProperties#LOCK_SHARED_PARENT} set to false
+   * the lease of the parent is exclusive, serializing every child.
+   *
+   * <p>The parent lease is taken first. In striped mode the two stripes are
+   * locked in index order instead, so two requests never wait for each other;
+   * when both ids fall in the same stripe only its exclusive lease is taken.
+   * When locks are held until the transaction ends, both ids are locked in id
+   * order, as {@link #tryLockInOrder(Map)} does.</p>
+   *
+   * @param parentId the identifier of the parent record
+   * @param childId the identifier of the child record, null when it is not
+   *     known yet (the record is being created)
+   * @return a {@link LockLease} that holds both locks and releases them when closed
+   * @throws LockUnavailableException if the wait times out or too many requests
+   *     are waiting for one of the locks
+   */
+  @SuppressWarnings({"squid:S2095", "squid:S2222"})
+  public static LockLease tryLockChild(String parentId, String childId) {
+    Settings current = getSettings();
+    if (StringUtils.isBlank(childId) || StringUtils.equals(parentId, childId)) {
+      return tryLockParent(current, parentId);
+    }
+    if (current.stripes != null && current.stripeFor(parentId) == current.stripeFor(childId)) {
+      return tryLock(parentId);
+    }
+    boolean childFirst = current.stripes != null
+        ? current.stripeIndex(childId) < current.stripeIndex(parentId)
+        : current.backend.isHeldUntilTransactionEnd() && childId.compareTo(parentId) < 0;
+    LockLease first = childFirst ? tryLock(childId) : tryLockParent(current, parentId);
+    LockLease second;
+    try {
+      second = childFirst ? tryLockParent(current, parentId) : tryLock(childId);
+    } catch (RuntimeException e) {
+      first.close();
+      throw e;
+    }
+    return new LockLease(parentId + "/" + childId, () -> {
+      try {
+        second.close();
+      } finally {
+        first.close();
+      }
+    });
+  }
+
+  /**
+   * Acquires the exclusive lock of a request key, such as an idempotency key,
+   * waiting at most the configured {@link HeadlessProperties#LOCK_TIMEOUT_MS}.
+   * Keys are locked apart from record ids, so the records processed while the
+   * key is held can be locked by the same request or by its workers.
+   *
+   * @param key the request key
+   * @return a {@link LockLease} that holds the lock and will release it when closed
+   * @throws LockUnavailableException if the wait times out or too many requests
+   *     are waiting for the lock
+   */
+  @SuppressWarnings({"squid:S2095", "squid:S2222"})
+  public static LockLease tryLockKey(String key) {
+    if (key == null || key.trim().isEmpty()) {
+      throw new IllegalArgumentException("key cannot be null or empty");
+    }
+    Settings current = getSettings();
+    long timeoutNanos = current.timeoutMs > 0 ? TimeUnit.MILLISECONDS.toNanos(current.timeoutMs) : -1L;
+    return new LockLease(key, current.backend.acquireKey(key, timeoutNanos, current.maxWaiters));
+  }
+
+  /**
+   * Tells whether the locks are held until the transaction ends, whatever the lease does, as
+   * with {@link PostgresAdvisoryLockBackend}.
+   *
+   * @return true when closing a lease does not release its lock
+   */
+  public static boolean isHeldUntilTransactionEnd() {
+    return getSettings().backend.isHeldUntilTransactionEnd();
+  }
+
+  /**
+   * Acquires the locks of several records in id order, so two requests locking
+   * the same records never wait for each other. Meant for requests that keep
+   * their locks until the transaction ends (see
+   * {@link #isHeldUntilTransactionEnd()}) and write several records: taking
+   * all the locks first, in a consistent order, is what prevents a deadlock
+   * between them. Each record can then take its own leases again, as the
+   * backend already holds them for the request.
+   *
+   * @param exclusiveById the ids to lock, mapped to true for an exclusive
+   *     lease or to false for the lease of a parent of the written records,
+   *     shared unless {@link HeadlessProperties#LOCK_SHARED_PARENT} is false
+   * @return a {@link LockLease} that holds all the locks and releases them when closed
+   * @throws LockUnavailableException if the wait times out or too many requests
+   *     are waiting for one of the locks
+   */
+  @SuppressWarnings({"squid:S2095", "squid:S2222"})
+  public static LockLease tryLockInOrder(Map<String, Boolean> exclusiveById) {
+    Settings current = getSettings();
+    Deque<LockLease> leases = new ArrayDeque<>();
+    try {
+      for (Map.Entry<String, Boolean> entry : new TreeMap<>(exclusiveById).entrySet()) {
+        leases.push(Boolean.TRUE.equals(entry.getValue())
+            ? tryLock(entry.getKey()) : tryLockParent(current, entry.getKey()));
+      }
+    } catch (RuntimeException e) {
+      closeAll(leases);
+      throw e;
+    }
+    return new LockLease(exclusiveById.keySet().toString(), () -> closeAll(leases));
+  }
+
+  private static void closeAll(Deque<LockLease> leases) {
+    while (!leases.isEmpty()) {
+      leases.pop().close();
+    }
+  }
+
+  private static LockLease tryLockParent(Settings current, String parentId) {
+    return current.sharedParent ? tryLockShared(parentId) : tryLock(parentId);
+  }
+
+  /**
+   * The JVM-local backend: a lock per id, or a fixed array of locks in striped mode.
+   */
+  private static final class InMemoryLockBackend implements LockBackend {
+    @Override
+    public Handle acquire(String lockId, long timeoutNanos, int maxWaiters) {
+      return acquire(lockId, timeoutNanos, maxWaiters, false);
+    }
+
+    @Override
+    public Handle acquireShared(String lockId, long timeoutNanos, int maxWaiters) {
+      return acquire(lockId, timeoutNanos, maxWaiters, true);
+    }
+
+    @Override
+    public Handle acquireKey(String key, long timeoutNanos, int maxWaiters) {
+      // Never striped, whatever the mode: a stripe could be shared with a record of the request
+      LockWrapper wrapper = register(keyLocks, key, getSettings().fair);
+      try {
+        LockManager.acquire(key, wrapper.getLock(false), wrapper, timeoutNanos, maxWaiters);
+      } catch (RuntimeException e) {
+        unregister(keyLocks, key, wrapper);
+        throw e;
+      }
+      return () -> release(keyLocks, key, wrapper, false);
+    }
+
+    private static Handle acquire(String lockId, long timeoutNanos, int maxWaiters, boolean shared) {
+      LockWrapper wrapper = register(lockId);
+      try {
+        LockManager.acquire(lockId, wrapper.getLock(shared), wrapper, timeoutNanos, maxWaiters);
+      } catch (RuntimeException e) {
+        unregister(lockId, wrapper);
+        throw e;
+      }
+      return () -> release(locks, lockId, wrapper, shared);
+    }
+  }
+
+  /**
+   * Locks the wrapper, recording the wait in the metrics when the lock is busy.
+   *
+   * @param l the shared or exclusive lock of the wrapper
+   * @param timeoutNanos maximum wait, negative to wait forever
+   * @param maxWaiters maximum number of requests waiting, 0 for no limit
+   */
+  private static void acquire(String lockId, Lock l, LockWrapper wrapper, long timeoutNanos, int maxWaiters) {
+    // tryLock() would ignore the fairness policy
+    if (tryLockNow(l)) {
+      metrics.acquired();
+      return;
+    }
+    int depth = wrapper.waiting.incrementAndGet();
+    try {
+      if (maxWaiters > 0 && depth > maxWaiters) {
+        metrics.rejected();
+        log.warn("Rejecting request for lock id={}: {} requests waiting", lockId, depth - 1);
+        throw new LockUnavailableException(lockId, true);
+      }
+      LockMetrics.KeyStats stats = metrics.startWait(lockId);
+      long start = System.nanoTime();
+      boolean acquired = false;
+      try {
+        acquired = waitFor(l, timeoutNanos);
+      } finally {
+        metrics.endWait(stats, System.nanoTime() - start, acquired);
+      }
+      if (!acquired) {
+        log.warn("Timed out waiting for lock id={}", lockId);
+        throw new LockUnavailableException(lockId, false);
+      }
+    } finally {
+      wrapper.waiting.decrementAndGet();
+    }
+  }
+
+  private static boolean tryLockNow(Lock l) {
+    try {
+      return l.tryLock(0L, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static boolean waitFor(Lock l, long timeoutNanos) {
+    if (timeoutNanos < 0) {
+      l.lock(); // NOSONAR - lock ownership is intentionally returned to caller via LockLease
+      return true;
+    }
+    try {
+      return l.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
   }
 }
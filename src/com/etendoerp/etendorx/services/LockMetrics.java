@@ -0,0 +1,298 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * Wait time and queue depth metrics of {@link LockManager}.
+ * <p>
+ * Acquisitions that do not wait only increase a counter. When a request has to wait, its wait time
+ * is added to a global histogram and to the statistics of the contended key, which hold the number
+ * of requests currently waiting for it (queue depth), the highest depth seen and a histogram of
+ * their own. At most {@link #MAX_TRACKED_KEYS} keys are tracked; the hottest keys can be read with
+ * {@link #getHotKeys(int)}.
+ */
+public final class LockMetrics {
+
+  /** Upper bounds, in milliseconds, of the wait time histogram buckets. The last bucket is open. */
+  static final long[] BUCKET_BOUNDS_MS = { 1, 5, 10, 50, 100, 500, 1000, 5000, 10000 };
+  /** Maximum number of keys with their own statistics. */
+  static final int MAX_TRACKED_KEYS = 256;
+
+  private final AtomicLong acquisitions = new AtomicLong();
+  private final AtomicLong contended = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong rejections = new AtomicLong();
+  private final AtomicLongArray waitHistogram = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+  private final ConcurrentMap<String, KeyStats> keys = new ConcurrentHashMap<>();
+
+  /**
+   * Statistics of a contended key.
+   */
+  public static final class KeyStats {
+    private final String key;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger maxWaiting = new AtomicInteger();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+
+    private KeyStats(String key) {
+      this.key = key;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * @return number of requests currently waiting for the key
+     */
+    public int getWaiting() {
+      return waiting.get();
+    }
+
+    /**
+     * @return highest number of requests that waited at the same time for the key
+     */
+    public int getMaxWaiting() {
+      return maxWaiting.get();
+    }
+
+    /**
+     * @return number of requests that had to wait for the key
+     */
+    public long getWaits() {
+      return waits.get();
+    }
+
+    /**
+     * @return number of requests that gave up waiting for the key
+     */
+    public long getTimeouts() {
+      return timeouts.get();
+    }
+
+    /**
+     * @return total time waited for the key, in milliseconds
+     */
+    public long getTotalWaitMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * @return the wait time histogram of the key, see {@link LockMetrics#getWaitHistogram()}
+     */
+    public long[] getWaitHistogram() {
+      return toArray(waitHistogram);
+    }
+  }
+
+  /**
+   * Records an acquisition without wait.
+   */
+  void acquired() {
+    acquisitions.incrementAndGet();
+  }
+
+  /**
+   * Records that a request starts waiting for a key.
+   *
+   * @param key
+   *     the contended key
+   * @return the statistics of the key, or null when too many keys are tracked already
+   */
+  KeyStats startWait(String key) {
+    contended.incrementAndGet();
+    KeyStats stats = keys.get(key);
+    if (stats == null) {
+      if (keys.size() >= MAX_TRACKED_KEYS) {
+        evictIdleKey();
+      }
+      if (keys.size() >= MAX_TRACKED_KEYS) {
+        return null;
+      }
+      stats = keys.computeIfAbsent(key, KeyStats::new);
+    }
+    int depth = stats.waiting.incrementAndGet();
+    stats.maxWaiting.accumulateAndGet(depth, Math::max);
+    return stats;
+  }
+
+  /**
+   * Records the end of a wait.
+   *
+   * @param stats
+   *     the statistics returned by {@link #startWait(String)}, may be null
+   * @param waitNanos
+   *     the time waited
+   * @param acquired
+   *     whether the lock was acquired
+   */
+  void endWait(KeyStats stats, long waitNanos, boolean acquired) {
+    int bucket = bucket(waitNanos);
+    waitHistogram.incrementAndGet(bucket);
+    if (acquired) {
+      acquisitions.incrementAndGet();
+    } else {
+      timeouts.incrementAndGet();
+    }
+    if (stats != null) {
+      stats.waiting.decrementAndGet();
+      stats.waits.incrementAndGet();
+      stats.totalWaitNanos.addAndGet(waitNanos);
+      stats.waitHistogram.incrementAndGet(bucket);
+      if (!acquired) {
+        stats.timeouts.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Records a request rejected because too many requests were waiting.
+   */
+  void rejected() {
+    rejections.incrementAndGet();
+  }
+
+  /**
+   * @return number of acquired locks
+   */
+  public long getAcquisitions() {
+    return acquisitions.get();
+  }
+
+  /**
+   * @return number of requests that had to wait for a lock
+   */
+  public long getContended() {
+    return contended.get();
+  }
+
+  /**
+   * @return number of requests that gave up waiting for a lock
+   */
+  public long getTimeouts() {
+    return timeouts.get();
+  }
+
+  /**
+   * @return number of requests rejected because too many requests were waiting
+   */
+  public long getRejections() {
+    return rejections.get();
+  }
+
+  /**
+   * Returns the wait time histogram: the count at position {@code i} holds the waits up to
+   * {@code BUCKET_BOUNDS_MS[i]} milliseconds, and the last one the longer waits.
+   *
+   * @return the wait time histogram of the requests that had to wait
+   */
+  public long[] getWaitHistogram() {
+    return toArray(waitHistogram);
+  }
+
+  /**
+   * @return the upper bounds, in milliseconds, of the histogram buckets
+   */
+  public static long[] getBucketBoundsMillis() {
+    return BUCKET_BOUNDS_MS.clone();
+  }
+
+  /**
+   * Returns the statistics of the keys with more requests waiting, and then with more waits.
+   *
+   * @param limit
+   *     the maximum number of keys
+   * @return the hottest keys
+   */
+  public List<KeyStats> getHotKeys(int limit) {
+    if (keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return keys.values()
+        .stream()
+        .sorted(Comparator.comparingInt(KeyStats::getWaiting)
+            .thenComparingLong(KeyStats::getWaits)
+            .reversed())
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the statistics of a key.
+   *
+   * @param key
+   *     the key
+   * @return the statistics, or null if the key has not been contended
+   */
+  public KeyStats getKeyStats(String key) {
+    return keys.get(key);
+  }
+
+  /**
+   * Resets every metric.
+   */
+  void reset() {
+    acquisitions.set(0);
+    contended.set(0);
+    timeouts.set(0);
+    rejections.set(0);
+    for (int i = 0; i < waitHistogram.length(); i++) {
+      waitHistogram.set(i, 0);
+    }
+    keys.clear();
+  }
+
+  private void evictIdleKey() {
+    keys.values()
+        .stream()
+        .filter(stats -> stats.getWaiting() == 0)
+        .min(Comparator.comparingLong(KeyStats::getWaits))
+        .ifPresent(stats -> keys.remove(stats.key, stats));
+  }
+
+  private static int bucket(long waitNanos) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+      if (millis <= BUCKET_BOUNDS_MS[i]) {
+        return i;
+      }
+    }
+    return BUCKET_BOUNDS_MS.length;
+  }
+
+  private static long[] toArray(AtomicLongArray array) {
+    long[] values = new long[array.length()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = array.get(i);
+    }
+    return values;
+  }
+}
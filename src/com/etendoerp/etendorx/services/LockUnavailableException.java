@@ -0,0 +1,43 @@
+package com.etendoerp.etendorx.services;
+
+import org.openbravo.base.exception.OBException;
+
+/**
+ * Exception raised when the lock of a record cannot be acquired: it is held by another request for
+ * longer than the lock timeout (answered with a 409 Conflict status) or too many requests are
+ * already waiting for it (answered with a 503 Service Unavailable status).
+ */
+public class LockUnavailableException extends OBException {
+
+  private final String lockId;
+  private final boolean overloaded;
+
+  /**
+   * Creates a new LockUnavailableException.
+   *
+   * @param lockId the id of the lock that could not be acquired
+   * @param overloaded true when the request was rejected because too many requests were waiting,
+   *     false when the wait timed out
+   */
+  public LockUnavailableException(String lockId, boolean overloaded) {
+    super(overloaded
+        ? "Too many requests are waiting for record " + lockId + ", try again later."
+        : "Record " + lockId + " is locked by another request, try again later.");
+    this.lockId = lockId;
+    this.overloaded = overloaded;
+  }
+
+  /**
+   * @return the id of the lock that could not be acquired
+   */
+  public String getLockId() {
+    return lockId;
+  }
+
+  /**
+   * @return true when the request was rejected because too many requests were waiting
+   */
+  public boolean isOverloaded() {
+    return overloaded;
+  }
+}
@@ -0,0 +1,502 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.control.RequestContextController;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.openbravo.base.exception.OBException;
+import org.openbravo.base.secureApp.VariablesSecureApp;
+import org.openbravo.base.weld.WeldUtils;
+import org.openbravo.client.kernel.RequestContext;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.core.SessionHandler;
+import org.openbravo.dal.service.OBDal;
+
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+import com.etendoerp.etendorx.services.wrapper.DetachedRequestWrapper;
+import com.etendoerp.etendorx.services.wrapper.SynchronizedResponseWrapper;
+import com.etendoerp.etendorx.utils.HeadlessProperties;
+
+/**
+ * Processes the records of a bulk POST concurrently, partitioned by parent record.
+ * <p>
+ * Records with the same parent id (the key used by {@link LockManager}) form a partition and are
+ * processed one after another, in request order. Different partitions, and records without
+ * parent, are processed concurrently on a bounded pool shared by all requests. Each partition
+ * runs with its own DAL session and transaction, its own {@link OBContext} (same user, role,
+ * client, organization and language as the request) and a detached copy of the request, with its
+ * own attributes, headers and snapshot of the HTTP session, and is committed when all its records succeed or rolled back on the first failure.
+ * <p>
+ * The mode is disabled by default and enabled with {@link HeadlessProperties#POST_PARALLEL}.
+ * Unlike the sequential mode, where the request is one transaction, the records of partitions that
+ * succeeded stay committed when another partition fails, so every record reports its
+ * {@link Outcome}. When the pool queue is full the partitions that did not start are not
+ * processed, and the request is rejected if none of them was committed.
+ */
+public class ParallelPostProcessor {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /** Status returned by a record whose response does not carry one. */
+  public static final int NO_STATUS = Integer.MIN_VALUE;
+
+  private static final int DEFAULT_QUEUE_SIZE = 500;
+
+  private static final AtomicInteger threadCount = new AtomicInteger();
+  private static ThreadPoolExecutor executor;
+
+  /**
+   * What happened to a record of a bulk POST.
+   */
+  public enum Outcome {
+    /** The record was saved and its partition committed. */
+    COMMITTED,
+    /** The record failed, and its partition was rolled back. */
+    FAILED,
+    /** Another record of its partition failed, or its commit failed, so it was rolled back. */
+    ROLLED_BACK,
+    /** Its partition was not started, because the pool was full. */
+    NOT_PROCESSED
+  }
+
+  /**
+   * Processes a single record.
+   */
+  @FunctionalInterface
+  public interface RecordProcessor {
+    /**
+     * Processes the record, appending its results to the given array.
+     *
+     * @param payload
+     *     the record, in normalized format
+     * @param jsonData
+     *     array where the record results are appended
+     * @param batch
+     *     the batch state of the partition, null when batch mode is disabled
+     * @param request
+     *     the request to use, a detached copy private to the partition
+     * @param response
+     *     the response to wrap
+     * @return the status of the record, or {@link #NO_STATUS}
+     * @throws Exception
+     *     if the record cannot be processed
+     */
+    int process(JSONObject payload, JSONArray jsonData, PostBatchContext batch, HttpServletRequest request,
+        HttpServletResponse response) throws Exception;
+  }
+
+  /**
+   * Result of a record: its status and response entries, or the failure that stopped its partition.
+   */
+  public static class RecordResult {
+    private final JSONArray data = new JSONArray();
+    private int status = NO_STATUS;
+    private Exception failure;
+    private Outcome outcome = Outcome.NOT_PROCESSED;
+
+    public JSONArray getData() {
+      return data;
+    }
+
+    public int getStatus() {
+      return status;
+    }
+
+    public Exception getFailure() {
+      return failure;
+    }
+
+    public Outcome getOutcome() {
+      return outcome;
+    }
+
+    /**
+     * Describes the record for the client of a request that was only partially saved.
+     *
+     * @param index
+     *     the position of the record in the request
+     * @return the index, outcome and, when the record failed, the error message
+     * @throws JSONException
+     *     if the description cannot be built
+     */
+    public JSONObject toJSON(int index) throws JSONException {
+      JSONObject json = new JSONObject();
+      json.put("index", index);
+      json.put("outcome", outcome.name());
+      if (failure != null) {
+        json.put("message", failure.getMessage() != null ? failure.getMessage() : failure.getClass().getName());
+      }
+      return json;
+    }
+  }
+
+  /**
+   * Tells whether a bulk request with the given number of records must be processed in parallel.
+   *
+   * @param records
+   *     number of records in the request
+   * @return true if the parallel mode is enabled and there is more than one record
+   */
+  public static boolean isEnabled(int records) {
+    return records > 1 && HeadlessProperties.getBoolean(HeadlessProperties.POST_PARALLEL, false);
+  }
+
+  private static synchronized ThreadPoolExecutor getExecutor() {
+    if (executor == null) {
+      int threads = Math.max(1, HeadlessProperties.getInt(HeadlessProperties.POST_PARALLEL_THREADS,
+          Runtime.getRuntime().availableProcessors()));
+      int queueSize = Math.max(1, HeadlessProperties.getInt(HeadlessProperties.POST_PARALLEL_QUEUE_SIZE,
+          DEFAULT_QUEUE_SIZE));
+      executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(queueSize), runnable -> {
+        Thread thread = new Thread(runnable, "etendorx-headless-post-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      log.info("Started headless parallel POST pool with {} threads and a queue of {} partitions", threads,
+          queueSize);
+    }
+    return executor;
+  }
+
+  /**
+   * Stops the pool, waiting a few seconds for the running partitions. A later request starts a new
+   * one.
+   */
+  public static synchronized void shutdown() {
+    if (executor == null) {
+      return;
+    }
+    ThreadPoolExecutor stopping = executor;
+    executor = null;
+    stopping.shutdown();
+    try {
+      if (!stopping.awaitTermination(10, TimeUnit.SECONDS)) {
+        stopping.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stopping.shutdownNow();
+    }
+    log.info("Stopped headless parallel POST pool");
+  }
+
+  /**
+   * Processes the records and waits until all of them are done.
+   *
+   * @param request
+   *     the original request
+   * @param response
+   *     the original response
+   * @param payloads
+   *     the records of the request
+   * @param descriptor
+   *     the endpoint descriptor, used to read the parent id of the records
+   * @param batchMode
+   *     whether each partition shares the form initialization of its records
+   * @param processor
+   *     the processing of a single record
+   * @return the result of each record, in request order
+   * @throws JSONException
+   *     if a record is not a JSON object
+   * @throws IOException
+   *     if the request cannot be copied
+   * @throws RejectedExecutionException
+   *     if the pool queue is full and no partition was committed
+   */
+  public List<RecordResult> process(HttpServletRequest request, HttpServletResponse response, JSONArray payloads,
+      EndpointDescriptor descriptor, boolean batchMode, RecordProcessor processor)
+      throws JSONException, IOException {
+    List<RecordResult> results = new ArrayList<>(payloads.length());
+    Map<String, List<Integer>> partitions = new LinkedHashMap<>();
+    for (int i = 0; i < payloads.length(); i++) {
+      results.add(new RecordResult());
+      String parentId = descriptor.getParentId(payloads.getJSONObject(i));
+      String key = parentId != null ? "P:" + parentId : "R:" + i;
+      partitions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+    }
+    log.debug("Processing {} records of {} in {} partitions", payloads.length(), descriptor.getName(),
+        partitions.size());
+
+    WorkerContext context = captureContext();
+    HttpServletResponse sharedResponse = new SynchronizedResponseWrapper(response);
+    AtomicBoolean cancelled = new AtomicBoolean();
+    RejectedExecutionException rejection = null;
+    List<Future<?>> futures = new ArrayList<>(partitions.size());
+    for (List<Integer> partition : partitions.values()) {
+      // Each record builds its own request body, so the copy does not need the original one
+      HttpServletRequest workerRequest = new DetachedRequestWrapper(request, "");
+      try {
+        futures.add(submit(() -> {
+          if (!cancelled.get()) {
+            processPartition(context, workerRequest, sharedResponse, payloads, partition, results, batchMode,
+                processor);
+          }
+        }));
+      } catch (RejectedExecutionException e) {
+        // Partitions still queued are skipped too, only the running ones are finished
+        cancelled.set(true);
+        rejection = e;
+        log.warn("Headless parallel POST queue is full, {} records of {} are not processed", payloads.length(),
+            descriptor.getName());
+        break;
+      }
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OBException(e);
+      } catch (ExecutionException e) {
+        throw new OBException(e.getCause());
+      }
+    }
+    if (rejection != null) {
+      if (results.stream().noneMatch(result -> result.outcome == Outcome.COMMITTED)) {
+        throw rejection;
+      }
+      for (RecordResult result : results) {
+        if (result.outcome == Outcome.NOT_PROCESSED) {
+          result.failure = rejection;
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Processes the records of a partition in order, stopping at the first failure, and sets the
+   * outcome of each of them once the partition transaction ends.
+   */
+  void processPartition(WorkerContext context, HttpServletRequest request, HttpServletResponse response,
+      JSONArray payloads, List<Integer> partition, List<RecordResult> results, boolean batchMode,
+      RecordProcessor processor) {
+    boolean success = true;
+    for (Integer index : partition) {
+      results.get(index).outcome = Outcome.ROLLED_BACK;
+    }
+    try {
+      beginPartition(context, request);
+      PostBatchContext batch = batchMode ? new PostBatchContext() : null;
+      for (Integer index : partition) {
+        RecordResult result = results.get(index);
+        try {
+          result.status = processor.process(payloads.getJSONObject(index), result.data, batch, request, response);
+        } catch (Exception e) {
+          log.error("Error processing POST record {}", index, e);
+          result.failure = e;
+          result.outcome = Outcome.FAILED;
+          success = false;
+          break;
+        }
+      }
+    } catch (RuntimeException e) {
+      log.error("Error preparing the processing of POST records {}", partition, e);
+      fail(results.get(partition.get(0)), e);
+      success = false;
+    } finally {
+      try {
+        endPartition(success);
+        if (success) {
+          for (Integer index : partition) {
+            results.get(index).outcome = Outcome.COMMITTED;
+          }
+        }
+      } catch (RuntimeException e) {
+        log.error("Error ending the processing of POST records {}", partition, e);
+        if (success) {
+          fail(results.get(partition.get(0)), e);
+        }
+      }
+    }
+  }
+
+  private static void fail(RecordResult result, Exception e) {
+    result.failure = e;
+    result.outcome = Outcome.FAILED;
+  }
+
+  /**
+   * Queues a partition in the shared pool.
+   *
+   * @param task
+   *     the processing of the partition
+   * @return the future of the partition
+   * @throws RejectedExecutionException
+   *     if the pool queue is full
+   */
+  Future<?> submit(Runnable task) {
+    return getExecutor().submit(task);
+  }
+
+  /**
+   * Reads the identity of the request, to set it in the worker threads.
+   *
+   * @return the worker context
+   */
+  WorkerContext captureContext() {
+    return WorkerContext.capture();
+  }
+
+  /**
+   * Prepares the worker thread to process a partition: CDI request context, {@link OBContext} and
+   * {@link RequestContext}. The DAL session is opened on first use.
+   *
+   * @param context
+   *     the identity of the request
+   * @param request
+   *     the request of the partition
+   */
+  void beginPartition(WorkerContext context, HttpServletRequest request) {
+    context.attach(request);
+  }
+
+  /**
+   * Commits or rolls back the partition transaction and clears the worker thread.
+   *
+   * @param success
+   *     whether every record of the partition succeeded
+   */
+  void endPartition(boolean success) {
+    WorkerContext.detach(success);
+  }
+
+  /**
+   * Identity of the request a worker thread runs on behalf of.
+   */
+  static class WorkerContext {
+    private static final ThreadLocal<RequestContextController> requestScope = new ThreadLocal<>();
+
+    private final String userId;
+    private final String roleId;
+    private final String clientId;
+    private final String orgId;
+    private final String language;
+
+    WorkerContext(String userId, String roleId, String clientId, String orgId, String language) {
+      this.userId = userId;
+      this.roleId = roleId;
+      this.clientId = clientId;
+      this.orgId = orgId;
+      this.language = language;
+    }
+
+    /**
+     * Reads the identity of the current request.
+     *
+     * @return the worker context
+     */
+    static WorkerContext capture() {
+      OBContext obContext = OBContext.getOBContext();
+      return new WorkerContext(obContext.getUser().getId(), obContext.getRole().getId(),
+          obContext.getCurrentClient().getId(), obContext.getCurrentOrganization().getId(),
+          obContext.getLanguage().getLanguage());
+    }
+
+    String getUserId() {
+      return userId;
+    }
+
+    String getClientId() {
+      return clientId;
+    }
+
+    /**
+     * Prepares the current thread to work on behalf of the request: CDI request context,
+     * {@link OBContext} and {@link RequestContext}. The DAL session is opened on first use.
+     *
+     * @param request
+     *     the request to set in the request context
+     */
+    void attach(HttpServletRequest request) {
+      activateRequestScope();
+      OBContext.setOBContext(userId, roleId, clientId, orgId, language);
+      RequestContext requestContext = RequestContext.get();
+      requestContext.setRequest(request);
+      requestContext.setVariableSecureApp(new VariablesSecureApp(request));
+    }
+
+    /**
+     * Commits or rolls back the transaction of the current thread and clears its context.
+     *
+     * @param success
+     *     whether the work succeeded
+     */
+    static void detach(boolean success) {
+      try {
+        if (SessionHandler.isSessionHandlerPresent()) {
+          if (success) {
+            OBDal.getInstance().commitAndClose();
+          } else {
+            OBDal.getInstance().rollbackAndClose();
+          }
+        }
+      } finally {
+        SessionHandler.deleteSessionHandler();
+        OBContext.setOBContext((OBContext) null);
+        RequestContext.clear();
+        deactivateRequestScope();
+      }
+    }
+
+    /**
+     * Activates a CDI request context, as request scoped beans may be used by the form
+     * initialization and the datasources.
+     */
+    private void activateRequestScope() {
+      try {
+        RequestContextController controller = WeldUtils.getInstanceFromStaticBeanManager(
+            RequestContextController.class);
+        if (controller.activate()) {
+          requestScope.set(controller);
+        }
+      } catch (RuntimeException e) {
+        log.debug("CDI request context not available in headless POST worker", e);
+      }
+    }
+
+    private static void deactivateRequestScope() {
+      RequestContextController controller = requestScope.get();
+      requestScope.remove();
+      if (controller != null) {
+        controller.deactivate();
+      }
+    }
+  }
+}
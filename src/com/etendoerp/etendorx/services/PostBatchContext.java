@@ -0,0 +1,162 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.jettison.json.JSONObject;
+
+import com.etendoerp.etendorx.services.metadata.EndpointDescriptor;
+
+/**
+ * State shared by the records of a bulk POST request (a JSON array of records).
+ * <p>
+ * Records are still processed one by one and in order, so each one gets its own entry in
+ * {@code response.data}, but the work that does not depend on the record itself is done once per
+ * group of records with the same tab and parent: the NEW form initialization, whose defaults are
+ * reused when {@link EndpointDescriptor#canReuseNewDefaults} allows it. The selector rows resolved
+ * for the values set on the records are also reused, keyed by the selector, the resolved query with
+ * its bound values and the selected id, so records whose filter inputs differ run their own lookup.
+ * <p>
+ * Instances are request scoped and must not be shared between threads.
+ */
+public class PostBatchContext {
+
+  private final Map<String, JSONObject> newRecordDefaults = new HashMap<>();
+  private final Map<String, JSONObject> selectorRecords = new HashMap<>();
+  private int newFormInits;
+  private int reusedNewFormInits;
+  private int skippedChangeEvents;
+  private int selectorLookups;
+  private int reusedSelectorLookups;
+
+  /**
+   * Returns the NEW form initialization response computed for a previous record of the group.
+   *
+   * @param tabId
+   *     the id of the tab
+   * @param parentId
+   *     the id of the parent record, null for header records
+   * @return the form initialization response, or null if none was computed yet
+   */
+  public JSONObject getNewRecordDefaults(String tabId, String parentId) {
+    JSONObject defaults = newRecordDefaults.get(key(tabId, parentId));
+    if (defaults != null) {
+      reusedNewFormInits++;
+    }
+    return defaults;
+  }
+
+  /**
+   * Keeps the NEW form initialization response of a record to reuse it in the rest of its group.
+   * The response is shared, so it must not be modified afterwards.
+   *
+   * @param tabId
+   *     the id of the tab
+   * @param parentId
+   *     the id of the parent record, null for header records
+   * @param formInitResponse
+   *     the form initialization response
+   */
+  public void putNewRecordDefaults(String tabId, String parentId, JSONObject formInitResponse) {
+    newFormInits++;
+    newRecordDefaults.put(key(tabId, parentId), formInitResponse);
+  }
+
+  /**
+   * Returns the selector row resolved for a previous record by the same lookup.
+   *
+   * @param key
+   *     the selector, resolved query, bound values and selected id of the lookup
+   * @return the selector row, or null if the lookup was not done yet
+   */
+  public JSONObject getSelectorRecord(String key) {
+    JSONObject selectorRecord = selectorRecords.get(key);
+    if (selectorRecord != null) {
+      reusedSelectorLookups++;
+    }
+    return selectorRecord;
+  }
+
+  /**
+   * Keeps the selector row resolved for a record to reuse it in the rest of the request. The row is
+   * shared, so it must not be modified afterwards.
+   *
+   * @param key
+   *     the selector, resolved query, bound values and selected id of the lookup
+   * @param selectorRecord
+   *     the selector row
+   */
+  public void putSelectorRecord(String key, JSONObject selectorRecord) {
+    selectorLookups++;
+    selectorRecords.put(key, selectorRecord);
+  }
+
+  /**
+   * Records that the CHANGE event of a property has been skipped.
+   */
+  public void changeEventSkipped() {
+    skippedChangeEvents++;
+  }
+
+  /**
+   * @return number of NEW form initializations kept for reuse
+   */
+  public int getNewFormInits() {
+    return newFormInits;
+  }
+
+  /**
+   * @return number of records that reused the NEW form initialization of a previous one
+   */
+  public int getReusedNewFormInits() {
+    return reusedNewFormInits;
+  }
+
+  /**
+   * @return number of CHANGE events that were not emulated, as they cannot modify other values
+   */
+  public int getSkippedChangeEvents() {
+    return skippedChangeEvents;
+  }
+
+  /**
+   * @return number of selector lookups kept for reuse
+   */
+  public int getSelectorLookups() {
+    return selectorLookups;
+  }
+
+  /**
+   * @return number of selector lookups served from a previous record
+   */
+  public int getReusedSelectorLookups() {
+    return reusedSelectorLookups;
+  }
+
+  private static String key(String tabId, String parentId) {
+    return tabId + "/" + parentId;
+  }
+
+  @Override
+  public String toString() {
+    return newFormInits + " NEW form initializations reused " + reusedNewFormInits + " times, "
+        + skippedChangeEvents + " CHANGE events skipped, " + selectorLookups + " selector lookups reused "
+        + reusedSelectorLookups + " times";
+  }
+}
@@ -0,0 +1,219 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.exception.OBException;
+import org.openbravo.dal.service.OBDal;
+
+/**
+ * {@link LockBackend} shared by every node using the database, based on PostgreSQL transaction
+ * level advisory locks.
+ * <p>
+ * The lock id is hashed into the 64 bit key of {@code pg_advisory_xact_lock}. The lock is taken
+ * in the current DAL transaction and is held until it is committed or rolled back, whatever the
+ * lease does: records of a parent are then serialized until the changes of the previous request
+ * are visible to the next one. Waits with a timeout poll {@code pg_try_advisory_xact_lock}, so a
+ * timeout does not abort the transaction. Shared locks use the {@code _shared} variants of the same
+ * functions. Session level locks are not used, as the DAL connection
+ * may go back to the pool before the lease is closed, keeping the lock. As a request keeps every
+ * lock it takes, it must take them in id order: see {@link LockManager#tryLockInOrder}.
+ * <p>
+ * The limit of waiting requests only counts the requests of this node.
+ */
+public class PostgresAdvisoryLockBackend implements LockBackend {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String KEY_NAMESPACE = "etendorx:";
+  private static final String REQUEST_KEY_NAMESPACE = "etendorx-key:";
+  private static final String TRY_LOCK = "select pg_try_advisory_xact_lock(?)";
+  private static final String LOCK = "select pg_advisory_xact_lock(?)";
+  private static final String TRY_LOCK_SHARED = "select pg_try_advisory_xact_lock_shared(?)";
+  private static final String LOCK_SHARED = "select pg_advisory_xact_lock_shared(?)";
+  private static final long MIN_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private final LockMetrics metrics;
+  private final Supplier<Connection> connections;
+  private final ConcurrentMap<String, AtomicInteger> waiting = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a backend taking the locks in the transaction of the current DAL session.
+   *
+   * @param metrics
+   *     the metrics where waits are recorded
+   */
+  public PostgresAdvisoryLockBackend(LockMetrics metrics) {
+    this(metrics, () -> OBDal.getInstance().getConnection(false));
+  }
+
+  /**
+   * Creates a backend taking the locks in the transaction of the given connections.
+   *
+   * @param metrics
+   *     the metrics where waits are recorded
+   * @param connections
+   *     supplies the connection of the current transaction
+   */
+  PostgresAdvisoryLockBackend(LockMetrics metrics, Supplier<Connection> connections) {
+    this.metrics = metrics;
+    this.connections = connections;
+  }
+
+  @Override
+  public Handle acquire(String lockId, long timeoutNanos, int maxWaiters) {
+    return acquire(lockId, timeoutNanos, maxWaiters, false);
+  }
+
+  @Override
+  public Handle acquireShared(String lockId, long timeoutNanos, int maxWaiters) {
+    return acquire(lockId, timeoutNanos, maxWaiters, true);
+  }
+
+  @Override
+  public boolean isHeldUntilTransactionEnd() {
+    return true;
+  }
+
+  @Override
+  public Handle acquireKey(String key, long timeoutNanos, int maxWaiters) {
+    return acquire(key, toKey(REQUEST_KEY_NAMESPACE, key), timeoutNanos, maxWaiters, false);
+  }
+
+  private Handle acquire(String lockId, long timeoutNanos, int maxWaiters, boolean shared) {
+    return acquire(lockId, toKey(lockId), timeoutNanos, maxWaiters, shared);
+  }
+
+  private Handle acquire(String lockId, long key, long timeoutNanos, int maxWaiters, boolean shared) {
+    Connection connection = connections.get();
+    if (tryLock(connection, key, shared)) {
+      metrics.acquired();
+      return () -> log.trace("Lock id={} is released with its transaction", lockId);
+    }
+    AtomicInteger counter = waiting.computeIfAbsent(lockId, k -> new AtomicInteger());
+    int depth = counter.incrementAndGet();
+    try {
+      if (maxWaiters > 0 && depth > maxWaiters) {
+        metrics.rejected();
+        log.warn("Rejecting request for lock id={}: {} requests waiting", lockId, depth - 1);
+        throw new LockUnavailableException(lockId, true);
+      }
+      LockMetrics.KeyStats stats = metrics.startWait(lockId);
+      long start = System.nanoTime();
+      boolean acquired = false;
+      try {
+        acquired = waitFor(connection, key, timeoutNanos, shared);
+      } finally {
+        metrics.endWait(stats, System.nanoTime() - start, acquired);
+      }
+      if (!acquired) {
+        log.warn("Timed out waiting for lock id={}", lockId);
+        throw new LockUnavailableException(lockId, false);
+      }
+    } finally {
+      if (counter.decrementAndGet() == 0) {
+        waiting.remove(lockId, counter);
+      }
+    }
+    return () -> log.trace("Lock id={} is released with its transaction", lockId);
+  }
+
+  /**
+   * Waits for the lock, polling it with an increasing interval when there is a timeout.
+   */
+  private boolean waitFor(Connection connection, long key, long timeoutNanos, boolean shared) {
+    if (timeoutNanos < 0) {
+      execute(connection, shared ? LOCK_SHARED : LOCK, key);
+      return true;
+    }
+    long deadline = System.nanoTime() + timeoutNanos;
+    long pause = MIN_POLL_NANOS;
+    while (true) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      try {
+        TimeUnit.NANOSECONDS.sleep(Math.min(pause, remaining));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      if (tryLock(connection, key, shared)) {
+        return true;
+      }
+      pause = Math.min(pause * 2, MAX_POLL_NANOS);
+    }
+  }
+
+  private static boolean tryLock(Connection connection, long key, boolean shared) {
+    try (PreparedStatement statement = connection.prepareStatement(shared ? TRY_LOCK_SHARED : TRY_LOCK)) {
+      statement.setLong(1, key);
+      try (ResultSet result = statement.executeQuery()) {
+        return result.next() && result.getBoolean(1);
+      }
+    } catch (SQLException e) {
+      throw new OBException("Error acquiring advisory lock " + key, e);
+    }
+  }
+
+  private static void execute(Connection connection, String sql, long key) {
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setLong(1, key);
+      statement.executeQuery().close();
+    } catch (SQLException e) {
+      throw new OBException("Error acquiring advisory lock " + key, e);
+    }
+  }
+
+  /**
+   * Hashes a lock id into the key of the advisory lock.
+   *
+   * @param lockId
+   *     the lock id
+   * @return the 64 bit key
+   */
+  static long toKey(String lockId) {
+    return toKey(KEY_NAMESPACE, lockId);
+  }
+
+  private static long toKey(String namespace, String lockId) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256")
+          .digest((namespace + lockId).getBytes(StandardCharsets.UTF_8));
+      return ByteBuffer.wrap(hash).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      throw new OBException(e);
+    }
+  }
+}
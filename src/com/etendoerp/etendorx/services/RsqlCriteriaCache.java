@@ -0,0 +1,351 @@
+package com.etendoerp.etendorx.services;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import com.etendoerp.etendorx.utils.HeadlessProperties;
+import com.smf.securewebservices.rsql.OBRestUtils;
+
+/**
+ * Bounded LRU cache of the AdvancedCriteria built from the RSQL {@code q} parameter of the headless
+ * GET endpoint.
+ * <p>
+ * Literal values that cannot change the shape of the criteria (identifiers and plain words: no
+ * wildcards, spaces, numbers, words read as numbers such as {@code 1E10}, dates or booleans) are
+ * replaced by placeholders before parsing, so
+ * {@code id==A} and {@code id==B} share one template. A template is only stored after checking
+ * that filling it with the values of the request that built it gives exactly the criteria of a
+ * direct parse; otherwise the criteria are cached for the exact RSQL string.
+ */
+public final class RsqlCriteriaCache {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /** Maximum number of cached criteria. Defaults to 500. */
+  public static final String CACHE_SIZE_PROPERTY = "etendorx.headless.rsql.cache.size";
+  private static final int DEFAULT_CACHE_SIZE = 500;
+
+  private static final String CONSTRUCTOR = "_constructor";
+  private static final String ADVANCED_CRITERIA = "AdvancedCriteria";
+  private static final String TEMPLATE_KEY = "T:";
+  private static final String RAW_KEY = "R:";
+  private static final String PLACEHOLDER_PREFIX = "ETRXPARAM";
+  private static final String PLACEHOLDER_SUFFIX = "Z";
+
+  private static final Pattern OPERATOR = Pattern.compile("==|!=|=[a-zA-Z]*=|<=|>=|<|>");
+  private static final Pattern SAFE_LITERAL = Pattern.compile("[A-Za-z0-9_\\-]*[A-Za-z][A-Za-z0-9_\\-]*");
+  private static final String RESERVED_LITERALS = "|true|false|null|";
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static final Map<String, Entry> cache = new LinkedHashMap<>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > maxSize;
+    }
+  };
+  private static int maxSize = HeadlessProperties.getInt(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+
+  private RsqlCriteriaCache() {
+    // utility class
+  }
+
+  /**
+   * Returns the serialized AdvancedCriteria of the given RSQL expression.
+   *
+   * @param rsql
+   *     the RSQL expression
+   * @return the criteria, as sent in the {@code criteria} parameter of the datasource
+   * @throws JSONException
+   *     if the expression cannot be converted
+   */
+  public static String getCriteria(String rsql) throws JSONException {
+    String normalized = StringUtils.trim(rsql);
+    ParameterizedRsql parameterized = ParameterizedRsql.parse(normalized);
+    Entry entry;
+    synchronized (cache) {
+      entry = parameterized == null ? null : cache.get(TEMPLATE_KEY + parameterized.template);
+      if (entry == null) {
+        entry = cache.get(RAW_KEY + normalized);
+      }
+    }
+    if (entry != null) {
+      hits.incrementAndGet();
+      return entry.fill(parameterized);
+    }
+    misses.incrementAndGet();
+
+    String criteria = parse(normalized);
+    String key = RAW_KEY + normalized;
+    Entry newEntry = new Entry(criteria, false);
+    if (parameterized != null && !parameterized.values.isEmpty()) {
+      String template = buildTemplate(parameterized, criteria);
+      if (template != null) {
+        key = TEMPLATE_KEY + parameterized.template;
+        newEntry = new Entry(template, true);
+      }
+    }
+    synchronized (cache) {
+      cache.put(key, newEntry);
+    }
+    return criteria;
+  }
+
+  /**
+   * @return number of lookups served from the cache
+   */
+  public static long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of lookups that had to parse the expression
+   */
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of cached entries
+   */
+  public static int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * Drops every cached entry and resets the counters.
+   */
+  public static void clear() {
+    synchronized (cache) {
+      cache.clear();
+    }
+    hits.set(0);
+    misses.set(0);
+  }
+
+  /**
+   * Changes the maximum number of entries. Entries above the new size are evicted on next insert.
+   *
+   * @param size
+   *     the new maximum size
+   */
+  static void setMaxSize(int size) {
+    synchronized (cache) {
+      maxSize = size;
+    }
+  }
+
+  private static String parse(String rsql) throws JSONException {
+    JSONObject criteria = OBRestUtils.criteriaFromRSQL(rsql);
+    criteria.put(CONSTRUCTOR, ADVANCED_CRITERIA);
+    return criteria.toString();
+  }
+
+  /**
+   * Parses the parameterized expression and checks that the placeholders can be safely replaced.
+   *
+   * @return the serialized template, or null when it cannot be used for other values
+   */
+  private static String buildTemplate(ParameterizedRsql parameterized, String expected) {
+    try {
+      String template = parse(parameterized.template);
+      for (int i = 0; i < parameterized.values.size(); i++) {
+        String quoted = JSONObject.quote(placeholder(i));
+        if (StringUtils.countMatches(template, quoted) != 1) {
+          return null;
+        }
+      }
+      Entry candidate = new Entry(template, true);
+      return StringUtils.equals(expected, candidate.fill(parameterized)) ? template : null;
+    } catch (Exception e) {
+      log.debug("RSQL expression {} cannot be cached as a template", parameterized.template, e);
+      return null;
+    }
+  }
+
+  private static String placeholder(int index) {
+    return PLACEHOLDER_PREFIX + index + PLACEHOLDER_SUFFIX;
+  }
+
+  /**
+   * A cached criteria, either final or a template with placeholders.
+   */
+  private static final class Entry {
+    private final String criteria;
+    private final boolean template;
+
+    private Entry(String criteria, boolean template) {
+      this.criteria = criteria;
+      this.template = template;
+    }
+
+    private String fill(ParameterizedRsql parameterized) {
+      if (!template) {
+        return criteria;
+      }
+      String filled = criteria;
+      for (int i = 0; i < parameterized.values.size(); i++) {
+        filled = StringUtils.replaceOnce(filled, JSONObject.quote(placeholder(i)),
+            JSONObject.quote(parameterized.values.get(i)));
+      }
+      return filled;
+    }
+  }
+
+  /**
+   * An RSQL expression whose safe literal values have been replaced by placeholders.
+   */
+  static final class ParameterizedRsql {
+    final String template;
+    final List<String> values;
+
+    private ParameterizedRsql(String template, List<String> values) {
+      this.template = template;
+      this.values = values;
+    }
+
+    /**
+     * Tokenizes the expression, replacing the safe literal values by placeholders.
+     *
+     * @param rsql
+     *     the RSQL expression
+     * @return the parameterized expression, or null if it is not well formed
+     */
+    static ParameterizedRsql parse(String rsql) {
+      if (StringUtils.isEmpty(rsql)) {
+        return null;
+      }
+      StringBuilder template = new StringBuilder(rsql.length());
+      List<String> values = new ArrayList<>();
+      Matcher matcher = OPERATOR.matcher(rsql);
+      int i = 0;
+      int n = rsql.length();
+      while (i < n) {
+        matcher.region(i, n);
+        if (!matcher.lookingAt()) {
+          char c = rsql.charAt(i);
+          if (c == '\'' || c == '"') {
+            // quotes are only expected in values
+            return null;
+          }
+          template.append(c);
+          i++;
+          continue;
+        }
+        template.append(matcher.group());
+        i = matcher.end();
+        if (i < n && rsql.charAt(i) == '(') {
+          template.append('(');
+          i++;
+          while (i < n && rsql.charAt(i) != ')') {
+            i = appendValue(rsql, i, template, values);
+            if (i < 0) {
+              return null;
+            }
+            if (i < n && rsql.charAt(i) == ',') {
+              template.append(',');
+              i++;
+            }
+          }
+          if (i >= n) {
+            return null;
+          }
+          template.append(')');
+          i++;
+        } else {
+          i = appendValue(rsql, i, template, values);
+          if (i < 0) {
+            return null;
+          }
+        }
+      }
+      return new ParameterizedRsql(template.toString(), values);
+    }
+
+    /**
+     * Appends the value starting at the given position, returning the position after it, or -1 if
+     * a quoted value is not closed.
+     */
+    private static int appendValue(String rsql, int start, StringBuilder template, List<String> values) {
+      int n = rsql.length();
+      int i = start;
+      String literal;
+      char first = i < n ? rsql.charAt(i) : 0;
+      if (first == '\'' || first == '"') {
+        StringBuilder unquoted = new StringBuilder();
+        i++;
+        while (i < n && rsql.charAt(i) != first) {
+          if (rsql.charAt(i) == '\\' && i + 1 < n) {
+            i++;
+          }
+          unquoted.append(rsql.charAt(i));
+          i++;
+        }
+        if (i >= n) {
+          return -1;
+        }
+        i++;
+        literal = unquoted.toString();
+      } else {
+        while (i < n && ";,()".indexOf(rsql.charAt(i)) < 0) {
+          i++;
+        }
+        literal = rsql.substring(start, i);
+      }
+      if (isSafeLiteral(literal)) {
+        template.append(placeholder(values.size()));
+        values.add(literal);
+      } else {
+        template.append(rsql, start, i);
+      }
+      return i;
+    }
+
+    private static boolean isSafeLiteral(String literal) {
+      return SAFE_LITERAL.matcher(literal).matches()
+          && !StringUtils.containsIgnoreCase(RESERVED_LITERALS, "|" + literal + "|")
+          && !StringUtils.startsWith(literal, PLACEHOLDER_PREFIX)
+          && !isNumberLike(literal);
+    }
+
+    /**
+     * Tells whether a literal with letters may still be read as a number, such as {@code 1E10},
+     * {@code 0x1F}, {@code 10L} or {@code NaN}: the parser could type it differently from the
+     * literal the template was checked with.
+     */
+    private static boolean isNumberLike(String literal) {
+      return NumberUtils.isCreatable(literal)
+          || StringUtils.equalsAnyIgnoreCase(StringUtils.removeStart(literal, "-"), "NaN", "Infinity");
+    }
+  }
+}
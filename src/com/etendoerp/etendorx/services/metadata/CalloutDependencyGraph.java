@@ -0,0 +1,234 @@
+package com.etendoerp.etendorx.services.metadata;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openbravo.model.ad.ui.AuxiliaryInput;
+import org.openbravo.model.ad.ui.Field;
+import org.openbravo.model.ad.ui.Tab;
+
+/**
+ * Immutable graph of the dependencies between the properties of a tab, used to emulate only the
+ * CHANGE events that can modify the record.
+ * <p>
+ * A property depends on another one when the validation rule, the display logic or the read only
+ * logic of its column references the other column as {@code @ColumnName@}. The CHANGE event of a
+ * property is needed when its column has a callout, when another property depends on it, or when
+ * an auxiliary input of the tab references it. The properties set in a request are processed in
+ * topological order, so a value is set after the CHANGE events of the columns it depends on, and
+ * following the field order otherwise.
+ */
+public final class CalloutDependencyGraph {
+
+  private static final Pattern CONTEXT_REFERENCE = Pattern.compile("@([^@\\s]+)@");
+
+  private final Set<String> changeEventProperties;
+  private final Map<String, Set<String>> ancestors;
+
+  private CalloutDependencyGraph(Builder builder) {
+    this.changeEventProperties = Collections.unmodifiableSet(new HashSet<>(builder.changeEventProperties));
+    Map<String, Set<String>> closure = new HashMap<>();
+    for (String property : builder.dependencies.keySet()) {
+      Set<String> reached = new HashSet<>();
+      collectAncestors(property, builder.dependencies, reached);
+      reached.remove(property);
+      closure.put(property, Collections.unmodifiableSet(reached));
+    }
+    this.ancestors = Collections.unmodifiableMap(closure);
+  }
+
+  private static void collectAncestors(String property, Map<String, Set<String>> dependencies,
+      Set<String> reached) {
+    for (String dependency : dependencies.getOrDefault(property, Collections.emptySet())) {
+      if (reached.add(dependency)) {
+        collectAncestors(dependency, dependencies, reached);
+      }
+    }
+  }
+
+  /**
+   * Builds the graph of the given tab.
+   *
+   * @param tab
+   *     the tab
+   * @param propertyByColumn
+   *     normalized (HQL) property name of each column exposed by the endpoint, by lower case
+   *     database column name
+   * @return the dependency graph
+   */
+  public static CalloutDependencyGraph fromTab(Tab tab, Map<String, String> propertyByColumn) {
+    Builder builder = new Builder();
+    for (Field field : tab.getADFieldList()) {
+      Column column = field.getColumn();
+      String property = column == null ? null : propertyByColumn.get(StringUtils.lowerCase(column.getDBColumnName()));
+      if (property == null) {
+        continue;
+      }
+      if (column.getCallout() != null) {
+        builder.changeEvent(property);
+      }
+      Set<String> references = new HashSet<>();
+      addReferences(field.getDisplayLogic(), references);
+      addReferences(column.getReadOnlyLogic(), references);
+      if (column.getValidation() != null) {
+        addReferences(column.getValidation().getValidationCode(), references);
+      }
+      for (String reference : references) {
+        String dependency = propertyByColumn.get(reference);
+        if (dependency != null && !StringUtils.equals(dependency, property)) {
+          builder.dependency(property, dependency);
+        }
+      }
+    }
+    for (AuxiliaryInput auxiliaryInput : tab.getADAuxiliaryInputList()) {
+      Set<String> references = new HashSet<>();
+      addReferences(auxiliaryInput.getValidationCode(), references);
+      for (String reference : references) {
+        String dependency = propertyByColumn.get(reference);
+        if (dependency != null) {
+          builder.changeEvent(dependency);
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Collects the columns referenced as {@code @ColumnName@} by the given expression. Session and
+   * preference references ({@code @#...@}, {@code @$...@}) are ignored.
+   *
+   * @param expression
+   *     a validation code, display logic or read only logic, may be null
+   * @param references
+   *     set where the lower case names of the referenced columns are added
+   */
+  static void addReferences(String expression, Set<String> references) {
+    if (StringUtils.isEmpty(expression)) {
+      return;
+    }
+    Matcher matcher = CONTEXT_REFERENCE.matcher(expression);
+    while (matcher.find()) {
+      String name = matcher.group(1);
+      if (!StringUtils.startsWithAny(name, "#", "$")) {
+        references.add(StringUtils.lowerCase(name));
+      }
+    }
+  }
+
+  /**
+   * Tells whether setting the given property may change other values of the record.
+   *
+   * @param property
+   *     normalized (HQL) name of the property
+   * @return true if the CHANGE event of the property must be emulated
+   */
+  public boolean requiresChangeEvent(String property) {
+    return changeEventProperties.contains(property);
+  }
+
+  /**
+   * Returns the properties each property depends on, directly or through other properties.
+   *
+   * @param property
+   *     normalized (HQL) name of the property
+   * @return the properties it depends on
+   */
+  public Set<String> getDependencies(String property) {
+    return ancestors.getOrDefault(property, Collections.emptySet());
+  }
+
+  /**
+   * Sorts the given properties so that each one comes after the properties it depends on. The
+   * given order is kept otherwise, and used to break dependency cycles.
+   *
+   * @param properties
+   *     the properties set in a request, in field order
+   * @return the properties in the order their values must be set
+   */
+  public List<String> sort(List<String> properties) {
+    List<String> pending = new ArrayList<>(properties);
+    List<String> sorted = new ArrayList<>(properties.size());
+    while (!pending.isEmpty()) {
+      String next = pending.get(0);
+      for (String candidate : pending) {
+        if (Collections.disjoint(getDependencies(candidate), pending)) {
+          next = candidate;
+          break;
+        }
+      }
+      pending.remove(next);
+      sorted.add(next);
+    }
+    return sorted;
+  }
+
+  @Override
+  public String toString() {
+    return changeEventProperties.size() + " properties with CHANGE event, " + ancestors.size()
+        + " dependent properties";
+  }
+
+  /**
+   * Builder for {@link CalloutDependencyGraph}.
+   */
+  public static class Builder {
+    private final Set<String> changeEventProperties = new HashSet<>();
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+
+    /**
+     * Marks a property as needing the CHANGE event, because its column has a callout.
+     *
+     * @param property
+     *     normalized name of the property
+     * @return this builder
+     */
+    public Builder changeEvent(String property) {
+      changeEventProperties.add(property);
+      return this;
+    }
+
+    /**
+     * Adds a dependency. The property it depends on needs the CHANGE event.
+     *
+     * @param property
+     *     normalized name of the dependent property
+     * @param dependsOn
+     *     normalized name of the property it depends on
+     * @return this builder
+     */
+    public Builder dependency(String property, String dependsOn) {
+      dependencies.computeIfAbsent(property, k -> new HashSet<>()).add(dependsOn);
+      changeEventProperties.add(dependsOn);
+      return this;
+    }
+
+    public CalloutDependencyGraph build() {
+      return new CalloutDependencyGraph(this);
+    }
+  }
+}
@@ -0,0 +1,488 @@
+package com.etendoerp.etendorx.services.metadata;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jettison.json.JSONObject;
+
+import com.etendoerp.etendorx.services.wrapper.RequestField;
+import com.etendoerp.etendorx.utils.FieldConverter;
+
+/**
+ * Immutable, precompiled metadata of a headless endpoint ({@code ETAPI_OPENAPI_REQ}).
+ * <p>
+ * Everything the headless {@code DataSourceServlet} used to recompute on every request (the ordered
+ * field list, the name conversion maps between HQL, input and database column names, the column
+ * types, compiled to a {@link FieldConverter} per field, and the parent link properties) is resolved
+ * once and kept here. Everything is resolved while
+ * building, so the descriptor does not need a DAL session and can be shared between requests.
+ *
+ * @see EndpointMetadataCache
+ */
+public final class EndpointDescriptor {
+
+  private final String name;
+  private final String tabId;
+  private final String windowId;
+  private final String tableId;
+  private final String tableName;
+  private final List<RequestField> fields;
+  private final Map<String, String> norm2input;
+  private final Map<String, String> input2norm;
+  private final Map<String, String> dbname2input;
+  private final Map<String, String> columnTypes;
+  private final String[] propertyNames;
+  private final String[] inputNames;
+  private final String[] types;
+  private final FieldConverter[] converters;
+  private final Map<String, Integer> propertyIndex;
+  private final Map<String, Integer> inputIndex;
+  private final List<String> parentProperties;
+  private final List<String> lockKeyProperties;
+  private final CalloutDependencyGraph dependencyGraph;
+  private final List<String> sqlDefaultProperties;
+  private final boolean newDefaultsReusable;
+
+  private EndpointDescriptor(Builder builder) {
+    this.name = builder.name;
+    this.tabId = builder.tabId;
+    this.windowId = builder.windowId;
+    this.tableId = builder.tableId;
+    this.tableName = builder.tableName;
+    this.fields = Collections.unmodifiableList(new ArrayList<>(builder.fields));
+    this.norm2input = Collections.unmodifiableMap(new LinkedHashMap<>(builder.norm2input));
+    this.input2norm = Collections.unmodifiableMap(new HashMap<>(builder.input2norm));
+    this.dbname2input = Collections.unmodifiableMap(new HashMap<>(builder.dbname2input));
+    this.columnTypes = Collections.unmodifiableMap(new HashMap<>(builder.columnTypes));
+    this.propertyNames = norm2input.keySet().toArray(new String[0]);
+    this.inputNames = new String[propertyNames.length];
+    this.types = new String[propertyNames.length];
+    this.converters = new FieldConverter[propertyNames.length];
+    Map<String, Integer> properties = new HashMap<>();
+    for (int i = 0; i < propertyNames.length; i++) {
+      inputNames[i] = norm2input.get(propertyNames[i]);
+      types[i] = columnTypes.get(propertyNames[i]);
+      converters[i] = FieldConverter.forType(types[i]);
+      properties.put(propertyNames[i], i);
+    }
+    Map<String, Integer> inputs = new HashMap<>();
+    for (Map.Entry<String, String> entry : input2norm.entrySet()) {
+      inputs.put(entry.getKey(), properties.get(entry.getValue()));
+    }
+    this.propertyIndex = Collections.unmodifiableMap(properties);
+    this.inputIndex = Collections.unmodifiableMap(inputs);
+    this.parentProperties = Collections.unmodifiableList(new ArrayList<>(builder.parentProperties));
+    this.lockKeyProperties = Collections.unmodifiableList(new ArrayList<>(builder.lockKeyProperties));
+    this.dependencyGraph = builder.dependencyGraph;
+    this.sqlDefaultProperties = Collections.unmodifiableList(new ArrayList<>(builder.sqlDefaultProperties));
+    this.newDefaultsReusable = builder.newDefaultsReusable;
+  }
+
+  /**
+   * @return the endpoint name, as used in the request path
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the id of the tab exposed by the endpoint
+   */
+  public String getTabId() {
+    return tabId;
+  }
+
+  /**
+   * @return the id of the window the tab belongs to
+   */
+  public String getWindowId() {
+    return windowId;
+  }
+
+  /**
+   * @return the id of the table of the tab
+   */
+  public String getTableId() {
+    return tableId;
+  }
+
+  /**
+   * @return the name of the table of the tab, used to address its datasource
+   */
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * @return the request fields of the endpoint, ordered by their configured sequence number
+   */
+  public List<RequestField> getFields() {
+    return fields;
+  }
+
+  /**
+   * @return normalized (HQL) name to input name map, iterated in field order
+   */
+  public Map<String, String> getNorm2input() {
+    return norm2input;
+  }
+
+  /**
+   * @return input name to normalized (HQL) name map
+   */
+  public Map<String, String> getInput2norm() {
+    return input2norm;
+  }
+
+  /**
+   * @return database column name to input name map
+   */
+  public Map<String, String> getDbname2input() {
+    return dbname2input;
+  }
+
+  /**
+   * @return normalized (HQL) name to primitive type name map
+   */
+  public Map<String, String> getColumnTypes() {
+    return columnTypes;
+  }
+
+  /**
+   * @return number of distinct properties of the endpoint
+   */
+  public int getPropertyCount() {
+    return propertyNames.length;
+  }
+
+  /**
+   * Returns the position, in field order, of the given property.
+   *
+   * @param property
+   *     normalized (HQL) name of the property
+   * @return the position of the property, or -1 when it is not a property of the endpoint
+   */
+  public int indexOfProperty(String property) {
+    Integer index = propertyIndex.get(property);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the position, in field order, of the property of the given input name.
+   *
+   * @param inputName
+   *     input name of a field column
+   * @return the position of the property, or -1 when the name is not an input name of the endpoint
+   */
+  public int indexOfInput(String inputName) {
+    Integer index = inputIndex.get(inputName);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @param index
+   *     position of the property, in field order
+   * @return the normalized (HQL) name of the property
+   */
+  public String getPropertyName(int index) {
+    return propertyNames[index];
+  }
+
+  /**
+   * @param index
+   *     position of the property, in field order
+   * @return the input name of the property
+   */
+  public String getInputName(int index) {
+    return inputNames[index];
+  }
+
+  /**
+   * @param index
+   *     position of the property, in field order
+   * @return the primitive type name of the property
+   */
+  public String getType(int index) {
+    return types[index];
+  }
+
+  /**
+   * @param index
+   *     position of the property, in field order
+   * @return the converter of the values of the property
+   */
+  public FieldConverter getConverter(int index) {
+    return converters[index];
+  }
+
+  /**
+   * Returns the converter of the values of the given property.
+   *
+   * @param property
+   *     normalized (HQL) name of the property
+   * @return the converter of the property, {@link FieldConverter#STRING} when it is not a property
+   *     of the endpoint
+   */
+  public FieldConverter getConverter(String property) {
+    Integer index = propertyIndex.get(property);
+    return index == null ? FieldConverter.STRING : converters[index];
+  }
+
+  /**
+   * @return the properties that link a record to its parent record in the parent tab
+   */
+  public List<String> getParentProperties() {
+    return parentProperties;
+  }
+
+  /**
+   * @return the link-to-parent properties whose value is used as lock key, in field order
+   */
+  public List<String> getLockKeyProperties() {
+    return lockKeyProperties;
+  }
+
+  /**
+   * Returns the parent id found in the given data, checking the lock key properties in order.
+   * Same contract as {@link com.etendoerp.etendorx.utils.DataSourceUtils#getParentId}.
+   *
+   * @param data
+   *     record data in normalized format
+   * @return the parent id, or null when the data does not reference a parent
+   */
+  public String getParentId(JSONObject data) {
+    for (String parentProperty : lockKeyProperties) {
+      if (data.has(parentProperty)) {
+        return data.optString(parentProperty);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the dependency graph of the tab properties, null when it is unknown
+   */
+  public CalloutDependencyGraph getDependencyGraph() {
+    return dependencyGraph;
+  }
+
+  /**
+   * Tells whether setting the given property may change other values of the record, that is,
+   * whether its column has a callout or is referenced by the validation rule or the display or
+   * read only logic of another column. Setting any other property does not need a CHANGE event.
+   * When the dependencies are unknown every property is assumed to need it.
+   *
+   * @param property
+   *     normalized (HQL) name of the property
+   * @return true if the CHANGE event of the property must be emulated
+   */
+  public boolean requiresChangeEvent(String property) {
+    return dependencyGraph == null || dependencyGraph.requiresChangeEvent(property);
+  }
+
+  /**
+   * Returns the properties of the endpoint present in the given data, in the order their values
+   * must be set: each one after the properties it depends on, and in field order otherwise.
+   *
+   * @param data
+   *     record data in normalized format
+   * @return the properties to set
+   */
+  public List<String> getPropertiesToSet(JSONObject data) {
+    return getPropertiesToSet(data, Collections.emptyList());
+  }
+
+  /**
+   * Same as {@link #getPropertiesToSet(JSONObject)}, leaving out the given properties before
+   * sorting them.
+   *
+   * @param data
+   *     record data in normalized format
+   * @param excluded
+   *     properties that must not be set, such as the parent properties of a new record
+   * @return the properties to set
+   */
+  public List<String> getPropertiesToSet(JSONObject data, Collection<String> excluded) {
+    List<String> properties = new ArrayList<>();
+    for (String property : propertyNames) {
+      if (data.has(property) && !excluded.contains(property)) {
+        properties.add(property);
+      }
+    }
+    return dependencyGraph == null ? properties : dependencyGraph.sort(properties);
+  }
+
+  /**
+   * @return the properties whose column default is an {@code @SQL=} expression, in field order
+   */
+  public List<String> getSqlDefaultProperties() {
+    return sqlDefaultProperties;
+  }
+
+  /**
+   * Tells whether the NEW record defaults computed for another record of the same parent can be
+   * reused for the given data. It is not possible when a column of the table not exposed by the
+   * tab has an {@code @SQL=} default (a line number, for instance), or when the data does not set
+   * every property with such default, as each record would get the value computed for the first
+   * one.
+   *
+   * @param data
+   *     record data in normalized format
+   * @return true if the defaults can be shared
+   */
+  public boolean canReuseNewDefaults(JSONObject data) {
+    if (!newDefaultsReusable) {
+      return false;
+    }
+    for (String property : sqlDefaultProperties) {
+      if (!data.has(property)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Tells whether the given record can be written while other records of the same parent are
+   * being written, that is, whether none of its values is computed from its siblings. The
+   * {@code @SQL=} defaults (a line number as the maximum of the parent lines plus 10, for instance)
+   * are the ones that do, so the data must set every such property and the table must not have
+   * hidden ones, as for {@link #canReuseNewDefaults(JSONObject)}.
+   *
+   * @param data
+   *     record data in normalized format
+   * @return true if a shared lock of the parent is enough
+   */
+  public boolean canShareParentLock(JSONObject data) {
+    return canReuseNewDefaults(data);
+  }
+
+  @Override
+  public String toString() {
+    return name + " (tab " + tabId + ", " + fields.size() + " fields)";
+  }
+
+  /**
+   * Builder for {@link EndpointDescriptor}.
+   */
+  public static class Builder {
+    private String name;
+    private String tabId;
+    private String windowId;
+    private String tableId;
+    private String tableName;
+    private final List<RequestField> fields = new ArrayList<>();
+    private final LinkedHashMap<String, String> norm2input = new LinkedHashMap<>();
+    private final Map<String, String> input2norm = new HashMap<>();
+    private final Map<String, String> dbname2input = new HashMap<>();
+    private final Map<String, String> columnTypes = new HashMap<>();
+    private final List<String> parentProperties = new ArrayList<>();
+    private final List<String> lockKeyProperties = new ArrayList<>();
+    private CalloutDependencyGraph dependencyGraph;
+    private final List<String> sqlDefaultProperties = new ArrayList<>();
+    private boolean newDefaultsReusable;
+
+    public Builder name(String name) {
+      this.name = name;
+      return this;
+    }
+
+    public Builder tabId(String tabId) {
+      this.tabId = tabId;
+      return this;
+    }
+
+    public Builder windowId(String windowId) {
+      this.windowId = windowId;
+      return this;
+    }
+
+    public Builder tableId(String tableId) {
+      this.tableId = tableId;
+      return this;
+    }
+
+    public Builder tableName(String tableName) {
+      this.tableName = tableName;
+      return this;
+    }
+
+    /**
+     * Adds a field. Fields must be added in their final order.
+     *
+     * @param field
+     *     the request field
+     * @param inpName
+     *     the input name of the field column
+     * @param type
+     *     the primitive type name of the field property
+     * @return this builder
+     */
+    public Builder field(RequestField field, String inpName, String type) {
+      fields.add(field);
+      norm2input.put(field.getName(), inpName);
+      input2norm.put(inpName, field.getName());
+      dbname2input.put(field.getDBColumnName(), inpName);
+      columnTypes.put(field.getName(), type);
+      return this;
+    }
+
+    public Builder parentProperties(List<String> parentProperties) {
+      this.parentProperties.addAll(parentProperties);
+      return this;
+    }
+
+    public Builder lockKeyProperties(List<String> lockKeyProperties) {
+      this.lockKeyProperties.addAll(lockKeyProperties);
+      return this;
+    }
+
+    /**
+     * Sets the dependency graph of the tab properties. When not set, every property needs the
+     * CHANGE event and properties are set in field order.
+     *
+     * @param dependencyGraph
+     *     the dependency graph
+     * @return this builder
+     */
+    public Builder dependencyGraph(CalloutDependencyGraph dependencyGraph) {
+      this.dependencyGraph = dependencyGraph;
+      return this;
+    }
+
+    public Builder sqlDefaultProperties(List<String> sqlDefaultProperties) {
+      this.sqlDefaultProperties.addAll(sqlDefaultProperties);
+      return this;
+    }
+
+    public Builder newDefaultsReusable(boolean newDefaultsReusable) {
+      this.newDefaultsReusable = newDefaultsReusable;
+      return this;
+    }
+
+    public EndpointDescriptor build() {
+      return new EndpointDescriptor(this);
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package com.etendoerp.etendorx.services.metadata;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.criterion.Restrictions;
+import org.openbravo.base.exception.OBException;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBCriteria;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.erpCommon.utility.OBMessageUtils;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openbravo.model.ad.ui.Field;
+import org.openbravo.model.ad.ui.Tab;
+
+import com.etendoerp.etendorx.data.OpenAPIRequestField;
+import com.etendoerp.etendorx.data.OpenAPITab;
+import com.etendoerp.etendorx.services.wrapper.RequestField;
+import com.etendoerp.etendorx.utils.DataSourceUtils;
+import com.etendoerp.openapi.data.OpenAPIRequest;
+
+/**
+ * JVM-local cache of {@link EndpointDescriptor}s keyed by endpoint name.
+ * <p>
+ * Descriptors are built lazily on first use and dropped as a whole by {@link #invalidate()}, which is
+ * called by {@link com.etendoerp.etendorx.events.EndpointMetadataEventHandler} whenever the endpoint,
+ * tab, field, column, validation rule or auxiliary input definitions change.
+ */
+public final class EndpointMetadataCache {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final String SQL_DEFAULT_PREFIX = "@SQL=";
+
+  private static final ConcurrentMap<String, EndpointDescriptor> descriptors = new ConcurrentHashMap<>();
+  private static long generation = 0;
+
+  private EndpointMetadataCache() {
+    // utility class
+  }
+
+  /**
+   * Returns the descriptor of the given endpoint, building and caching it when needed.
+   *
+   * @param endpointName
+   *     the endpoint name, as found in the request path
+   * @return the endpoint descriptor, or null when the endpoint does not expose any tab
+   * @throws OBException
+   *     when no endpoint exists with the given name
+   */
+  public static EndpointDescriptor getDescriptor(String endpointName) {
+    String key = StringUtils.trim(endpointName);
+    EndpointDescriptor descriptor = descriptors.get(key);
+    if (descriptor != null) {
+      return descriptor;
+    }
+    long buildGeneration;
+    synchronized (descriptors) {
+      buildGeneration = generation;
+    }
+    descriptor = buildDescriptor(key);
+    if (descriptor != null) {
+      synchronized (descriptors) {
+        // Do not cache a descriptor built from metadata that was invalidated meanwhile
+        if (buildGeneration == generation) {
+          descriptors.putIfAbsent(key, descriptor);
+        }
+      }
+    }
+    return descriptor;
+  }
+
+  /**
+   * Drops every cached descriptor. They are rebuilt on next use.
+   */
+  public static void invalidate() {
+    synchronized (descriptors) {
+      generation++;
+      descriptors.clear();
+    }
+    log.debug("Headless endpoint metadata cache invalidated");
+  }
+
+  /**
+   * Returns the number of cached descriptors. Useful for monitoring and tests.
+   *
+   * @return number of cached descriptors
+   */
+  public static int size() {
+    return descriptors.size();
+  }
+
+  /**
+   * Resolves the endpoint definition and compiles its descriptor.
+   *
+   * @param endpointName
+   *     the endpoint name
+   * @return the descriptor, or null when the endpoint does not expose any tab
+   */
+  static EndpointDescriptor buildDescriptor(String endpointName) {
+    try {
+      OBContext.setAdminMode();
+      OBCriteria<OpenAPIRequest> crit = OBDal.getInstance().createCriteria(OpenAPIRequest.class);
+      crit.add(Restrictions.eq(OpenAPIRequest.PROPERTY_NAME, endpointName));
+      OpenAPIRequest req = (OpenAPIRequest) crit.setMaxResults(1).uniqueResult();
+      if (req == null) {
+        throw new OBException(String.format(OBMessageUtils.messageBD("ETRX_HeadlessEndpNF"), endpointName));
+      }
+      if (req.getETRXOpenAPITabList().isEmpty()) {
+        return null;
+      }
+      OpenAPITab openAPITab = req.getETRXOpenAPITabList().get(0);
+      Tab tab = openAPITab.getRelatedTabs();
+      Map<Column, Long> seqNoByColumn = getSeqNoByColumn(openAPITab);
+
+      List<RequestField> fieldList = new ArrayList<>();
+      Map<RequestField, String> types = new HashMap<>();
+      List<String> lockKeyProperties = new ArrayList<>();
+      Map<String, String> propertyByColumn = new HashMap<>();
+      Set<String> sqlDefaultProperties = new HashSet<>();
+      Set<Column> fieldColumns = new HashSet<>();
+      for (Field field : tab.getADFieldList()) {
+        Column column = field.getColumn();
+        if (column == null) {
+          continue;
+        }
+        String[] hqlNameAndType = DataSourceUtils.getHQLColumnName(field);
+        RequestField requestField = new RequestField(hqlNameAndType[0], column,
+            seqNoByColumn.getOrDefault(column, Long.MAX_VALUE));
+        fieldList.add(requestField);
+        types.put(requestField, hqlNameAndType[1]);
+        if (column.isLinkToParentColumn()) {
+          lockKeyProperties.add(hqlNameAndType[0]);
+        }
+        fieldColumns.add(column);
+        propertyByColumn.put(StringUtils.lowerCase(column.getDBColumnName()), hqlNameAndType[0]);
+        if (hasSqlDefault(column)) {
+          sqlDefaultProperties.add(hqlNameAndType[0]);
+        }
+      }
+      fieldList.sort(Comparator.comparing(RequestField::getSeqNo));
+      boolean newDefaultsReusable = tab.getTable().getADColumnList().stream()
+          .noneMatch(column -> hasSqlDefault(column) && !fieldColumns.contains(column));
+
+      EndpointDescriptor.Builder builder = new EndpointDescriptor.Builder()
+          .name(endpointName)
+          .tabId(tab.getId())
+          .windowId(tab.getWindow().getId())
+          .tableId(tab.getTable().getId())
+          .tableName(tab.getTable().getName())
+          .parentProperties(DataSourceUtils.getParentProperties(tab))
+          .lockKeyProperties(lockKeyProperties)
+          .dependencyGraph(CalloutDependencyGraph.fromTab(tab, propertyByColumn))
+          .newDefaultsReusable(newDefaultsReusable);
+      for (RequestField requestField : fieldList) {
+        builder.field(requestField, DataSourceUtils.getInpName(requestField.getDBColumnName()),
+            types.get(requestField));
+        if (sqlDefaultProperties.contains(requestField.getName())) {
+          builder.sqlDefaultProperties(List.of(requestField.getName()));
+        }
+      }
+      EndpointDescriptor descriptor = builder.build();
+      log.debug("Compiled headless endpoint descriptor {}", descriptor);
+      return descriptor;
+    } finally {
+      OBContext.restorePreviousMode();
+    }
+  }
+
+  /**
+   * Indexes the configured sequence numbers of the endpoint fields by column. Fields without
+   * sequence number are left out, so they are sorted last.
+   *
+   * @param openAPITab
+   *     the endpoint tab definition
+   * @return the sequence number of each configured column
+   */
+  private static Map<Column, Long> getSeqNoByColumn(OpenAPITab openAPITab) {
+    Map<Column, Long> seqNoByColumn = new HashMap<>();
+    for (OpenAPIRequestField requestField : openAPITab.getEtrxOpenapiFieldList()) {
+      Field field = requestField.getField();
+      if (field == null || field.getColumn() == null) {
+        continue;
+      }
+      if (!seqNoByColumn.containsKey(field.getColumn())) {
+        seqNoByColumn.put(field.getColumn(),
+            requestField.getSeqno() != null ? requestField.getSeqno() : Long.MAX_VALUE);
+      }
+    }
+    return seqNoByColumn;
+  }
+
+  private static boolean hasSqlDefault(Column column) {
+    return StringUtils.startsWithIgnoreCase(StringUtils.trim(column.getDefaultValue()), SQL_DEFAULT_PREFIX);
+  }
+}
@@ -0,0 +1,221 @@
+package com.etendoerp.etendorx.services.metadata;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import com.etendoerp.etendorx.services.DataSourceConstants;
+import com.etendoerp.etendorx.utils.DataSourceUtils;
+import com.etendoerp.etendorx.utils.FieldConverter;
+
+/**
+ * The record written by the headless POST and PUT endpoints while its values are computed.
+ * <p>
+ * The values are kept in input format in a single mutable tree, the one the form initialization
+ * and the selectors work with, from the NEW or EDIT initialization to the last CHANGE event. The
+ * conversions between the normalized (HQL) and input names go through the field index of the
+ * {@link EndpointDescriptor}, and the body sent to the datasource is streamed from the record in a
+ * single pass that converts the names and the values, so no intermediate copies are built.
+ */
+public final class HeadlessRecord {
+
+  private final EndpointDescriptor descriptor;
+  private final JSONObject values;
+
+  private HeadlessRecord(EndpointDescriptor descriptor, JSONObject values) {
+    this.descriptor = descriptor;
+    this.values = values;
+  }
+
+  /**
+   * Creates a record without values, to be filled by the form initialization.
+   *
+   * @param descriptor
+   *     the descriptor of the endpoint
+   * @return the empty record
+   */
+  public static HeadlessRecord empty(EndpointDescriptor descriptor) {
+    return new HeadlessRecord(descriptor, new JSONObject());
+  }
+
+  /**
+   * Creates a record with the values of the request. Properties of the endpoint are stored under
+   * their input name, any other key is kept as is. Values are not converted.
+   *
+   * @param descriptor
+   *     the descriptor of the endpoint
+   * @param data
+   *     record data in normalized format
+   * @return the record
+   * @throws JSONException
+   *     if the data cannot be read
+   */
+  public static HeadlessRecord fromNormalized(EndpointDescriptor descriptor, JSONObject data) throws JSONException {
+    JSONObject values = new JSONObject();
+    Iterator<?> keys = data.keys();
+    while (keys.hasNext()) {
+      String key = (String) keys.next();
+      int index = descriptor.indexOfProperty(key);
+      values.put(index < 0 ? key : descriptor.getInputName(index), data.get(key));
+    }
+    return new HeadlessRecord(descriptor, values);
+  }
+
+  /**
+   * @return the values of the record in input format. It is the live tree, changes are kept.
+   */
+  public JSONObject getInputData() {
+    return values;
+  }
+
+  /**
+   * Sets a value in input format.
+   *
+   * @param inputName
+   *     the input name of the value
+   * @param value
+   *     the value
+   * @return this record
+   * @throws JSONException
+   *     if the value is not valid
+   */
+  public HeadlessRecord put(String inputName, Object value) throws JSONException {
+    values.put(inputName, value);
+    return this;
+  }
+
+  /**
+   * Copies the column values returned by a form initialization into the record.
+   *
+   * @param formInitResponse
+   *     the response of the form initialization
+   * @throws JSONException
+   *     if the response cannot be read
+   * @see DataSourceUtils#applyColumnValues(JSONObject, Map, JSONObject)
+   */
+  public void applyColumnValues(JSONObject formInitResponse) throws JSONException {
+    DataSourceUtils.applyColumnValues(formInitResponse, descriptor.getDbname2input(), values);
+  }
+
+  /**
+   * Returns the values in normalized format, converted to the HQL format of their type.
+   *
+   * @return the converted values, keyed by normalized name
+   * @throws JSONException
+   *     if a value cannot be read
+   * @throws ParseException
+   *     if a date value cannot be parsed
+   */
+  public Map<String, Object> toNormalizedValues() throws JSONException, ParseException {
+    Map<String, Object> normalized = new LinkedHashMap<>(values.length() * 4 / 3 + 1);
+    Iterator<?> keys = values.keys();
+    while (keys.hasNext()) {
+      String key = (String) keys.next();
+      int index = descriptor.indexOfInput(key);
+      String property = index < 0 ? key : descriptor.getPropertyName(index);
+      FieldConverter converter = index < 0 ? descriptor.getConverter(key) : descriptor.getConverter(index);
+      normalized.put(property, converter.toHql(values.get(key)));
+    }
+    return normalized;
+  }
+
+  /**
+   * Serializes the body of the request to the datasource: the given envelope with the record in
+   * normalized format as its {@code data}. When a base record is given, the values of the record
+   * are applied over it, as the update of an existing record.
+   *
+   * @param envelope
+   *     the request body, its {@code data} property is replaced by the record
+   * @param base
+   *     the values of the existing record in normalized format, or null for a new record
+   * @return the serialized body
+   * @throws JSONException
+   *     if a value cannot be serialized
+   * @throws ParseException
+   *     if a date value cannot be parsed
+   */
+  public String toRequestBody(JSONObject envelope, JSONObject base) throws JSONException, ParseException {
+    Map<String, Object> normalized = toNormalizedValues();
+    StringBuilder body = new StringBuilder(256 + normalized.size() * 48);
+    body.append('{');
+    boolean dataWritten = false;
+    Iterator<?> keys = envelope.keys();
+    while (keys.hasNext()) {
+      String key = (String) keys.next();
+      appendKey(body, key);
+      if (DataSourceConstants.DATA.equals(key)) {
+        appendData(body, normalized, base);
+        dataWritten = true;
+      } else {
+        appendValue(body, envelope.get(key));
+      }
+    }
+    if (!dataWritten) {
+      appendKey(body, DataSourceConstants.DATA);
+      appendData(body, normalized, base);
+    }
+    return body.append('}').toString();
+  }
+
+  private static void appendData(StringBuilder body, Map<String, Object> normalized, JSONObject base)
+      throws JSONException {
+    body.append('{');
+    if (base != null) {
+      Iterator<?> keys = base.keys();
+      while (keys.hasNext()) {
+        String key = (String) keys.next();
+        appendKey(body, key);
+        appendValue(body, normalized.containsKey(key) ? normalized.remove(key) : base.get(key));
+      }
+    }
+    for (Map.Entry<String, Object> entry : normalized.entrySet()) {
+      appendKey(body, entry.getKey());
+      appendValue(body, entry.getValue());
+    }
+    body.append('}');
+  }
+
+  private static void appendKey(StringBuilder body, String key) {
+    char last = body.charAt(body.length() - 1);
+    if (last != '{') {
+      body.append(',');
+    }
+    body.append(JSONObject.quote(key)).append(':');
+  }
+
+  /**
+   * Appends a value as {@link JSONObject#toString()} does.
+   */
+  private static void appendValue(StringBuilder body, Object value) throws JSONException {
+    if (value == null || JSONObject.NULL.equals(value)) {
+      body.append("null");
+    } else if (value instanceof Number) {
+      body.append(JSONObject.numberToString((Number) value));
+    } else if (value instanceof Boolean || value instanceof JSONObject || value instanceof JSONArray) {
+      body.append(value);
+    } else {
+      body.append(JSONObject.quote(value.toString()));
+    }
+  }
+}
@@ -0,0 +1,261 @@
+package com.etendoerp.etendorx.services.metadata;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONObject;
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.base.model.Property;
+import org.openbravo.client.application.ApplicationConstants;
+import org.openbravo.client.kernel.KernelUtils;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.datamodel.Column;
+import org.openbravo.model.ad.datamodel.Table;
+import org.openbravo.model.ad.ui.Field;
+import org.openbravo.model.ad.ui.Tab;
+
+import com.etendoerp.etendorx.utils.DataSourceUtils;
+
+/**
+ * Per-tab index of the dictionary lookups done while processing headless records: the column of
+ * each property of the tab table, the headless filter clause of each column, the link-to-parent
+ * properties and the entity of the parent tab.
+ * <p>
+ * Indexes are built once per tab, instead of scanning the field and column lists for every record
+ * and property, and dropped as a whole by {@link #invalidate()}, which is called by
+ * {@link com.etendoerp.etendorx.events.EndpointMetadataEventHandler} when tabs, fields or columns
+ * change. Only ids and names are kept, so the index can be shared between sessions.
+ */
+public final class TabMetadataIndex {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final ConcurrentMap<String, TabMetadataIndex> indexes = new ConcurrentHashMap<>();
+  private static long generation = 0;
+
+  private final Map<String, String> columnIdByProperty;
+  private final Map<String, String> filterClauseByColumnId;
+  private final List<String> parentLinkProperties;
+  private final List<String> parentProperties;
+  private final Entity parentEntity;
+
+  private TabMetadataIndex(Map<String, String> columnIdByProperty, Map<String, String> filterClauseByColumnId,
+      List<String> parentLinkProperties, List<String> parentProperties, Entity parentEntity) {
+    this.columnIdByProperty = Collections.unmodifiableMap(columnIdByProperty);
+    this.filterClauseByColumnId = Collections.unmodifiableMap(filterClauseByColumnId);
+    this.parentLinkProperties = Collections.unmodifiableList(parentLinkProperties);
+    this.parentProperties = Collections.unmodifiableList(parentProperties);
+    this.parentEntity = parentEntity;
+  }
+
+  /**
+   * Returns the index of the given tab, building and caching it when needed.
+   *
+   * @param tab
+   *     the tab
+   * @return the index of the tab
+   */
+  public static TabMetadataIndex getIndex(Tab tab) {
+    String key = tab.getId();
+    TabMetadataIndex index = key != null ? indexes.get(key) : null;
+    if (index != null) {
+      return index;
+    }
+    long buildGeneration;
+    synchronized (indexes) {
+      buildGeneration = generation;
+    }
+    index = build(tab);
+    if (key != null) {
+      synchronized (indexes) {
+        // Do not cache an index built from metadata that was invalidated meanwhile
+        if (buildGeneration == generation) {
+          indexes.putIfAbsent(key, index);
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Drops every cached index. They are rebuilt on next use.
+   */
+  public static void invalidate() {
+    synchronized (indexes) {
+      generation++;
+      indexes.clear();
+    }
+    log.debug("Headless tab metadata index invalidated");
+  }
+
+  /**
+   * Returns the number of cached indexes. Useful for monitoring and tests.
+   *
+   * @return number of cached indexes
+   */
+  public static int size() {
+    return indexes.size();
+  }
+
+  /**
+   * Reads the field and column lists of the tab once.
+   *
+   * @param tab
+   *     the tab to index
+   * @return the index of the tab
+   */
+  static TabMetadataIndex build(Tab tab) {
+    try {
+      OBContext.setAdminMode(false);
+      Map<String, String> columnIdByProperty = new HashMap<>();
+      Table table = tab.getTable();
+      Entity entity = table != null ? ModelProvider.getInstance().getEntityByTableName(table.getDBTableName()) : null;
+      if (entity != null) {
+        for (Column column : DataSourceUtils.getAdColumnList(tab)) {
+          Property property = entity.getPropertyByColumnName(column.getDBColumnName(), false);
+          if (property != null) {
+            columnIdByProperty.putIfAbsent(property.getName(), column.getId());
+          }
+        }
+      }
+
+      Entity parentEntity = null;
+      boolean parentResolved = false;
+      Map<String, String> filterClauseByColumnId = new HashMap<>();
+      List<String> parentLinkProperties = new ArrayList<>();
+      List<String> parentProperties = new ArrayList<>();
+      for (Field field : tab.getADFieldList()) {
+        Column column = field.getColumn();
+        if (column == null) {
+          continue;
+        }
+        if (!StringUtils.isEmpty(field.getEtrxFilterClause())) {
+          filterClauseByColumnId.putIfAbsent(column.getId(), field.getEtrxFilterClause());
+        }
+        if (column.isLinkToParentColumn()) {
+          if (!parentResolved) {
+            parentEntity = getParentEntity(tab);
+            parentResolved = true;
+          }
+          String property = DataSourceUtils.getHQLColumnName(field)[0];
+          parentLinkProperties.add(property);
+          if (isParentRecordProperty(field, parentEntity)) {
+            parentProperties.add(property);
+          }
+        }
+      }
+      return new TabMetadataIndex(columnIdByProperty, filterClauseByColumnId, parentLinkProperties,
+          parentProperties, parentEntity);
+    } finally {
+      OBContext.restorePreviousMode();
+    }
+  }
+
+  /**
+   * Resolves the entity of the parent tab, when it is based on a table.
+   */
+  private static Entity getParentEntity(Tab tab) {
+    Tab parentTab = KernelUtils.getInstance().getParentTab(tab);
+    if (parentTab != null && ApplicationConstants.TABLEBASEDTABLE.equals(parentTab.getTable().getDataOriginType())) {
+      return ModelProvider.getInstance().getEntityByTableName(parentTab.getTable().getDBTableName());
+    }
+    return null;
+  }
+
+  /**
+   * Same check as {@link com.smf.mobile.utils.webservices.Window}, with the parent entity resolved
+   * once per tab.
+   */
+  private static boolean isParentRecordProperty(Field field, Entity parentEntity) {
+    Property property = KernelUtils.getProperty(field);
+    Entity referencedEntity = property.getReferencedProperty().getEntity();
+    return referencedEntity.equals(parentEntity);
+  }
+
+  /**
+   * Returns the column of the tab table mapped to the given property.
+   *
+   * @param property
+   *     the HQL property name
+   * @return the column, or null when the table has no column for the property
+   */
+  public Column getColumn(String property) {
+    String columnId = columnIdByProperty.get(property);
+    return columnId == null ? null : OBDal.getInstance().get(Column.class, columnId);
+  }
+
+  /**
+   * Returns the headless filter clause of the first field of the given column that defines one.
+   *
+   * @param columnId
+   *     the id of the column
+   * @return the filter clause, or null when no field of the column defines one
+   */
+  public String getFilterClause(String columnId) {
+    return filterClauseByColumnId.get(columnId);
+  }
+
+  /**
+   * @return the properties of the link-to-parent columns, in field order
+   */
+  public List<String> getParentLinkProperties() {
+    return parentLinkProperties;
+  }
+
+  /**
+   * @return the link-to-parent properties that reference the entity of the parent tab
+   */
+  public List<String> getParentProperties() {
+    return parentProperties;
+  }
+
+  /**
+   * @return the entity of the parent tab, or null when the tab has no link-to-parent field or no table based
+   *     parent
+   */
+  public Entity getParentEntity() {
+    return parentEntity;
+  }
+
+  /**
+   * Returns the value of the first link-to-parent property present in the data.
+   *
+   * @param data
+   *     the record values, keyed by property
+   * @return the parent id, or null when the data has no link-to-parent property
+   */
+  public String getParentId(JSONObject data) {
+    for (String parentProperty : parentLinkProperties) {
+      if (data.has(parentProperty)) {
+        return data.optString(parentProperty);
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,197 @@
+package com.etendoerp.etendorx.services.metadata;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.dal.core.OBContext;
+import org.openbravo.dal.service.OBDal;
+import org.openbravo.model.ad.ui.Tab;
+
+import com.etendoerp.etendorx.data.OpenAPITab;
+import com.etendoerp.etendorx.utils.HeadlessProperties;
+
+/**
+ * Keeps track of the windows whose metadata has been prepared for the form initialization of
+ * headless requests.
+ * <p>
+ * Preparing a window walks the fields of all its tabs and initializes the lazy metadata of their
+ * columns on the shared instances of {@code ApplicationDictionaryCachedStructures}, under a lock
+ * per column. Once a tab is prepared, later requests only compare the cached tab instance they get
+ * with the prepared one and skip the walk; a different instance means the dictionary cache was
+ * rebuilt and the window is prepared again. On first use, every window exposed by a headless
+ * endpoint is prepared by the first request, in its own thread and DAL session, unless
+ * {@link HeadlessProperties#METADATA_WARMUP} is disabled. Requests arriving meanwhile do not wait
+ * for it and only prepare the window of their own tab.
+ * <p>
+ * The preparation only changes columns with lazy metadata, which the form initialization of other
+ * requests could not read anyway, and never touches a column once it is prepared, so the shared
+ * instances being read by other requests are not reset under them.
+ * <p>
+ * The prepared tabs are dropped by {@link #invalidate()}, which is called by
+ * {@link com.etendoerp.etendorx.events.EndpointMetadataEventHandler} when the endpoints or the
+ * dictionary change.
+ */
+public final class WindowMetadataWarmup {
+
+  private static final Logger log = LogManager.getLogger();
+
+  private static final ConcurrentMap<String, Tab> preparedTabs = new ConcurrentHashMap<>();
+  private static final AtomicBoolean warmUpRunning = new AtomicBoolean();
+  private static long generation = 0;
+  private static volatile long warmedUpGeneration = -1;
+
+  private WindowMetadataWarmup() {
+  }
+
+  /**
+   * Returns whether the window of a tab was prepared from the given cached tab instance.
+   *
+   * @param tabId
+   *     the id of the tab
+   * @param cachedTab
+   *     the instance of the tab in the dictionary cache
+   * @return true when the walk over the window can be skipped
+   */
+  public static boolean isPrepared(String tabId, Tab cachedTab) {
+    return cachedTab != null && preparedTabs.get(tabId) == cachedTab;
+  }
+
+  /**
+   * Returns the current generation, to be read before preparing a window and passed to
+   * {@link #markPrepared}.
+   *
+   * @return the current generation
+   */
+  public static long getGeneration() {
+    synchronized (preparedTabs) {
+      return generation;
+    }
+  }
+
+  /**
+   * Records that the window of a tab has been fully prepared.
+   *
+   * @param tabId
+   *     the id of the tab
+   * @param cachedTab
+   *     the instance of the tab in the dictionary cache, nothing is recorded when it is null
+   * @param preparedGeneration
+   *     the generation read before preparing the window
+   */
+  public static void markPrepared(String tabId, Tab cachedTab, long preparedGeneration) {
+    if (cachedTab == null) {
+      return;
+    }
+    synchronized (preparedTabs) {
+      // Do not record a window prepared from metadata that was invalidated meanwhile
+      if (preparedGeneration == generation) {
+        preparedTabs.put(tabId, cachedTab);
+      }
+    }
+  }
+
+  /**
+   * Prepares every window exposed by a headless endpoint in the calling thread, once per
+   * generation. It returns at once when another thread is already doing it, so concurrent requests
+   * are not blocked. Failures are logged and never reach the caller.
+   *
+   * @param windowPreparer
+   *     prepares the window of the given tab id
+   */
+  public static void warmUp(Consumer<String> windowPreparer) {
+    long current = getGeneration();
+    if (warmedUpGeneration == current
+        || !HeadlessProperties.getBoolean(HeadlessProperties.METADATA_WARMUP, true)
+        || !warmUpRunning.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      List<String> tabIds;
+      try {
+        tabIds = getExposedTabIds();
+      } catch (RuntimeException e) {
+        // Not retried until the next invalidation, each window is still prepared on its own use
+        log.warn("Could not read the windows exposed by headless endpoints", e);
+        tabIds = new ArrayList<>();
+      }
+      for (String tabId : tabIds) {
+        try {
+          windowPreparer.accept(tabId);
+        } catch (RuntimeException e) {
+          // The window is prepared again by its own requests
+          log.warn("Could not prepare the metadata of the window of tab {}", tabId, e);
+        }
+      }
+      warmedUpGeneration = current;
+      log.debug("Metadata of {} headless tabs prepared", tabIds.size());
+    } finally {
+      warmUpRunning.set(false);
+    }
+  }
+
+  /**
+   * Returns the tabs exposed by a headless endpoint. A window is walked for its first tab only, as
+   * preparing it marks all its tabs as prepared.
+   *
+   * @return the tab ids
+   */
+  static List<String> getExposedTabIds() {
+    try {
+      OBContext.setAdminMode(false);
+      Set<String> tabIds = new LinkedHashSet<>();
+      for (OpenAPITab openAPITab : OBDal.getInstance().createCriteria(OpenAPITab.class).list()) {
+        Tab tab = openAPITab.getRelatedTabs();
+        if (tab != null) {
+          tabIds.add(tab.getId());
+        }
+      }
+      return new ArrayList<>(tabIds);
+    } finally {
+      OBContext.restorePreviousMode();
+    }
+  }
+
+  /**
+   * Forgets the prepared windows. They are prepared again on next use.
+   */
+  public static void invalidate() {
+    synchronized (preparedTabs) {
+      generation++;
+      preparedTabs.clear();
+    }
+    log.debug("Headless window metadata preparation invalidated");
+  }
+
+  /**
+   * Returns the number of prepared tabs. Useful for monitoring and tests.
+   *
+   * @return number of prepared tabs
+   */
+  public static int size() {
+    return preparedTabs.size();
+  }
+}
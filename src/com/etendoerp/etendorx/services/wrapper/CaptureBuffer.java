@@ -0,0 +1,174 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer holding the content captured by {@link EtendoResponseWrapper}, in UTF-8.
+ * <p>
+ * Buffers are taken from a small pool of the current thread with {@link #acquire()} and given back
+ * with {@link #release()}, so the responses captured one after the other by a thread (the form
+ * initialization and the save of every record of a request) reuse the same arrays. Buffers grown
+ * above {@link #MAX_POOLED_CAPACITY} are not kept.
+ */
+final class CaptureBuffer {
+  static final int INITIAL_CAPACITY = 8 * 1024;
+  static final int MAX_POOLED_CAPACITY = 256 * 1024;
+  static final int MAX_POOLED_PER_THREAD = 2;
+
+  private static final ThreadLocal<ArrayDeque<CaptureBuffer>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+  private static final byte REPLACEMENT = '?';
+
+  private byte[] bytes = new byte[INITIAL_CAPACITY];
+  private int count;
+  private char highSurrogate;
+
+  private CaptureBuffer() {
+  }
+
+  /**
+   * Takes an empty buffer from the pool of the current thread, or creates one.
+   *
+   * @return the buffer
+   */
+  static CaptureBuffer acquire() {
+    CaptureBuffer buffer = POOL.get().pollFirst();
+    return buffer != null ? buffer : new CaptureBuffer();
+  }
+
+  /**
+   * Empties the buffer and gives it back to the pool of the current thread. It must not be used
+   * afterwards.
+   */
+  void release() {
+    reset();
+    ArrayDeque<CaptureBuffer> pool = POOL.get();
+    if (bytes.length <= MAX_POOLED_CAPACITY && pool.size() < MAX_POOLED_PER_THREAD) {
+      pool.addFirst(this);
+    }
+  }
+
+  /**
+   * @return number of buffers in the pool of the current thread
+   */
+  static int pooled() {
+    return POOL.get().size();
+  }
+
+  void write(int b) {
+    ensureCapacity(count + 1);
+    bytes[count++] = (byte) b;
+  }
+
+  void write(byte[] b, int off, int len) {
+    ensureCapacity(count + len);
+    System.arraycopy(b, off, bytes, count, len);
+    count += len;
+  }
+
+  /**
+   * Appends the given character encoded in UTF-8, as {@link #write(char[], int, int)}.
+   */
+  void writeChar(char c) {
+    encode(c);
+  }
+
+  /**
+   * Appends the given characters encoded in UTF-8. A high surrogate at the end of the characters
+   * is kept until the next write, as the low one may come with it.
+   */
+  void write(char[] cbuf, int off, int len) {
+    for (int i = off; i < off + len; i++) {
+      encode(cbuf[i]);
+    }
+  }
+
+  /**
+   * Appends the given characters encoded in UTF-8, as {@link #write(char[], int, int)}.
+   */
+  void write(CharSequence s, int off, int len) {
+    for (int i = off; i < off + len; i++) {
+      encode(s.charAt(i));
+    }
+  }
+
+  private void encode(char c) {
+    ensureCapacity(count + 4);
+    if (highSurrogate != 0) {
+      char high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        int codePoint = Character.toCodePoint(high, c);
+        bytes[count++] = (byte) (0xF0 | (codePoint >> 18));
+        bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        bytes[count++] = (byte) (0x80 | (codePoint & 0x3F));
+        return;
+      }
+      bytes[count++] = REPLACEMENT;
+      ensureCapacity(count + 3);
+    }
+    if (c < 0x80) {
+      bytes[count++] = (byte) c;
+    } else if (c < 0x800) {
+      bytes[count++] = (byte) (0xC0 | (c >> 6));
+      bytes[count++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      bytes[count++] = REPLACEMENT;
+    } else {
+      bytes[count++] = (byte) (0xE0 | (c >> 12));
+      bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      bytes[count++] = (byte) (0x80 | (c & 0x3F));
+    }
+  }
+
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, minCapacity));
+    }
+  }
+
+  /**
+   * @return the high surrogate written last and not encoded yet, 0 when there is none
+   */
+  char getPendingHighSurrogate() {
+    return highSurrogate;
+  }
+
+  /**
+   * @return the array holding the content, valid up to {@link #size()}
+   */
+  byte[] array() {
+    return bytes;
+  }
+
+  int size() {
+    return count;
+  }
+
+  int capacity() {
+    return bytes.length;
+  }
+
+  void reset() {
+    count = 0;
+    highSurrogate = 0;
+  }
+
+  void writeTo(OutputStream out) throws IOException {
+    out.write(bytes, 0, count);
+  }
+
+  /**
+   * @return the content decoded from UTF-8
+   */
+  @Override
+  public String toString() {
+    return new String(bytes, 0, count, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,269 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * An in-memory {@link HttpServletResponse} not bound to any client connection.
+ * <p>
+ * It is used to run a request in a background job, after the HTTP request that created the job
+ * has completed: status, headers and body are kept so they can be returned later.
+ */
+public class CapturedResponse implements HttpServletResponse {
+  private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+  private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+  private PrintWriter writer;
+  private ServletOutputStream outputStream;
+  private int status = SC_OK;
+  private String contentType;
+  private String characterEncoding = "UTF-8";
+  private Locale locale = Locale.getDefault();
+
+  /**
+   * Returns the body written so far.
+   *
+   * @return the body, decoded as UTF-8
+   */
+  public synchronized String getContentAsString() {
+    if (writer != null) {
+      writer.flush();
+    }
+    return new String(content.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public synchronized PrintWriter getWriter() {
+    if (writer == null) {
+      writer = new PrintWriter(new OutputStreamWriter(content, StandardCharsets.UTF_8));
+    }
+    return writer;
+  }
+
+  @Override
+  public synchronized ServletOutputStream getOutputStream() {
+    if (outputStream == null) {
+      outputStream = new ServletOutputStream() {
+        @Override
+        public void write(int b) {
+          content.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+          // No-op
+        }
+      };
+    }
+    return outputStream;
+  }
+
+  @Override
+  public int getStatus() {
+    return status;
+  }
+
+  @Override
+  public void setStatus(int sc) {
+    this.status = sc;
+  }
+
+  @Override
+  @Deprecated
+  public void setStatus(int sc, String sm) {
+    this.status = sc;
+  }
+
+  @Override
+  public void sendError(int sc, String msg) {
+    this.status = sc;
+  }
+
+  @Override
+  public void sendError(int sc) {
+    this.status = sc;
+  }
+
+  @Override
+  public void sendRedirect(String location) {
+    this.status = SC_FOUND;
+    setHeader("Location", location);
+  }
+
+  @Override
+  public synchronized String getHeader(String name) {
+    List<String> values = headers.get(name);
+    return values == null || values.isEmpty() ? null : values.get(0);
+  }
+
+  @Override
+  public synchronized Collection<String> getHeaders(String name) {
+    List<String> values = headers.get(name);
+    return values == null ? Collections.emptyList() : new ArrayList<>(values);
+  }
+
+  @Override
+  public synchronized Collection<String> getHeaderNames() {
+    return new ArrayList<>(headers.keySet());
+  }
+
+  @Override
+  public synchronized boolean containsHeader(String name) {
+    return headers.containsKey(name);
+  }
+
+  @Override
+  public synchronized void setHeader(String name, String value) {
+    List<String> values = new ArrayList<>();
+    values.add(value);
+    headers.put(name, values);
+  }
+
+  @Override
+  public synchronized void addHeader(String name, String value) {
+    headers.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+  }
+
+  @Override
+  public void setDateHeader(String name, long date) {
+    setHeader(name, String.valueOf(date));
+  }
+
+  @Override
+  public void addDateHeader(String name, long date) {
+    addHeader(name, String.valueOf(date));
+  }
+
+  @Override
+  public void setIntHeader(String name, int value) {
+    setHeader(name, String.valueOf(value));
+  }
+
+  @Override
+  public void addIntHeader(String name, int value) {
+    addHeader(name, String.valueOf(value));
+  }
+
+  @Override
+  public void addCookie(Cookie cookie) {
+    // Cookies cannot reach the client of a background job
+  }
+
+  @Override
+  public String encodeURL(String url) {
+    return url;
+  }
+
+  @Override
+  public String encodeRedirectURL(String url) {
+    return url;
+  }
+
+  @Override
+  @Deprecated
+  public String encodeUrl(String url) {
+    return url;
+  }
+
+  @Override
+  @Deprecated
+  public String encodeRedirectUrl(String url) {
+    return url;
+  }
+
+  @Override
+  public String getCharacterEncoding() {
+    return characterEncoding;
+  }
+
+  @Override
+  public void setCharacterEncoding(String charset) {
+    this.characterEncoding = charset;
+  }
+
+  @Override
+  public String getContentType() {
+    return contentType;
+  }
+
+  @Override
+  public void setContentType(String type) {
+    this.contentType = type;
+  }
+
+  @Override
+  public void setContentLength(int len) {
+    // The length is known from the captured content
+  }
+
+  @Override
+  public void setContentLengthLong(long len) {
+    // The length is known from the captured content
+  }
+
+  @Override
+  public void setBufferSize(int size) {
+    // The whole content is buffered
+  }
+
+  @Override
+  public int getBufferSize() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public void flushBuffer() {
+    if (writer != null) {
+      writer.flush();
+    }
+  }
+
+  @Override
+  public synchronized void resetBuffer() {
+    if (writer != null) {
+      writer.flush();
+    }
+    content.reset();
+  }
+
+  @Override
+  public boolean isCommitted() {
+    return false;
+  }
+
+  @Override
+  public synchronized void reset() {
+    resetBuffer();
+    headers.clear();
+    status = SC_OK;
+    contentType = null;
+  }
+
+  @Override
+  public void setLocale(Locale loc) {
+    this.locale = loc;
+  }
+
+  @Override
+  public Locale getLocale() {
+    return locale;
+  }
+}
@@ -0,0 +1,222 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * A request wrapper that keeps working after the original request has completed, so it can be
+ * processed by a background job, and that does not share any state with the original request, so
+ * it can be used by another thread.
+ * <p>
+ * The body, parameters, headers, attributes, servlet context and the values of the request line are
+ * copied when the wrapper is created, and the HTTP session is replaced by a {@link SessionSnapshot}.
+ * Any other method is still delegated to the original request and must not be used by the job.
+ */
+public class DetachedRequestWrapper extends EtendoRequestWrapper {
+  private final SessionSnapshot session;
+  private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+  private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+  private final Map<String, String[]> parameters;
+  private final String method;
+  private final String pathInfo;
+  private final String queryString;
+  private final String contextPath;
+  private final String servletPath;
+  private final String requestURL;
+  private final String contentType;
+  private final String remoteAddr;
+  private final Locale locale;
+  private final ServletContext servletContext;
+
+  /**
+   * Copies the given request.
+   *
+   * @param originalRequest
+   *     The original request.
+   * @param body
+   *     The request body, already read from the original request.
+   * @throws IOException
+   *     If an I/O error occurs.
+   */
+  public DetachedRequestWrapper(HttpServletRequest originalRequest, String body) throws IOException {
+    super(originalRequest, originalRequest.getRequestURI(), body, originalRequest.getParameterMap());
+    this.session = new SessionSnapshot(originalRequest.getSession(false));
+    // Merged now: the lazy view of the parent class reads the original request, which is recycled
+    // by the time the job runs
+    Map<String, String[]> parameterCopy = new HashMap<>();
+    for (Map.Entry<String, String[]> entry : super.getParameterMap().entrySet()) {
+      parameterCopy.put(entry.getKey(), entry.getValue() == null ? null : entry.getValue().clone());
+    }
+    this.parameters = Collections.unmodifiableMap(parameterCopy);
+    this.method = originalRequest.getMethod();
+    this.pathInfo = originalRequest.getPathInfo();
+    this.queryString = originalRequest.getQueryString();
+    this.contextPath = originalRequest.getContextPath();
+    this.servletPath = originalRequest.getServletPath();
+    StringBuffer url = originalRequest.getRequestURL();
+    this.requestURL = url == null ? null : url.toString();
+    this.contentType = originalRequest.getContentType();
+    this.remoteAddr = originalRequest.getRemoteAddr();
+    this.locale = originalRequest.getLocale();
+    this.servletContext = originalRequest.getServletContext();
+    Enumeration<String> headerNames = originalRequest.getHeaderNames();
+    while (headerNames != null && headerNames.hasMoreElements()) {
+      String name = headerNames.nextElement();
+      headers.put(name, Collections.list(originalRequest.getHeaders(name)));
+    }
+    Enumeration<String> attributeNames = originalRequest.getAttributeNames();
+    while (attributeNames != null && attributeNames.hasMoreElements()) {
+      String name = attributeNames.nextElement();
+      Object value = originalRequest.getAttribute(name);
+      if (value != null) {
+        attributes.put(name, value);
+      }
+    }
+  }
+
+  @Override
+  public HttpSession getSession() {
+    return session;
+  }
+
+  @Override
+  public HttpSession getSession(boolean create) {
+    return session;
+  }
+
+  @Override
+  public String getParameter(String name) {
+    String[] values = parameters.get(name);
+    return values == null || values.length == 0 ? null : values[0];
+  }
+
+  @Override
+  public String[] getParameterValues(String name) {
+    String[] values = parameters.get(name);
+    return values == null ? null : values.clone();
+  }
+
+  @Override
+  public Map<String, String[]> getParameterMap() {
+    return parameters;
+  }
+
+  @Override
+  public Enumeration<String> getParameterNames() {
+    return Collections.enumeration(parameters.keySet());
+  }
+
+  @Override
+  public String getHeader(String name) {
+    List<String> values = headers.get(name);
+    return values == null || values.isEmpty() ? null : values.get(0);
+  }
+
+  @Override
+  public Enumeration<String> getHeaders(String name) {
+    List<String> values = headers.get(name);
+    return Collections.enumeration(values == null ? Collections.emptyList() : values);
+  }
+
+  @Override
+  public Enumeration<String> getHeaderNames() {
+    return Collections.enumeration(new ArrayList<>(headers.keySet()));
+  }
+
+  @Override
+  public int getIntHeader(String name) {
+    String value = getHeader(name);
+    return value == null ? -1 : Integer.parseInt(value);
+  }
+
+  @Override
+  public Object getAttribute(String name) {
+    return attributes.get(name);
+  }
+
+  @Override
+  public Enumeration<String> getAttributeNames() {
+    return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+  }
+
+  @Override
+  public void setAttribute(String name, Object value) {
+    if (value == null) {
+      attributes.remove(name);
+    } else {
+      attributes.put(name, value);
+    }
+  }
+
+  @Override
+  public void removeAttribute(String name) {
+    attributes.remove(name);
+  }
+
+  @Override
+  public String getMethod() {
+    return method;
+  }
+
+  @Override
+  public String getPathInfo() {
+    return pathInfo;
+  }
+
+  @Override
+  public String getQueryString() {
+    return queryString;
+  }
+
+  @Override
+  public String getContextPath() {
+    return contextPath;
+  }
+
+  @Override
+  public String getServletPath() {
+    return servletPath;
+  }
+
+  @Override
+  public StringBuffer getRequestURL() {
+    return requestURL == null ? null : new StringBuffer(requestURL);
+  }
+
+  @Override
+  public String getContentType() {
+    return contentType;
+  }
+
+  @Override
+  public String getCharacterEncoding() {
+    return "UTF-8";
+  }
+
+  @Override
+  public String getRemoteAddr() {
+    return remoteAddr;
+  }
+
+  @Override
+  public Locale getLocale() {
+    return locale;
+  }
+
+  @Override
+  public ServletContext getServletContext() {
+    return servletContext;
+  }
+}
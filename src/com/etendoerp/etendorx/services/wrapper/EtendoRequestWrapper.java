@@ -1,28 +1,35 @@
 package com.etendoerp.etendorx.services.wrapper;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
 /**
  * A wrapper class for HttpServletRequest that allows modification of the request body and URI.
  * This class is used to modify the request body and URI before passing it to the servlet.
+ * <p>
+ * The body is kept as UTF-8 bytes, encoded once, and every reader or input stream reads them
+ * without copying. The parameters of the original request and the modified ones are merged on the
+ * first call to {@link #getParameterMap()} and the merged view is reused afterwards.
  */
 public class EtendoRequestWrapper extends HttpServletRequestWrapper {
-  private final String modifiedBody;
+  private static final byte[] EMPTY_BODY = new byte[0];
+
+  private final byte[] modifiedBody;
   private final String requestURI;
   private final Map<String, String[]> modifiedParameters;
+  private Map<String, String[]> parameterMap;
 
 
   /**
@@ -41,9 +48,29 @@ public class EtendoRequestWrapper extends HttpServletRequestWrapper {
    */
   public EtendoRequestWrapper(HttpServletRequest originalRequest, String requestURI, String newBody,
       Map<String, String[]> newParameters) throws IOException {
+    this(originalRequest, requestURI, newBody == null ? EMPTY_BODY : newBody.getBytes(StandardCharsets.UTF_8),
+        newParameters);
+  }
+
+  /**
+   * Constructor for EtendoRequestWrapper with a body already encoded.
+   *
+   * @param originalRequest
+   *     The original request.
+   * @param requestURI
+   *     The modified request URI.
+   * @param newBody
+   *     The modified request body, in UTF-8. The array is not copied and must not be modified.
+   * @param newParameters
+   *     The modified request parameters.
+   * @throws IOException
+   *     If an I/O error occurs.
+   */
+  public EtendoRequestWrapper(HttpServletRequest originalRequest, String requestURI, byte[] newBody,
+      Map<String, String[]> newParameters) throws IOException {
     super(originalRequest);
     this.requestURI = requestURI;
-    this.modifiedBody = newBody;
+    this.modifiedBody = newBody == null ? EMPTY_BODY : newBody;
     this.modifiedParameters = new HashMap<>(newParameters);
   }
 
@@ -54,8 +81,7 @@ public class EtendoRequestWrapper extends HttpServletRequestWrapper {
    */
   @Override
   public BufferedReader getReader() throws IOException {
-    return new BufferedReader(new InputStreamReader(
-        new ByteArrayInputStream(modifiedBody.getBytes(StandardCharsets.UTF_8))));
+    return new BufferedReader(new InputStreamReader(new BodyInputStream(modifiedBody), StandardCharsets.UTF_8));
   }
 
   /**
@@ -64,33 +90,24 @@ public class EtendoRequestWrapper extends HttpServletRequestWrapper {
    * @throws IOException
    */
   @Override
-  public javax.servlet.ServletInputStream getInputStream() throws IOException {
-    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
-        modifiedBody.getBytes(StandardCharsets.UTF_8));
-    /**
-     * Return a new ServletInputStream that reads from the modified request body.
-     */
-    return new javax.servlet.ServletInputStream() {
-      @Override
-      public int read() throws IOException {
-        return byteArrayInputStream.read();
-      }
-
-      @Override
-      public boolean isFinished() {
-        return byteArrayInputStream.available() == 0;
-      }
+  public ServletInputStream getInputStream() throws IOException {
+    return new BodyInputStream(modifiedBody);
+  }
 
-      @Override
-      public boolean isReady() {
-        return true;
-      }
+  /**
+   * Get the length in bytes of the modified request body.
+   */
+  @Override
+  public int getContentLength() {
+    return modifiedBody.length;
+  }
 
-      @Override
-      public void setReadListener(javax.servlet.ReadListener readListener) {
-        // No-op
-      }
-    };
+  /**
+   * Get the length in bytes of the modified request body.
+   */
+  @Override
+  public long getContentLengthLong() {
+    return modifiedBody.length;
   }
 
   /**
@@ -129,14 +146,19 @@ public class EtendoRequestWrapper extends HttpServletRequestWrapper {
   }
 
   /**
-   * Get the modified request parameters.
+   * Get the modified request parameters, merged with the original ones on the first call.
    */
   @Override
   public Map<String, String[]> getParameterMap() {
-    Map<String, String[]> originalParams = super.getParameterMap();
-    Map<String, String[]> combinedParams = new HashMap<>(originalParams);
-    combinedParams.putAll(modifiedParameters); // Override with modified params
-    return Collections.unmodifiableMap(combinedParams);
+    Map<String, String[]> merged = parameterMap;
+    if (merged == null) {
+      Map<String, String[]> originalParams = super.getParameterMap();
+      Map<String, String[]> combinedParams = new HashMap<>(originalParams);
+      combinedParams.putAll(modifiedParameters); // Override with modified params
+      merged = Collections.unmodifiableMap(combinedParams);
+      parameterMap = merged;
+    }
+    return merged;
   }
 
   /**
@@ -144,8 +166,65 @@ public class EtendoRequestWrapper extends HttpServletRequestWrapper {
    */
   @Override
   public Enumeration<String> getParameterNames() {
-    Set<String> paramNames = new HashSet<>(super.getParameterMap().keySet());
-    paramNames.addAll(modifiedParameters.keySet());
-    return Collections.enumeration(paramNames);
+    return Collections.enumeration(getParameterMap().keySet());
+  }
+
+  /**
+   * A ServletInputStream reading the modified request body, with bulk reads.
+   */
+  private static final class BodyInputStream extends ServletInputStream {
+    private final byte[] body;
+    private int position;
+
+    private BodyInputStream(byte[] body) {
+      this.body = body;
+    }
+
+    @Override
+    public int read() {
+      return position < body.length ? body[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      Objects.checkFromIndexSize(offset, length, buffer.length);
+      if (length == 0) {
+        return 0;
+      }
+      int count = Math.min(length, body.length - position);
+      if (count <= 0) {
+        return -1;
+      }
+      System.arraycopy(body, position, buffer, offset, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public long skip(long n) {
+      long count = Math.max(0, Math.min(n, body.length - position));
+      position += (int) count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return body.length - position;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return position >= body.length;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      // No-op
+    }
   }
 }
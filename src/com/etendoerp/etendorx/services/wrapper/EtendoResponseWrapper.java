@@ -1,22 +1,41 @@
 package com.etendoerp.etendorx.services.wrapper;
 
+import org.apache.http.entity.ContentType;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.openbravo.base.exception.OBException;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
-import java.io.CharArrayWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.Writer;
 
 /**
  * A wrapper for HttpServletResponse that captures the response content.
+ * <p>
+ * The content written through {@link #getWriter()} or {@link #getOutputStream()} is kept in UTF-8
+ * in a {@link CaptureBuffer} taken from a pool of the current thread, and
+ * {@link #getCapturedContent()} parses it from there with a streaming parser. Callers give the
+ * buffer back with {@link #release()} once the content has been read.
+ * <p>
+ * In streaming mode the content is only captured until its envelope shows a successful fetch
+ * ({@code response.data}); from then on it is forwarded to the wrapped response as it is written,
+ * so large pages are not held in memory. Errors are still fully captured, so they can be handled
+ * with {@link #getCapturedContent()}.
  */
 public class EtendoResponseWrapper extends HttpServletResponseWrapper {
-  private final CharArrayWriter charArrayWriter = new CharArrayWriter();
-  private final PrintWriter writer = new PrintWriter(charArrayWriter);
+  private static final String CHARSET_UTF8 = "UTF-8";
+
+  private CaptureBuffer buffer = CaptureBuffer.acquire();
+  private final PrintWriter writer;
+  private ServletOutputStream outputStream;
+  private final ResponseEnvelopeSniffer sniffer;
+  private Writer target;
+  private OutputStream targetStream;
 
   /**
    * Constructs a response wrapper for the given HttpServletResponse.
@@ -24,7 +43,20 @@ public class EtendoResponseWrapper extends HttpServletResponseWrapper {
    * @param response the original HttpServletResponse
    */
   public EtendoResponseWrapper(HttpServletResponse response) {
+    this(response, false);
+  }
+
+  /**
+   * Constructs a response wrapper for the given HttpServletResponse.
+   *
+   * @param response the original HttpServletResponse
+   * @param streaming whether successful fetch responses are forwarded to the original response
+   *     instead of being captured
+   */
+  public EtendoResponseWrapper(HttpServletResponse response, boolean streaming) {
     super(response);
+    sniffer = streaming ? new ResponseEnvelopeSniffer() : null;
+    writer = new PrintWriter(new CaptureWriter());
   }
 
   /**
@@ -38,14 +70,26 @@ public class EtendoResponseWrapper extends HttpServletResponseWrapper {
   }
 
   /**
-   * Throws UnsupportedOperationException as this wrapper only supports getWriter().
+   * Returns an output stream to capture the response content, which must be written in UTF-8.
    *
-   * @return nothing
-   * @throws UnsupportedOperationException always
+   * @return an output stream to capture the response content
    */
   @Override
   public ServletOutputStream getOutputStream() {
-    throw new UnsupportedOperationException("This wrapper only supports getWriter().");
+    if (outputStream == null) {
+      outputStream = new CaptureOutputStream();
+    }
+    return outputStream;
+  }
+
+  /**
+   * Returns whether the content has been forwarded to the original response. When true, the
+   * content is not captured and {@link #getCapturedContent()} must not be used.
+   *
+   * @return true if the response has been streamed
+   */
+  public boolean isStreamed() {
+    return target != null || targetStream != null;
   }
 
   /**
@@ -54,11 +98,173 @@ public class EtendoResponseWrapper extends HttpServletResponseWrapper {
    * @return the captured response content
    */
   public JSONObject getCapturedContent() {
+    CaptureBuffer captured = getCapturedBuffer();
     try {
-      return new JSONObject(charArrayWriter.toString());
-    } catch (JSONException e) {
+      return JettisonStreamReader.readObject(captured.array(), 0, captured.size());
+    } catch (IOException | JSONException e) {
       throw new OBException("Error getting captured content", e);
     }
   }
 
+  /**
+   * Returns the captured response content as it was written.
+   *
+   * @return the captured response content
+   */
+  public String getCapturedText() {
+    return getCapturedBuffer().toString();
+  }
+
+  /**
+   * Gives the capture buffer back to the pool of the current thread. The captured content cannot be
+   * read afterwards, and nothing else may be written to the response.
+   */
+  public void release() {
+    if (buffer != null) {
+      CaptureBuffer released = buffer;
+      buffer = null;
+      released.release();
+    }
+  }
+
+  private CaptureBuffer getCapturedBuffer() {
+    if (isStreamed()) {
+      throw new IllegalStateException("The response content has been streamed and was not captured.");
+    }
+    writer.flush();
+    return buffer();
+  }
+
+  private CaptureBuffer buffer() {
+    if (buffer == null) {
+      throw new IllegalStateException("The capture buffer of the response has been released.");
+    }
+    return buffer;
+  }
+
+  /**
+   * Feeds the content written from the given position to the sniffer and, once it shows a
+   * successful fetch, forwards the captured content to the original response.
+   *
+   * @param start position of the first byte written
+   * @param binary whether the content was written to the output stream
+   */
+  private void sniff(int start, boolean binary) throws IOException {
+    if (sniffer == null || sniffer.getOutcome() != ResponseEnvelopeSniffer.Outcome.UNDECIDED
+        || sniffer.feed(buffer.array(), start, buffer.size() - start) != ResponseEnvelopeSniffer.Outcome.DATA) {
+      return;
+    }
+    HttpServletResponse response = (HttpServletResponse) getResponse();
+    response.setContentType(ContentType.APPLICATION_JSON.getMimeType());
+    response.setCharacterEncoding(CHARSET_UTF8);
+    if (binary) {
+      targetStream = response.getOutputStream();
+      buffer.writeTo(targetStream);
+    } else {
+      target = response.getWriter();
+      target.write(buffer.toString());
+      if (buffer.getPendingHighSurrogate() != 0) {
+        target.write(buffer.getPendingHighSurrogate());
+      }
+    }
+    release();
+  }
+
+  /**
+   * Captures the characters written, encoded in UTF-8.
+   */
+  private class CaptureWriter extends Writer {
+
+    @Override
+    public void write(int c) throws IOException {
+      if (target != null) {
+        target.write(c);
+        return;
+      }
+      int start = buffer().size();
+      buffer.writeChar((char) c);
+      sniff(start, false);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      if (target != null) {
+        target.write(cbuf, off, len);
+        return;
+      }
+      int start = buffer().size();
+      buffer.write(cbuf, off, len);
+      sniff(start, false);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      if (target != null) {
+        target.write(str, off, len);
+        return;
+      }
+      int start = buffer().size();
+      buffer.write(str, off, len);
+      sniff(start, false);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (target != null) {
+        target.flush();
+      } else if (targetStream != null) {
+        targetStream.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+
+  /**
+   * Captures the bytes written.
+   */
+  private class CaptureOutputStream extends ServletOutputStream {
+
+    @Override
+    public void write(int b) throws IOException {
+      if (targetStream != null) {
+        targetStream.write(b);
+        return;
+      }
+      int start = buffer().size();
+      buffer.write(b);
+      sniff(start, true);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (targetStream != null) {
+        targetStream.write(b, off, len);
+        return;
+      }
+      int start = buffer().size();
+      buffer.write(b, off, len);
+      sniff(start, true);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (targetStream != null) {
+        targetStream.flush();
+      }
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      // No-op
+    }
+  }
 }
@@ -0,0 +1,101 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+import java.io.IOException;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Builds Jettison objects with the Jackson streaming parser, reading the UTF-8 bytes directly
+ * instead of decoding them into a String first.
+ * <p>
+ * Values get the same types {@code new JSONObject(String)} gives them: Integer, Long or Double
+ * numbers, Boolean, String and {@link JSONObject#NULL}.
+ */
+final class JettisonStreamReader {
+  private static final JsonFactory FACTORY = new JsonFactory();
+
+  private JettisonStreamReader() {
+  }
+
+  /**
+   * Parses the JSON object held in the given bytes.
+   *
+   * @param bytes
+   *     array holding the JSON text, in UTF-8
+   * @param offset
+   *     position of the first byte
+   * @param length
+   *     number of bytes
+   * @return the object
+   * @throws IOException
+   *     if the text is not well-formed JSON
+   * @throws JSONException
+   *     if the text is not a JSON object
+   */
+  static JSONObject readObject(byte[] bytes, int offset, int length) throws IOException, JSONException {
+    try (JsonParser parser = FACTORY.createParser(bytes, offset, length)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JSONException("A JSONObject text must begin with '{'");
+      }
+      return readObject(parser);
+    }
+  }
+
+  private static JSONObject readObject(JsonParser parser) throws IOException, JSONException {
+    JSONObject object = new JSONObject();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      parser.nextToken();
+      object.put(name, readValue(parser));
+    }
+    return object;
+  }
+
+  private static JSONArray readArray(JsonParser parser) throws IOException, JSONException {
+    JSONArray array = new JSONArray();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      array.put(readValue(parser));
+    }
+    return array;
+  }
+
+  private static Object readValue(JsonParser parser) throws IOException, JSONException {
+    JsonToken token = parser.currentToken();
+    if (token == null) {
+      throw new JSONException("Unexpected end of JSON text");
+    }
+    switch (token) {
+      case START_OBJECT:
+        return readObject(parser);
+      case START_ARRAY:
+        return readArray(parser);
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+        switch (parser.getNumberType()) {
+          case INT:
+            return parser.getIntValue();
+          case LONG:
+            return parser.getLongValue();
+          default:
+            return Double.valueOf(parser.getText());
+        }
+      case VALUE_NUMBER_FLOAT:
+        return Double.valueOf(parser.getText());
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return JSONObject.NULL;
+      default:
+        throw new JSONException("Unexpected JSON token " + token);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.etendoerp.etendorx.services.wrapper;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+/**
+ * Incremental JSON tokenizer that only looks at the envelope of a datasource response,
+ * {@code {"response": {..., "data": [...]}}}, to tell a successful fetch from an error without
+ * parsing the whole document.
+ * <p>
+ * Characters are fed as they are written. Only the keys of the two outer objects are recorded, so
+ * the memory used does not depend on the size of the response.
+ */
+final class ResponseEnvelopeSniffer {
+
+  /**
+   * Decision taken on the envelope.
+   */
+  enum Outcome {
+    /** Not enough content seen yet. */
+    UNDECIDED,
+    /** {@code response.data} found: the response is a successful fetch. */
+    DATA,
+    /** {@code response.error} found, or the document ended without data. */
+    ERROR
+  }
+
+  private static final String RESPONSE = "response";
+  private static final String DATA = "data";
+  private static final String ERROR = "error";
+  // Keys longer than this are never any of the interesting ones
+  private static final int MAX_KEY_LENGTH = 16;
+
+  private Outcome outcome = Outcome.UNDECIDED;
+  private int depth = 0;
+  private boolean inString = false;
+  private boolean escaped = false;
+  private final StringBuilder token = new StringBuilder(MAX_KEY_LENGTH);
+  private boolean tokenOverflow = false;
+  private String lastString;
+  private String rootKey;
+  private boolean inResponseObject = false;
+
+  /**
+   * Feeds a chunk of the response.
+   *
+   * @param cbuf
+   *     characters written
+   * @param off
+   *     offset of the first character
+   * @param len
+   *     number of characters
+   * @return the outcome after consuming the chunk
+   */
+  Outcome feed(char[] cbuf, int off, int len) {
+    for (int i = off; i < off + len && outcome == Outcome.UNDECIDED; i++) {
+      feed(cbuf[i]);
+    }
+    return outcome;
+  }
+
+  /**
+   * Feeds a chunk of the response encoded in UTF-8. Bytes are fed as Latin-1 characters: the bytes
+   * of a multi-byte character never match the ASCII structure of the envelope, and its keys are
+   * ASCII.
+   *
+   * @param buf
+   *     bytes written
+   * @param off
+   *     offset of the first byte
+   * @param len
+   *     number of bytes
+   * @return the outcome after consuming the chunk
+   */
+  Outcome feed(byte[] buf, int off, int len) {
+    for (int i = off; i < off + len && outcome == Outcome.UNDECIDED; i++) {
+      feed((char) (buf[i] & 0xFF));
+    }
+    return outcome;
+  }
+
+  /**
+   * @return the current outcome
+   */
+  Outcome getOutcome() {
+    return outcome;
+  }
+
+  private void feed(char c) {
+    if (inString) {
+      feedString(c);
+      return;
+    }
+    switch (c) {
+      case '"':
+        inString = true;
+        token.setLength(0);
+        tokenOverflow = false;
+        break;
+      case '{':
+      case '[':
+        depth++;
+        if (depth == 2 && c == '{' && RESPONSE.equals(rootKey)) {
+          inResponseObject = true;
+        }
+        break;
+      case '}':
+      case ']':
+        if (depth == 2) {
+          inResponseObject = false;
+        }
+        depth--;
+        if (depth <= 0) {
+          // the whole document has been seen and no data was found
+          outcome = Outcome.ERROR;
+        }
+        break;
+      case ':':
+        onKey(lastString);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void feedString(char c) {
+    if (escaped) {
+      escaped = false;
+      appendToToken(c);
+    } else if (c == '\\') {
+      escaped = true;
+    } else if (c == '"') {
+      inString = false;
+      lastString = tokenOverflow ? null : token.toString();
+    } else {
+      appendToToken(c);
+    }
+  }
+
+  private void appendToToken(char c) {
+    // only the keys of the two outer objects are relevant
+    if (depth > 2 || tokenOverflow) {
+      return;
+    }
+    if (token.length() >= MAX_KEY_LENGTH) {
+      tokenOverflow = true;
+      return;
+    }
+    token.append(c);
+  }
+
+  private void onKey(String key) {
+    if (depth == 1) {
+      rootKey = key;
+    } else if (depth == 2 && inResponseObject) {
+      if (DATA.equals(key)) {
+        outcome = Outcome.DATA;
+      } else if (ERROR.equals(key)) {
+        outcome = Outcome.ERROR;
+      }
+    }
+    lastString = null;
+  }
+}
@@ -0,0 +1,141 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+
+/**
+ * An in-memory {@link HttpSession} holding a copy of the attributes of another session.
+ * <p>
+ * Form initialization and callouts keep intermediate values as session attributes. Records
+ * processed concurrently on behalf of the same HTTP request get their own snapshot, so they do not
+ * see each other's values. Changes are never written back to the original session.
+ */
+public class SessionSnapshot implements HttpSession {
+  private final String id = UUID.randomUUID().toString();
+  private final long creationTime = System.currentTimeMillis();
+  private final ServletContext servletContext;
+  private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+  private int maxInactiveInterval;
+
+  /**
+   * Creates a snapshot of the given session.
+   *
+   * @param session
+   *     the session to copy, may be null to start with an empty session
+   */
+  public SessionSnapshot(HttpSession session) {
+    this.servletContext = session != null ? session.getServletContext() : null;
+    if (session == null) {
+      return;
+    }
+    this.maxInactiveInterval = session.getMaxInactiveInterval();
+    Enumeration<String> names = session.getAttributeNames();
+    while (names.hasMoreElements()) {
+      String name = names.nextElement();
+      Object value = session.getAttribute(name);
+      if (value != null) {
+        attributes.put(name, value);
+      }
+    }
+  }
+
+  @Override
+  public long getCreationTime() {
+    return creationTime;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public long getLastAccessedTime() {
+    return creationTime;
+  }
+
+  @Override
+  public ServletContext getServletContext() {
+    return servletContext;
+  }
+
+  @Override
+  public void setMaxInactiveInterval(int interval) {
+    this.maxInactiveInterval = interval;
+  }
+
+  @Override
+  public int getMaxInactiveInterval() {
+    return maxInactiveInterval;
+  }
+
+  @Override
+  @Deprecated
+  public javax.servlet.http.HttpSessionContext getSessionContext() {
+    return null;
+  }
+
+  @Override
+  public Object getAttribute(String name) {
+    return attributes.get(name);
+  }
+
+  @Override
+  @Deprecated
+  public Object getValue(String name) {
+    return getAttribute(name);
+  }
+
+  @Override
+  public Enumeration<String> getAttributeNames() {
+    return Collections.enumeration(attributes.keySet());
+  }
+
+  @Override
+  @Deprecated
+  public String[] getValueNames() {
+    return attributes.keySet().toArray(new String[0]);
+  }
+
+  @Override
+  public void setAttribute(String name, Object value) {
+    if (value == null) {
+      attributes.remove(name);
+    } else {
+      attributes.put(name, value);
+    }
+  }
+
+  @Override
+  @Deprecated
+  public void putValue(String name, Object value) {
+    setAttribute(name, value);
+  }
+
+  @Override
+  public void removeAttribute(String name) {
+    attributes.remove(name);
+  }
+
+  @Override
+  @Deprecated
+  public void removeValue(String name) {
+    removeAttribute(name);
+  }
+
+  @Override
+  public void invalidate() {
+    attributes.clear();
+  }
+
+  @Override
+  public boolean isNew() {
+    return false;
+  }
+}
@@ -0,0 +1,105 @@
+package com.etendoerp.etendorx.services.wrapper;
+
+import java.util.Locale;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * A wrapper class for HttpServletResponse that serializes the changes of status and headers, so
+ * the response can be shared by the threads processing the records of a request. The body must
+ * not be written through this wrapper: it is meant to be wrapped again by an
+ * {@link EtendoResponseWrapper} capturing the content.
+ */
+public class SynchronizedResponseWrapper extends HttpServletResponseWrapper {
+  private final HttpServletResponse response;
+
+  /**
+   * Constructor for SynchronizedResponseWrapper.
+   *
+   * @param response
+   *     The shared response.
+   */
+  public SynchronizedResponseWrapper(HttpServletResponse response) {
+    super(response);
+    this.response = response;
+  }
+
+  @Override
+  public void setStatus(int sc) {
+    synchronized (response) {
+      super.setStatus(sc);
+    }
+  }
+
+  @Override
+  public void setHeader(String name, String value) {
+    synchronized (response) {
+      super.setHeader(name, value);
+    }
+  }
+
+  @Override
+  public void addHeader(String name, String value) {
+    synchronized (response) {
+      super.addHeader(name, value);
+    }
+  }
+
+  @Override
+  public void setIntHeader(String name, int value) {
+    synchronized (response) {
+      super.setIntHeader(name, value);
+    }
+  }
+
+  @Override
+  public void addIntHeader(String name, int value) {
+    synchronized (response) {
+      super.addIntHeader(name, value);
+    }
+  }
+
+  @Override
+  public void setDateHeader(String name, long date) {
+    synchronized (response) {
+      super.setDateHeader(name, date);
+    }
+  }
+
+  @Override
+  public void addDateHeader(String name, long date) {
+    synchronized (response) {
+      super.addDateHeader(name, date);
+    }
+  }
+
+  @Override
+  public void addCookie(Cookie cookie) {
+    synchronized (response) {
+      super.addCookie(cookie);
+    }
+  }
+
+  @Override
+  public void setContentType(String type) {
+    synchronized (response) {
+      super.setContentType(type);
+    }
+  }
+
+  @Override
+  public void setCharacterEncoding(String charset) {
+    synchronized (response) {
+      super.setCharacterEncoding(charset);
+    }
+  }
+
+  @Override
+  public void setLocale(Locale locale) {
+    synchronized (response) {
+      super.setLocale(locale);
+    }
+  }
+}
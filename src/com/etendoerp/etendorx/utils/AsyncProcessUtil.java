@@ -21,7 +21,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 
@@ -38,6 +38,10 @@ import com.smf.securewebservices.utils.SecureWebServicesUtils;
  */
 public class AsyncProcessUtil {
 
+  private static final DateTimeFormatter LOG_DATE_FORMAT = ValueFormats.ofLegacyPattern("dd-MM-yyyy HH:mm:ss:SSS");
+  private static final DateTimeFormatter DISPLAY_DATE_FORMAT = ValueFormats.ofLegacyPattern(
+      "yyyy-MM-dd HH:mm:ss:SSS");
+
   /**
    * Private constructor to prevent instantiation of utility class.
    */
@@ -76,9 +80,7 @@ public class AsyncProcessUtil {
    * @throws ParseException if the input date string cannot be parsed
    */
   public static String fmtDate(String dateStr) throws ParseException {
-    SimpleDateFormat fmtToDate = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss:SSS");
-    SimpleDateFormat fmtToStr = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:SSS");
-    return fmtToStr.format(fmtToDate.parse(dateStr));
+    return ValueFormats.reformat(dateStr, LOG_DATE_FORMAT, DISPLAY_DATE_FORMAT);
   }
 
   /**
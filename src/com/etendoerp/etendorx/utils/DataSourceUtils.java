@@ -16,14 +16,11 @@ package com.etendoerp.etendorx.utils;
  *************************************************************************
  */
 
-import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -35,9 +32,6 @@ import org.openbravo.base.exception.OBException;
 import org.openbravo.base.model.Entity;
 import org.openbravo.base.model.ModelProvider;
 import org.openbravo.base.model.Property;
-import org.openbravo.base.session.OBPropertiesProvider;
-import org.openbravo.client.application.ApplicationConstants;
-import org.openbravo.client.kernel.KernelUtils;
 import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.data.Sqlc;
@@ -48,6 +42,7 @@ import org.openbravo.model.ad.ui.Field;
 import org.openbravo.model.ad.ui.Tab;
 
 import com.etendoerp.etendorx.services.OpenAPINotFoundThrowable;
+import com.etendoerp.etendorx.services.metadata.TabMetadataIndex;
 import com.etendoerp.etendorx.services.wrapper.RequestField;
 import com.etendoerp.openapi.data.OpenAPIRequest;
 
@@ -209,9 +204,7 @@ public class DataSourceUtils {
     var it = jsonBodyToSave.keys();
     while (it.hasNext()) {
       String key = (String) it.next();
-      String value = jsonBodyToSave.getString(key);
-      String type = columnTypes.get(key);
-      newJsonBodyToSave.put(key, convertValueFromInputToHQL(type, value));
+      newJsonBodyToSave.put(key, FieldConverter.forType(columnTypes.get(key)).toHql(jsonBodyToSave.get(key)));
     }
     return newJsonBodyToSave;
   }
@@ -229,88 +222,8 @@ public class DataSourceUtils {
    * @throws ParseException
    *     If there is an error during date parsing.
    */
-  private static Object convertValueFromInputToHQL(String type, String value) throws ParseException {
-
-    if (type == null) {
-      return value;
-    }
-    switch (type) {
-      case "BigDecimal":
-        String normalized;
-        int lastComma = value.lastIndexOf(',');
-        int lastDot   = value.lastIndexOf('.');
-
-        if (lastComma > lastDot) {
-          normalized = value.replace(".", "").replace(",", ".");
-        } else if (lastDot > lastComma) {
-          normalized = value.replace(",", "");
-        } else {
-          normalized = value.replace(",", ".");
-        }
-        return new BigDecimal(normalized);
-      case "Long":
-        return Long.parseLong(value);
-      case "Boolean":
-        return Boolean.parseBoolean(value) || StringUtils.equalsIgnoreCase(value, "Y");
-      case "Date":
-        return getformatedDate(value, true);
-      case "Datetime":
-        return getformatedDatetime(value, true);
-      default:
-        return value;
-    }
-
-  }
-
-  /**
-   * Formats a datetime string to the standard HQL datetime format.
-   * <p>
-   * This method converts the given datetime string to the standard HQL datetime format.
-   *
-   * @param value
-   *     The datetime string to be formatted.
-   * @param inp2hql
-   *     The boolean value indicates if the datetime is from the input format to the HQL format. If false,
-   *     the datetime is from the HQL format to the input format.
-   * @return The formatted datetime string.
-   * @throws ParseException
-   *     If there is an error during date parsing.
-   */
-  private static String getformatedDatetime(String value, boolean inp2hql) throws ParseException {
-    Properties props = OBPropertiesProvider.getInstance().getOpenbravoProperties();
-    SimpleDateFormat sdfInp = new SimpleDateFormat(props.getProperty("dateTimeFormat.java"));
-    SimpleDateFormat sdfHql = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.S'Z'");
-    if (inp2hql) {
-      return sdfHql.format(sdfInp.parse(value));
-    } else {
-      return sdfInp.format(sdfHql.parse(value));
-    }
-  }
-
-  /**
-   * Formats a date string to the standard HQL date format.
-   * <p>
-   * This method converts the given date string to the standard HQL date format.
-   *
-   * @param value
-   *     The date string to be formatted.
-   * @param inp2hql
-   *     The boolean value indicates if the date is from the input format to the HQL format. If false,
-   *     the date is from the HQL format to the input format.
-   * @return The formatted date string.
-   * @throws ParseException
-   *     If there is an error during date parsing.
-   */
-  private static String getformatedDate(String value, boolean inp2hql) throws ParseException {
-
-    Properties props = OBPropertiesProvider.getInstance().getOpenbravoProperties();
-    SimpleDateFormat sdfInp = new SimpleDateFormat(props.getProperty("dateFormat.java"));
-    SimpleDateFormat sdfHql = new SimpleDateFormat("yyyy-MM-dd");
-    if (inp2hql) {
-      return sdfHql.format(sdfInp.parse(value));
-    } else {
-      return sdfInp.format(sdfHql.parse(value));
-    }
+  public static Object convertValueFromInputToHQL(String type, String value) throws ParseException {
+    return FieldConverter.forType(type).toHql(value);
   }
 
   /**
@@ -383,20 +296,7 @@ public class DataSourceUtils {
    * @return The parent ID if found, otherwise null.
    */
   public static String getParentId(Tab tab, JSONObject data) {
-    try {
-      OBContext.setAdminMode(false);
-      List<String> dataPropertiesOfParents = tab.getADFieldList().stream().filter(
-          field -> field.getColumn() != null && field.getColumn().isLinkToParentColumn()).map(
-          f -> getHQLColumnName(f)[0]).collect(Collectors.toList());
-      for (String parentProperty : dataPropertiesOfParents) {
-        if (data.has(parentProperty)) {
-          return data.optString(parentProperty);
-        }
-      }
-      return null;
-    } finally {
-      OBContext.restorePreviousMode();
-    }
+    return TabMetadataIndex.getIndex(tab).getParentId(data);
   }
 
   /**
@@ -409,36 +309,7 @@ public class DataSourceUtils {
    * @return The parent ID if found, otherwise null.
    */
   public static List<String> getParentProperties(Tab tab) {
-    try {
-      OBContext.setAdminMode(false);
-      return tab.getADFieldList().stream().filter(
-          field -> field.getColumn() != null && field.getColumn().isLinkToParentColumn()).filter(
-          field -> isParentRecordProperty(field, tab)).map(f -> getHQLColumnName(f)[0]).collect(Collectors.toList());
-    } finally {
-      OBContext.restorePreviousMode();
-    }
-  }
-
-  /**
-   * Method taken from {@link com.smf.mobile.utils.webservices.Window}.
-   * If this method changes to public, this method can be removed, and the method can be used directly.
-   */
-  private static boolean isParentRecordProperty(Field field, Tab tab) {
-    Entity parentEntity = null;
-
-    if (!field.getColumn().isLinkToParentColumn()) {
-      return false;
-    }
-    Tab parentTab = KernelUtils.getInstance().getParentTab(tab);
-
-    if (parentTab != null && ApplicationConstants.TABLEBASEDTABLE.equals(parentTab.getTable().getDataOriginType())) {
-      parentEntity = ModelProvider.getInstance().getEntityByTableName(parentTab.getTable().getDBTableName());
-    }
-
-    Property property = KernelUtils.getProperty(field);
-    Entity referencedEntity = property.getReferencedProperty().getEntity();
-    return referencedEntity.equals(parentEntity);
-
+    return TabMetadataIndex.getIndex(tab).getParentProperties();
   }
 
   /**
@@ -622,27 +493,7 @@ public class DataSourceUtils {
    *     If there is an error during date parsing.
    */
   public static String valueConvertToInputFormat(Object o, String type) throws ParseException {
-    if (type == null) {
-      return o.toString();
-    }
-    switch (type) {
-      case "BigDecimal":
-        return o.toString();
-      case "Long":
-        if (o instanceof Integer) {
-          return Integer.toString((Integer) o);
-        } else {
-          return Long.toString((Long) o);
-        }
-      case "Boolean":
-        return (Boolean) o ? "Y" : "N";
-      case "Date":
-        return getformatedDate(o.toString(), false);
-      case "Datetime":
-        return getformatedDatetime(o.toString(), false);
-      default:
-        return o.toString();
-    }
+    return FieldConverter.forType(type).toInput(o);
   }
 
   /**
@@ -0,0 +1,178 @@
+package com.etendoerp.etendorx.utils;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Converts the values of a field between the input format of the form and the HQL format of the
+ * datasource, following the primitive type of its property.
+ * <p>
+ * The converter of each field is resolved once from the type name returned by
+ * {@link DataSourceUtils#getHQLColumnName}, so converting a value is a single call with no type name
+ * comparisons. Numeric and boolean values are converted directly, without going through their
+ * string representation.
+ */
+public enum FieldConverter {
+
+  /** Strings, ids and any type without a specific conversion. */
+  STRING {
+    @Override
+    public Object toHql(Object value) {
+      return value == null ? null : value.toString();
+    }
+
+    @Override
+    public String toInput(Object value) {
+      return value.toString();
+    }
+  },
+
+  /** Amounts and quantities, read with any decimal separator. */
+  BIG_DECIMAL {
+    @Override
+    public Object toHql(Object value) {
+      if (value instanceof BigDecimal) {
+        return value;
+      }
+      if (value instanceof Integer || value instanceof Long) {
+        return BigDecimal.valueOf(((Number) value).longValue());
+      }
+      return ValueFormats.parseAmount(value.toString());
+    }
+
+    @Override
+    public String toInput(Object value) {
+      return value.toString();
+    }
+  },
+
+  /** Integer numbers. */
+  LONG {
+    @Override
+    public Object toHql(Object value) {
+      if (value instanceof Integer || value instanceof Long) {
+        return ((Number) value).longValue();
+      }
+      return Long.parseLong(value.toString());
+    }
+
+    @Override
+    public String toInput(Object value) {
+      if (value instanceof Integer) {
+        return Integer.toString((Integer) value);
+      }
+      return Long.toString((Long) value);
+    }
+  },
+
+  /** Yes/no flags, {@code Y} and {@code N} in input format. */
+  BOOLEAN {
+    @Override
+    public Object toHql(Object value) {
+      if (value instanceof Boolean) {
+        return value;
+      }
+      String text = value.toString();
+      return Boolean.parseBoolean(text) || StringUtils.equalsIgnoreCase(text, "Y");
+    }
+
+    @Override
+    public String toInput(Object value) {
+      return (Boolean) value ? "Y" : "N";
+    }
+  },
+
+  /** Dates, in the date format of the application in input format. */
+  DATE {
+    @Override
+    public Object toHql(Object value) throws ParseException {
+      return ValueFormats.toHqlDate(value.toString());
+    }
+
+    @Override
+    public String toInput(Object value) throws ParseException {
+      return ValueFormats.toInputDate(value.toString());
+    }
+  },
+
+  /** Dates with time, in the date time format of the application in input format. */
+  DATETIME {
+    @Override
+    public Object toHql(Object value) throws ParseException {
+      return ValueFormats.toHqlDatetime(value.toString());
+    }
+
+    @Override
+    public String toInput(Object value) throws ParseException {
+      return ValueFormats.toInputDatetime(value.toString());
+    }
+  };
+
+  /**
+   * Converts a value in input format to the HQL format.
+   *
+   * @param value
+   *     the value in input format
+   * @return the value in HQL format
+   * @throws ParseException
+   *     if a date value cannot be parsed
+   */
+  public abstract Object toHql(Object value) throws ParseException;
+
+  /**
+   * Converts a value in HQL format to the input format.
+   *
+   * @param value
+   *     the value in HQL format
+   * @return the value in input format
+   * @throws ParseException
+   *     if a date value cannot be parsed
+   */
+  public abstract String toInput(Object value) throws ParseException;
+
+  /**
+   * Resolves the converter of a type.
+   *
+   * @param type
+   *     the primitive type name, as returned by {@link DataSourceUtils#getHQLColumnName}
+   * @return the converter of the type, {@link #STRING} when the type is null or has no specific
+   *     conversion
+   */
+  public static FieldConverter forType(String type) {
+    if (type == null) {
+      return STRING;
+    }
+    switch (type) {
+      case "BigDecimal":
+        return BIG_DECIMAL;
+      case "Long":
+        return LONG;
+      case "Boolean":
+        return BOOLEAN;
+      case "Date":
+        return DATE;
+      case "Datetime":
+        return DATETIME;
+      default:
+        return STRING;
+    }
+  }
+}
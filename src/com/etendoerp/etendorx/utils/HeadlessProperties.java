@@ -0,0 +1,160 @@
+package com.etendoerp.etendorx.utils;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.base.session.OBPropertiesProvider;
+
+/**
+ * Reads the tuning options of the headless API from Openbravo.properties.
+ */
+public class HeadlessProperties {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /** Whether GET results are streamed to the client instead of being buffered. Defaults to true. */
+  public static final String GET_STREAMING = "etendorx.headless.get.streaming";
+
+  /** Whether the records of a bulk POST share the NEW form initialization. Defaults to true. */
+  public static final String POST_BATCH = "etendorx.headless.post.batch";
+
+  /**
+   * Whether the records of a bulk POST with different parents are processed concurrently. Defaults
+   * to false.
+   */
+  public static final String POST_PARALLEL = "etendorx.headless.post.parallel";
+
+  /** Number of threads processing bulk POST records in parallel. Defaults to the number of cores. */
+  public static final String POST_PARALLEL_THREADS = "etendorx.headless.post.parallel.threads";
+
+  /** Number of bulk POST partitions that can wait for a parallel thread. Defaults to 500. */
+  public static final String POST_PARALLEL_QUEUE_SIZE = "etendorx.headless.post.parallel.queue.size";
+
+  /** Hours a response is kept for replay under its Idempotency-Key. Defaults to 24. */
+  public static final String IDEMPOTENCY_TTL_HOURS = "etendorx.headless.idempotency.ttl.hours";
+
+  /** Number of threads processing headless background jobs. Defaults to 2. */
+  public static final String ASYNC_THREADS = "etendorx.headless.async.threads";
+
+  /** Number of headless background jobs that can wait for a thread. Defaults to 100. */
+  public static final String ASYNC_QUEUE_SIZE = "etendorx.headless.async.queue.size";
+
+  /** Minutes a finished background job can be polled. Defaults to 60. */
+  public static final String ASYNC_JOB_TTL_MINUTES = "etendorx.headless.async.ttl.minutes";
+
+  /**
+   * Where record locks are kept: {@code memory}, local to this JVM, or {@code postgresql}, shared
+   * by every node using the database. Defaults to memory.
+   */
+  public static final String LOCK_BACKEND = "etendorx.headless.lock.backend";
+
+  /**
+   * Whether record locks are taken from a fixed array of locks indexed by the hash of the id,
+   * instead of a lock per id. Defaults to false.
+   */
+  public static final String LOCK_STRIPED = "etendorx.headless.lock.striped";
+
+  /** Number of locks of the striped mode, rounded up to a power of two. Defaults to 1024. */
+  public static final String LOCK_STRIPES = "etendorx.headless.lock.stripes";
+
+  /** Whether record locks are granted in arrival order. Defaults to true. */
+  public static final String LOCK_FAIR = "etendorx.headless.lock.fair";
+
+  /** Milliseconds a request waits for a record lock, 0 to wait forever. Defaults to 60000. */
+  public static final String LOCK_TIMEOUT_MS = "etendorx.headless.lock.timeout.ms";
+
+  /** Maximum number of requests waiting for the same lock, 0 for no limit. Defaults to 0. */
+  public static final String LOCK_MAX_WAITERS = "etendorx.headless.lock.max.waiters";
+
+  /**
+   * Whether records of the same parent are written in parallel, under a shared lock of the parent
+   * and an exclusive lock of the record, when they do not compute values from their siblings.
+   * Defaults to true.
+   */
+  public static final String LOCK_SHARED_PARENT = "etendorx.headless.lock.shared.parent";
+
+  /**
+   * Number of user, role, organization and language combinations whose session setup is kept, 0 to
+   * disable the cache. Defaults to 200.
+   */
+  public static final String SESSION_CACHE_SIZE = "etendorx.headless.session.cache.size";
+
+  /** Seconds a cached session setup is reused. Defaults to 300. */
+  public static final String SESSION_CACHE_TTL_SECONDS = "etendorx.headless.session.cache.ttl.seconds";
+
+  /**
+   * Whether the first form initialization prepares the metadata of every window exposed by a
+   * headless endpoint, instead of only the window of the request. Defaults to true.
+   */
+  public static final String METADATA_WARMUP = "etendorx.headless.metadata.warmup";
+
+  private HeadlessProperties() {
+    // Private constructor to prevent instantiation
+  }
+
+  /**
+   * Returns the value of the given property, or null when it is not set.
+   *
+   * @param key
+   *     the property name
+   * @return the trimmed value, or null
+   */
+  public static String getString(String key) {
+    Properties properties = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+    return properties == null ? null : StringUtils.trimToNull(properties.getProperty(key));
+  }
+
+  /**
+   * Returns the boolean value of the given property.
+   *
+   * @param key
+   *     the property name
+   * @param defaultValue
+   *     value used when the property is not set
+   * @return the property value
+   */
+  public static boolean getBoolean(String key, boolean defaultValue) {
+    String value = getString(key);
+    return value == null ? defaultValue : Boolean.parseBoolean(value);
+  }
+
+  /**
+   * Returns the integer value of the given property.
+   *
+   * @param key
+   *     the property name
+   * @param defaultValue
+   *     value used when the property is not set or is not a valid number
+   * @return the property value
+   */
+  public static int getInt(String key, int defaultValue) {
+    String value = getString(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      log.warn("Invalid value {} for property {}, using {}", value, key, defaultValue);
+      return defaultValue;
+    }
+  }
+}
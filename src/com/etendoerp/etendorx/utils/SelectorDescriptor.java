@@ -0,0 +1,250 @@
+package com.etendoerp.etendorx.utils;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openbravo.model.ad.domain.Reference;
+import org.openbravo.userinterface.selector.Selector;
+import org.openbravo.userinterface.selector.SelectorField;
+
+/**
+ * Precomputed definition of a selector, as used to resolve the values set on headless records: the
+ * custom query flag, the alias and filter of the value field, the extra properties requested from
+ * the selector datasource and, for each out field, its name in the selector rows and the input it
+ * is copied to.
+ * <p>
+ * The custom query is only filtered by value when the value field holds strings or ids, as the
+ * selected value is always an id bound as a string.
+ * <p>
+ * Descriptors are built once per selector, instead of walking the selector fields on every change
+ * of a record, and dropped as a whole by {@link #invalidate()}, which is called by
+ * {@link com.etendoerp.etendorx.events.EndpointMetadataEventHandler} when selectors or selector
+ * fields change. Only names are kept, so descriptors can be shared between sessions.
+ */
+public final class SelectorDescriptor {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /** Base references of string and id values: String, Text, Memo, List, ID, Table, TableDir, Search and Selector. */
+  private static final Set<String> KEYED_VALUE_REFERENCES = Set.of("10", "14", "34", "17", "13", "18", "19", "30",
+      "95E2A8B50A254B2AAE6774B8C2F28120");
+
+  private static final ConcurrentMap<String, SelectorDescriptor> descriptors = new ConcurrentHashMap<>();
+  private static long generation = 0;
+
+  private final boolean customQuery;
+  private final boolean hasFields;
+  private final String valueAlias;
+  private final String valueFilter;
+  private final String extraProperties;
+  private final String[] outFieldProperties;
+  private final String[] outFieldAliases;
+  private final String[] outFieldSuffixes;
+  private final String[] outFieldInputs;
+
+  private SelectorDescriptor(boolean customQuery, boolean hasFields, String valueAlias, String valueFilter,
+      String extraProperties, String[] outFieldProperties, String[] outFieldAliases, String[] outFieldSuffixes,
+      String[] outFieldInputs) {
+    this.customQuery = customQuery;
+    this.hasFields = hasFields;
+    this.valueAlias = valueAlias;
+    this.valueFilter = valueFilter;
+    this.extraProperties = extraProperties;
+    this.outFieldProperties = outFieldProperties;
+    this.outFieldAliases = outFieldAliases;
+    this.outFieldSuffixes = outFieldSuffixes;
+    this.outFieldInputs = outFieldInputs;
+  }
+
+  /**
+   * Returns the descriptor of the given selector, building and caching it when needed.
+   *
+   * @param selector
+   *     the selector
+   * @return the descriptor of the selector
+   */
+  public static SelectorDescriptor getDescriptor(Selector selector) {
+    String key = selector.getId();
+    SelectorDescriptor descriptor = key != null ? descriptors.get(key) : null;
+    if (descriptor != null) {
+      return descriptor;
+    }
+    long buildGeneration;
+    synchronized (descriptors) {
+      buildGeneration = generation;
+    }
+    descriptor = build(selector);
+    if (key != null) {
+      synchronized (descriptors) {
+        // Do not cache a descriptor built from a definition that was invalidated meanwhile
+        if (buildGeneration == generation) {
+          descriptors.putIfAbsent(key, descriptor);
+        }
+      }
+    }
+    return descriptor;
+  }
+
+  /**
+   * Drops every cached descriptor. They are rebuilt on next use.
+   */
+  public static void invalidate() {
+    synchronized (descriptors) {
+      generation++;
+      descriptors.clear();
+    }
+    log.debug("Headless selector descriptors invalidated");
+  }
+
+  /**
+   * Returns the number of cached descriptors. Useful for monitoring and tests.
+   *
+   * @return number of cached descriptors
+   */
+  public static int size() {
+    return descriptors.size();
+  }
+
+  /**
+   * Reads the fields of the selector once.
+   *
+   * @param selector
+   *     the selector to describe
+   * @return the descriptor of the selector
+   */
+  static SelectorDescriptor build(Selector selector) {
+    List<SelectorField> fields = selector.getOBUISELSelectorFieldList();
+    List<SelectorField> outFields = fields.stream().filter(SelectorField::isOutfield).collect(Collectors.toList());
+    int count = outFields.size();
+    String[] properties = new String[count];
+    String[] aliases = new String[count];
+    String[] suffixes = new String[count];
+    String[] inputs = new String[count];
+    for (int i = 0; i < count; i++) {
+      SelectorField outField = outFields.get(i);
+      properties[i] = SelectorHandlerUtil.getNormalizedFieldName(outField, false);
+      aliases[i] = SelectorHandlerUtil.getNormalizedFieldName(outField, true);
+      if (StringUtils.isNotEmpty(outField.getSuffix())) {
+        suffixes[i] = outField.getSuffix();
+      } else if (outField.getColumn() != null) {
+        inputs[i] = SelectorHandlerUtil.getTargetKey(null, outField);
+      }
+    }
+    SelectorField valueField = selector.getValuefield();
+    String valueFilter = valueField != null && hasKeyedValue(valueField)
+        ? SelectorHandlerUtil.getValueFilter(selector) : "";
+    return new SelectorDescriptor(selector.isCustomQuery(), !fields.isEmpty(),
+        valueField != null ? valueField.getDisplayColumnAlias() : null, valueFilter,
+        SelectorHandlerUtil.getExtraProperties(selector), properties, aliases, suffixes, inputs);
+  }
+
+  /**
+   * Tells whether the value field holds strings or ids, following the base reference of the field.
+   * Fields without reference are taken as ids when their clause left part is an id property.
+   *
+   * @param valueField
+   *     the value field of the selector
+   * @return true when the selected value can be compared with the value field
+   */
+  static boolean hasKeyedValue(SelectorField valueField) {
+    Reference reference = valueField.getReference();
+    if (reference == null) {
+      return StringUtils.equals(valueField.getClauseLeftPart(), "id")
+          || StringUtils.endsWith(valueField.getClauseLeftPart(), ".id");
+    }
+    Reference baseReference = reference.getParentReference() != null ? reference.getParentReference() : reference;
+    return KEYED_VALUE_REFERENCES.contains(baseReference.getId());
+  }
+
+  /**
+   * @return whether the selector defines its own HQL query
+   */
+  public boolean isCustomQuery() {
+    return customQuery;
+  }
+
+  /**
+   * @return whether the selector defines any field
+   */
+  public boolean hasFields() {
+    return hasFields;
+  }
+
+  /**
+   * @return the alias of the value field in the rows of the custom query, null if there is no value field
+   */
+  public String getValueAlias() {
+    return valueAlias;
+  }
+
+  /**
+   * @return the filter restricting the custom query to a value, empty if it cannot be filtered by value
+   */
+  public String getValueFilter() {
+    return valueFilter;
+  }
+
+  /**
+   * @return the comma separated properties requested from the selector datasource
+   */
+  public String getExtraProperties() {
+    return extraProperties;
+  }
+
+  /**
+   * @return the number of out fields
+   */
+  public int getOutFieldCount() {
+    return outFieldProperties.length;
+  }
+
+  /**
+   * Returns the name of an out field in the rows of the selector.
+   *
+   * @param index
+   *     the position of the out field
+   * @param customQuery
+   *     whether the rows come from the custom query, keyed by alias, or from the datasource, keyed by property
+   * @return the name of the out field, null if it has none
+   */
+  public String getOutFieldName(int index, boolean customQuery) {
+    return customQuery ? outFieldAliases[index] : outFieldProperties[index];
+  }
+
+  /**
+   * Returns the input an out field is copied to: the changed column with the suffix of the out field, or the input
+   * of its column when it has no suffix.
+   *
+   * @param index
+   *     the position of the out field
+   * @param changedColumnInp
+   *     the input name of the changed column
+   * @return the input name
+   */
+  public String getTargetKey(int index, String changedColumnInp) {
+    String suffix = outFieldSuffixes[index];
+    return suffix != null ? changedColumnInp + suffix : outFieldInputs[index];
+  }
+}
@@ -8,27 +8,34 @@ import org.codehaus.jettison.json.JSONObject;
 import org.hibernate.query.Query;
 import org.hibernate.transform.Transformers;
 import org.openbravo.base.exception.OBException;
+import org.openbravo.base.model.Entity;
+import org.openbravo.base.model.ModelProvider;
+import org.openbravo.base.model.Property;
 import org.openbravo.client.application.ParameterUtils;
 import org.openbravo.dal.core.OBContext;
 import org.openbravo.dal.service.OBDal;
 import org.openbravo.erpCommon.utility.OBMessageUtils;
 import org.openbravo.model.ad.datamodel.Column;
 import org.openbravo.model.ad.domain.Reference;
-import org.openbravo.model.ad.ui.Field;
 import org.openbravo.model.ad.ui.Tab;
 import org.openbravo.service.datasource.DefaultDataSourceService;
 import org.openbravo.userinterface.selector.Selector;
 import org.openbravo.userinterface.selector.SelectorField;
 
+import com.etendoerp.etendorx.services.PostBatchContext;
+import com.etendoerp.etendorx.services.metadata.TabMetadataIndex;
+
 import javax.script.ScriptException;
 import javax.servlet.http.HttpServletRequest;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -42,6 +49,9 @@ public class SelectorHandlerUtil {
     public static final String RESPONSE = "response";
     // A valid Etendo record id is a 32-character hex string (UUID without hyphens).
     private static final String ETENDO_ID_PATTERN = "[0-9A-Fa-f]{32}";
+    private static final String ADDITIONAL_FILTERS = "@additional_filters@";
+    private static final String VALUE_PARAMETER = "etrxSelectorValue";
+    private static final String ID_PARAMETER = "etrxSelectorId";
 
     /*
      * Private constructor to prevent instantiation.
@@ -75,6 +85,34 @@ public class SelectorHandlerUtil {
     public static void handleColumnSelector(HttpServletRequest request, Tab tab, JSONObject dataInpFormat,
                                             String changedColumnN, String changedColumnInp,
                                             Map<String, String> db2Input) {
+        handleColumnSelector(request, tab, dataInpFormat, changedColumnN, changedColumnInp, db2Input, null);
+    }
+
+    /**
+     * Handles the column selector for a specified column, reusing the selector rows resolved for the previous
+     * records of a bulk request.
+     * <p>
+     * A row is reused only when the selector, the resolved query with its bound values and the selected id are the
+     * same, so records whose filter inputs differ run their own lookup.
+     *
+     * @param request
+     *     The HttpServletRequest object.
+     * @param tab
+     *     The Tab object associated with the selector.
+     * @param dataInpFormat
+     *     The JSON object containing the data input format.
+     * @param changedColumnN
+     *     The name of the column that has changed.
+     * @param changedColumnInp
+     *     The input format name of the column that has changed.
+     * @param db2Input
+     *     A map of database column names to input format names.
+     * @param batch
+     *     The state shared by the records of a bulk request, null when it is not processed in batch.
+     */
+    public static void handleColumnSelector(HttpServletRequest request, Tab tab, JSONObject dataInpFormat,
+                                            String changedColumnN, String changedColumnInp,
+                                            Map<String, String> db2Input, PostBatchContext batch) {
         try {
             OBContext.setAdminMode();
             Column col = getColumnByHQLName(tab, changedColumnN);
@@ -82,7 +120,7 @@ public class SelectorHandlerUtil {
                 throw new OBException(OBMessageUtils.messageBD("ETRX_ColumnNotFound"));
             }
             if (StringUtils.equals(col.getReference().getId(), "95E2A8B50A254B2AAE6774B8C2F28120")) {
-                handleCustomDefinedSelector(request, tab, dataInpFormat, changedColumnInp, db2Input, col);
+                handleCustomDefinedSelector(request, tab, dataInpFormat, changedColumnInp, db2Input, col, batch);
                 return;
             }
             if (!StringUtils.equals(col.getReference().getId(), "30")) {
@@ -120,9 +158,17 @@ public class SelectorHandlerUtil {
             convertToHashMAp.put("_selectorDefinitionId", selectorDefined.getId());
             convertToHashMAp.put("filterClass", "org.openbravo.userinterface.selector.SelectorDataSourceFilter");
             convertToHashMAp.put("IsSelectorItem", "true");
-            convertToHashMAp.put("_extraProperties", getExtraProperties(selectorDefined));
+            convertToHashMAp.put("_extraProperties", SelectorDescriptor.getDescriptor(selectorDefined).getExtraProperties());
 
-            JSONObject obj = searchForRecord(dataSourceService, convertToHashMAp, recordID, valueProperty);
+            String lookupKey = batch != null
+                    ? getLookupKey(selectorDefined, whereClauseAndFilters, Collections.emptyMap(), recordID) : null;
+            JSONObject obj = lookupKey != null ? batch.getSelectorRecord(lookupKey) : null;
+            if (obj == null) {
+                obj = searchForRecord(dataSourceService, convertToHashMAp, recordID, valueProperty);
+                if (obj != null && lookupKey != null) {
+                    batch.putSelectorRecord(lookupKey, obj);
+                }
+            }
             if (obj == null) {
                 log.error("Record not found in selector");
                 throw new OBException(
@@ -141,7 +187,7 @@ public class SelectorHandlerUtil {
     /**
      * Retrieves the column by its HQL name from the given tab.
      * <p>
-     * This method iterates over the columns of the tab and returns the column that matches the given HQL name.
+     * The column is looked up in the {@link TabMetadataIndex} of the tab, built once per tab.
      *
      * @param tab
      *     The Tab object containing the columns.
@@ -150,22 +196,15 @@ public class SelectorHandlerUtil {
      * @return The Column object that matches the given HQL name, or null if not found.
      */
     private static Column getColumnByHQLName(Tab tab, String changedColumnN) {
-        Column col = null;
-        List<Column> adColumnList = DataSourceUtils.getAdColumnList(tab);
-        for (Column column : adColumnList) {
-            if (StringUtils.equals((DataSourceUtils.getHQLColumnName(column))[0], changedColumnN)) {
-                col = column;
-                break;
-            }
-        }
-        return col;
+        return TabMetadataIndex.getIndex(tab).getColumn(changedColumnN);
     }
 
     /**
      * Handles the column selector for definedSelector type (95E2A8B50A254B2AAE6774B8C2F28120).
      */
     private static void handleCustomDefinedSelector(HttpServletRequest request, Tab tab, JSONObject dataInpFormat,
-                                                    String changedColumnInp, Map<String, String> db2Input, Column col) {
+                                                    String changedColumnInp, Map<String, String> db2Input, Column col,
+                                                    PostBatchContext batch) {
         try {
             OBContext.setAdminMode();
             Reference reference = col.getReferenceSearchKey();
@@ -174,16 +213,15 @@ public class SelectorHandlerUtil {
             }
 
             Selector selectorDefined = reference.getOBUISELSelectorList().get(0);
-            if (!selectorDefined.isCustomQuery() || selectorDefined.getOBUISELSelectorFieldList().isEmpty()) {
+            SelectorDescriptor descriptor = SelectorDescriptor.getDescriptor(selectorDefined);
+            if (!descriptor.isCustomQuery() || !descriptor.hasFields()) {
                 return;
             }
 
-            // Build the HQL query with filters
-            String hqlQuery = buildHQLQuery(selectorDefined, tab, col, changedColumnInp, dataInpFormat, db2Input, request);
-
             // Execute query and find matching record
             String recordID = dataInpFormat.getString(changedColumnInp);
-            JSONObject matchedRecord = executeHQLAndFindRecord(hqlQuery, recordID, selectorDefined);
+            JSONObject matchedRecord = findCustomSelectorRecord(selectorDefined, tab, col, changedColumnInp,
+                    dataInpFormat, db2Input, request, batch);
 
             if (matchedRecord == null) {
                 log.error("Record not found in selector");
@@ -222,17 +260,26 @@ public class SelectorHandlerUtil {
      *     If an error occurs while reading values from the JSON object.
      */
     private static String getHeadlessFilterClause(Tab tab, Column col, String changedColumnInp, JSONObject dataInpFormat) throws JSONException {
-        for (Field field : tab.getADFieldList()) {
-            // Compare columns by dictionary id (AD_COLUMN_ID), not by Java reference: two Hibernate
-            // proxies can represent the same column without being the same instance, which left the
-            // headless filter unapplied and triggered a massive selector scan.
-            if (field.getColumn() != null && StringUtils.equals(field.getColumn().getId(), col.getId())
-                    && !StringUtils.isEmpty(field.getEtrxFilterClause())) {
-                return " AND " + field.getEtrxFilterClause()
-                        .replaceAll("(?i)@id@", "'" + dataInpFormat.getString(changedColumnInp) + "'");
-            }
+        // Columns are indexed by dictionary id (AD_COLUMN_ID), not by Java reference: two Hibernate
+        // proxies can represent the same column without being the same instance, which left the
+        // headless filter unapplied and triggered a massive selector scan.
+        String filterClause = TabMetadataIndex.getIndex(tab).getFilterClause(col.getId());
+        if (StringUtils.isEmpty(filterClause)) {
+            return "";
+        }
+        return " AND " + filterClause.replaceAll("(?i)@id@", "'" + dataInpFormat.getString(changedColumnInp) + "'");
+    }
+
+    /**
+     * Builds the filter clause for the given column like {@link #getHeadlessFilterClause}, with the value of the
+     * changed column bound as the {@value #ID_PARAMETER} parameter instead of inlined.
+     */
+    private static String getHeadlessFilterTemplate(Tab tab, Column col) {
+        String filterClause = TabMetadataIndex.getIndex(tab).getFilterClause(col.getId());
+        if (StringUtils.isEmpty(filterClause)) {
+            return "";
         }
-        return "";
+        return " AND " + filterClause.replaceAll("(?i)@id@", ":" + ID_PARAMETER);
     }
 
     /**
@@ -326,7 +373,7 @@ public class SelectorHandlerUtil {
      *     The selector object.
      * @return A comma-separated string of extra properties for the given selector.
      */
-    private static String getExtraProperties(Selector selector) {
+    static String getExtraProperties(Selector selector) {
         return selector.getOBUISELSelectorFieldList().stream().filter(
                 sf -> selector.getValuefield() == sf || sf.isOutfield()).sorted(
                 Comparator.comparing(SelectorField::getSortno)).map(
@@ -432,16 +479,12 @@ public class SelectorHandlerUtil {
      */
     private static void savePrefixFields(JSONObject dataInpFormat, String changedColumnInp, Selector selectorDefined,
                                          JSONObject obj, boolean isCustomHql) throws JSONException {
-        List<SelectorField> outfields = selectorDefined.getOBUISELSelectorFieldList().stream()
-                .filter(SelectorField::isOutfield)
-                .collect(Collectors.toList());
-        
-        for (SelectorField selectorField : outfields) {
-            String normalizedName = getNormalizedFieldName(selectorField, isCustomHql);
-            
-            if (obj.has(normalizedName)) {
-                String targetKey = getTargetKey(changedColumnInp, selectorField);
-                dataInpFormat.put(targetKey, obj.get(normalizedName));
+        SelectorDescriptor descriptor = SelectorDescriptor.getDescriptor(selectorDefined);
+        for (int i = 0; i < descriptor.getOutFieldCount(); i++) {
+            String normalizedName = descriptor.getOutFieldName(i, isCustomHql);
+
+            if (normalizedName != null && obj.has(normalizedName)) {
+                dataInpFormat.put(descriptor.getTargetKey(i, changedColumnInp), obj.get(normalizedName));
             }
         }
     }
@@ -451,9 +494,9 @@ public class SelectorHandlerUtil {
      *
      * @param selectorField The selector field to get the name from
      * @param isCustomHql Whether this is a custom HQL query
-     * @return The normalized field name with dots replaced by dollar signs
+     * @return The normalized field name with dots replaced by dollar signs, or null if the field has no name
      */
-    private static String getNormalizedFieldName(SelectorField selectorField, boolean isCustomHql) {
+    static String getNormalizedFieldName(SelectorField selectorField, boolean isCustomHql) {
         String fieldName;
         if (isCustomHql) {
             fieldName = StringUtils.isNotEmpty(selectorField.getDisplayColumnAlias()) 
@@ -464,7 +507,7 @@ public class SelectorHandlerUtil {
                     ? selectorField.getProperty() 
                     : selectorField.getName();
         }
-        return fieldName.replace(".", "$");
+        return fieldName != null ? fieldName.replace(".", "$") : null;
     }
 
     /**
@@ -474,7 +517,7 @@ public class SelectorHandlerUtil {
      * @param selectorField The selector field
      * @return The target key for the data input format
      */
-    private static String getTargetKey(String changedColumnInp, SelectorField selectorField) {
+    static String getTargetKey(String changedColumnInp, SelectorField selectorField) {
         if (!StringUtils.isEmpty(selectorField.getSuffix())) {
             return changedColumnInp + selectorField.getSuffix();
         } else {
@@ -487,59 +530,212 @@ public class SelectorHandlerUtil {
      */
     private static String buildHQLQuery(Selector selectorDefined, Tab tab, Column col, String changedColumnInp,
                                         JSONObject dataInpFormat, Map<String, String> db2Input, HttpServletRequest request) throws JSONException, ScriptException {
-        String hqlQuery = selectorDefined.getHQL();
+        return buildHQLQuery(selectorDefined, tab, col, changedColumnInp, dataInpFormat, db2Input, request, "");
+    }
+
+    /**
+     * Builds the complete HQL query with all filters applied, followed by the given value filter.
+     */
+    private static String buildHQLQuery(Selector selectorDefined, Tab tab, Column col, String changedColumnInp,
+                                        JSONObject dataInpFormat, Map<String, String> db2Input, HttpServletRequest request,
+                                        String valueFilter) throws JSONException, ScriptException {
         String headlessFilterClause = getHeadlessFilterClause(tab, col, changedColumnInp, dataInpFormat);
         HashMap<String, String> convertToHashMAp = convertToHashMAp(dataInpFormat);
         String additionalFilterClause = addFilterClause(selectorDefined, convertToHashMAp, request);
-        String additionalFilters = headlessFilterClause + (additionalFilterClause != null ? additionalFilterClause : "");
+        String additionalFilters = headlessFilterClause + (additionalFilterClause != null ? additionalFilterClause : "")
+                + valueFilter;
+
+        return fullfillSessionsVariables(applyAdditionalFilters(selectorDefined.getHQL(), additionalFilters), db2Input,
+                dataInpFormat);
+    }
 
-        String result;
+    /**
+     * Replaces the additional filters placeholder of the selector query by the given filters.
+     */
+    private static String applyAdditionalFilters(String hqlQuery, String additionalFilters) {
         if (StringUtils.isEmpty(additionalFilters.trim())) {
-            result = hqlQuery.replace("and @additional_filters@", "").replace("@additional_filters@", "");
-        } else {
-            result = hqlQuery.replace("and @additional_filters@", additionalFilters)
-                .replace("@additional_filters@", additionalFilters);
+            return hqlQuery.replace("and @additional_filters@", "").replace("@additional_filters@", "");
+        }
+        return hqlQuery.replace("and @additional_filters@", additionalFilters)
+            .replace("@additional_filters@", additionalFilters);
+    }
+
+    /**
+     * Finds the selected record with the custom query of the selector.
+     * <p>
+     * The query comes from the cached template of the selector, tab, column and evaluated filter expression, with
+     * the values of the record bound as parameters so Hibernate reuses its plan. When the query cannot be compiled,
+     * or its parameters reject the values, they are inlined as literals instead.
+     */
+    private static JSONObject findCustomSelectorRecord(Selector selectorDefined, Tab tab, Column col,
+                                                       String changedColumnInp, JSONObject dataInpFormat,
+                                                       Map<String, String> db2Input, HttpServletRequest request,
+                                                       PostBatchContext batch)
+            throws JSONException, ScriptException {
+        String recordID = dataInpFormat.getString(changedColumnInp);
+        // Restricted to the value of the record when the value field can be filtered by
+        String valueFilter = SelectorDescriptor.getDescriptor(selectorDefined).getValueFilter();
+        String additionalFilterClause = StringUtils.defaultString(
+                addFilterClause(selectorDefined, convertToHashMAp(dataInpFormat), request));
+
+        String key = selectorDefined.getId() + "|" + tab.getId() + "|" + col.getId() + "|" + additionalFilterClause;
+        SelectorQueryTemplate template = SelectorQueryTemplate.getTemplate(key,
+                () -> applyAdditionalFilters(selectorDefined.getHQL(),
+                        getHeadlessFilterTemplate(tab, col) + additionalFilterClause + valueFilter), db2Input,
+                column -> getConverter(tab, column));
+        Map<String, Object> parameters = template != null ? template.bind(dataInpFormat) : null;
+        if (parameters != null) {
+            if (template.getHql().contains(":" + ID_PARAMETER)) {
+                parameters.put(ID_PARAMETER, recordID);
+            }
+            try {
+                return findRecord(template.getHql(), parameters, valueFilter, recordID, selectorDefined, batch);
+            } catch (IllegalArgumentException e) {
+                log.debug("Selector {} rejects the bound values, inlining them", selectorDefined.getId(), e);
+                template.disableBinding();
+            } catch (Exception e) {
+                throw new OBException(OBMessageUtils.messageBD("ETRX_ErrorExecutingHQL") + e.getMessage());
+            }
         }
 
-        return fullfillSessionsVariables(result, db2Input, dataInpFormat);
+        String hqlQuery = buildHQLQuery(selectorDefined, tab, col, changedColumnInp, dataInpFormat, db2Input,
+                request, valueFilter);
+        try {
+            return findRecord(hqlQuery, new HashMap<>(), valueFilter, recordID, selectorDefined, batch);
+        } catch (Exception e) {
+            throw new OBException(OBMessageUtils.messageBD("ETRX_ErrorExecutingHQL") + e.getMessage());
+        }
     }
 
     /**
-     * Executes HQL query and finds the matching record by ID.
-     * Uses selector field information to map results with proper aliases
+     * Resolves the converter of the property of a column of the tab, {@link FieldConverter#STRING} for references to
+     * other entities and columns without property.
      */
-    private static JSONObject executeHQLAndFindRecord(String hqlQuery, String recordID, Selector selectorDefined) {
+    private static FieldConverter getConverter(Tab tab, String dbColumnName) {
+        Entity entity = ModelProvider.getInstance().getEntityByTableName(tab.getTable().getDBTableName());
+        Property property = entity != null ? entity.getPropertyByColumnName(dbColumnName, false) : null;
+        if (property == null || !property.isPrimitive()) {
+            return FieldConverter.STRING;
+        }
+        return FieldConverter.forType(property.getPrimitiveType().getSimpleName());
+    }
+
+    /**
+     * Finds the selected record with a single keyed query when the query is filtered by value, searching it page by
+     * page otherwise or when the keyed query finds nothing. In a bulk request, the record found for a previous one
+     * with the same query and values is reused.
+     */
+    private static JSONObject findRecord(String hqlQuery, Map<String, Object> parameters, String valueFilter,
+                                         String recordID, Selector selectorDefined, PostBatchContext batch)
+            throws JSONException {
+        String lookupKey = batch != null ? getLookupKey(selectorDefined, hqlQuery, parameters, recordID) : null;
+        JSONObject matchedRecord = lookupKey != null ? batch.getSelectorRecord(lookupKey) : null;
+        if (matchedRecord != null) {
+            return matchedRecord;
+        }
+        String scanQuery = hqlQuery;
+        if (!valueFilter.isEmpty()) {
+            matchedRecord = executeHQLAndFindRecordByValue(hqlQuery, parameters, recordID, selectorDefined);
+            scanQuery = StringUtils.replace(hqlQuery, valueFilter, "");
+        }
+        if (matchedRecord == null) {
+            matchedRecord = executeHQLAndFindRecord(scanQuery, parameters, recordID, selectorDefined);
+        }
+        if (matchedRecord != null && lookupKey != null) {
+            batch.putSelectorRecord(lookupKey, matchedRecord);
+        }
+        return matchedRecord;
+    }
+
+    /**
+     * Builds the key of a selector lookup: the selector, the resolved query, its bound values and the selected id.
+     */
+    private static String getLookupKey(Selector selectorDefined, String query, Map<String, Object> parameters,
+                                       String recordID) {
+        return selectorDefined.getId() + "|" + query + "|" + new TreeMap<>(parameters) + "|" + recordID;
+    }
+
+    /**
+     * Builds the filter restricting the custom query of the selector to the rows of a given value, bound as the
+     * {@value #VALUE_PARAMETER} parameter. The value field is filtered by its clause left part, so no filter is built
+     * when it has none, or when the query has no placeholder for additional filters. The selected value is bound as a
+     * string, so {@link SelectorDescriptor} only keeps this filter when the value field holds strings or ids.
+     *
+     * @param selectorDefined
+     *     The defined selector object.
+     * @return The value filter, or an empty string if the query cannot be filtered by value.
+     */
+    static String getValueFilter(Selector selectorDefined) {
+        SelectorField valueField = selectorDefined.getValuefield();
+        if (valueField == null || StringUtils.isBlank(valueField.getClauseLeftPart())
+                || !StringUtils.contains(selectorDefined.getHQL(), ADDITIONAL_FILTERS)) {
+            return "";
+        }
+        return " AND " + valueField.getClauseLeftPart() + " = :" + VALUE_PARAMETER;
+    }
+
+    /**
+     * Executes the HQL query filtered by value, fetching a single row, and checks that it is the record.
+     * <p>
+     * Returns null when the row is not found or the query cannot be built, for instance when the clause left part
+     * of the value field is not comparable to an id, so the caller falls back to the paginated search.
+     */
+    private static JSONObject executeHQLAndFindRecordByValue(String hqlQuery, Map<String, Object> parameters,
+                                                             String recordID, Selector selectorDefined)
+            throws JSONException {
+        List<Map<String, Object>> results;
         try {
-            String valueField = selectorDefined.getValuefield().getDisplayColumnAlias();
-            int iterations = 0;
+            Query query = OBDal.getInstance().getSession().createQuery(hqlQuery);
+            setParameters(query, parameters);
+            query.setParameter(VALUE_PARAMETER, recordID);
+            query.setMaxResults(1);
+            query.setResultTransformer(Transformers.ALIAS_TO_ENTITY_MAP);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> list = query.list();
+            results = list;
+        } catch (IllegalArgumentException e) {
+            log.debug("Selector {} cannot be filtered by value, searching the record page by page",
+                    selectorDefined.getId(), e);
+            return null;
+        }
+        return findMatchingRecordInBatch(results, recordID,
+                SelectorDescriptor.getDescriptor(selectorDefined).getValueAlias());
+    }
 
-            while (true) {
-                List<Map<String, Object>> results = executeHQLQueryBatch(hqlQuery, iterations);
-                
-                if (results.isEmpty()) {
-                    break;
-                }
+    /**
+     * Executes HQL query and finds the matching record by ID.
+     * Uses selector field information to map results with proper aliases
+     */
+    private static JSONObject executeHQLAndFindRecord(String hqlQuery, Map<String, Object> parameters, String recordID,
+                                                      Selector selectorDefined) throws JSONException {
+        String valueField = SelectorDescriptor.getDescriptor(selectorDefined).getValueAlias();
+        int iterations = 0;
 
-                JSONObject matchedRecord = findMatchingRecordInBatch(results, recordID, valueField);
-                if (matchedRecord != null) {
-                    return matchedRecord;
-                }
+        while (true) {
+            List<Map<String, Object>> results = executeHQLQueryBatch(hqlQuery, parameters, iterations);
 
-                iterations++;
+            if (results.isEmpty()) {
+                break;
             }
 
-            return null;
+            JSONObject matchedRecord = findMatchingRecordInBatch(results, recordID, valueField);
+            if (matchedRecord != null) {
+                return matchedRecord;
+            }
 
-        } catch (Exception e) {
-            throw new OBException(OBMessageUtils.messageBD("ETRX_ErrorExecutingHQL") + e.getMessage());
+            iterations++;
         }
+
+        return null;
     }
 
     /**
      * Executes a single batch of the HQL query with pagination.
      */
-    private static List<Map<String, Object>> executeHQLQueryBatch(String hqlQuery, int iterations) {
+    private static List<Map<String, Object>> executeHQLQueryBatch(String hqlQuery, Map<String, Object> parameters,
+                                                                  int iterations) {
         Query query = OBDal.getInstance().getSession().createQuery(hqlQuery);
+        setParameters(query, parameters);
         query.setFirstResult(iterations * 100);
         query.setMaxResults(100);
         query.setResultTransformer(Transformers.ALIAS_TO_ENTITY_MAP);
@@ -549,6 +745,15 @@ public class SelectorHandlerUtil {
         return results;
     }
 
+    /**
+     * Binds the given named parameters to the query.
+     */
+    private static void setParameters(Query query, Map<String, Object> parameters) {
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            query.setParameter(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Searches through a batch of results to find a matching record.
      */
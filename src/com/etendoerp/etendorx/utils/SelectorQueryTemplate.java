@@ -0,0 +1,269 @@
+package com.etendoerp.etendorx.utils;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Compiled custom query of a selector, with the {@code @column@} references to the values of the
+ * record replaced by named parameters.
+ * <p>
+ * Inlining the values as literals gives a different HQL string for every record, so Hibernate parses
+ * and plans each of them again and its query plan cache fills with single use entries. Templates
+ * are compiled once per selector, tab, column and evaluated filter expression, kept in a bounded
+ * LRU cache, and executed with the values bound. A reference inside a quoted literal cannot be
+ * bound, so such queries are not compiled and keep inlining the values.
+ * <p>
+ * Each value is bound with the Java type of the property of its column, converted by its
+ * {@link FieldConverter}, as the database does not cast a bound string as it casts a literal.
+ * Dates are kept in the text format of the form, so queries referencing a date column are not
+ * compiled either.
+ */
+public final class SelectorQueryTemplate {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /** Maximum number of cached templates. Defaults to 500. */
+  public static final String CACHE_SIZE_PROPERTY = "etendorx.headless.selector.cache.size";
+  private static final int DEFAULT_CACHE_SIZE = 500;
+
+  private static final String PARAMETER_PREFIX = "etrxParam";
+  private static final SelectorQueryTemplate NOT_COMPILABLE = new SelectorQueryTemplate(null,
+      Collections.emptyMap(), Collections.emptyMap());
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static final Map<String, SelectorQueryTemplate> cache = new LinkedHashMap<>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, SelectorQueryTemplate> eldest) {
+      return size() > maxSize;
+    }
+  };
+  private static int maxSize = HeadlessProperties.getInt(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+
+  private final String hql;
+  private final Map<String, String> inputByParameter;
+  private final Map<String, FieldConverter> converterByParameter;
+  private volatile boolean bindable = true;
+
+  private SelectorQueryTemplate(String hql, Map<String, String> inputByParameter,
+      Map<String, FieldConverter> converterByParameter) {
+    this.hql = hql;
+    this.inputByParameter = inputByParameter;
+    this.converterByParameter = converterByParameter;
+  }
+
+  /**
+   * Returns the template cached under the given key, compiling it when needed.
+   *
+   * @param key
+   *     the key of the query: selector, tab, column and evaluated filter expression
+   * @param source
+   *     builds the query, with the references to the values of the record still in place
+   * @param db2Input
+   *     the input name of each column of the tab, by database column name
+   * @param converters
+   *     the converter of the property of each column of the tab, by database column name
+   * @return the template, or null when the query cannot be compiled
+   */
+  public static SelectorQueryTemplate getTemplate(String key, Supplier<String> source, Map<String, String> db2Input,
+      Function<String, FieldConverter> converters) {
+    SelectorQueryTemplate template;
+    synchronized (cache) {
+      template = cache.get(key);
+    }
+    if (template != null) {
+      hits.incrementAndGet();
+    } else {
+      misses.incrementAndGet();
+      template = compile(source.get(), db2Input, converters);
+      synchronized (cache) {
+        cache.put(key, template);
+      }
+    }
+    return template == NOT_COMPILABLE ? null : template;
+  }
+
+  /**
+   * Replaces the {@code @column@} references to the columns of the tab, outside quoted literals, by
+   * named parameters. References to unknown columns are kept, as the inlining does.
+   *
+   * @param hql
+   *     the query
+   * @param db2Input
+   *     the input name of each column of the tab, by database column name
+   * @param converters
+   *     the converter of the property of each column of the tab, by database column name
+   * @return the template, {@link #NOT_COMPILABLE} when a reference is inside a quoted literal or to
+   *     a date column
+   */
+  static SelectorQueryTemplate compile(String hql, Map<String, String> db2Input,
+      Function<String, FieldConverter> converters) {
+    Map<String, String> inputByColumn = new HashMap<>();
+    Map<String, String> dbNameByColumn = new HashMap<>();
+    for (Map.Entry<String, String> entry : db2Input.entrySet()) {
+      inputByColumn.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+      dbNameByColumn.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getKey());
+    }
+    Map<String, String> parameterByColumn = new HashMap<>();
+    Map<String, String> inputByParameter = new LinkedHashMap<>();
+    Map<String, FieldConverter> converterByParameter = new HashMap<>();
+    StringBuilder template = new StringBuilder(hql.length());
+    boolean quoted = false;
+    int i = 0;
+    while (i < hql.length()) {
+      char c = hql.charAt(i);
+      int end = c == '@' ? hql.indexOf('@', i + 1) : -1;
+      String column = end > i + 1 ? hql.substring(i + 1, end).toLowerCase(Locale.ROOT) : null;
+      if (column == null || !inputByColumn.containsKey(column)) {
+        if (c == '\'') {
+          quoted = !quoted;
+        }
+        template.append(c);
+        i++;
+        continue;
+      }
+      if (quoted) {
+        log.debug("Selector query references {} inside a literal, values are inlined", column);
+        return NOT_COMPILABLE;
+      }
+      FieldConverter converter = converters.apply(dbNameByColumn.get(column));
+      if (converter == FieldConverter.DATE || converter == FieldConverter.DATETIME) {
+        log.debug("Selector query references the date column {}, values are inlined", column);
+        return NOT_COMPILABLE;
+      }
+      String parameter = parameterByColumn.computeIfAbsent(column, k -> PARAMETER_PREFIX + parameterByColumn.size());
+      inputByParameter.put(parameter, inputByColumn.get(column));
+      converterByParameter.put(parameter, converter);
+      template.append(':').append(parameter);
+      i = end + 1;
+    }
+    return new SelectorQueryTemplate(template.toString(), Collections.unmodifiableMap(inputByParameter),
+        Collections.unmodifiableMap(converterByParameter));
+  }
+
+  /**
+   * @return the query, with named parameters instead of the references to the values of the record
+   */
+  public String getHql() {
+    return hql;
+  }
+
+  /**
+   * Reads the values of the parameters from the record, converted to the type of their column.
+   *
+   * @param dataInpFormat
+   *     the record, in input format
+   * @return the value of each parameter, or null when a value is missing from the record, cannot
+   *     be converted to the type of its column or the values cannot be bound to this query
+   * @throws JSONException
+   *     if a value cannot be read
+   */
+  public Map<String, Object> bind(JSONObject dataInpFormat) throws JSONException {
+    if (!bindable) {
+      return null;
+    }
+    Map<String, Object> parameters = new HashMap<>();
+    for (Map.Entry<String, String> entry : inputByParameter.entrySet()) {
+      if (!dataInpFormat.has(entry.getValue())) {
+        return null;
+      }
+      Object value = dataInpFormat.get(entry.getValue());
+      try {
+        parameters.put(entry.getKey(), converterByParameter.get(entry.getKey()).toHql(value));
+      } catch (ParseException | RuntimeException e) {
+        log.debug("Value {} of {} cannot be bound, values are inlined", value, entry.getValue());
+        return null;
+      }
+    }
+    return parameters;
+  }
+
+  /**
+   * Stops binding values to this query, after they were rejected, so the values are inlined from
+   * then on.
+   */
+  public void disableBinding() {
+    bindable = false;
+  }
+
+  /**
+   * @return number of queries served from the cache
+   */
+  public static long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of queries that had to be compiled
+   */
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of cached templates
+   */
+  public static int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * Drops the cached templates, to be called when selectors or tab fields change.
+   */
+  public static void invalidate() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * Drops the cached templates and resets the counters.
+   */
+  static void clear() {
+    invalidate();
+    hits.set(0);
+    misses.set(0);
+  }
+
+  /**
+   * Changes the maximum number of cached templates.
+   *
+   * @param size
+   *     the new maximum size
+   */
+  static void setMaxSize(int size) {
+    synchronized (cache) {
+      maxSize = size;
+    }
+  }
+}
@@ -0,0 +1,363 @@
+package com.etendoerp.etendorx.utils;
+/*
+ *************************************************************************
+ * The contents of this file are subject to the Etendo License
+ * (the "License"), you may not use this file except in compliance with
+ * the License.
+ * You may obtain a copy of the License at
+ * https://github.com/etendosoftware/etendo_core/blob/main/legal/Etendo_license.txt
+ * Software distributed under the License is distributed on an
+ * "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or
+ * implied. See the License for the specific language governing rights
+ * and limitations under the License.
+ * All portions are Copyright © 2021–2026 FUTIT SERVICES, S.L
+ * All Rights Reserved.
+ * Contributor(s): Futit Services S.L.
+ *************************************************************************
+ */
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.Date;
+import java.util.Properties;
+
+import org.openbravo.base.session.OBPropertiesProvider;
+
+/**
+ * Conversions of date and amount values between the input format of the forms and the HQL format
+ * of the datasources.
+ * <p>
+ * The date formats configured in Openbravo.properties ({@code dateFormat.java} and
+ * {@code dateTimeFormat.java}) are read once and compiled to immutable {@link DateTimeFormatter}s,
+ * which can be shared between threads. They parse as the {@link SimpleDateFormat} of the same
+ * pattern: leniently and ignoring any text after the value. Patterns using letters that do not
+ * have an exact equivalent (text months, two digit years, AM/PM hours...) keep a
+ * {@link SimpleDateFormat} per thread.
+ */
+public final class ValueFormats {
+
+  private static final String DATE_FORMAT_PROPERTY = "dateFormat.java";
+  private static final String DATETIME_FORMAT_PROPERTY = "dateTimeFormat.java";
+  private static final String HQL_DATE_FORMAT = "yyyy-MM-dd";
+  private static final String HQL_DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.S'Z'";
+  private static final String NUMERIC_LETTERS = "dMyHmsS";
+
+  private static final DatePattern HQL_DATE = DatePattern.of(HQL_DATE_FORMAT);
+  private static final DatePattern HQL_DATETIME = DatePattern.of(HQL_DATETIME_FORMAT);
+
+  private static volatile InputFormats inputFormats;
+
+  private ValueFormats() {
+    // utility class
+  }
+
+  /**
+   * Converts a date from the input format to the HQL format.
+   *
+   * @param value
+   *     the date in input format
+   * @return the date in HQL format
+   * @throws ParseException
+   *     if the value is not a date in input format
+   */
+  public static String toHqlDate(String value) throws ParseException {
+    return HQL_DATE.format(getInputFormats().date.parse(value));
+  }
+
+  /**
+   * Converts a date from the HQL format to the input format.
+   *
+   * @param value
+   *     the date in HQL format
+   * @return the date in input format
+   * @throws ParseException
+   *     if the value is not a date in HQL format
+   */
+  public static String toInputDate(String value) throws ParseException {
+    return getInputFormats().date.format(HQL_DATE.parse(value));
+  }
+
+  /**
+   * Converts a datetime from the input format to the HQL format.
+   *
+   * @param value
+   *     the datetime in input format
+   * @return the datetime in HQL format
+   * @throws ParseException
+   *     if the value is not a datetime in input format
+   */
+  public static String toHqlDatetime(String value) throws ParseException {
+    return HQL_DATETIME.format(getInputFormats().dateTime.parse(value));
+  }
+
+  /**
+   * Converts a datetime from the HQL format to the input format.
+   *
+   * @param value
+   *     the datetime in HQL format
+   * @return the datetime in input format
+   * @throws ParseException
+   *     if the value is not a datetime in HQL format
+   */
+  public static String toInputDatetime(String value) throws ParseException {
+    return getInputFormats().dateTime.format(HQL_DATETIME.parse(value));
+  }
+
+  /**
+   * Reformats a date with the given formatters, parsing as {@link SimpleDateFormat} does.
+   *
+   * @param value
+   *     the date to convert
+   * @param from
+   *     the formatter of the value, as returned by {@link #ofLegacyPattern(String)}
+   * @param to
+   *     the formatter of the result
+   * @return the reformatted date
+   * @throws ParseException
+   *     if the value cannot be parsed
+   */
+  public static String reformat(String value, DateTimeFormatter from, DateTimeFormatter to) throws ParseException {
+    return to.format(JavaTimePattern.parse(from, value));
+  }
+
+  /**
+   * Parses an amount, using as decimal separator the last comma or dot found. Any other separator
+   * is taken as a grouping separator and dropped, so {@code 1.234,5}, {@code 1,234.5} and
+   * {@code 1234.5} are the same amount. The value is read in a single pass.
+   *
+   * @param value
+   *     the amount
+   * @return the amount
+   * @throws NumberFormatException
+   *     if the value is not a number
+   */
+  public static BigDecimal parseAmount(String value) {
+    int lastComma = value.lastIndexOf(',');
+    int lastDot = value.lastIndexOf('.');
+    if (lastComma < 0) {
+      // only dots or no separator at all: nothing to drop nor replace
+      return new BigDecimal(value);
+    }
+    boolean commaDecimal = lastComma > lastDot;
+    char[] normalized = new char[value.length()];
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ',') {
+        if (commaDecimal) {
+          normalized[length++] = '.';
+        }
+      } else if (c != '.' || !commaDecimal) {
+        normalized[length++] = c;
+      }
+    }
+    return new BigDecimal(normalized, 0, length);
+  }
+
+  /**
+   * Compiles a {@link SimpleDateFormat} pattern to an equivalent {@link DateTimeFormatter}. Numeric
+   * fields are printed padded to the number of letters and parsed with any number of digits, as
+   * the lenient {@link SimpleDateFormat} does. Only day, month, year, 24h hours, minutes, seconds
+   * and milliseconds as numbers are supported, with a literal between each two of them.
+   *
+   * @param pattern
+   *     the {@link SimpleDateFormat} pattern
+   * @return the formatter, or null when the pattern cannot be compiled exactly
+   */
+  public static DateTimeFormatter ofLegacyPattern(String pattern) {
+    DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder().parseLenient();
+    boolean previousNumeric = false;
+    int i = 0;
+    int n = pattern.length();
+    while (i < n) {
+      char c = pattern.charAt(i);
+      if (c == '\'') {
+        int end = i + 1;
+        StringBuilder literal = new StringBuilder();
+        while (end < n) {
+          if (pattern.charAt(end) == '\'') {
+            if (end + 1 < n && pattern.charAt(end + 1) == '\'') {
+              end++;
+            } else {
+              break;
+            }
+          }
+          literal.append(pattern.charAt(end));
+          end++;
+        }
+        if (end >= n) {
+          return null;
+        }
+        builder.appendLiteral(i + 1 == end ? "'" : literal.toString());
+        previousNumeric = false;
+        i = end + 1;
+      } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+        int count = 1;
+        while (i + count < n && pattern.charAt(i + count) == c) {
+          count++;
+        }
+        ChronoField field = numericField(c, count);
+        if (field == null || previousNumeric) {
+          return null;
+        }
+        builder.appendValue(field, count, 19, SignStyle.NORMAL);
+        previousNumeric = true;
+        i += count;
+      } else {
+        builder.appendLiteral(c);
+        previousNumeric = false;
+        i++;
+      }
+    }
+    return builder.toFormatter().withResolverStyle(ResolverStyle.LENIENT);
+  }
+
+  private static ChronoField numericField(char letter, int count) {
+    if (NUMERIC_LETTERS.indexOf(letter) < 0) {
+      return null;
+    }
+    switch (letter) {
+      case 'd':
+        return ChronoField.DAY_OF_MONTH;
+      case 'M':
+        return count <= 2 ? ChronoField.MONTH_OF_YEAR : null;
+      case 'y':
+        return count == 2 ? null : ChronoField.YEAR_OF_ERA;
+      case 'H':
+        return ChronoField.HOUR_OF_DAY;
+      case 'm':
+        return ChronoField.MINUTE_OF_HOUR;
+      case 's':
+        return ChronoField.SECOND_OF_MINUTE;
+      default:
+        return ChronoField.MILLI_OF_SECOND;
+    }
+  }
+
+  /**
+   * Replaces the input formats read from Openbravo.properties.
+   *
+   * @param datePattern
+   *     the {@link SimpleDateFormat} pattern of dates
+   * @param dateTimePattern
+   *     the {@link SimpleDateFormat} pattern of datetimes
+   */
+  static void useInputFormats(String datePattern, String dateTimePattern) {
+    inputFormats = new InputFormats(DatePattern.of(datePattern), DatePattern.of(dateTimePattern));
+  }
+
+  /**
+   * Drops the input formats, so they are read again from Openbravo.properties on next use.
+   */
+  static void reset() {
+    inputFormats = null;
+  }
+
+  private static InputFormats getInputFormats() {
+    InputFormats formats = inputFormats;
+    if (formats == null) {
+      Properties props = OBPropertiesProvider.getInstance().getOpenbravoProperties();
+      formats = new InputFormats(DatePattern.of(props.getProperty(DATE_FORMAT_PROPERTY)),
+          DatePattern.of(props.getProperty(DATETIME_FORMAT_PROPERTY)));
+      inputFormats = formats;
+    }
+    return formats;
+  }
+
+  /**
+   * The input formats of dates and datetimes.
+   */
+  private static final class InputFormats {
+    private final DatePattern date;
+    private final DatePattern dateTime;
+
+    private InputFormats(DatePattern date, DatePattern dateTime) {
+      this.date = date;
+      this.dateTime = dateTime;
+    }
+  }
+
+  /**
+   * A compiled date pattern. Values are exchanged as {@link LocalDateTime}, at midnight for dates.
+   */
+  private interface DatePattern {
+
+    LocalDateTime parse(String value) throws ParseException;
+
+    String format(LocalDateTime value);
+
+    static DatePattern of(String pattern) {
+      DateTimeFormatter formatter = ofLegacyPattern(pattern);
+      return formatter != null ? new JavaTimePattern(formatter) : new LegacyPattern(pattern);
+    }
+  }
+
+  /**
+   * A pattern compiled to an immutable {@link DateTimeFormatter}.
+   */
+  private static final class JavaTimePattern implements DatePattern {
+    private final DateTimeFormatter formatter;
+
+    private JavaTimePattern(DateTimeFormatter formatter) {
+      this.formatter = formatter;
+    }
+
+    @Override
+    public LocalDateTime parse(String value) throws ParseException {
+      return parse(formatter, value);
+    }
+
+    @Override
+    public String format(LocalDateTime value) {
+      return formatter.format(value);
+    }
+
+    private static LocalDateTime parse(DateTimeFormatter formatter, String value) throws ParseException {
+      try {
+        TemporalAccessor parsed = formatter.parse(value, new ParsePosition(0));
+        LocalTime time = parsed.query(TemporalQueries.localTime());
+        return LocalDate.from(parsed).atTime(time == null ? LocalTime.MIDNIGHT : time);
+      } catch (DateTimeException e) {
+        ParseException parseException = new ParseException("Unparseable date: \"" + value + "\"", 0);
+        parseException.initCause(e);
+        throw parseException;
+      }
+    }
+  }
+
+  /**
+   * A pattern without exact {@link DateTimeFormatter} equivalent, kept as a {@link SimpleDateFormat}
+   * per thread.
+   */
+  private static final class LegacyPattern implements DatePattern {
+    private final ThreadLocal<SimpleDateFormat> format;
+
+    private LegacyPattern(String pattern) {
+      this.format = ThreadLocal.withInitial(() -> new SimpleDateFormat(pattern));
+    }
+
+    @Override
+    public LocalDateTime parse(String value) throws ParseException {
+      return LocalDateTime.ofInstant(format.get().parse(value).toInstant(), ZoneId.systemDefault());
+    }
+
+    @Override
+    public String format(LocalDateTime value) {
+      return format.get().format(Date.from(value.atZone(ZoneId.systemDefault()).toInstant()));
+    }
+  }
+}